@@ -6,18 +6,27 @@ import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
  * Represents a bank account with basic operations.
  */
 public class Account {
+    public static final String DEFAULT_CURRENCY = "GBP";
+
     private String accountNumber;
     private String accountHolder;
     private String passwordHash;
     private double balance;
     private List<Transaction> transactions;
     private String createdAt;
+    private String currency;
+    private transient TransactionIndex index;
+    private transient volatile LedgerListener listener;
+    private transient volatile HotCredits hot;
+    /** Bumped each time the history is replaced wholesale; account stores keep it to spot a compacted history. */
+    private transient int historyGeneration;
 
     /**
      * Create a new bank account.
@@ -29,6 +38,21 @@ public class Account {
      * @throws IllegalArgumentException if password is too short
      */
     public Account(String accountNumber, String accountHolder, String password, double initialBalance) {
+        this(accountNumber, accountHolder, password, initialBalance, DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Create a new bank account held in a given currency.
+     * 
+     * @param accountNumber Unique account identifier
+     * @param accountHolder Name of the account holder
+     * @param password Account password (will be hashed)
+     * @param initialBalance Starting balance
+     * @param currency ISO 4217 currency code, e.g. "GBP"
+     * @throws IllegalArgumentException if password is too short or the currency code is malformed
+     */
+    public Account(String accountNumber, String accountHolder, String password, double initialBalance,
+                   String currency) {
         if (password.length() < 4) {
             throw new IllegalArgumentException("Password must be at least 4 characters long");
         }
@@ -39,6 +63,7 @@ public class Account {
         this.balance = initialBalance;
         this.transactions = new ArrayList<>();
         this.createdAt = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        this.currency = checkCurrency(currency);
 
         if (initialBalance > 0) {
             addTransaction("Initial Deposit", initialBalance, "credit");
@@ -52,6 +77,43 @@ public class Account {
         this.transactions = new ArrayList<>();
     }
 
+    /**
+     * Rebuild an account from stored fields without re-hashing a password.
+     * 
+     * @param accountNumber Unique account identifier
+     * @param accountHolder Name of the account holder
+     * @param passwordHash Hex SHA-256 password hash
+     * @param balance Current balance
+     * @param transactions Transaction history
+     * @param createdAt Creation timestamp
+     * @return Restored account
+     */
+    static Account restore(String accountNumber, String accountHolder, String passwordHash, double balance,
+                           List<Transaction> transactions, String createdAt) {
+        Account account = new Account();
+        account.accountNumber = accountNumber;
+        account.accountHolder = accountHolder;
+        account.passwordHash = passwordHash;
+        account.balance = balance;
+        account.transactions = transactions;
+        account.createdAt = createdAt;
+        return account;
+    }
+
+    /**
+     * Validate an ISO 4217 style currency code.
+     * 
+     * @param currency Currency code
+     * @return The code
+     * @throws IllegalArgumentException if it is not three upper-case letters
+     */
+    static String checkCurrency(String currency) {
+        if (currency == null || !currency.matches("[A-Z]{3}")) {
+            throw new IllegalArgumentException("Invalid currency code: " + currency);
+        }
+        return currency;
+    }
+
     /**
      * Hash password using SHA-256.
      * 
@@ -59,16 +121,26 @@ public class Account {
      * @return Hashed password
      */
     private static String hashPassword(String password) {
+        byte[] hash = hashPasswordBytes(password);
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) hexString.append('0');
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+
+    /**
+     * Hash password using SHA-256, returning the raw 32-byte digest.
+     * 
+     * @param password Plain text password
+     * @return Password digest
+     */
+    static byte[] hashPasswordBytes(String password) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 algorithm not found", e);
         }
@@ -92,11 +164,156 @@ public class Account {
      * @param type Transaction type (credit or debit)
      */
     private void addTransaction(String description, double amount, String type) {
+        addTransaction(description, amount, type, null);
+    }
+
+    /**
+     * Add a transaction to the account history.
+     * 
+     * @param description Transaction description
+     * @param amount Transaction amount
+     * @param type Transaction type (credit or debit)
+     * @param counterparty Other account of a transfer (null otherwise)
+     */
+    private void addTransaction(String description, double amount, String type, String counterparty) {
         String date = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
         Transaction transaction = new Transaction(date, description, amount, type, this.balance);
+        transaction.setCounterparty(counterparty);
+        append(transaction);
+        if (listener != null) {
+            listener.onTransaction(this, transaction);
+        }
+    }
+
+    /**
+     * Chain a transaction onto the history (see {@link LedgerChain}). Caller holds the account lock.
+     * 
+     * @param transaction Transaction with its balance after set
+     */
+    private void append(Transaction transaction) {
+        String previous = transactions.isEmpty() ? null : transactions.get(transactions.size() - 1).getHash();
+        transaction.setHash(LedgerChain.seal(accountNumber, previous, transaction));
         this.transactions.add(transaction);
     }
 
+    /**
+     * Seal the history of an account saved before transactions were chained.
+     * Histories that already carry hashes are left alone, so tampering with
+     * them stays visible.
+     */
+    synchronized void sealHistory() {
+        coalesce();
+        for (Transaction transaction : transactions) {
+            if (transaction.getHash() != null) {
+                return;
+            }
+        }
+        String previous = null;
+        for (Transaction transaction : transactions) {
+            transaction.setHash(LedgerChain.seal(accountNumber, previous, transaction));
+            previous = transaction.getHash();
+        }
+    }
+
+    /**
+     * Apply a transaction read back from the event log. The listener is not told.
+     * 
+     * @param date When it originally happened
+     * @param description Transaction description
+     * @param amount Transaction amount
+     * @param type Transaction type (credit or debit)
+     * @param counterparty Other account of a transfer (null otherwise)
+     */
+    synchronized void replay(String date, String description, double amount, String type, String counterparty) {
+        this.balance += "credit".equals(type) ? amount : -amount;
+        Transaction transaction = new Transaction(date, description, amount, type, this.balance);
+        transaction.setCounterparty(counterparty);
+        append(transaction);
+    }
+
+    /**
+     * Copy the account, history included. The copy has no listener.
+     * 
+     * @return Detached copy
+     */
+    synchronized Account copy() {
+        coalesce();
+        Account copy = restore(accountNumber, accountHolder, passwordHash, balance, new ArrayList<>(transactions),
+            createdAt);
+        copy.currency = currency;
+        copy.historyGeneration = historyGeneration;
+        return copy;
+    }
+
+    /**
+     * Attach the listener told about every new transaction (replaces any previous one).
+     * 
+     * @param listener Listener, or null to detach
+     */
+    void setLedgerListener(LedgerListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Switch hot-account mode on or off.
+     * 
+     * A hot account (payroll, a busy merchant) takes plain deposits without
+     * locking: each credit is parked in one of several striped cells and only
+     * folded into the balance and history when the account next needs an exact
+     * balance, i.e. on a withdrawal, a transfer, a balance read or a history
+     * query. Listeners hear about parked credits at that point. Switching the
+     * mode off folds in whatever is still parked.
+     * 
+     * @param hot true to stripe deposits, false to lock for each one
+     */
+    public synchronized void setHot(boolean hot) {
+        if (hot && this.hot == null) {
+            this.hot = HotCredits.forProcessors();
+        } else if (!hot && this.hot != null) {
+            this.hot.close();
+            coalesce();
+            this.hot = null;
+        }
+    }
+
+    /**
+     * @return true if deposits are striped (see {@link #setHot(boolean)})
+     */
+    public boolean isHot() {
+        return hot != null;
+    }
+
+    /**
+     * Fold parked hot-account credits into the balance and history, so both can
+     * be read off the account consistently under its lock.
+     */
+    synchronized void settle() {
+        coalesce();
+    }
+
+    /**
+     * Apply parked credits in date order. Caller holds the account lock.
+     */
+    private void coalesce() {
+        HotCredits credits = hot;
+        if (credits == null) {
+            return;
+        }
+        List<Transaction> parked = new ArrayList<>();
+        if (credits.drain(parked) == 0) {
+            return;
+        }
+        parked.sort(Comparator.comparing(Transaction::getDate));
+        for (Transaction transaction : parked) {
+            this.balance += transaction.getAmount();
+            transaction.setBalanceAfter(this.balance);
+            append(transaction);
+            if (listener != null) {
+                listener.onTransaction(this, transaction);
+            }
+        }
+    }
+
     /**
      * Deposit money into the account.
      * 
@@ -105,12 +322,32 @@ public class Account {
      * @return true if successful, false otherwise
      */
     public boolean deposit(double amount, String description) {
+        HotCredits credits = hot;
+        if (credits != null && amount > 0) {
+            String date = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            if (credits.add(new Transaction(date, description, amount, "credit", 0))) {
+                return true;
+            }
+        }
+        return deposit(amount, description, null);
+    }
+
+    /**
+     * Deposit money received from another account.
+     * 
+     * @param amount Amount to deposit
+     * @param description Transaction description
+     * @param counterparty Sending account number (null for a plain deposit)
+     * @return true if successful, false otherwise
+     */
+    synchronized boolean deposit(double amount, String description, String counterparty) {
         if (amount <= 0) {
             return false;
         }
 
+        coalesce();
         this.balance += amount;
-        addTransaction(description, amount, "credit");
+        addTransaction(description, amount, "credit", counterparty);
         return true;
     }
 
@@ -121,13 +358,29 @@ public class Account {
      * @param description Transaction description
      * @return true if successful, false otherwise
      */
-    public boolean withdraw(double amount, String description) {
-        if (amount <= 0 || amount > this.balance) {
+    public synchronized boolean withdraw(double amount, String description) {
+        return withdraw(amount, description, null);
+    }
+
+    /**
+     * Withdraw money sent to another account.
+     * 
+     * @param amount Amount to withdraw
+     * @param description Transaction description
+     * @param counterparty Receiving account number (null for a plain withdrawal)
+     * @return true if successful, false otherwise
+     */
+    synchronized boolean withdraw(double amount, String description, String counterparty) {
+        if (amount <= 0) {
+            return false;
+        }
+        coalesce();
+        if (!BalanceTools.hasAvailableFunds(Reconciler.toCents(this.balance), Reconciler.toCents(amount))) {
             return false;
         }
 
         this.balance -= amount;
-        addTransaction(description, amount, "debit");
+        addTransaction(description, amount, "debit", counterparty);
         return true;
     }
 
@@ -136,7 +389,8 @@ public class Account {
      * 
      * @return Current balance
      */
-    public double getBalance() {
+    public synchronized double getBalance() {
+        coalesce();
         return this.balance;
     }
 
@@ -146,7 +400,8 @@ public class Account {
      * @param limit Maximum number of transactions to return (null for all)
      * @return List of transactions
      */
-    public List<Transaction> getTransactionHistory(Integer limit) {
+    public synchronized List<Transaction> getTransactionHistory(Integer limit) {
+        coalesce();
         if (limit != null && limit > 0) {
             int size = transactions.size();
             int fromIndex = Math.max(0, size - limit);
@@ -155,6 +410,24 @@ public class Account {
         return new ArrayList<>(transactions);
     }
 
+    /**
+     * Search the transaction history by date range, type, amount and counterparty.
+     * 
+     * Backed by a per-account timestamp index, so a date-range query costs
+     * O(log n + k) rather than a scan of the whole history.
+     * 
+     * @param query Search criteria
+     * @return Matching transactions in chronological order
+     */
+    public synchronized List<Transaction> queryTransactions(TransactionQuery query) {
+        coalesce();
+        if (index == null) {
+            index = new TransactionIndex();
+        }
+        index.sync(transactions);
+        return index.query(transactions, query);
+    }
+
     // Getters
     public String getAccountNumber() {
         return accountNumber;
@@ -176,6 +449,13 @@ public class Account {
         return createdAt;
     }
 
+    /**
+     * @return ISO 4217 currency code of the balance (accounts saved before currencies existed are GBP)
+     */
+    public String getCurrency() {
+        return currency != null ? currency : DEFAULT_CURRENCY;
+    }
+
     // Setters for deserialization
     public void setAccountNumber(String accountNumber) {
         this.accountNumber = accountNumber;
@@ -193,14 +473,36 @@ public class Account {
         this.balance = balance;
     }
 
-    public void setTransactions(List<Transaction> transactions) {
+    public synchronized void setTransactions(List<Transaction> transactions) {
         this.transactions = transactions;
+        this.index = null;
+        this.historyGeneration++;
+    }
+
+    /**
+     * @return How many times the history has been replaced wholesale, e.g. by compaction
+     */
+    synchronized int getHistoryGeneration() {
+        return historyGeneration;
+    }
+
+    /**
+     * Restore the history generation an account store recorded with the account.
+     *
+     * @param historyGeneration Stored generation
+     */
+    synchronized void setHistoryGeneration(int historyGeneration) {
+        this.historyGeneration = historyGeneration;
     }
 
     public void setCreatedAt(String createdAt) {
         this.createdAt = createdAt;
     }
 
+    public void setCurrency(String currency) {
+        this.currency = currency;
+    }
+
     /**
      * Inner class representing a transaction.
      */
@@ -210,6 +512,8 @@ public class Account {
         private double amount;
         private String type;
         private double balanceAfter;
+        private String counterparty;
+        private String hash;
 
         public Transaction(String date, String description, double amount, String type, double balanceAfter) {
             this.date = date;
@@ -240,6 +544,36 @@ public class Account {
             return balanceAfter;
         }
 
+        public String getCounterparty() {
+            return counterparty;
+        }
+
+        /**
+         * @return Chained hash (see {@link LedgerChain}), or null if not sealed yet
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Get the counterparty, falling back to the "Transfer to/from" description
+         * for entries written before the counterparty was recorded.
+         * 
+         * @return Other account number, or null if this is not a transfer
+         */
+        String resolveCounterparty() {
+            if (counterparty != null || description == null) {
+                return counterparty;
+            }
+            if (description.startsWith("Transfer to ")) {
+                return description.substring("Transfer to ".length());
+            }
+            if (description.startsWith("Transfer from ")) {
+                return description.substring("Transfer from ".length());
+            }
+            return null;
+        }
+
         // Setters for Gson
         public void setDate(String date) {
             this.date = date;
@@ -260,5 +594,13 @@ public class Account {
         public void setBalanceAfter(double balanceAfter) {
             this.balanceAfter = balanceAfter;
         }
+
+        public void setCounterparty(String counterparty) {
+            this.counterparty = counterparty;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
     }
 }
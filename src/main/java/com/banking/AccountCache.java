@@ -0,0 +1,386 @@
+package com.banking;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Bounded read-through, write-behind cache of accounts over an {@link AccountStore}.
+ *
+ * Lookups that miss load the account from the store. Changed accounts are
+ * marked dirty and written back on {@link #flush()}, or when they are evicted.
+ * When the cache is over capacity the least recently used account is evicted.
+ *
+ * There is never more than one live Account per number: an evicted account
+ * that some caller still holds is weakly remembered, and a lookup re-admits
+ * that same instance instead of loading a second copy from the store. So two
+ * operations on one account always lock the same object, and a change made
+ * through a reference obtained before eviction marks it dirty again, which
+ * re-admits it. Only accounts nobody holds any more are read afresh.
+ */
+public class AccountCache extends AbstractMap<String, Account> {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final AccountStore store;
+    private final int capacity;
+    private final Consumer<Account> onAdmit;
+    private final LinkedHashMap<String, Account> resident;
+    private final Set<Account> dirty;
+    private final Map<String, Account> evicting;
+    private final Map<String, Released> released;
+    private final ReferenceQueue<Account> collected;
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a cache.
+     *
+     * @param store Backing store
+     * @param capacity Maximum number of resident accounts
+     * @param onAdmit Called once for every account read from the store, before anyone else sees it (may be null)
+     */
+    public AccountCache(AccountStore store, int capacity, Consumer<Account> onAdmit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.store = store;
+        this.capacity = capacity;
+        this.onAdmit = onAdmit;
+        this.resident = new LinkedHashMap<>(16, 0.75f, true);
+        this.dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.evicting = new HashMap<>();
+        this.released = new HashMap<>();
+        this.collected = new ReferenceQueue<>();
+    }
+
+    @Override
+    public Account get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String accountNumber = (String) key;
+        List<Account> victims;
+        Account account;
+        synchronized (this) {
+            account = resident.get(accountNumber);
+            if (account != null) {
+                hits++;
+                return account;
+            }
+            // Still being written back: take it again rather than read a stale copy
+            account = evicting.get(accountNumber);
+            if (account != null) {
+                hits++;
+            } else {
+                misses++;
+                // Evicted but still held somewhere: hand back that instance
+                account = reclaim(accountNumber);
+            }
+            victims = account == null ? null : admit(account);
+        }
+        if (account != null) {
+            writeBack(victims);
+            return account;
+        }
+
+        // Read outside the lock so a slow store does not stall hits
+        Account loaded;
+        try {
+            loaded = store.load(accountNumber);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load account " + accountNumber, e);
+        }
+        if (loaded == null) {
+            return null;
+        }
+        // No other thread can see the new copy yet, so this cannot wait on a lock
+        if (onAdmit != null) {
+            onAdmit.accept(loaded);
+        }
+        synchronized (this) {
+            // Another thread may have admitted (and even evicted) it while we read
+            Account raced = resident.get(accountNumber);
+            if (raced != null) {
+                return raced;
+            }
+            raced = evicting.get(accountNumber);
+            if (raced == null) {
+                raced = reclaim(accountNumber);
+            }
+            if (raced != null) {
+                loaded = raced;
+            }
+            victims = admit(loaded);
+        }
+        writeBack(victims);
+        return loaded;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        synchronized (this) {
+            if (resident.containsKey(key) || evicting.containsKey(key)) {
+                return true;
+            }
+        }
+        try {
+            return store.contains((String) key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add a new account. It is dirty until the next flush.
+     *
+     * @return The account already resident or stored under this number, or null if added
+     */
+    @Override
+    public Account putIfAbsent(String accountNumber, Account account) {
+        Account existing = get(accountNumber);
+        if (existing != null) {
+            return existing;
+        }
+        List<Account> victims;
+        synchronized (this) {
+            existing = resident.get(accountNumber);
+            if (existing != null) {
+                return existing;
+            }
+            dirty.add(account);
+            victims = admit(account);
+        }
+        writeBack(victims);
+        return null;
+    }
+
+    @Override
+    public Account put(String accountNumber, Account account) {
+        Account previous;
+        List<Account> victims;
+        synchronized (this) {
+            previous = resident.get(accountNumber);
+            dirty.add(account);
+            victims = admit(account);
+        }
+        writeBack(victims);
+        return previous;
+    }
+
+    @Override
+    public synchronized Account remove(Object key) {
+        Account removed = resident.remove(key);
+        released.remove(key);
+        if (removed != null) {
+            dirty.remove(removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Record that an account changed and must be written back. An account
+     * changed after it was evicted is admitted again.
+     *
+     * @param account The changed account
+     */
+    public void markDirty(Account account) {
+        List<Account> victims;
+        synchronized (this) {
+            dirty.add(account);
+            if (resident.get(account.getAccountNumber()) == account) {
+                return;
+            }
+            victims = admit(account);
+        }
+        writeBack(victims);
+    }
+
+    /**
+     * Check whether an account is currently held in memory.
+     *
+     * @param accountNumber Account identifier
+     * @return true if resident
+     */
+    public synchronized boolean isResident(String accountNumber) {
+        return resident.containsKey(accountNumber);
+    }
+
+    /**
+     * Write every dirty account to the store and make it durable.
+     *
+     * @throws IOException if the store cannot be written; unwritten accounts stay dirty
+     */
+    public void flush() throws IOException {
+        List<Account> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(dirty);
+            dirty.clear();
+        }
+        try {
+            store.saveAll(pending);
+            store.flush();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                dirty.addAll(pending);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return Number of resident accounts
+     */
+    @Override
+    public synchronized int size() {
+        return resident.size();
+    }
+
+    public synchronized int dirtyCount() {
+        return dirty.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Entries are a snapshot of the resident accounts taken when the set is iterated.
+     */
+    @Override
+    public Set<Entry<String, Account>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Account>> iterator() {
+                List<Entry<String, Account>> snapshot;
+                synchronized (AccountCache.this) {
+                    snapshot = new ArrayList<>(resident.size());
+                    for (Account account : resident.values()) {
+                        snapshot.add(new SimpleImmutableEntry<>(account.getAccountNumber(), account));
+                    }
+                }
+                return Collections.unmodifiableList(snapshot).iterator();
+            }
+
+            @Override
+            public int size() {
+                return AccountCache.this.size();
+            }
+        };
+    }
+
+    /**
+     * Make an account resident and pick the least recently used accounts to
+     * evict. Clean victims are dropped at once; dirty ones are parked in
+     * {@code evicting} and returned so the caller can write them back after
+     * releasing the cache lock. Saving takes the account's lock, and threads
+     * holding an account lock call {@link #markDirty}, so the cache lock must
+     * never wait for an account.
+     */
+    private List<Account> admit(Account account) {
+        released.remove(account.getAccountNumber());
+        resident.put(account.getAccountNumber(), account);
+        if (resident.size() <= capacity) {
+            return Collections.emptyList();
+        }
+        List<Account> victims = new ArrayList<>();
+        Iterator<Account> eldest = resident.values().iterator();
+        while (resident.size() > capacity && eldest.hasNext()) {
+            Account victim = eldest.next();
+            eldest.remove();
+            if (dirty.remove(victim)) {
+                evicting.put(victim.getAccountNumber(), victim);
+                victims.add(victim);
+            } else {
+                release(victim);
+            }
+        }
+        return victims;
+    }
+
+    /**
+     * Remember an account that left the cache for as long as someone still holds it.
+     */
+    private void release(Account account) {
+        expunge();
+        released.put(account.getAccountNumber(), new Released(account, collected));
+    }
+
+    /**
+     * Take back a released account that is still reachable.
+     *
+     * @return The account, or null if it was never released or has been collected
+     */
+    private Account reclaim(String accountNumber) {
+        expunge();
+        Released reference = released.remove(accountNumber);
+        return reference == null ? null : reference.get();
+    }
+
+    /**
+     * Drop entries for accounts the garbage collector has cleared.
+     */
+    private void expunge() {
+        Released reference;
+        while ((reference = (Released) collected.poll()) != null) {
+            released.remove(reference.accountNumber, reference);
+        }
+    }
+
+    /**
+     * Write evicted dirty accounts to the store. Must be called without holding the cache lock.
+     */
+    private void writeBack(List<Account> victims) {
+        for (Account victim : victims) {
+            try {
+                synchronized (victim) {
+                    store.save(victim);
+                }
+            } catch (IOException e) {
+                // Keep the change in memory rather than lose it; the next flush retries
+                synchronized (this) {
+                    dirty.add(victim);
+                    resident.putIfAbsent(victim.getAccountNumber(), victim);
+                }
+            } finally {
+                synchronized (this) {
+                    if (evicting.remove(victim.getAccountNumber(), victim)
+                            && resident.get(victim.getAccountNumber()) != victim) {
+                        release(victim);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Weak reference to a released account, keyed for removal once collected.
+     */
+    private static final class Released extends WeakReference<Account> {
+        private final String accountNumber;
+
+        private Released(Account account, ReferenceQueue<Account> queue) {
+            super(account, queue);
+            this.accountNumber = account.getAccountNumber();
+        }
+    }
+}
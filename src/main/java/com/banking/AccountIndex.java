@@ -0,0 +1,353 @@
+package com.banking;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Account lookup map specialised for numbers made of a fixed prefix and digits.
+ *
+ * Conforming numbers such as "ACC001" are encoded into a primitive long and
+ * looked up in an open-addressing long-to-int table pointing into a dense
+ * account array, which avoids String hashing and a map entry per account.
+ * Other numbers fall back to an ordinary HashMap. Reads are optimistic and
+ * lock-free in the common case; writes take an exclusive lock.
+ */
+public class AccountIndex extends AbstractMap<String, Account> {
+    /** At most 17 digits, so the value fits in 57 bits beside the 5-bit length. */
+    private static final int MAX_DIGITS = 17;
+    private static final long EMPTY = 0;
+
+    private final String prefix;
+    private final StampedLock lock = new StampedLock();
+
+    /** Keys and slots are swapped together, so an optimistic read never pairs arrays of different sizes. */
+    private Table table;
+    private Account[] dense;
+    private int count;
+    private final Map<String, Account> fallback = new HashMap<>();
+
+    /**
+     * Create an index for account numbers with the given prefix.
+     *
+     * @param prefix Fixed prefix of conforming account numbers, e.g. "ACC"
+     */
+    public AccountIndex(String prefix) {
+        this.prefix = prefix;
+        this.table = new Table(64);
+        this.dense = new Account[32];
+    }
+
+    /**
+     * Encode a conforming account number as a non-zero long.
+     *
+     * @param accountNumber Account number
+     * @return Encoded key, or 0 if the number does not conform
+     */
+    long encode(String accountNumber) {
+        int digits = accountNumber.length() - prefix.length();
+        if (digits < 1 || digits > MAX_DIGITS || !accountNumber.startsWith(prefix)) {
+            return EMPTY;
+        }
+        long value = 0;
+        for (int i = prefix.length(); i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return EMPTY;
+            }
+            value = value * 10 + (c - '0');
+        }
+        // Keep the digit count so that "ACC1" and "ACC001" stay distinct
+        return (value << 5) | digits;
+    }
+
+    @Override
+    public Account get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String accountNumber = (String) key;
+        long encoded = encode(accountNumber);
+
+        long stamp = lock.tryOptimisticRead();
+        Account result = encoded == EMPTY ? null : lookup(encoded);
+        if (encoded != EMPTY && lock.validate(stamp)) {
+            return result;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return encoded == EMPTY ? fallback.get(accountNumber) : lookup(encoded);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Account put(String accountNumber, Account account) {
+        long stamp = lock.writeLock();
+        try {
+            return insert(accountNumber, account, true);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Account putIfAbsent(String accountNumber, Account account) {
+        long stamp = lock.writeLock();
+        try {
+            return insert(accountNumber, account, false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Account remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String accountNumber = (String) key;
+        long stamp = lock.writeLock();
+        try {
+            long encoded = encode(accountNumber);
+            if (encoded == EMPTY) {
+                return fallback.remove(accountNumber);
+            }
+            Table current = table;
+            int slot = findSlot(current.keys, encoded);
+            if (current.keys[slot] == EMPTY) {
+                return null;
+            }
+            int position = current.slots[slot];
+            Account removed = dense[position];
+            deleteSlot(current, slot);
+
+            // Move the last account into the hole to keep the array dense
+            int last = --count;
+            if (position != last) {
+                Account moved = dense[last];
+                dense[position] = moved;
+                current.slots[findSlot(current.keys, encode(moved.getAccountNumber()))] = position;
+            }
+            dense[last] = null;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            Arrays.fill(table.keys, EMPTY);
+            Arrays.fill(dense, 0, count, null);
+            count = 0;
+            fallback.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return count + fallback.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Get the number of accounts held in the primitive table (the rest use the fallback map).
+     *
+     * @return Number of conforming accounts
+     */
+    public int primitiveSize() {
+        long stamp = lock.readLock();
+        try {
+            return count;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Entries are a snapshot taken when the set is iterated.
+     */
+    @Override
+    public Set<Entry<String, Account>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Account>> iterator() {
+                Account[] snapshot = snapshot();
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < snapshot.length;
+                    }
+
+                    @Override
+                    public Entry<String, Account> next() {
+                        if (next >= snapshot.length) {
+                            throw new NoSuchElementException();
+                        }
+                        Account account = snapshot[next++];
+                        return new SimpleImmutableEntry<>(account.getAccountNumber(), account);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return AccountIndex.this.size();
+            }
+        };
+    }
+
+    private Account[] snapshot() {
+        long stamp = lock.readLock();
+        try {
+            Account[] snapshot = Arrays.copyOf(dense, count + fallback.size());
+            int i = count;
+            for (Account account : fallback.values()) {
+                snapshot[i++] = account;
+            }
+            return snapshot;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Look up an encoded key. May observe a torn state under a concurrent write,
+     * so callers validate the optimistic stamp before trusting the result.
+     */
+    private Account lookup(long encoded) {
+        Table current = table;
+        long[] keyTable = current.keys;
+        int[] slotTable = current.slots;
+        Account[] accounts = dense;
+        int mask = keyTable.length - 1;
+        int slot = mix(encoded) & mask;
+        for (int probes = 0; probes < keyTable.length; probes++) {
+            long key = keyTable[slot];
+            if (key == EMPTY) {
+                return null;
+            }
+            if (key == encoded) {
+                int position = slotTable[slot];
+                return position >= 0 && position < accounts.length ? accounts[position] : null;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private Account insert(String accountNumber, Account account, boolean replace) {
+        long encoded = encode(accountNumber);
+        if (encoded == EMPTY) {
+            return replace ? fallback.put(accountNumber, account) : fallback.putIfAbsent(accountNumber, account);
+        }
+
+        Table current = table;
+        int slot = findSlot(current.keys, encoded);
+        if (current.keys[slot] != EMPTY) {
+            Account existing = dense[current.slots[slot]];
+            if (replace) {
+                dense[current.slots[slot]] = account;
+            }
+            return existing;
+        }
+
+        if ((count + 1) * 2 > current.keys.length) {
+            current = grow(current);
+            slot = findSlot(current.keys, encoded);
+        }
+        if (count == dense.length) {
+            dense = Arrays.copyOf(dense, count * 2);
+        }
+        dense[count] = account;
+        current.slots[slot] = count;
+        current.keys[slot] = encoded;
+        count++;
+        return null;
+    }
+
+    private Table grow(Table old) {
+        Table larger = new Table(old.keys.length * 2);
+        for (int i = 0; i < old.keys.length; i++) {
+            if (old.keys[i] != EMPTY) {
+                int slot = findSlot(larger.keys, old.keys[i]);
+                larger.keys[slot] = old.keys[i];
+                larger.slots[slot] = old.slots[i];
+            }
+        }
+        // Filled before it is published, and published as one reference
+        table = larger;
+        return larger;
+    }
+
+    /**
+     * Remove a slot and re-place the following cluster (backward-shift deletion).
+     */
+    private static void deleteSlot(Table table, int slot) {
+        long[] keys = table.keys;
+        int[] slots = table.slots;
+        int mask = keys.length - 1;
+        keys[slot] = EMPTY;
+        int next = (slot + 1) & mask;
+        while (keys[next] != EMPTY) {
+            long key = keys[next];
+            int position = slots[next];
+            keys[next] = EMPTY;
+            int target = findSlot(keys, key);
+            keys[target] = key;
+            slots[target] = position;
+            next = (next + 1) & mask;
+        }
+    }
+
+    private static int findSlot(long[] table, long key) {
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Open-addressing key table and the dense position stored for each key.
+     */
+    private static final class Table {
+        private final long[] keys;
+        private final int[] slots;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.slots = new int[capacity];
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.banking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Storage backend for accounts that do not all have to be held in memory.
+ *
+ * A Bank built on a store keeps only recently used accounts on the heap, in an
+ * {@link AccountCache}, and reads the rest from the store on demand.
+ */
+public interface AccountStore extends Closeable {
+
+    /**
+     * Read one account with its history.
+     *
+     * @param accountNumber Account identifier
+     * @return The account, or null if it is not stored
+     * @throws IOException if the store cannot be read
+     */
+    Account load(String accountNumber) throws IOException;
+
+    /**
+     * Check whether an account is stored.
+     *
+     * @param accountNumber Account identifier
+     * @return true if present
+     * @throws IOException if the store cannot be read
+     */
+    boolean contains(String accountNumber) throws IOException;
+
+    /**
+     * Insert an account or bring a stored one up to date with its balance and
+     * any transactions not yet stored.
+     *
+     * @param account Account to persist
+     * @throws IOException if the store cannot be written
+     */
+    void save(Account account) throws IOException;
+
+    /**
+     * Persist several accounts; stores that can batch writes override this.
+     *
+     * @param accounts Accounts to persist
+     * @throws IOException if the store cannot be written
+     */
+    default void saveAll(Collection<Account> accounts) throws IOException {
+        for (Account account : accounts) {
+            synchronized (account) {
+                save(account);
+            }
+        }
+    }
+
+    /**
+     * Record one new transaction of a stored account; the account balance
+     * becomes the transaction's balanceAfter.
+     *
+     * @param accountNumber Account identifier
+     * @param transaction Transaction to append
+     * @throws IOException if the store cannot be written
+     */
+    void appendTransaction(String accountNumber, Account.Transaction transaction) throws IOException;
+
+    /**
+     * Visit every stored account.
+     *
+     * @param consumer Callback receiving each account
+     * @throws IOException if the store cannot be read
+     */
+    void scan(Consumer<Account> consumer) throws IOException;
+
+    /**
+     * Check a password; stores that keep hashes apart from histories override
+     * this to avoid loading the account.
+     *
+     * @param accountNumber Account identifier
+     * @param password Plain text password
+     * @return true if the account exists and the password matches
+     * @throws IOException if the store cannot be read
+     */
+    default boolean verifyPassword(String accountNumber, String password) throws IOException {
+        Account account = load(accountNumber);
+        return account != null && account.verifyPassword(password);
+    }
+
+    /**
+     * Get number, holder and balance of every stored account.
+     *
+     * @return Account summaries
+     * @throws IOException if the store cannot be read
+     */
+    default List<Map<String, Object>> summaries() throws IOException {
+        List<Map<String, Object>> result = new ArrayList<>();
+        scan(account -> {
+            Map<String, Object> info = new HashMap<>();
+            info.put("account_number", account.getAccountNumber());
+            info.put("account_holder", account.getAccountHolder());
+            info.put("balance", account.getBalance());
+            result.add(info);
+        });
+        return result;
+    }
+
+    /**
+     * Make all writes so far durable.
+     *
+     * @throws IOException if the store cannot be synced
+     */
+    void flush() throws IOException;
+}
@@ -0,0 +1,267 @@
+package com.banking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bank-wide figures kept up to date as accounts change, so dashboards can
+ * read them without scanning every account: the total held in each currency,
+ * the total per account holder, and the largest balances.
+ *
+ * The views are a {@link LedgerListener}. Each change records the account's
+ * new balance, so applying the same account twice is harmless and the views
+ * can be loaded while the bank keeps running. Totals are {@link LongAdder}s
+ * in pence, so concurrent updates don't contend and reads cost O(1). A holder's
+ * total adds up the balances of all their accounts as they are, whatever
+ * their currencies.
+ *
+ * The ranking orders accounts by balance alone, whatever their currencies,
+ * and keeps twice as many accounts as {@link #getTopAccounts} can be
+ * asked for. Every account outside it holds no more than the smallest balance
+ * inside, so most updates to unranked accounts are skipped without taking
+ * the ranking's lock. A ranked account whose balance falls below all the
+ * others leaves it; in the rare case that too few remain, the ranking is
+ * rebuilt from the recorded balances when next read.
+ */
+public class AggregateViews implements LedgerListener {
+    public static final int DEFAULT_TOP_SIZE = 100;
+
+    private static final Comparator<Ranked> RANKING = Comparator.comparingLong((Ranked ranked) -> -ranked.cents)
+        .thenComparing(ranked -> ranked.accountNumber);
+
+    private final int topSize;
+    private final int topCapacity;
+    private final Map<String, Position> positions;
+    private final Map<String, LongAdder> currencyTotals;
+    private final Map<String, LongAdder> holderTotals;
+    private final TreeSet<Ranked> ranking;
+    private boolean rankingComplete;
+    private volatile long floor;
+
+    /**
+     * @param topSize Largest number of top accounts that will be asked for
+     */
+    public AggregateViews(int topSize) {
+        if (topSize <= 0) {
+            throw new IllegalArgumentException("Top size must be positive");
+        }
+        this.topSize = topSize;
+        this.topCapacity = topSize * 2;
+        this.positions = new ConcurrentHashMap<>();
+        this.currencyTotals = new ConcurrentHashMap<>();
+        this.holderTotals = new ConcurrentHashMap<>();
+        this.ranking = new TreeSet<>(RANKING);
+        this.rankingComplete = true;
+        this.floor = Long.MIN_VALUE;
+    }
+
+    /**
+     * Record the current balance of existing accounts.
+     *
+     * @param accounts Accounts to load
+     */
+    public void load(Collection<Account> accounts) {
+        for (Account account : accounts) {
+            synchronized (account) {
+                update(account, Reconciler.toCents(account.getBalance()));
+            }
+        }
+    }
+
+    @Override
+    public void onAccountCreated(Account account) {
+        update(account, Reconciler.toCents(account.getBalance()));
+    }
+
+    @Override
+    public void onTransaction(Account account, Account.Transaction transaction) {
+        update(account, Reconciler.toCents(transaction.getBalanceAfter()));
+    }
+
+    /**
+     * Record an account's new balance. Caller holds the account's lock, so
+     * updates to one account never interleave.
+     */
+    private void update(Account account, long cents) {
+        String accountNumber = account.getAccountNumber();
+        String holder = Objects.toString(account.getAccountHolder(), "");
+        String currency = account.getCurrency();
+        Position position = positions.get(accountNumber);
+        if (position == null) {
+            position = new Position(accountNumber, holder, currency);
+            positions.put(accountNumber, position);
+        } else if (!position.holder.equals(holder) || !position.currency.equals(currency)) {
+            adder(holderTotals, position.holder).add(-position.cents);
+            adder(currencyTotals, position.currency).add(-position.cents);
+            position.cents = 0;
+            position.holder = holder;
+            position.currency = currency;
+        }
+        long delta = cents - position.cents;
+        position.cents = cents;
+        if (delta != 0) {
+            adder(currencyTotals, currency).add(delta);
+            adder(holderTotals, holder).add(delta);
+        }
+
+        if (!position.ranked && cents < floor) {
+            // Still no more than the smallest ranked balance
+            return;
+        }
+        rank(position, cents);
+    }
+
+    private synchronized void rank(Position position, long cents) {
+        if (position.ranked) {
+            ranking.remove(position.rankedAs);
+            position.ranked = false;
+        }
+        Ranked ranked = new Ranked(position.accountNumber, cents);
+        if (rankingComplete || (!ranking.isEmpty() && RANKING.compare(ranked, ranking.last()) <= 0)) {
+            ranking.add(ranked);
+            position.rankedAs = ranked;
+            position.ranked = true;
+            if (ranking.size() > topCapacity) {
+                Ranked evicted = ranking.pollLast();
+                positions.get(evicted.accountNumber).ranked = false;
+                rankingComplete = false;
+            }
+        }
+        // Otherwise it fell below every other ranked account, and unranked ones may now outrank it
+        floor = rankingComplete || ranking.isEmpty() ? Long.MIN_VALUE : ranking.last().cents;
+    }
+
+    /**
+     * Rebuild the ranking from every recorded balance.
+     */
+    private void rebuildRanking() {
+        ranking.clear();
+        for (Position position : positions.values()) {
+            position.ranked = false;
+            Ranked ranked = new Ranked(position.accountNumber, position.cents);
+            if (ranking.size() < topCapacity || RANKING.compare(ranked, ranking.last()) < 0) {
+                ranking.add(ranked);
+                position.rankedAs = ranked;
+                position.ranked = true;
+                if (ranking.size() > topCapacity) {
+                    positions.get(ranking.pollLast().accountNumber).ranked = false;
+                }
+            }
+        }
+        rankingComplete = ranking.size() < topCapacity || ranking.size() == positions.size();
+        floor = rankingComplete ? Long.MIN_VALUE : ranking.last().cents;
+    }
+
+    private static LongAdder adder(Map<String, LongAdder> totals, String key) {
+        return totals.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    /**
+     * @param currency ISO 4217 currency code
+     * @return Total held in accounts of that currency
+     */
+    public double getTotal(String currency) {
+        LongAdder total = currencyTotals.get(currency);
+        return total == null ? 0 : Reconciler.fromCents(total.sum());
+    }
+
+    /**
+     * @return Total held in each currency, by currency code
+     */
+    public Map<String, Double> getTotals() {
+        Map<String, Double> totals = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : currencyTotals.entrySet()) {
+            totals.put(entry.getKey(), Reconciler.fromCents(entry.getValue().sum()));
+        }
+        return totals;
+    }
+
+    /**
+     * @param accountHolder Holder name, as on the accounts
+     * @return Sum of the holder's account balances (0 for an unknown holder)
+     */
+    public double getHolderBalance(String accountHolder) {
+        LongAdder total = holderTotals.get(accountHolder);
+        return total == null ? 0 : Reconciler.fromCents(total.sum());
+    }
+
+    /**
+     * @return Number of accounts recorded
+     */
+    public int getAccountCount() {
+        return positions.size();
+    }
+
+    /**
+     * Get the accounts with the largest balances, largest first (ties by account number).
+     *
+     * @param limit Number of accounts wanted, at most the top size given at construction
+     * @return Up to limit accounts
+     * @throws IllegalArgumentException if more accounts are asked for than are ranked
+     */
+    public synchronized List<Ranked> getTopAccounts(int limit) {
+        if (limit > topSize) {
+            throw new IllegalArgumentException("Only the top " + topSize + " accounts are kept");
+        }
+        if (!rankingComplete && ranking.size() < limit) {
+            rebuildRanking();
+        }
+        List<Ranked> top = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (Ranked ranked : ranking) {
+            if (top.size() == limit) {
+                break;
+            }
+            top.add(ranked);
+        }
+        return top;
+    }
+
+    /**
+     * What the views last recorded of one account. Balance, holder and
+     * currency change under the account's lock; the ranking fields under the
+     * views' lock.
+     */
+    private static class Position {
+        private final String accountNumber;
+        private String holder;
+        private String currency;
+        private volatile long cents;
+        private volatile boolean ranked;
+        private Ranked rankedAs;
+
+        Position(String accountNumber, String holder, String currency) {
+            this.accountNumber = accountNumber;
+            this.holder = holder;
+            this.currency = currency;
+        }
+    }
+
+    /**
+     * An account's place in the ranking.
+     */
+    public static class Ranked {
+        private final String accountNumber;
+        private final long cents;
+
+        Ranked(String accountNumber, long cents) {
+            this.accountNumber = accountNumber;
+            this.cents = cents;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        public double getBalance() {
+            return Reconciler.fromCents(cents);
+        }
+    }
+}
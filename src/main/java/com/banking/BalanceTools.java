@@ -27,6 +27,17 @@ public class BalanceTools {
         return currentBalance >= transactionAmount;
     }
 
+    /**
+     * Check if there are sufficient funds available for a transaction.
+     * 
+     * @param currentBalance The current balance in pence
+     * @param transactionAmount The transaction amount in pence
+     * @return true if funds are available, false otherwise
+     */
+    public static boolean hasAvailableFunds(long currentBalance, long transactionAmount) {
+        return currentBalance >= transactionAmount;
+    }
+
     /**
      * Calculate the annual interest on a savings bond.
      * 
@@ -38,6 +49,17 @@ public class BalanceTools {
         return (int) (openingBalance * interestRate);
     }
 
+    /**
+     * Calculate the annual interest on a balance too large for an int.
+     * 
+     * @param openingBalance The opening balance in pence
+     * @param interestRate The annual interest rate (e.g., 0.05 for 5%)
+     * @return The interest amount in pence
+     */
+    public static long annualBondInterest(long openingBalance, double interestRate) {
+        return (long) (openingBalance * interestRate);
+    }
+
     /**
      * Calculate the expected balance after one year with interest.
      * 
@@ -1,27 +1,83 @@
 package com.banking;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Main bank class managing multiple accounts.
  */
 public class Bank {
+    private static final Type RECORD_LIST_TYPE = new TypeToken<ArrayList<IdempotencyCache.Record>>(){}.getType();
+    private static final Type ORDER_LIST_TYPE = new TypeToken<ArrayList<StandingOrder>>(){}.getType();
+
+    /** Transactions recorded between automatic hash chain checkpoints. */
+    public static final int CHECKPOINT_INTERVAL = 10_000;
+
+    /** Idempotency keys appended to the key journal before the data file is rewritten to fold them in. */
+    static final int KEY_JOURNAL_LIMIT = 10_000;
+
     private String dataFile;
     private Map<String, Account> accounts;
     private Gson gson;
+    private IdempotencyCache idempotencyCache;
+    private TransactionArchive archive;
+    private AccountStore store;
+    private AccountCache cache;
+    private EventLog events;
+    /** Event sequence the loaded data file's keys and orders reflect (-1 if it does not say). */
+    private long settledEvents = -1;
+    /** Byte offset in the event log just past {@link #settledEvents} (0 if the file does not say). */
+    private long settledOffset;
+    private String accountPrefix;
+    private List<LedgerListener> listeners;
+    private LedgerListener dispatcher;
+    private volatile VelocityScreen velocityScreen;
+    private volatile LoginThrottle loginThrottle;
+    private StandingOrderEngine standingOrders;
+    private FxRates fxRates;
+    private Set<String> hotAccounts;
+    private ChangeFeed changeFeed;
+    private AggregateViews aggregateViews;
+    private AtomicLong sinceCheckpoint;
+    /** Whether a hash chain checkpoint has been written, so histories are no longer sealed on load. */
+    private volatile boolean checkpointed;
+    private boolean compressed;
+    /** Standing order version the data file on disk reflects (-1 if it has not been written). */
+    private long savedOrders = -1;
+    /** Idempotency keys in the key journal that the data file does not hold yet. */
+    private int journaledKeys;
 
     /**
      * Initialize the bank.
@@ -29,44 +85,773 @@ public class Bank {
      * @param dataFile Path to the data persistence file
      */
     public Bank(String dataFile) {
+        this(dataFile, (String) null);
+    }
+
+    /**
+     * Initialize the bank with a primitive account index.
+     * 
+     * Account numbers made of the prefix followed by digits are kept in an
+     * {@link AccountIndex} keyed by a long; other numbers still work through a
+     * fallback map.
+     * 
+     * @param dataFile Path to the data persistence file
+     * @param accountPrefix Common account number prefix, e.g. "ACC" (null for a plain hash map)
+     */
+    public Bank(String dataFile, String accountPrefix) {
         this.dataFile = dataFile;
-        this.accounts = new HashMap<>();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.accountPrefix = accountPrefix;
+        this.accounts = newAccountMap();
+        this.gson = LedgerJson.create(false);
+        this.idempotencyCache = new IdempotencyCache();
+        this.archive = new TransactionArchive(Paths.get(dataFile + ".archive"));
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.loginThrottle = new LoginThrottle();
+        this.standingOrders = new StandingOrderEngine(this);
+        this.fxRates = new FxRates();
+        this.hotAccounts = ConcurrentHashMap.newKeySet();
+        this.sinceCheckpoint = new AtomicLong();
+        this.checkpointed = Files.exists(checkpointFile());
+        this.dispatcher = new LedgerListener() {
+            @Override
+            public void onTransaction(Account account, Account.Transaction transaction) {
+                sinceCheckpoint.incrementAndGet();
+                if (cache != null) {
+                    cache.markDirty(account);
+                }
+                for (LedgerListener listener : listeners) {
+                    listener.onTransaction(account, transaction);
+                }
+            }
+        };
         loadData();
     }
 
+    /**
+     * Initialize a bank whose accounts live in a storage backend.
+     * 
+     * @param dataFile Path to the data persistence file (keeps non-account state)
+     * @param store Account storage backend
+     * @see #Bank(String, AccountStore, int)
+     */
+    public Bank(String dataFile, AccountStore store) {
+        this(dataFile, store, AccountCache.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initialize a bank whose accounts live in a storage backend.
+     * 
+     * Only recently used accounts are held on the heap, in a bounded
+     * {@link AccountCache}; the rest are read from the store on demand, so heap
+     * use no longer grows with the number of accounts. Accounts found in an
+     * existing JSON data file are moved into the store on first start.
+     * 
+     * @param dataFile Path to the data persistence file (keeps non-account state)
+     * @param store Account storage backend
+     * @param cacheCapacity Maximum number of accounts held in memory
+     */
+    public Bank(String dataFile, AccountStore store, int cacheCapacity) {
+        this(dataFile);
+        List<Account> legacy = new ArrayList<>(accounts.values());
+        this.store = store;
+        this.cache = new AccountCache(store, cacheCapacity, this::attach);
+        this.accounts = cache;
+        if (!legacy.isEmpty()) {
+            try {
+                store.saveAll(legacy);
+                store.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not migrate accounts into the account store", e);
+            }
+            saveData();
+        }
+    }
+
+    /**
+     * Initialize an event-sourced bank.
+     * 
+     * The event log is the record of every account: at startup accounts are
+     * rebuilt from its latest snapshot and the events after it, and from then
+     * on every account opened, deposit, withdrawal and transfer is appended to
+     * it. Accounts found in an existing JSON data file are imported into an
+     * empty log on first start.
+     * 
+     * @param dataFile Path to the data persistence file (keeps non-account state)
+     * @param events Event log, not yet recovered
+     */
+    public Bank(String dataFile, EventLog events) {
+        this(dataFile, events, null);
+    }
+
+    /**
+     * Initialize an event-sourced bank.
+     * 
+     * @param dataFile Path to the data persistence file (keeps non-account state)
+     * @param events Event log; already open if accounts are given
+     * @param recovered Accounts already rebuilt from the log, e.g. by a standby
+     *                  taking over (null to recover them from the log)
+     */
+    Bank(String dataFile, EventLog events, Map<String, Account> recovered) {
+        this(dataFile);
+        Map<String, Account> legacy = accounts;
+        Map<String, Account> projected = newAccountMap();
+        try {
+            projected.putAll(recovered != null ? recovered : events.recover());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay the event log", e);
+        }
+        for (Account account : projected.values()) {
+            attach(account);
+        }
+        this.events = events;
+        this.accounts = projected;
+        listeners.add(events);
+        recoverRequests(events);
+
+        if (events.getSequence() == 0 && !legacy.isEmpty()) {
+            for (Account account : legacy.values()) {
+                synchronized (account) {
+                    accounts.put(account.getAccountNumber(), account);
+                    events.onAccountCreated(account);
+                }
+            }
+        }
+        if (!legacy.isEmpty()) {
+            // Accounts now live in the log only
+            saveData();
+        }
+    }
+
+    /**
+     * Catch up the idempotency keys and standing orders loaded from the data
+     * file with requests the log shows were carried out after it was saved.
+     */
+    private void recoverRequests(EventLog events) {
+        if (settledEvents < 0 || settledEvents >= events.getSequence()) {
+            return;
+        }
+        try {
+            // Read on from where the data file was saved rather than from the start of the log
+            events.read(new EventLog.Point(settledEvents, settledOffset), event -> {
+                if (event.getRequestKey() != null) {
+                    long createdAt = LocalDateTime.parse(event.getDate()).atZone(ZoneId.systemDefault())
+                        .toInstant().toEpochMilli();
+                    idempotencyCache.restore(List.of(new IdempotencyCache.Record(event.getRequestKey(), createdAt,
+                        true, successMessage(event.getType()), event.getRequestFingerprint())));
+                }
+                if (event.getStandingOrder() != null) {
+                    standingOrders.recordPayment(event.getStandingOrder(), event.getStandingOrderRun(),
+                        LocalDateTime.parse(event.getDate()));
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the event log", e);
+        }
+    }
+
+    private static String successMessage(String eventType) {
+        return switch (eventType) {
+            case LedgerEvent.DEPOSITED -> "Deposit successful";
+            case LedgerEvent.WITHDRAWN -> "Withdrawal successful";
+            default -> "Transfer successful";
+        };
+    }
+
+    /**
+     * Get the bank's change feed, created on first use. It publishes every
+     * change made from then on; in an event-sourced bank its offsets are the
+     * event log's sequences, so subscribers can resume from earlier events.
+     * 
+     * @return Change feed to subscribe to
+     */
+    public synchronized ChangeFeed getChangeFeed() {
+        if (changeFeed == null) {
+            if (events != null) {
+                changeFeed = new ChangeFeed(events, ChangeFeed.DEFAULT_CAPACITY);
+            } else {
+                changeFeed = new ChangeFeed(ChangeFeed.DEFAULT_CAPACITY);
+                listeners.add(changeFeed);
+            }
+        }
+        return changeFeed;
+    }
+
+    /**
+     * Get the bank's aggregate views (totals, per-holder totals, top balances),
+     * created and loaded on first use and kept up to date from then on.
+     * 
+     * @return Aggregate views ranking up to {@value AggregateViews#DEFAULT_TOP_SIZE} accounts
+     */
+    public synchronized AggregateViews getAggregateViews() {
+        if (aggregateViews == null) {
+            AggregateViews views = new AggregateViews(AggregateViews.DEFAULT_TOP_SIZE);
+            // Listen first: the views record balances, so seeing an account twice is harmless
+            listeners.add(views);
+            if (store != null) {
+                try {
+                    store.scan(account -> views.load(Collections.singletonList(account)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not scan the account store", e);
+                }
+            }
+            // Accounts in memory are newer than their stored copies
+            views.load(accounts.values());
+            aggregateViews = views;
+        }
+        return aggregateViews;
+    }
+
+    /**
+     * Register a listener told about every account opened and transaction
+     * recorded from now on.
+     * 
+     * @param listener Listener to add
+     */
+    public void addLedgerListener(LedgerListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Screen transfers against velocity rules. Failed authentications are
+     * reported to the screen as well.
+     * 
+     * @param screen Velocity screen (null to disable screening)
+     */
+    public void setVelocityScreen(VelocityScreen screen) {
+        this.velocityScreen = screen;
+    }
+
+    /**
+     * Replace the throttle applied to failed logins (a default one is installed).
+     * 
+     * @param throttle Login throttle (null to disable throttling)
+     */
+    public void setLoginThrottle(LoginThrottle throttle) {
+        this.loginThrottle = throttle;
+    }
+
+    /**
+     * Choose whether the data file is written indented (it is compact by default).
+     * 
+     * @param pretty true to indent the JSON body
+     */
+    public synchronized void setPrettyPrinting(boolean pretty) {
+        this.gson = LedgerJson.create(pretty);
+    }
+
+    /**
+     * Choose whether the data file is written as a {@link BlockSnapshot}:
+     * blocks of accounts compressed in parallel, which makes the file much
+     * smaller and saves and loads faster on several cores. Either format is
+     * read back, and a bank loaded from a compressed file keeps writing it
+     * compressed.
+     * 
+     * @param compressed true to write block-compressed snapshots, false for JSON
+     */
+    public synchronized void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Get the exchange rates used for transfers between accounts in different currencies.
+     * 
+     * @return Rate table; update or load it to change the rates
+     */
+    public FxRates getFxRates() {
+        return fxRates;
+    }
+
+    /**
+     * Get the bank's standing orders (future-dated and recurring transfers).
+     * 
+     * @return Standing order engine
+     */
+    public StandingOrderEngine getStandingOrders() {
+        return standingOrders;
+    }
+
+    /**
+     * Route an account's transactions through this bank's listeners.
+     */
+    private void attach(Account account) {
+        sealHistory(account);
+        account.setLedgerListener(dispatcher);
+        if (hotAccounts.contains(account.getAccountNumber())) {
+            account.setHot(true);
+        }
+    }
+
+    /**
+     * Seal a history saved before transactions were chained, unless the bank
+     * has a checkpoint: from then on every history should carry hashes, so
+     * one without them is left for verification to report.
+     */
+    private void sealHistory(Account account) {
+        if (!checkpointed) {
+            account.sealHistory();
+        }
+    }
+
+    /**
+     * Put an account in or out of hot-account mode (see {@link Account#setHot(boolean)}).
+     * The choice sticks to the account number, so it survives the account
+     * being evicted from the cache and loaded again.
+     * 
+     * @param accountNumber Account identifier
+     * @param hot true to stripe its deposits
+     * @return false if the account does not exist
+     */
+    public boolean setHotAccount(String accountNumber, boolean hot) {
+        Account account = getAccount(accountNumber);
+        if (account == null) {
+            return false;
+        }
+        if (hot) {
+            hotAccounts.add(accountNumber);
+        } else {
+            hotAccounts.remove(accountNumber);
+        }
+        account.setHot(hot);
+        return true;
+    }
+
+    /**
+     * Fold parked credits of hot accounts in, so the store and event log hear about them.
+     */
+    private void settleHotAccounts() {
+        for (String accountNumber : hotAccounts) {
+            Account account = accounts.get(accountNumber);
+            if (account != null) {
+                account.settle();
+            }
+        }
+    }
+
     /**
      * Load account data from file.
+     *
+     * The checksum is verified while the file streams in; if the current
+     * generation is damaged the previous one is loaded instead. If there is a
+     * data file but no generation is readable the bank refuses to start: the
+     * first save would otherwise rotate the damaged files away.
+     *
+     * @throws UncheckedIOException if the data file exists but cannot be loaded
      */
     private void loadData() {
-        if (Files.exists(Paths.get(dataFile))) {
-            try (FileReader reader = new FileReader(dataFile)) {
-                Type listType = new TypeToken<ArrayList<Account>>(){}.getType();
-                List<Account> accountList = gson.fromJson(reader, listType);
-                if (accountList != null) {
-                    for (Account account : accountList) {
-                        accounts.put(account.getAccountNumber(), account);
-                    }
+        Path path = Paths.get(dataFile);
+        IOException failure = null;
+        for (Path candidate : new Path[] {path, LedgerFile.previousGeneration(path)}) {
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+            Map<String, Account> loaded = newAccountMap();
+            IdempotencyCache keys = new IdempotencyCache();
+            List<StandingOrder> orders = new ArrayList<>();
+            SavedState saved = new SavedState();
+            try {
+                if (BlockSnapshot.isSnapshot(candidate)) {
+                    BlockSnapshot.read(candidate, account -> {
+                        attach(account);
+                        loaded.put(account.getAccountNumber(), account);
+                    }, reader -> readLedger(reader, loaded, keys, orders, saved), ForkJoinPool.commonPool());
+                    compressed = true;
+                } else {
+                    LedgerFile.read(candidate, reader -> readLedger(reader, loaded, keys, orders, saved));
+                }
+                accounts = loaded;
+                idempotencyCache = keys;
+                standingOrders.restore(orders, saved.nextOrderId);
+                settledEvents = saved.settledEvents;
+                settledOffset = saved.settledOffset;
+                restoreKeyJournal();
+                // Accounts still in the file have to be written out of it once they move to a store or log
+                savedOrders = loaded.isEmpty() ? standingOrders.getVersion() : -1;
+                warnOfBrokenChains(loaded.values());
+                return;
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                System.err.println("Error loading " + candidate + ": " + e.getMessage());
+                if (failure == null) {
+                    failure = new IOException("No readable generation of " + path
+                        + "; restore or move the damaged files before starting the bank", e);
+                } else {
+                    failure.addSuppressed(e);
                 }
-            } catch (IOException e) {
-                // If file is corrupted, start fresh
-                accounts = new HashMap<>();
             }
         }
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    private Path keyJournal() {
+        return Paths.get(dataFile + ".keys");
+    }
+
+    /**
+     * Add the idempotency keys appended to the key journal since the data file
+     * was last written. A torn final line, left by a crash mid-append, is skipped.
+     *
+     * @throws UncheckedIOException if the journal exists but cannot be read
+     */
+    private void restoreKeyJournal() {
+        Path journal = keyJournal();
+        if (!Files.exists(journal)) {
+            return;
+        }
+        List<IdempotencyCache.Record> records = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+                try {
+                    records.add(gson.fromJson(line, IdempotencyCache.Record.class));
+                } catch (JsonParseException e) {
+                    System.err.println("Skipping damaged entry in " + journal + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the idempotency key journal " + journal, e);
+        }
+        idempotencyCache.restore(records);
+        journaledKeys = records.size();
+    }
+
+    /**
+     * Check the accounts just loaded against the last checkpoint, so edits made
+     * to the file while the bank was down are reported.
+     */
+    private void warnOfBrokenChains(Collection<Account> loaded) {
+        try {
+            LedgerChain.Checkpoint checkpoint = LedgerChain.Checkpoint.read(checkpointFile());
+            if (checkpoint == null || loaded.isEmpty()) {
+                return;
+            }
+            LedgerChain.Verification verification = verifyChain(loaded, checkpoint, false, false);
+            if (!verification.isCheckpointIntact()) {
+                System.err.println("Hash chain checkpoint does not match its root");
+            }
+            for (Map.Entry<String, String> broken : verification.getBroken().entrySet()) {
+                System.err.println("Hash chain broken for " + broken.getKey() + ": " + broken.getValue());
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading hash chain checkpoint: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Account> newAccountMap() {
+        return accountPrefix == null ? new ConcurrentHashMap<>() : new AccountIndex(accountPrefix);
+    }
+
+    /**
+     * Parse the ledger body. Accepts both the current format (an object holding
+     * the accounts, the idempotency key window and the standing orders) and the
+     * original bare array of accounts.
+     *
+     * @return Number of accounts read
+     */
+    private int readLedger(Reader in, Map<String, Account> loaded, IdempotencyCache keys,
+                           List<StandingOrder> orders, SavedState saved) throws IOException {
+        JsonReader reader = gson.newJsonReader(in);
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+            return readAccounts(reader, loaded);
+        }
+
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("accounts".equals(name)) {
+                count = readAccounts(reader, loaded);
+            } else if ("idempotencyKeys".equals(name)) {
+                keys.restore(gson.fromJson(reader, RECORD_LIST_TYPE));
+            } else if ("standingOrders".equals(name)) {
+                orders.addAll(gson.fromJson(reader, ORDER_LIST_TYPE));
+            } else if ("settledEvents".equals(name)) {
+                saved.settledEvents = reader.nextLong();
+            } else if ("settledOffset".equals(name)) {
+                saved.settledOffset = reader.nextLong();
+            } else if ("nextStandingOrderId".equals(name)) {
+                saved.nextOrderId = reader.nextLong();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return count;
+    }
+
+    /**
+     * Non-account fields read from the data file.
+     */
+    private static final class SavedState {
+        private long settledEvents = -1;
+        private long settledOffset;
+        private long nextOrderId;
+    }
+
+    private int readAccounts(JsonReader reader, Map<String, Account> loaded) throws IOException {
+        int count = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Account account = gson.fromJson(reader, Account.class);
+            attach(account);
+            loaded.put(account.getAccountNumber(), account);
+            count++;
+        }
+        reader.endArray();
+        return count;
     }
 
     /**
      * Save account data to file.
+     * 
+     * The new file is written beside the old one and atomically renamed into
+     * place, so a crash mid-save leaves the previous data intact.
      */
-    public void saveData() {
-        try (FileWriter writer = new FileWriter(dataFile)) {
-            List<Account> accountList = new ArrayList<>(accounts.values());
-            gson.toJson(accountList, writer);
+    public synchronized void saveData() {
+        try {
+            commit();
         } catch (IOException e) {
             System.err.println("Error saving data: " + e.getMessage());
         }
     }
 
+    /**
+     * Save as {@link #saveData()} does, but report failure to the caller, for
+     * batch jobs that must not record work as done unless it was saved.
+     * 
+     * When accounts live in a store or an event log the data file holds only
+     * the idempotency keys and standing orders. It is then rewritten only when
+     * the orders changed; new keys are appended to a key journal instead, which
+     * is folded back into the data file every {@value #KEY_JOURNAL_LIMIT} keys.
+     * 
+     * @throws IOException if the data file, store or event log cannot be written
+     */
+    synchronized void commit() throws IOException {
+        settleHotAccounts();
+        if (cache != null) {
+            cache.flush();
+        }
+        boolean snapshotted = false;
+        if (events != null) {
+            events.sync();
+            if (events.isSnapshotDue()) {
+                events.snapshot(accounts.values());
+                // Rewrite the data file too, so the keys and orders are settled up to the snapshot
+                snapshotted = true;
+            }
+        }
+        List<IdempotencyCache.Record> recorded = idempotencyCache.drainRecorded();
+        long orders = standingOrders.getVersion();
+        if (store == null && events == null || snapshotted || orders != savedOrders
+                || journaledKeys + recorded.size() > KEY_JOURNAL_LIMIT) {
+            writeDataFile();
+            savedOrders = orders;
+        } else if (!recorded.isEmpty()) {
+            appendToKeyJournal(recorded);
+        }
+        if (sinceCheckpoint.get() >= CHECKPOINT_INTERVAL) {
+            checkpointChain();
+        }
+    }
+
+    private void writeDataFile() throws IOException {
+        if (compressed) {
+            BlockSnapshot.write(Paths.get(dataFile), accountsToWrite(), this::writeState, ForkJoinPool.commonPool());
+        } else {
+            LedgerFile.write(Paths.get(dataFile), this::writeLedger);
+        }
+        // The data file now holds every journaled key
+        Files.deleteIfExists(keyJournal());
+        journaledKeys = 0;
+    }
+
+    private void appendToKeyJournal(List<IdempotencyCache.Record> recorded) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (IdempotencyCache.Record record : recorded) {
+            lines.append(gson.toJson(record)).append('\n');
+        }
+        try (FileChannel channel = FileChannel.open(keyJournal(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        journaledKeys += recorded.size();
+    }
+
+    private Path checkpointFile() {
+        return Paths.get(dataFile + ".chain");
+    }
+
+    /**
+     * Record every account's latest transaction hash and their Merkle root
+     * (see {@link LedgerChain}), so later verifications only rehash what
+     * was added since. Saving does this every {@value #CHECKPOINT_INTERVAL}
+     * transactions; call it directly to publish a root on demand.
+     * 
+     * @return The checkpoint written
+     * @throws IOException if the checkpoint cannot be written
+     */
+    public synchronized LedgerChain.Checkpoint checkpointChain() throws IOException {
+        long counted = sinceCheckpoint.get();
+        LedgerChain.Checkpoint checkpoint = LedgerChain.Checkpoint.of(everyAccount());
+        checkpoint.write(checkpointFile());
+        checkpointed = true;
+        sinceCheckpoint.addAndGet(-counted);
+        return checkpoint;
+    }
+
+    /**
+     * Verify every account's hash chain.
+     * 
+     * Accounts are checked in parallel. An incremental check rehashes only the
+     * transactions after each account's hash in the last checkpoint; accounts
+     * added since, and every account when there is no checkpoint, are checked
+     * in full. A compacted account's opening balance entry is checked against
+     * the archive. An account whose checkpointed hash is gone (other than
+     * into the archive) or that the checkpoint lists but no longer exists is
+     * broken.
+     * 
+     * @param full true to rehash every transaction regardless of the checkpoint
+     * @return Accounts checked, transactions rehashed and anything broken
+     * @throws IOException if the checkpoint, account store or archive cannot be read
+     */
+    public LedgerChain.Verification verifyChain(boolean full) throws IOException {
+        return verifyChain(everyAccount(), LedgerChain.Checkpoint.read(checkpointFile()), full, true);
+    }
+
+    private LedgerChain.Verification verifyChain(Collection<Account> toVerify, LedgerChain.Checkpoint checkpoint,
+                                                 boolean full, boolean complete) throws IOException {
+        LedgerChain.Verification verification = new LedgerChain.Verification();
+        Map<String, String> heads = checkpoint == null ? Collections.emptyMap() : checkpoint.getHeads();
+        if (checkpoint != null) {
+            verification.setRoot(checkpoint.getRoot());
+            verification.setCheckpointIntact(checkpoint.isIntact());
+        }
+        verification.setAccounts(toVerify.size());
+        try {
+            toVerify.parallelStream().forEach(account -> {
+                String head = full ? null : heads.get(account.getAccountNumber());
+                int broken = LedgerChain.verify(account, head, archive, verification.hashed());
+                if (broken == -2) {
+                    verification.fail(account.getAccountNumber(), "checkpointed transaction missing");
+                } else if (broken == -3) {
+                    verification.fail(account.getAccountNumber(), "opening balance does not follow the archive");
+                } else if (broken >= 0) {
+                    verification.fail(account.getAccountNumber(), "transaction " + broken + " does not match its hash");
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (complete) {
+            Set<String> present = ConcurrentHashMap.newKeySet();
+            for (Account account : toVerify) {
+                present.add(account.getAccountNumber());
+            }
+            for (String accountNumber : heads.keySet()) {
+                if (!present.contains(accountNumber)) {
+                    verification.fail(accountNumber, "account missing");
+                }
+            }
+        }
+        return verification;
+    }
+
+    /**
+     * Every account, wherever it lives, for read-only batch work. Accounts in
+     * a store are read from it, with resident copies taking precedence as they
+     * may be newer; changes to the copies read from the store are not saved.
+     */
+    private Collection<Account> everyAccount() throws IOException {
+        if (store == null) {
+            return accounts.values();
+        }
+        Map<String, Account> all = new HashMap<>(cache);
+        store.scan(account -> {
+            if (!all.containsKey(account.getAccountNumber())) {
+                sealHistory(account);
+                all.put(account.getAccountNumber(), account);
+            }
+        });
+        return all.values();
+    }
+
+    /**
+     * Number of every account, wherever it lives, for batch work that changes
+     * accounts: each one is then fetched through {@link #getAccount}, so with
+     * a store it passes through the cache and its changes are written back.
+     */
+    List<String> everyAccountNumber() throws IOException {
+        if (store == null) {
+            return new ArrayList<>(accounts.keySet());
+        }
+        Set<String> numbers = new TreeSet<>(cache.keySet());
+        store.scan(account -> numbers.add(account.getAccountNumber()));
+        return new ArrayList<>(numbers);
+    }
+
+    /**
+     * Stream the ledger body.
+     *
+     * @return Number of accounts written
+     */
+    private int writeLedger(Writer out) throws IOException {
+        JsonWriter writer = gson.newJsonWriter(out);
+        int count = 0;
+        writer.beginObject();
+        writer.name("accounts");
+        writer.beginArray();
+        for (Account account : accountsToWrite()) {
+            // Serialize each account under its own lock so a concurrent deposit can't tear it
+            synchronized (account) {
+                gson.toJson(account, Account.class, writer);
+            }
+            count++;
+        }
+        writer.endArray();
+        writeStateFields(writer);
+        writer.endObject();
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * Stream the non-account state on its own, for the state block of a compressed snapshot.
+     *
+     * @return 0, as no accounts are written
+     */
+    private int writeState(Writer out) throws IOException {
+        JsonWriter writer = gson.newJsonWriter(out);
+        writer.beginObject();
+        writeStateFields(writer);
+        writer.endObject();
+        writer.flush();
+        return 0;
+    }
+
+    private void writeStateFields(JsonWriter writer) throws IOException {
+        if (events != null) {
+            // Taken before the keys and orders, so they reflect every request logged up to it
+            EventLog.Point settled = events.settledPoint();
+            writer.name("settledEvents").value(settled.sequence);
+            writer.name("settledOffset").value(settled.offset);
+        }
+        writer.name("idempotencyKeys");
+        gson.toJson(idempotencyCache.snapshot(), RECORD_LIST_TYPE, writer);
+        writer.name("standingOrders");
+        gson.toJson(standingOrders.snapshot(), ORDER_LIST_TYPE, writer);
+        writer.name("nextStandingOrderId").value(standingOrders.getNextId());
+    }
+
+    /**
+     * Accounts in a store or an event log are persisted there, not in the data file.
+     */
+    private Collection<Account> accountsToWrite() {
+        return store == null && events == null ? accounts.values() : Collections.emptyList();
+    }
+
     /**
      * Create a new bank account.
      * 
@@ -77,6 +862,21 @@ public class Bank {
      * @return true if account created successfully, false otherwise
      */
     public boolean createAccount(String accountNumber, String accountHolder, String password, double initialBalance) {
+        return createAccount(accountNumber, accountHolder, password, initialBalance, Account.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Create a new bank account held in a given currency.
+     * 
+     * @param accountNumber Unique account identifier
+     * @param accountHolder Name of the account holder
+     * @param password Account password
+     * @param initialBalance Starting balance
+     * @param currency ISO 4217 currency code, e.g. "EUR"
+     * @return true if account created successfully, false otherwise
+     */
+    public boolean createAccount(String accountNumber, String accountHolder, String password, double initialBalance,
+                                 String currency) {
         if (accountNumber == null || accountNumber.trim().isEmpty()) {
             return false;
         }
@@ -94,16 +894,50 @@ public class Bank {
         }
 
         try {
-            Account account = new Account(accountNumber, accountHolder, password, initialBalance);
-            accounts.put(accountNumber, account);
+            Account account = new Account(accountNumber, accountHolder, password, initialBalance, currency);
+            attach(account);
+            // Hold the new account's lock so listeners hear of it before any of its transactions
+            synchronized (account) {
+                if (accounts.putIfAbsent(accountNumber, account) != null) {
+                    return false;
+                }
+                for (LedgerListener listener : listeners) {
+                    listener.onAccountCreated(account);
+                }
+            }
             saveData();
             return true;
         } catch (IllegalArgumentException e) {
-            // Password validation failed
+            // Password or currency validation failed
             return false;
         }
     }
 
+    /**
+     * Add accounts built elsewhere, such as by {@link BulkAccountImporter}.
+     * Listeners hear of each one as with {@link #createAccount}, but nothing
+     * is saved; call {@link #saveData()} once the last batch is in.
+     * 
+     * @param batch New accounts
+     * @return Accounts left out because their number is taken, in batch order
+     */
+    List<Account> addAccounts(List<Account> batch) {
+        List<Account> taken = new ArrayList<>();
+        for (Account account : batch) {
+            attach(account);
+            synchronized (account) {
+                if (accounts.putIfAbsent(account.getAccountNumber(), account) != null) {
+                    taken.add(account);
+                    continue;
+                }
+                for (LedgerListener listener : listeners) {
+                    listener.onAccountCreated(account);
+                }
+            }
+        }
+        return taken;
+    }
+
     /**
      * Authenticate and return account.
      * 
@@ -112,13 +946,72 @@ public class Bank {
      * @return Account object if authentication successful, null otherwise
      */
     public Account authenticate(String accountNumber, String password) {
-        Account account = accounts.get(accountNumber);
+        return authenticate(accountNumber, password, null);
+    }
+
+    /**
+     * Authenticate and return account, throttling repeated failures.
+     * 
+     * Attempts on an account or from a source with too many recent failures
+     * are refused before the password is hashed; see {@link #getLoginRetryDelay}.
+     * 
+     * @param accountNumber Account identifier
+     * @param password Account password
+     * @param source Where the attempt comes from, e.g. a client address (null if unknown)
+     * @return Account object if authentication successful, null otherwise
+     */
+    public Account authenticate(String accountNumber, String password, String source) {
+        LoginThrottle throttle = loginThrottle;
+        if (throttle != null && throttle.retryAfter(accountNumber, source) > 0) {
+            return null;
+        }
+
+        // Stored accounts are checked against the stored hash before being loaded
+        if (cache != null && !cache.isResident(accountNumber)) {
+            try {
+                if (!store.verifyPassword(accountNumber, password)) {
+                    return authenticationFailed(accountNumber, source);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read account " + accountNumber, e);
+            }
+        }
+        Account account = getAccount(accountNumber);
         if (account != null && account.verifyPassword(password)) {
+            if (throttle != null) {
+                throttle.recordSuccess(accountNumber);
+            }
             return account;
         }
+        return authenticationFailed(accountNumber, source);
+    }
+
+    private Account authenticationFailed(String accountNumber, String source) {
+        // Guesses at unknown numbers would only fill the throttle and the screen's windows
+        boolean known = accountNumber != null && accounts.containsKey(accountNumber);
+        LoginThrottle throttle = loginThrottle;
+        if (throttle != null) {
+            throttle.recordFailure(known ? accountNumber : null, source);
+        }
+        VelocityScreen screen = velocityScreen;
+        if (screen != null && known) {
+            screen.recordFailedAuthentication(accountNumber);
+        }
         return null;
     }
 
+    /**
+     * Get how long login attempts on an account, or from a source, are refused.
+     * 
+     * @param accountNumber Account identifier
+     * @param source Where the attempt comes from (null if unknown)
+     * @return Milliseconds until the next attempt will be checked, 0 if now
+     */
+    public long getLoginRetryDelay(String accountNumber, String source) {
+        LoginThrottle throttle = loginThrottle;
+        return throttle == null ? 0 : throttle.retryAfter(accountNumber, source);
+    }
+
     /**
      * Get account by account number (without authentication).
      * 
@@ -126,9 +1019,34 @@ public class Bank {
      * @return Account object or null
      */
     public Account getAccount(String accountNumber) {
+        // With a store this reads through the cache
         return accounts.get(accountNumber);
     }
 
+    /**
+     * Reconcile every account (see {@link Reconciler}). With an account store
+     * the accounts not currently cached are read from it.
+     * 
+     * @param reconciler Reconciler to run
+     * @param checkpoint Checkpoint from a previous report (null for a full run)
+     * @return Reconciliation report
+     * @throws IOException if the account store cannot be read
+     */
+    public Reconciler.Report reconcile(Reconciler reconciler, Reconciler.Checkpoint checkpoint) throws IOException {
+        return reconciler.reconcile(everyAccount(), checkpoint);
+    }
+
+    /**
+     * Get every account (without authentication).
+     * With an account store only the accounts currently cached are included;
+     * batch jobs use {@link #reconcile} and the like, which cover the store too.
+     * 
+     * @return Read-only live view of all accounts
+     */
+    public Collection<Account> getAllAccounts() {
+        return Collections.unmodifiableCollection(accounts.values());
+    }
+
     /**
      * Transfer money between accounts.
      * 
@@ -139,6 +1057,27 @@ public class Bank {
      * @return TransferResult with success status and message
      */
     public TransferResult transfer(String fromAccount, String toAccount, double amount, String password) {
+        return transfer(fromAccount, toAccount, amount, password, null);
+    }
+
+    /**
+     * Transfer money between accounts at most once per idempotency key.
+     * 
+     * @param fromAccount Source account number
+     * @param toAccount Destination account number
+     * @param amount Amount to transfer
+     * @param password Source account password
+     * @param idempotencyKey Client request key (null to skip deduplication)
+     * @return TransferResult of the first request carrying this key
+     */
+    public TransferResult transfer(String fromAccount, String toAccount, double amount, String password,
+                                   String idempotencyKey) {
+        String fingerprint = fingerprint("transfer", fromAccount, toAccount, amount);
+        return logged(idempotencyKey, fingerprint, () -> idempotencyCache.execute(idempotencyKey, fingerprint,
+            () -> doTransfer(fromAccount, toAccount, amount, password), this::saveIfSuccessful));
+    }
+
+    private TransferResult doTransfer(String fromAccount, String toAccount, double amount, String password) {
         // Prevent self-transfer
         if (fromAccount.equals(toAccount)) {
             return new TransferResult(false, "Cannot transfer to the same account");
@@ -150,6 +1089,39 @@ public class Bank {
             return new TransferResult(false, "Authentication failed");
         }
 
+        return executeTransfer(source, fromAccount, toAccount, amount, "Transfer");
+    }
+
+    /**
+     * Run one standing order payment through the transfer path. The payer
+     * authorized it when the order was created, so no password is checked.
+     * The caller saves.
+     * 
+     * @param order Standing order due now
+     * @return TransferResult of the payment
+     */
+    TransferResult executeStandingOrder(StandingOrder order) {
+        Account source = getAccount(order.getFromAccount());
+        if (source == null) {
+            return new TransferResult(false, "Source account not found");
+        }
+        EventLog log = events;
+        if (log != null) {
+            // Tag the payment with its run, so it is not paid again after a crash before the save
+            return log.attribute(null, null, order.getId(), order.getNextRun(), () -> executeTransfer(source,
+                order.getFromAccount(), order.getToAccount(), order.getAmount(), "Standing order " + order.getId()));
+        }
+        return executeTransfer(source, order.getFromAccount(), order.getToAccount(), order.getAmount(),
+            "Standing order " + order.getId());
+    }
+
+    /**
+     * Move money from an already authorized source account.
+     * 
+     * @param label Start of both transaction descriptions, e.g. "Transfer"
+     */
+    private TransferResult executeTransfer(Account source, String fromAccount, String toAccount, double amount,
+                                           String label) {
         // Check if destination account exists
         Account destination = getAccount(toAccount);
         if (destination == null) {
@@ -161,24 +1133,209 @@ public class Bank {
             return new TransferResult(false, "Invalid amount");
         }
 
-        if (source.getBalance() < amount) {
-            return new TransferResult(false, "Insufficient balance");
+        // Cross-currency transfers credit the destination at the current rate
+        double credited = amount;
+        String sourceCurrency = source.getCurrency();
+        String destinationCurrency = destination.getCurrency();
+        if (!sourceCurrency.equals(destinationCurrency)) {
+            FxRates.Snapshot rates = fxRates.snapshot();
+            if (!rates.supports(sourceCurrency, destinationCurrency)) {
+                return new TransferResult(false, "Exchange rate not available");
+            }
+            credited = Reconciler.fromCents(rates.convert(Reconciler.toCents(amount), sourceCurrency,
+                destinationCurrency));
+            if (credited <= 0) {
+                return new TransferResult(false, "Invalid amount");
+            }
         }
 
-        // Perform transfer
-        source.withdraw(amount, "Transfer to " + toAccount);
-        destination.deposit(amount, "Transfer from " + fromAccount);
-        saveData();
+        VelocityScreen screen = velocityScreen;
+
+        // Lock both accounts in account-number order so opposing transfers can't deadlock
+        Account first = fromAccount.compareTo(toAccount) < 0 ? source : destination;
+        Account second = first == source ? destination : source;
+        synchronized (first) {
+            synchronized (second) {
+                // Screened under the source's lock so concurrent transfers can't all pass one limit
+                if (screen != null) {
+                    String blocked = screen.check(fromAccount, amount);
+                    if (blocked != null) {
+                        return new TransferResult(false, blocked);
+                    }
+                }
+                if (!BalanceTools.hasAvailableFunds(Reconciler.toCents(source.getBalance()),
+                        Reconciler.toCents(amount))) {
+                    return new TransferResult(false, "Insufficient balance");
+                }
+
+                // Perform transfer
+                source.withdraw(amount, label + " to " + toAccount, toAccount);
+                destination.deposit(credited, label + " from " + fromAccount, fromAccount);
+                for (LedgerListener listener : listeners) {
+                    listener.onTransfer(source, lastTransaction(source), destination, lastTransaction(destination));
+                }
+                if (screen != null) {
+                    screen.recordTransfer(fromAccount, amount);
+                }
+            }
+        }
 
         return new TransferResult(true, "Transfer successful");
     }
 
+    private static Account.Transaction lastTransaction(Account account) {
+        List<Account.Transaction> transactions = account.getTransactions();
+        return transactions.get(transactions.size() - 1);
+    }
+
+    /**
+     * Deposit money into an account at most once per idempotency key.
+     * 
+     * @param accountNumber Account identifier
+     * @param amount Amount to deposit
+     * @param description Transaction description
+     * @param idempotencyKey Client request key (null to skip deduplication)
+     * @return TransferResult of the first request carrying this key
+     */
+    public TransferResult deposit(String accountNumber, double amount, String description, String idempotencyKey) {
+        String fingerprint = fingerprint("deposit", accountNumber, null, amount);
+        return logged(idempotencyKey, fingerprint, () -> idempotencyCache.execute(idempotencyKey, fingerprint, () -> {
+            Account account = getAccount(accountNumber);
+            if (account == null) {
+                return new TransferResult(false, "Account not found");
+            }
+            if (!account.deposit(amount, description)) {
+                return new TransferResult(false, "Invalid amount");
+            }
+            return new TransferResult(true, "Deposit successful");
+        }, this::saveIfSuccessful));
+    }
+
+    /**
+     * Withdraw money from an account at most once per idempotency key.
+     * 
+     * @param accountNumber Account identifier
+     * @param amount Amount to withdraw
+     * @param description Transaction description
+     * @param password Account password
+     * @param idempotencyKey Client request key (null to skip deduplication)
+     * @return TransferResult of the first request carrying this key
+     */
+    public TransferResult withdraw(String accountNumber, double amount, String description, String password,
+                                   String idempotencyKey) {
+        String fingerprint = fingerprint("withdraw", accountNumber, null, amount);
+        return logged(idempotencyKey, fingerprint, () -> idempotencyCache.execute(idempotencyKey, fingerprint, () -> {
+            Account account = authenticate(accountNumber, password);
+            if (account == null) {
+                return new TransferResult(false, "Authentication failed");
+            }
+            if (amount <= 0) {
+                return new TransferResult(false, "Invalid amount");
+            }
+            if (!account.withdraw(amount, description)) {
+                return new TransferResult(false, "Insufficient balance");
+            }
+            return new TransferResult(true, "Withdrawal successful");
+        }, this::saveIfSuccessful));
+    }
+
+    /**
+     * Describe a keyed request, so a key reused for a different one is refused.
+     */
+    private static String fingerprint(String operation, String account, String counterparty, double amount) {
+        return operation + " " + account + " " + counterparty + " " + Reconciler.toCents(amount);
+    }
+
+    /**
+     * Run a keyed request so that in an event-sourced bank its events carry the
+     * key, and a crash before the data file is saved does not forget it.
+     */
+    private TransferResult logged(String idempotencyKey, String fingerprint, Supplier<TransferResult> request) {
+        EventLog log = events;
+        if (log == null || idempotencyKey == null) {
+            return request.get();
+        }
+        return log.attribute(idempotencyKey, fingerprint, null, null, request);
+    }
+
+    /**
+     * Persist after a successful mutation, once its idempotency key is recorded.
+     */
+    private void saveIfSuccessful(TransferResult result) {
+        if (result.isSuccess()) {
+            saveData();
+        }
+    }
+
+    /**
+     * Roll old transactions of every account into the archive and save. With
+     * an account store this covers the accounts not currently cached too.
+     * 
+     * @param policy Retention policy deciding what stays in hot storage
+     * @return Number of transactions archived
+     * @throws IOException if an archive segment cannot be written
+     */
+    public int compactHistory(RetentionPolicy policy) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        int archived = 0;
+        for (String accountNumber : everyAccountNumber()) {
+            Account account = accounts.get(accountNumber);
+            if (account == null) {
+                continue;
+            }
+            int moved = archive.compact(account, policy, now);
+            if (moved > 0 && cache != null) {
+                cache.markDirty(account);
+            }
+            archived += moved;
+        }
+        if (archived > 0) {
+            if (events != null) {
+                // Recovery must start from the compacted histories, not replay the archived entries
+                events.snapshot(accounts.values());
+            }
+            saveData();
+        }
+        return archived;
+    }
+
+    /**
+     * Search the archived (compacted) part of an account's history.
+     * 
+     * @param accountNumber Account identifier
+     * @param query Search criteria (null for everything)
+     * @return Matching archived transactions, oldest first
+     * @throws IOException if the archive cannot be read
+     */
+    public List<Account.Transaction> getArchivedTransactions(String accountNumber, TransactionQuery query)
+            throws IOException {
+        return archive.query(accountNumber, query);
+    }
+
     /**
      * Get list of all accounts (basic info only).
      * 
      * @return List of account information maps
      */
     public List<Map<String, Object>> listAccounts() {
+        if (store != null) {
+            Map<String, Account> resident = new HashMap<>(cache);
+            List<Map<String, Object>> summaries;
+            try {
+                summaries = store.summaries();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not list accounts", e);
+            }
+            for (Map<String, Object> info : summaries) {
+                // Cached accounts may hold unsaved changes
+                Account account = resident.get((String) info.get("account_number"));
+                if (account != null) {
+                    info.put("balance", account.getBalance());
+                }
+            }
+            return summaries;
+        }
+
         List<Map<String, Object>> accountList = new ArrayList<>();
         for (Account account : accounts.values()) {
             Map<String, Object> info = new HashMap<>();
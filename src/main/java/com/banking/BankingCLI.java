@@ -1,6 +1,14 @@
 package com.banking;
 
 import java.io.Console;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
@@ -14,7 +22,11 @@ public class BankingCLI {
     private Scanner scanner;
 
     public BankingCLI() {
-        this.bank = new Bank("bank_data.json");
+        this(new Bank("bank_data.json"));
+    }
+
+    public BankingCLI(Bank bank) {
+        this.bank = bank;
         this.currentAccount = null;
         this.scanner = new Scanner(System.in);
     }
@@ -36,8 +48,9 @@ public class BankingCLI {
             System.out.println("3. Withdraw Money");
             System.out.println("4. Transfer Money");
             System.out.println("5. View Transaction History");
-            System.out.println("6. Logout");
-            System.out.println("7. Exit");
+            System.out.println("6. Standing Orders");
+            System.out.println("7. Logout");
+            System.out.println("8. Exit");
         } else {
             System.out.println("\n1. Create New Account");
             System.out.println("2. Login to Existing Account");
@@ -102,11 +115,17 @@ public class BankingCLI {
             return;
         }
 
-        if (bank.createAccount(accountNumber, accountHolder, password, initialBalance)) {
+        System.out.print("Enter currency [" + Account.DEFAULT_CURRENCY + "]: ");
+        String currency = scanner.nextLine().trim().toUpperCase();
+        if (currency.isEmpty()) {
+            currency = Account.DEFAULT_CURRENCY;
+        }
+
+        if (bank.createAccount(accountNumber, accountHolder, password, initialBalance, currency)) {
             System.out.println("\n✅ Account created successfully!");
             System.out.println("Account Number: " + accountNumber);
             System.out.println("Account Holder: " + accountHolder);
-            System.out.printf("Initial Balance: $%.2f\n", initialBalance);
+            System.out.printf("Initial Balance: %.2f %s\n", initialBalance, currency);
         } else {
             System.out.println("❌ Failed to create account!");
         }
@@ -120,6 +139,12 @@ public class BankingCLI {
         System.out.print("Enter account number: ");
         String accountNumber = scanner.nextLine().trim();
 
+        long wait = bank.getLoginRetryDelay(accountNumber, null);
+        if (wait > 0) {
+            System.out.printf("❌ Too many failed attempts. Try again in %d seconds.\n", (wait + 999) / 1000);
+            return;
+        }
+
         String password = readPassword("Enter password: ");
 
         Account account = bank.authenticate(accountNumber, password);
@@ -280,6 +305,92 @@ public class BankingCLI {
         }
     }
 
+    /**
+     * Create, list or cancel standing orders from the current account.
+     */
+    private void standingOrders() {
+        if (currentAccount == null) {
+            System.out.println("❌ Please login first!");
+            return;
+        }
+
+        System.out.println("\n--- Standing Orders ---");
+        System.out.println("1. Create Standing Order");
+        System.out.println("2. List Standing Orders");
+        System.out.println("3. Cancel Standing Order");
+        System.out.print("Enter your choice: ");
+        switch (scanner.nextLine().trim()) {
+            case "1" -> createStandingOrder();
+            case "2" -> listStandingOrders();
+            case "3" -> cancelStandingOrder();
+            default -> System.out.println("❌ Invalid choice!");
+        }
+    }
+
+    private void createStandingOrder() {
+        System.out.print("Enter destination account number: ");
+        String toAccount = scanner.nextLine().trim();
+
+        try {
+            System.out.print("Enter amount per payment: $");
+            double amount = Double.parseDouble(scanner.nextLine());
+            System.out.print("Enter first payment date (YYYY-MM-DD): ");
+            LocalDateTime firstRun = LocalDate.parse(scanner.nextLine().trim()).atStartOfDay();
+            System.out.print("Repeat every (e.g. P1M for monthly, P7D for weekly, empty for once): ");
+            String repeat = scanner.nextLine().trim();
+            Period interval = repeat.isEmpty() ? null : Period.parse(repeat);
+
+            String password = readPassword("Enter your password to confirm: ");
+            if (bank.authenticate(currentAccount.getAccountNumber(), password) == null) {
+                System.out.println("❌ Authentication failed");
+                return;
+            }
+
+            StandingOrder order = bank.getStandingOrders().create(currentAccount.getAccountNumber(), toAccount,
+                amount, firstRun, interval, 3, Duration.ofHours(1));
+            System.out.println("\n✅ Standing order " + order.getId() + " created!");
+        } catch (NumberFormatException e) {
+            System.out.println("❌ Invalid amount!");
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Invalid date or period!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+    }
+
+    private void listStandingOrders() {
+        List<StandingOrder> orders = bank.getStandingOrders().list(currentAccount.getAccountNumber());
+        if (orders.isEmpty()) {
+            System.out.println("No standing orders found.");
+            return;
+        }
+
+        System.out.printf("\n%-8s %-12s %-12s %12s %-8s %-20s %s\n",
+            "Id", "From", "To", "Amount", "Repeat", "Next Run", "Status");
+        System.out.println("-".repeat(90));
+        for (StandingOrder order : orders) {
+            System.out.printf("%-8s %-12s %-12s $%11.2f %-8s %-20s %s\n",
+                order.getId(), order.getFromAccount(), order.getToAccount(), order.getAmount(),
+                order.getInterval() == null ? "once" : order.getInterval(),
+                order.getDueAt().substring(0, Math.min(19, order.getDueAt().length())), order.getStatus());
+        }
+    }
+
+    private void cancelStandingOrder() {
+        System.out.print("Enter standing order id: ");
+        String id = scanner.nextLine().trim();
+        StandingOrder order = bank.getStandingOrders().get(id);
+        if (order == null || !order.getFromAccount().equals(currentAccount.getAccountNumber())) {
+            System.out.println("❌ Standing order not found!");
+            return;
+        }
+        if (bank.getStandingOrders().cancel(id)) {
+            System.out.println("✅ Standing order " + id + " cancelled.");
+        } else {
+            System.out.println("❌ Standing order is no longer active!");
+        }
+    }
+
     /**
      * View all accounts (admin feature - requires simple password).
      */
@@ -344,6 +455,7 @@ public class BankingCLI {
      */
     public void run() {
         System.out.println("\n✨ Welcome to Banking Tools! ✨");
+        bank.getStandingOrders().start();
 
         while (true) {
             displayMenu();
@@ -358,9 +470,11 @@ public class BankingCLI {
                     case "3" -> withdraw();
                     case "4" -> transfer();
                     case "5" -> viewTransactions();
-                    case "6" -> logout();
-                    case "7" -> {
+                    case "6" -> standingOrders();
+                    case "7" -> logout();
+                    case "8" -> {
                         System.out.println("\n👋 Thank you for using Banking Tools!");
+                        bank.getStandingOrders().stop();
                         scanner.close();
                         return;
                     }
@@ -374,6 +488,7 @@ public class BankingCLI {
                     case "3" -> viewAllAccounts();
                     case "4" -> {
                         System.out.println("\n👋 Thank you for using Banking Tools!");
+                        bank.getStandingOrders().stop();
                         scanner.close();
                         return;
                     }
@@ -388,10 +503,31 @@ public class BankingCLI {
 
     /**
      * Main entry point.
+     * 
+     * With {@code --db <file>} accounts are kept in an embedded H2 database
+     * instead of bank_data.json; accounts already in bank_data.json are moved
+     * into the database on first start. With {@code --events <file>} accounts
+     * are rebuilt from an append-only event log instead. With {@code --compressed}
+     * bank_data.json is saved as a block-compressed snapshot. Exchange rates for transfers between
+     * currencies are read from fx_rates.properties when it exists.
      */
     public static void main(String[] args) {
         try {
-            BankingCLI cli = new BankingCLI();
+            BankingCLI cli;
+            if (args.length == 2 && "--db".equals(args[0])) {
+                cli = new BankingCLI(new Bank("bank_data.json", JdbcAccountStore.open(Paths.get(args[1]))));
+            } else if (args.length == 2 && "--events".equals(args[0])) {
+                cli = new BankingCLI(new Bank("bank_data.json", new EventLog(Paths.get(args[1]))));
+            } else {
+                cli = new BankingCLI();
+                if (args.length == 1 && "--compressed".equals(args[0])) {
+                    cli.bank.setCompressed(true);
+                }
+            }
+            Path rates = Paths.get("fx_rates.properties");
+            if (Files.exists(rates)) {
+                cli.bank.getFxRates().load(rates);
+            }
             cli.run();
         } catch (Exception e) {
             System.err.println("\n❌ An error occurred: " + e.getMessage());
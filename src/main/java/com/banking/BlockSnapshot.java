@@ -0,0 +1,537 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Block-compressed alternative to the JSON data file.
+ *
+ * Accounts are sorted by account number and cut into blocks of about
+ * {@value #ENTRIES_PER_BLOCK} transactions. Each block holds its accounts as
+ * compact JSON lines, deflated on its own, so blocks are serialized and
+ * compressed, or inflated and parsed, in parallel on a fork-join pool. The
+ * non-account state (idempotency keys, standing orders) follows as one more
+ * block. An index at the end records where each block starts, its sizes, a
+ * CRC32C of its uncompressed bytes and its first account number, so a single
+ * account can be read by inflating only the block that holds it.
+ *
+ * Layout: a 32-byte header ({@code BANKSNAP}, version, block count, index
+ * offset, index length and index CRC32C), the blocks, the state block and the
+ * index. The header is written last, so a torn file fails verification. Files
+ * are replaced as {@link LedgerFile} replaces them, keeping the previous
+ * generation.
+ */
+public class BlockSnapshot implements Closeable {
+    /** Transactions (plus one per account) aimed for in each block. */
+    public static final int ENTRIES_PER_BLOCK = 4096;
+
+    private static final byte[] MAGIC = "BANKSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 32;
+    private static final Gson GSON = LedgerJson.create(false);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final List<Block> blocks;
+    private final Block state;
+
+    private BlockSnapshot(Path file, FileChannel channel, List<Block> blocks, Block state) {
+        this.file = file;
+        this.channel = channel;
+        this.blocks = blocks;
+        this.state = state;
+    }
+
+    /**
+     * @param file File to check
+     * @return true if the file is in this format
+     */
+    public static boolean isSnapshot(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+            readFully(channel, magic, 0);
+            return ByteBuffer.wrap(MAGIC).equals(magic.flip());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Atomically replace a snapshot file.
+     *
+     * @param target Snapshot file path
+     * @param accounts Accounts to write (each is read under its lock)
+     * @param state Callback writing the non-account state
+     * @param pool Pool serializing and compressing the blocks
+     * @throws IOException if the new generation cannot be written; the old file is left intact
+     */
+    public static void write(Path target, Collection<Account> accounts, LedgerFile.BodyWriter state,
+                             ForkJoinPool pool) throws IOException {
+        List<Account> sorted = new ArrayList<>(accounts);
+        sorted.sort(Comparator.comparing(Account::getAccountNumber));
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        List<Block> written = new ArrayList<>();
+        Deque<ForkJoinTask<Compressed>> pending = new ArrayDeque<>();
+        // Keep every worker busy without holding the whole file in memory
+        int window = pool.getParallelism() * 2;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = HEADER_LENGTH;
+            channel.write(ByteBuffer.allocate(HEADER_LENGTH), 0);
+            int start = 0;
+            while (start < sorted.size()) {
+                int end = start;
+                int entries = 0;
+                while (end < sorted.size() && (end == start || entries < ENTRIES_PER_BLOCK)) {
+                    entries += sorted.get(end).getTransactions().size() + 1;
+                    end++;
+                }
+                List<Account> slice = sorted.subList(start, end);
+                pending.add(pool.submit(() -> compress(encodeAccounts(slice))));
+                start = end;
+                while (pending.size() >= window) {
+                    position = append(channel, position, join(pending.poll()), written);
+                }
+            }
+            while (!pending.isEmpty()) {
+                position = append(channel, position, join(pending.poll()), written);
+            }
+
+            ByteArrayOutputStream stateBytes = new ByteArrayOutputStream();
+            Writer out = new OutputStreamWriter(stateBytes, StandardCharsets.UTF_8);
+            state.write(out);
+            out.flush();
+            List<Block> stateBlock = new ArrayList<>(1);
+            long indexOffset = append(channel, position, compress(new Encoded(stateBytes.toByteArray(), 0, "")),
+                stateBlock);
+
+            byte[] index = encodeIndex(written, stateBlock.get(0));
+            CRC32C crc = new CRC32C();
+            crc.update(index);
+            writeFully(channel, ByteBuffer.wrap(index), indexOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC).putInt(VERSION).putInt(written.size()).putLong(indexOffset)
+                .putInt(index.length).putInt((int) crc.getValue()).flip();
+            writeFully(channel, header, 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            for (ForkJoinTask<Compressed> task : pending) {
+                task.cancel(true);
+            }
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        LedgerFile.rotate(target, temp);
+    }
+
+    /**
+     * Read a whole snapshot, inflating and parsing its blocks in parallel.
+     *
+     * @param source Snapshot file path
+     * @param accounts Receives the accounts in account number order, on the calling thread
+     * @param state Callback parsing the non-account state
+     * @param pool Pool inflating and parsing the blocks
+     * @return Number of accounts read
+     * @throws IOException if the file cannot be read or fails verification
+     */
+    public static int read(Path source, Consumer<Account> accounts, LedgerFile.BodyReader state,
+                           ForkJoinPool pool) throws IOException {
+        try (BlockSnapshot snapshot = open(source)) {
+            List<ForkJoinTask<List<Account>>> tasks = new ArrayList<>(snapshot.blocks.size());
+            for (Block block : snapshot.blocks) {
+                tasks.add(pool.submit(() -> snapshot.parse(block, null)));
+            }
+            int count = 0;
+            try {
+                for (ForkJoinTask<List<Account>> task : tasks) {
+                    for (Account account : join(task)) {
+                        accounts.accept(account);
+                        count++;
+                    }
+                }
+            } finally {
+                for (ForkJoinTask<List<Account>> task : tasks) {
+                    task.cancel(true);
+                }
+            }
+            byte[] stateBytes = snapshot.inflate(snapshot.state);
+            state.read(new InputStreamReader(new ByteArrayInputStream(stateBytes), StandardCharsets.UTF_8));
+            return count;
+        }
+    }
+
+    /**
+     * Open a snapshot for random access, reading and verifying its index.
+     *
+     * @param source Snapshot file path
+     * @return Open snapshot; close it when done
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static BlockSnapshot open(Path source) throws IOException {
+        FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(channel, header, 0);
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!ByteBuffer.wrap(MAGIC).equals(ByteBuffer.wrap(magic))) {
+                throw new IOException("Not a block snapshot: " + source);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + source);
+            }
+            int blockCount = header.getInt();
+            long indexOffset = header.getLong();
+            int indexLength = header.getInt();
+            int indexCrc = header.getInt();
+            if (blockCount < 0 || indexLength < 0 || indexOffset < HEADER_LENGTH
+                    || indexOffset + indexLength > channel.size()) {
+                throw new IOException("Malformed snapshot header in " + source);
+            }
+
+            ByteBuffer index = ByteBuffer.allocate(indexLength);
+            readFully(channel, index, indexOffset);
+            CRC32C crc = new CRC32C();
+            crc.update(index.array());
+            if ((int) crc.getValue() != indexCrc) {
+                throw new IOException("Checksum mismatch in the index of " + source);
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(index.array()));
+            List<Block> blocks = new ArrayList<>(blockCount);
+            for (int i = 0; i < blockCount; i++) {
+                blocks.add(Block.read(in));
+            }
+            return new BlockSnapshot(source, channel, blocks, Block.read(in));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Read one account, inflating only the block that holds it.
+     *
+     * @param accountNumber Account identifier
+     * @return The account, or null if the snapshot does not hold it
+     * @throws IOException if the block cannot be read or fails verification
+     */
+    public Account readAccount(String accountNumber) throws IOException {
+        // The last block starting at or before the account number
+        int low = 0;
+        int high = blocks.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).first.compareTo(accountNumber) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return null;
+        }
+        List<Account> accounts = parse(blocks.get(found), accountNumber);
+        return accounts.isEmpty() ? null : accounts.get(0);
+    }
+
+    /**
+     * @return Number of account blocks
+     */
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * @return Number of accounts in the snapshot
+     */
+    public int getAccountCount() {
+        int count = 0;
+        for (Block block : blocks) {
+            count += block.records;
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Inflate and parse one block.
+     *
+     * @param wanted Only return this account (null for all)
+     */
+    private List<Account> parse(Block block, String wanted) {
+        try {
+            byte[] raw = inflate(block);
+            List<Account> accounts = new ArrayList<>(wanted == null ? block.records : 1);
+            JsonReader reader = GSON.newJsonReader(new InputStreamReader(new ByteArrayInputStream(raw),
+                StandardCharsets.UTF_8));
+            // One account per line
+            reader.setLenient(true);
+            int records = 0;
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                Account account = GSON.fromJson(reader, Account.class);
+                records++;
+                if (wanted == null) {
+                    accounts.add(account);
+                } else if (wanted.equals(account.getAccountNumber())) {
+                    accounts.add(account);
+                    return accounts;
+                }
+            }
+            if (records != block.records) {
+                throw new IOException(String.format("Record count mismatch in block at %d of %s: expected %d, got %d",
+                    block.offset, file, block.records, records));
+            }
+            return accounts;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (JsonParseException e) {
+            throw new UncheckedIOException(new IOException("Corrupt block at " + block.offset + " of " + file, e));
+        }
+    }
+
+    private byte[] inflate(Block block) throws IOException {
+        ByteBuffer compressed = ByteBuffer.allocate(block.compressedLength);
+        readFully(channel, compressed, block.offset);
+        byte[] raw = new byte[block.rawLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int length = 0;
+            while (length < raw.length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length == raw.length && !inflater.finished()) {
+                // Read past the end of the data to reach the end of the stream
+                length += inflater.inflate(new byte[1]);
+            }
+            if (length != raw.length || !inflater.finished()) {
+                throw new IOException("Truncated block at " + block.offset + " of " + file);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at " + block.offset + " of " + file, e);
+        } finally {
+            inflater.end();
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(raw);
+        if ((int) crc.getValue() != block.crc) {
+            throw new IOException(String.format("Checksum mismatch in block at %d of %s", block.offset, file));
+        }
+        return raw;
+    }
+
+    /**
+     * Serialize accounts as JSON lines, each under its own lock.
+     */
+    private static Encoded encodeAccounts(List<Account> accounts) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(accounts.size() * 512);
+        try {
+            Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+            JsonWriter writer = GSON.newJsonWriter(out);
+            writer.setLenient(true);
+            for (Account account : accounts) {
+                synchronized (account) {
+                    GSON.toJson(account, Account.class, writer);
+                }
+                writer.flush();
+                out.write('\n');
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Encoded(bytes.toByteArray(), accounts.size(), accounts.get(0).getAccountNumber());
+    }
+
+    private static Compressed compress(Encoded encoded) {
+        CRC32C crc = new CRC32C();
+        crc.update(encoded.raw);
+        // The repeated keys go at any level; the default level took half as long again for 10% less
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(encoded.raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, encoded.raw.length / 4));
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return new Compressed(out.toByteArray(), encoded.raw.length, (int) crc.getValue(), encoded.records,
+                encoded.first);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static long append(FileChannel channel, long position, Compressed compressed, List<Block> index)
+            throws IOException {
+        writeFully(channel, ByteBuffer.wrap(compressed.bytes), position);
+        index.add(new Block(position, compressed.bytes.length, compressed.rawLength, compressed.records,
+            compressed.crc, compressed.first));
+        return position + compressed.bytes.length;
+    }
+
+    private static byte[] encodeIndex(List<Block> blocks, Block state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(blocks.size() * 40 + 40);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Block block : blocks) {
+            block.write(out);
+        }
+        state.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Wait for a task, surfacing its IOException.
+     */
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Snapshot ends early");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long at = position;
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+    }
+
+    /**
+     * Uncompressed block contents.
+     */
+    private static final class Encoded {
+        private final byte[] raw;
+        private final int records;
+        private final String first;
+
+        Encoded(byte[] raw, int records, String first) {
+            this.raw = raw;
+            this.records = records;
+            this.first = first;
+        }
+    }
+
+    /**
+     * Compressed block contents, not yet written.
+     */
+    private static final class Compressed {
+        private final byte[] bytes;
+        private final int rawLength;
+        private final int crc;
+        private final int records;
+        private final String first;
+
+        Compressed(byte[] bytes, int rawLength, int crc, int records, String first) {
+            this.bytes = bytes;
+            this.rawLength = rawLength;
+            this.crc = crc;
+            this.records = records;
+            this.first = first;
+        }
+    }
+
+    /**
+     * Index entry of one block.
+     */
+    private static final class Block {
+        private final long offset;
+        private final int compressedLength;
+        private final int rawLength;
+        private final int records;
+        private final int crc;
+        private final String first;
+
+        Block(long offset, int compressedLength, int rawLength, int records, int crc, String first) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.records = records;
+            this.crc = crc;
+            this.first = first;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(offset);
+            out.writeInt(compressedLength);
+            out.writeInt(rawLength);
+            out.writeInt(records);
+            out.writeInt(crc);
+            out.writeUTF(first);
+        }
+
+        static Block read(DataInputStream in) throws IOException {
+            Block block = new Block(in.readLong(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                in.readUTF());
+            if (block.offset < HEADER_LENGTH || block.compressedLength < 0 || block.rawLength < 0
+                    || block.records < 0) {
+                throw new IOException("Malformed snapshot index");
+            }
+            return block;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Opens accounts in bulk from a CSV or JSON Lines file, e.g. when a migrated
+ * portfolio is onboarded.
+ *
+ * The file is streamed in batches. Each batch is validated and its passwords
+ * hashed on a worker pool while the next batches are read, then its accounts
+ * are added to the bank in file order. The bank is saved once, at the end,
+ * rather than after every account as {@link Bank#createAccount} does.
+ *
+ * CSV files start with a header naming the columns {@code account_number},
+ * {@code account_holder}, {@code password}, {@code initial_balance} and
+ * optionally {@code currency}; fields may be double-quoted. JSON Lines files
+ * hold one object per line with the fields {@code accountNumber},
+ * {@code accountHolder}, {@code password}, {@code initialBalance} and
+ * optionally {@code currency}.
+ *
+ * Rows that fail validation, or whose account number is already taken, are
+ * skipped and listed in the error report, one CSV row each:
+ * {@code line,account_number,error}.
+ */
+public class BulkAccountImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+    public static final int DEFAULT_PROGRESS_INTERVAL = 10_000;
+
+    private final Bank bank;
+    private final Gson gson;
+    private int threads;
+    private int batchSize;
+    private int progressInterval;
+    private Consumer<Report> progress;
+
+    /**
+     * @param bank Bank the accounts are opened in
+     */
+    public BulkAccountImporter(Bank bank) {
+        this.bank = bank;
+        this.gson = new Gson();
+        this.threads = Runtime.getRuntime().availableProcessors();
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        this.progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    }
+
+    /**
+     * @param threads Number of worker threads validating rows and hashing passwords
+     * @return This importer
+     */
+    public BulkAccountImporter setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * @param batchSize Rows handed to a worker at a time
+     * @return This importer
+     */
+    public BulkAccountImporter setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /**
+     * Be told how the import is going every so many rows, and once at the end.
+     *
+     * @param interval Rows between reports
+     * @param progress Receives the running totals (null for none)
+     * @return This importer
+     */
+    public BulkAccountImporter setProgress(int interval, Consumer<Report> progress) {
+        this.progressInterval = Math.max(1, interval);
+        this.progress = progress;
+        return this;
+    }
+
+    /**
+     * Import a file, choosing the format by its extension ({@code .csv}, else JSON Lines).
+     *
+     * @param file Accounts to open
+     * @param errorReport File listing the rejected rows (null to only count them)
+     * @return Totals of the import
+     * @throws IOException if a file cannot be read or written, or the bank cannot be saved
+     */
+    public Report importFile(Path file, Path errorReport) throws IOException {
+        boolean csv = file.getFileName().toString().toLowerCase().endsWith(".csv");
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             ErrorReport errors = new ErrorReport(errorReport)) {
+            return run(in, csv, errors);
+        }
+    }
+
+    private Report run(BufferedReader in, boolean csv, ErrorReport errors) throws IOException {
+        Report report = new Report(System.nanoTime());
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "account-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Bounded so a huge file never sits in memory while the bank catches up
+        Deque<Future<List<Row>>> inFlight = new ArrayDeque<>();
+        try {
+            int[] columns = csv ? columns(in.readLine()) : null;
+            int lineNumber = csv ? 1 : 0;
+            List<Row> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                batch.add(new Row(lineNumber, line));
+                if (batch.size() == batchSize) {
+                    inFlight.add(submit(workers, batch, columns));
+                    batch = new ArrayList<>(batchSize);
+                    if (inFlight.size() > threads * 2) {
+                        add(inFlight.poll(), report, errors);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                inFlight.add(submit(workers, batch, columns));
+            }
+            while (!inFlight.isEmpty()) {
+                add(inFlight.poll(), report, errors);
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+
+        // An import that was not saved must not be reported as done
+        bank.commit();
+        report.finish();
+        if (progress != null) {
+            progress.accept(report);
+        }
+        return report;
+    }
+
+    private Future<List<Row>> submit(ExecutorService workers, List<Row> batch, int[] columns) {
+        return workers.submit(() -> {
+            for (Row row : batch) {
+                prepare(row, columns);
+            }
+            return batch;
+        });
+    }
+
+    /**
+     * Add a prepared batch to the bank in file order.
+     */
+    private void add(Future<List<Row>> pending, Report report, ErrorReport errors) throws IOException {
+        List<Row> batch;
+        try {
+            batch = pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed", e.getCause());
+        }
+
+        List<Account> valid = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            if (row.account != null) {
+                valid.add(row.account);
+            }
+        }
+        List<Account> taken = bank.addAccounts(valid);
+        int next = 0;
+        for (Row row : batch) {
+            if (row.account != null && next < taken.size() && taken.get(next) == row.account) {
+                row.error = "Account number already exists";
+                next++;
+            }
+            if (row.error != null) {
+                report.rejected++;
+                errors.write(row);
+            } else {
+                report.imported++;
+            }
+            report.rows++;
+            if (progress != null && report.rows % progressInterval == 0) {
+                progress.accept(report);
+            }
+        }
+    }
+
+    /**
+     * Parse and validate a row and build its account, hashing the password.
+     * Runs on a worker thread.
+     */
+    private void prepare(Row row, int[] columns) {
+        try {
+            Fields fields;
+            if (columns != null) {
+                fields = new Fields();
+                List<String> values = splitCsv(row.line);
+                fields.accountNumber = column(values, columns[0]);
+                row.accountNumber = fields.accountNumber;
+                fields.accountHolder = column(values, columns[1]);
+                fields.password = column(values, columns[2]);
+                String balance = column(values, columns[3]);
+                fields.initialBalance = balance == null || balance.isBlank() ? null : Double.valueOf(balance.trim());
+                fields.currency = column(values, columns[4]);
+            } else {
+                fields = gson.fromJson(row.line, Fields.class);
+            }
+            row.accountNumber = fields == null ? null : fields.accountNumber;
+            row.error = validate(fields);
+            if (row.error == null) {
+                String currency = fields.currency == null || fields.currency.isBlank()
+                    ? Account.DEFAULT_CURRENCY : fields.currency.trim();
+                row.account = new Account(fields.accountNumber.trim(), fields.accountHolder.trim(),
+                    fields.password, fields.initialBalance, currency);
+            }
+        } catch (NumberFormatException e) {
+            row.error = "Invalid initial balance";
+        } catch (JsonParseException e) {
+            row.error = "Malformed JSON";
+        } catch (IllegalArgumentException e) {
+            // Password or currency validation failed
+            row.error = e.getMessage();
+        }
+    }
+
+    private static String validate(Fields fields) {
+        if (fields == null) {
+            return "Empty row";
+        }
+        if (fields.accountNumber == null || fields.accountNumber.trim().isEmpty()) {
+            return "Missing account number";
+        }
+        if (fields.accountHolder == null || fields.accountHolder.trim().isEmpty()) {
+            return "Missing account holder";
+        }
+        if (fields.password == null) {
+            return "Missing password";
+        }
+        if (fields.initialBalance == null || fields.initialBalance < 0 || fields.initialBalance.isNaN()) {
+            return "Invalid initial balance";
+        }
+        return null;
+    }
+
+    /**
+     * Find the columns named in the CSV header.
+     *
+     * @return Positions of account number, holder, password, balance and currency (-1 if absent)
+     */
+    private static int[] columns(String header) throws IOException {
+        if (header == null) {
+            throw new IOException("CSV file has no header");
+        }
+        List<String> names = splitCsv(header);
+        String[] wanted = {"account_number", "account_holder", "password", "initial_balance", "currency"};
+        int[] columns = new int[wanted.length];
+        for (int i = 0; i < wanted.length; i++) {
+            columns[i] = names.indexOf(wanted[i]);
+            if (columns[i] < 0 && i < 4) {
+                throw new IOException("CSV header lacks the " + wanted[i] + " column");
+            }
+        }
+        return columns;
+    }
+
+    private static String column(List<String> values, int index) {
+        return index >= 0 && index < values.size() ? values.get(index) : null;
+    }
+
+    /**
+     * Split a CSV line, honouring double quotes and doubled quotes inside them.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * Fields of one row, as named in a JSON Lines file.
+     */
+    private static class Fields {
+        private String accountNumber;
+        private String accountHolder;
+        private String password;
+        private Double initialBalance;
+        private String currency;
+    }
+
+    private static class Row {
+        private final int lineNumber;
+        private final String line;
+        private String accountNumber;
+        private Account account;
+        private String error;
+
+        Row(int lineNumber, String line) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+    }
+
+    /**
+     * Writes rejected rows as they are found.
+     */
+    private static class ErrorReport implements Closeable {
+        private final BufferedWriter out;
+
+        ErrorReport(Path file) throws IOException {
+            this.out = file == null ? null : Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            if (out != null) {
+                out.write("line,account_number,error\n");
+            }
+        }
+
+        void write(Row row) throws IOException {
+            if (out != null) {
+                out.write(row.lineNumber + "," + quote(row.accountNumber) + "," + quote(row.error) + "\n");
+            }
+        }
+
+        private static String quote(String value) {
+            if (value == null) {
+                return "";
+            }
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Running totals of an import.
+     */
+    public static class Report {
+        private final long startNanos;
+        private long rows;
+        private long imported;
+        private long rejected;
+        private long elapsedNanos;
+
+        Report(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        void finish() {
+            elapsedNanos = System.nanoTime() - startNanos;
+        }
+
+        /**
+         * @return Rows read so far, blank lines and the CSV header aside
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * @return Time taken so far, in milliseconds
+         */
+        public long getElapsedMillis() {
+            return (elapsedNanos > 0 ? elapsedNanos : System.nanoTime() - startNanos) / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            long millis = Math.max(1, getElapsedMillis());
+            return String.format("%,d rows: %,d imported, %,d rejected in %.1f s (%,d rows/s)",
+                rows, imported, rejected, millis / 1000.0, rows * 1000 / millis);
+        }
+    }
+
+    /**
+     * Import a file into the bank kept in a JSON data file.
+     *
+     * @param args Accounts file, optionally followed by the data file and the error report
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: BulkAccountImporter <accounts.csv|accounts.jsonl> [data file] [error report]");
+            System.exit(2);
+        }
+        String dataFile = args.length > 1 ? args[1] : "bank_data.json";
+        Path errorReport = Paths.get(args.length > 2 ? args[2] : "import_errors.csv");
+        try {
+            Report report = new BulkAccountImporter(new Bank(dataFile))
+                .setProgress(DEFAULT_PROGRESS_INTERVAL, System.out::println)
+                .importFile(Paths.get(args[0]), errorReport);
+            if (report.getRejected() > 0) {
+                System.out.println("Rejected rows are listed in " + errorReport);
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,517 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Change-data-capture feed: publishes every account opened, deposit,
+ * withdrawal and transfer to {@link Flow.Subscriber}s, so downstream systems
+ * need not re-read the data file.
+ *
+ * Events are {@link LedgerEvent}s, password hashes left out, numbered by an
+ * offset. Publishing only stores the event in a bounded ring of recent events
+ * and wakes the subscribers; each subscriber is then fed on the executor at
+ * its own pace, as much as it has requested. A slow subscriber therefore never
+ * holds up a deposit or transfer, it just falls behind.
+ *
+ * A subscriber can start after any offset still available. For a feed over
+ * an {@link EventLog} the offsets are the log's sequences, and a subscriber
+ * that falls out of the ring, or resumes from before it, catches up from the
+ * log. Without a log the offsets count from 1 when the feed is created, and a
+ * subscriber that falls out of the ring is failed with an
+ * {@link IllegalStateException}. Such offsets mean nothing to another feed,
+ * so a {@link FileSink} can only resume a file from a feed over a log.
+ */
+public class ChangeFeed implements Flow.Publisher<LedgerEvent>, LedgerListener, Closeable {
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+
+    private final LedgerEvent[] retained;
+    private final EventLog log;
+    private final Executor executor;
+    private final List<FeedSubscription> subscriptions;
+    private final long firstOffset;
+    private long head;
+    private boolean closed;
+
+    /**
+     * Create a feed numbering its own events, to be registered as a ledger listener.
+     *
+     * @param capacity Recent events kept for subscribers that are behind
+     */
+    public ChangeFeed(int capacity) {
+        this(null, capacity, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a feed of the events appended to an event log from now on.
+     *
+     * @param log Open event log
+     * @param capacity Recent events kept in memory; older ones are read back from the log
+     */
+    public ChangeFeed(EventLog log, int capacity) {
+        this(log, capacity, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param log Event log to follow, or null to number events as a ledger listener
+     * @param capacity Recent events kept in memory
+     * @param executor Runs deliveries to subscribers
+     */
+    ChangeFeed(EventLog log, int capacity, Executor executor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.retained = new LedgerEvent[capacity];
+        this.log = log;
+        this.executor = executor;
+        this.subscriptions = new CopyOnWriteArrayList<>();
+        if (log != null) {
+            // No event can slip between reading the sequence and tapping the log
+            synchronized (log) {
+                this.head = log.getSequence();
+                log.setTap(this::onLogged);
+            }
+        }
+        this.firstOffset = head + 1;
+    }
+
+    /**
+     * Subscribe to events published from now on.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super LedgerEvent> subscriber) {
+        subscribe(subscriber, getOffset());
+    }
+
+    /**
+     * Subscribe to the events after an offset, e.g. the last one a consumer
+     * processed before it stopped.
+     *
+     * @param subscriber Subscriber
+     * @param afterOffset Deliver events with a higher offset
+     * @throws IllegalArgumentException if the offset is negative or not yet published
+     * @throws IllegalStateException if a {@link FileSink} that already holds
+     *         events is resumed from a feed without an event log
+     */
+    public void subscribe(Flow.Subscriber<? super LedgerEvent> subscriber, long afterOffset) {
+        if (afterOffset < 0 || afterOffset > getOffset()) {
+            throw new IllegalArgumentException("No such offset: " + afterOffset);
+        }
+        if (log == null && subscriber instanceof FileSink && ((FileSink) subscriber).isResuming()) {
+            // Its offsets may have come from an earlier feed, numbered from 1 just like this one
+            throw new IllegalStateException("A file sink can only resume from a feed over an event log");
+        }
+        FeedSubscription subscription = new FeedSubscription(subscriber, afterOffset);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        subscription.signal();
+    }
+
+    /**
+     * @return Offset of the last event published
+     */
+    public synchronized long getOffset() {
+        return head;
+    }
+
+    /**
+     * Stop publishing. Subscribers are sent what they have not yet received and then completed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        if (log != null) {
+            log.setTap(null);
+        }
+        signalAll();
+    }
+
+    @Override
+    public void onAccountCreated(Account account) {
+        publish(offset -> LedgerEvent.accountOpened(offset, account));
+    }
+
+    @Override
+    public void onTransaction(Account account, Account.Transaction transaction) {
+        if (transaction.getCounterparty() != null) {
+            // A transfer leg; the whole transfer is published by onTransfer
+            return;
+        }
+        publish(offset -> LedgerEvent.transaction(offset, account.getAccountNumber(), transaction));
+    }
+
+    @Override
+    public void onTransfer(Account from, Account.Transaction debit, Account to, Account.Transaction credit) {
+        publish(offset -> LedgerEvent.transfer(offset, from.getAccountNumber(), debit, to.getAccountNumber(),
+            credit));
+    }
+
+    private void publish(LongFunction<LedgerEvent> event) {
+        if (log != null) {
+            // Events come from the log instead
+            return;
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            head++;
+            retained[slot(head)] = event.apply(head).withoutCredentials();
+        }
+        signalAll();
+    }
+
+    private void onLogged(LedgerEvent event) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            head = event.getSequence();
+            retained[slot(head)] = event.withoutCredentials();
+        }
+        signalAll();
+    }
+
+    private void signalAll() {
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    private int slot(long offset) {
+        return (int) (offset % retained.length);
+    }
+
+    /**
+     * Fetch the events after a subscriber's cursor.
+     *
+     * @return Up to limit events, empty when there are none yet, or null if
+     *         they are no longer retained and there is no log to read them from
+     */
+    private List<LedgerEvent> next(FeedSubscription subscription, long limit) {
+        long after = subscription.cursor;
+        List<LedgerEvent> batch = new ArrayList<>();
+        synchronized (this) {
+            long oldest = Math.max(firstOffset, head - retained.length + 1);
+            if (after + 1 >= oldest) {
+                for (long offset = after + 1; offset <= head && batch.size() < limit; offset++) {
+                    batch.add(retained[slot(offset)]);
+                }
+                return batch;
+            }
+        }
+        if (log == null) {
+            return null;
+        }
+        // Fallen behind the ring: catch up from the log, a ring's worth at a
+        // time, going on from where the subscriber's last read stopped
+        int wanted = (int) Math.min(limit, retained.length);
+        try {
+            subscription.logPosition = log.read(subscription.logPosition, after, wanted,
+                event -> batch.add(event.withoutCredentials()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return batch;
+    }
+
+    private synchronized boolean isDrained(long cursor) {
+        return closed && cursor >= head;
+    }
+
+    /**
+     * One subscriber's position in the feed. Deliveries run on the executor,
+     * one drain at a time.
+     */
+    private final class FeedSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super LedgerEvent> subscriber;
+        private final AtomicLong demand;
+        private final AtomicInteger pending;
+        private volatile boolean cancelled;
+        private volatile Throwable badRequest;
+        private long cursor;
+        /** Where in the log to go on reading after falling behind the ring; only moves forward. */
+        private long logPosition;
+
+        FeedSubscription(Flow.Subscriber<? super LedgerEvent> subscriber, long afterOffset) {
+            this.subscriber = subscriber;
+            this.demand = new AtomicLong();
+            this.pending = new AtomicInteger();
+            this.cursor = afterOffset;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("Requested " + n + " events");
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> {
+                    long sum = current + added;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (pending.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (cancelled) {
+                return;
+            }
+            try {
+                if (badRequest != null) {
+                    fail(badRequest);
+                    return;
+                }
+                while (demand.get() > 0 && !cancelled) {
+                    List<LedgerEvent> batch = next(this, demand.get());
+                    if (batch == null) {
+                        fail(new IllegalStateException("Subscriber fell more than " + retained.length
+                            + " events behind the feed"));
+                        return;
+                    }
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    for (LedgerEvent event : batch) {
+                        subscriber.onNext(event);
+                        cursor = event.getSequence();
+                        if (demand.get() != Long.MAX_VALUE) {
+                            demand.decrementAndGet();
+                        }
+                    }
+                }
+                if (!cancelled && isDrained(cursor)) {
+                    cancel();
+                    subscriber.onComplete();
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable error) {
+            cancel();
+            subscriber.onError(error);
+        }
+    }
+
+    /**
+     * Subscriber appending the feed to a JSON Lines file, one event per line.
+     * Each line carries the event's offset as its sequence, so after a restart
+     * the sink picks up where the file ends:
+     * <pre>
+     * FileSink sink = new FileSink(path);
+     * feed.subscribe(sink, sink.getOffset());
+     * </pre>
+     * Resuming needs a feed over an event log; a feed without one starts its
+     * offsets again at 1 and only takes a sink whose file is empty.
+     */
+    public static class FileSink implements Flow.Subscriber<LedgerEvent>, Closeable {
+        private static final int REQUEST_SIZE = 256;
+
+        private final Path file;
+        private final Gson gson;
+        private FileChannel channel;
+        private Writer writer;
+        private Flow.Subscription subscription;
+        private int outstanding;
+        private final boolean resuming;
+        private volatile long offset;
+        private volatile Throwable error;
+
+        /**
+         * Open the file for appending, dropping a line torn by a crash.
+         *
+         * @param file Output file (created if missing)
+         * @throws IOException if the file cannot be read or opened
+         */
+        public FileSink(Path file) throws IOException {
+            this.file = file;
+            this.gson = LedgerJson.create(false);
+            this.offset = recover();
+            this.resuming = offset > 0;
+        }
+
+        /**
+         * Find the last complete line and cut anything after it.
+         *
+         * @return Offset of the last event in the file
+         */
+        private long recover() throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            long size = channel.size();
+            long end = size;
+            ByteBuffer one = ByteBuffer.allocate(1);
+            while (end > 0) {
+                one.clear();
+                channel.read(one, end - 1);
+                if (one.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < size) {
+                channel.truncate(end);
+            }
+            channel.position(end);
+            this.writer = Channels.newWriter(channel, StandardCharsets.UTF_8);
+
+            long last = 0;
+            if (end > 0) {
+                long start = end - 1;
+                while (start > 0) {
+                    one.clear();
+                    channel.read(one, start - 1);
+                    if (one.get(0) == '\n') {
+                        break;
+                    }
+                    start--;
+                }
+                ByteBuffer line = ByteBuffer.allocate((int) (end - start));
+                channel.read(line, start);
+                try {
+                    LedgerEvent event = gson.fromJson(new String(line.array(), StandardCharsets.UTF_8).trim(),
+                        LedgerEvent.class);
+                    last = event.getSequence();
+                } catch (JsonParseException e) {
+                    throw new IOException("Corrupt change feed file " + file, e);
+                }
+            }
+            return last;
+        }
+
+        /**
+         * @return Offset of the last event written; subscribe after it to resume
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return true if the file already held events when the sink was opened
+         */
+        boolean isResuming() {
+            return resuming;
+        }
+
+        /**
+         * @return Error that ended the subscription, or null
+         */
+        public Throwable getError() {
+            return error;
+        }
+
+        @Override
+        public synchronized void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            outstanding = REQUEST_SIZE;
+            subscription.request(REQUEST_SIZE);
+        }
+
+        @Override
+        public synchronized void onNext(LedgerEvent event) {
+            if (writer == null) {
+                return;
+            }
+            try {
+                writer.write(gson.toJson(event));
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                subscription.cancel();
+                onError(e);
+                return;
+            }
+            offset = event.getSequence();
+            if (--outstanding == 0) {
+                outstanding = REQUEST_SIZE;
+                subscription.request(REQUEST_SIZE);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            closeQuietly();
+        }
+
+        @Override
+        public void onComplete() {
+            closeQuietly();
+        }
+
+        /**
+         * Stop following the feed and close the file.
+         */
+        @Override
+        public void close() throws IOException {
+            Flow.Subscription current;
+            synchronized (this) {
+                current = subscription;
+            }
+            if (current != null) {
+                current.cancel();
+            }
+            synchronized (this) {
+                if (writer != null) {
+                    writer.flush();
+                    channel.force(false);
+                    writer.close();
+                    writer = null;
+                }
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
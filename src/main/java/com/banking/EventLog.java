@@ -0,0 +1,724 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Append-only log of ledger events, the record of every account in an
+ * event-sourced bank.
+ *
+ * Each event is one JSON line numbered by a sequence. Accounts are projections
+ * of the log: recovery loads the latest snapshot and replays the events after
+ * it. Replay is partitioned by account number and the partitions are applied
+ * in parallel; a transfer is applied in the partitions of both its accounts.
+ * Events are appended under the lock of every account they change, so each
+ * account's events are logged in the order they happened.
+ *
+ * Events made by an idempotent request or a standing order payment carry
+ * the request's key or the order's run (see {@link #attribute}), so a bank
+ * that crashed before saving its data file still learns from the log that
+ * the request was carried out.
+ *
+ * A snapshot records, for each account, the last event it includes, so it can
+ * be taken while the bank keeps running. It also records the byte offset in
+ * the log that it covers everything before, so recovery seeks there instead
+ * of reading the log from its start. The log itself is never rewritten,
+ * which is what lets any earlier state be rebuilt with {@link #replayUntil}.
+ */
+public class EventLog implements LedgerListener, Closeable {
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000;
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final int READ_CHUNK = 64 * 1024;
+    private static final Type SEQUENCE_MAP_TYPE = new TypeToken<HashMap<String, Long>>(){}.getType();
+
+    private final Path file;
+    private final Path snapshotFile;
+    private final int snapshotInterval;
+    private final Gson gson;
+    private final Map<String, Long> lastSequence;
+    private FileChannel channel;
+    private Writer writer;
+    private long sequence;
+    /** Byte offset of the end of the log, just past event {@link #sequence}. */
+    private long offset;
+    private long snapshotSequence;
+    private volatile Consumer<LedgerEvent> tap;
+    private final ThreadLocal<Origin> origin = new ThreadLocal<>();
+    /** Requests being attributed, with the point in the log when each started. */
+    private final Map<Origin, Point> inFlight = new HashMap<>();
+
+    /**
+     * Create a log snapshotted every {@value #DEFAULT_SNAPSHOT_INTERVAL} events.
+     *
+     * @param file Log file (created on first append)
+     */
+    public EventLog(Path file) {
+        this(file, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Create a log.
+     *
+     * @param file Log file (created on first append); the snapshot is kept beside it
+     * @param snapshotInterval Events between snapshots taken when the bank saves
+     */
+    public EventLog(Path file, int snapshotInterval) {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        this.file = file;
+        this.snapshotFile = file.resolveSibling(file.getFileName() + ".snapshot");
+        this.snapshotInterval = snapshotInterval;
+        this.gson = LedgerJson.create(false);
+        this.lastSequence = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Rebuild every account from the latest snapshot and the events after it,
+     * and open the log for appending. An event torn by a crash mid-append is
+     * dropped.
+     *
+     * @return Accounts by account number
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    public synchronized Map<String, Account> recover() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("Event log already recovered");
+        }
+        Map<String, Account> accounts = new ConcurrentHashMap<>();
+        AtomicLong covered = new AtomicLong();
+        Map<String, Long> applied = readSnapshot(accounts, covered);
+        long snapshotted = applied.values().stream().mapToLong(Long::longValue).max().orElse(0);
+
+        if (Files.exists(file)) {
+            truncateTornTail();
+        }
+        Map<String, Long> replayed = new ConcurrentHashMap<>(applied);
+        long last = replay(lineStart(covered.get()), accounts, applied, replayed, null);
+        // The snapshot may be ahead of an unsynced log tail lost in a crash
+        resume(Math.max(last, snapshotted), replayed);
+        snapshotSequence = snapshotted;
+        return accounts;
+    }
+
+    /**
+     * Open the log for appending after its accounts were rebuilt elsewhere,
+     * as when a standby takes over.
+     *
+     * @param last Sequence of the last event reflected in the accounts
+     * @param applied Last event applied to each account
+     * @throws IOException if the log cannot be opened
+     */
+    synchronized void resume(long last, Map<String, Long> applied) throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("Event log already open");
+        }
+        if (Files.exists(file)) {
+            truncateTornTail();
+        }
+        lastSequence.putAll(applied);
+        sequence = last;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.APPEND);
+        offset = channel.size();
+        writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return The log file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Rebuild every account as it stood at a point in time, by replaying the
+     * log from its start. The bank is not affected.
+     *
+     * @param time Events dated after this are left out
+     * @return Accounts that existed then, by account number
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    public Map<String, Account> replayUntil(LocalDateTime time) throws IOException {
+        Map<String, Account> accounts = new ConcurrentHashMap<>();
+        replay(0, accounts, Collections.emptyMap(), null, time);
+        return accounts;
+    }
+
+    /**
+     * Stream events in order, e.g. to build a new read model.
+     *
+     * @param afterSequence Skip events up to and including this sequence (0 for all)
+     * @param consumer Receives each later event
+     * @return Sequence of the last event read
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    public long read(long afterSequence, Consumer<LedgerEvent> consumer) throws IOException {
+        long last = afterSequence;
+        if (!Files.exists(file)) {
+            return last;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> lines = new ArrayList<>(BATCH_SIZE);
+            String line = reader.readLine();
+            while (line != null) {
+                lines.add(line);
+                String next = reader.readLine();
+                if (lines.size() == BATCH_SIZE || next == null) {
+                    for (LedgerEvent event : parse(lines, next == null)) {
+                        if (event.getSequence() > afterSequence) {
+                            consumer.accept(event);
+                            last = event.getSequence();
+                        }
+                    }
+                    lines.clear();
+                }
+                line = next;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Read a bounded number of events, starting from a position in the file
+     * instead of its beginning, so a reader catching up batch by batch does
+     * not rescan what it has already read. A last line not yet complete is
+     * left for the next call.
+     *
+     * @param position Byte offset of a line to start at, as returned by an earlier call (0 for the start)
+     * @param afterSequence Skip events up to and including this sequence
+     * @param limit Most events to pass to the consumer
+     * @param consumer Receives each event read
+     * @return Byte offset just past the last line read, to continue from
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    long read(long position, long afterSequence, int limit, Consumer<LedgerEvent> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return position;
+        }
+        try (FileChannel log = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_CHUNK);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = position;
+            long end = position;
+            int count = 0;
+            while (count < limit) {
+                buffer.clear();
+                int read = log.read(buffer, offset);
+                if (read <= 0) {
+                    break;
+                }
+                offset += read;
+                byte[] bytes = buffer.array();
+                int start = 0;
+                for (int i = 0; i < read && count < limit; i++) {
+                    if (bytes[i] != '\n') {
+                        continue;
+                    }
+                    line.write(bytes, start, i - start);
+                    end += line.size() + 1;
+                    LedgerEvent event = parseLine(line.toString(StandardCharsets.UTF_8));
+                    line.reset();
+                    start = i + 1;
+                    if (event == null) {
+                        throw new IOException("Corrupt event log " + file + ": unreadable event");
+                    }
+                    if (event.getSequence() > afterSequence) {
+                        consumer.accept(event);
+                        count++;
+                    }
+                }
+                if (count < limit) {
+                    line.write(bytes, start, read - start);
+                }
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Stream the events after a point, reading the log from the point's byte
+     * offset. If the log has no line starting there (it was replaced, say) it
+     * is read from its start instead.
+     *
+     * @param from Point to read after, as returned by {@link #settledPoint()}
+     * @param consumer Receives each later event
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    void read(Point from, Consumer<LedgerEvent> consumer) throws IOException {
+        read(lineStart(from.offset), from.sequence, Integer.MAX_VALUE, consumer);
+    }
+
+    /**
+     * Write a snapshot of every account so recovery can start from it.
+     *
+     * @param accounts All accounts of the bank
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot(Collection<Account> accounts) throws IOException {
+        long upTo;
+        Point covered;
+        synchronized (this) {
+            sync();
+            upTo = sequence;
+            // Events of requests still in flight may land in accounts after they are snapshotted
+            covered = settledPoint();
+        }
+        LedgerFile.write(snapshotFile, out -> {
+            JsonWriter json = gson.newJsonWriter(out);
+            Map<String, Long> sequences = new HashMap<>();
+            int count = 0;
+            json.beginObject();
+            json.name("accounts");
+            json.beginArray();
+            for (Account account : accounts) {
+                // The account's state and its last event change together under its lock
+                synchronized (account) {
+                    gson.toJson(account, Account.class, json);
+                    sequences.put(account.getAccountNumber(),
+                        lastSequence.getOrDefault(account.getAccountNumber(), 0L));
+                }
+                count++;
+            }
+            json.endArray();
+            json.name("sequences");
+            gson.toJson(sequences, SEQUENCE_MAP_TYPE, json);
+            json.name("logOffset").value(covered.offset);
+            json.endObject();
+            json.flush();
+            return count;
+        });
+        synchronized (this) {
+            snapshotSequence = Math.max(snapshotSequence, upTo);
+        }
+    }
+
+    /**
+     * @return true once enough events have been appended since the last snapshot
+     */
+    public synchronized boolean isSnapshotDue() {
+        return sequence - snapshotSequence >= snapshotInterval;
+    }
+
+    /**
+     * @return Sequence of the last event appended or recovered
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Force appended events to disk.
+     *
+     * @throws IOException if the log cannot be synced
+     */
+    public synchronized void sync() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            sync();
+            channel.close();
+            writer = null;
+            channel = null;
+        }
+    }
+
+    @Override
+    public void onAccountCreated(Account account) {
+        append(next -> LedgerEvent.accountOpened(next, account), account.getAccountNumber(), null);
+    }
+
+    @Override
+    public void onTransaction(Account account, Account.Transaction transaction) {
+        if (transaction.getCounterparty() != null) {
+            // A transfer leg; the whole transfer is logged by onTransfer
+            return;
+        }
+        append(next -> LedgerEvent.transaction(next, account.getAccountNumber(), transaction),
+            account.getAccountNumber(), null);
+    }
+
+    @Override
+    public void onTransfer(Account from, Account.Transaction debit, Account to, Account.Transaction credit) {
+        append(next -> LedgerEvent.transfer(next, from.getAccountNumber(), debit, to.getAccountNumber(), credit),
+            from.getAccountNumber(), to.getAccountNumber());
+    }
+
+    /**
+     * Append one event. The line reaches the operating system before the
+     * change is reported, and the disk at the next {@link #sync()}.
+     */
+    private synchronized void append(LongFunction<LedgerEvent> event, String account, String counterparty) {
+        if (writer == null) {
+            throw new IllegalStateException("Event log is not open; recover it first");
+        }
+        long next = sequence + 1;
+        LedgerEvent logged = event.apply(next);
+        Origin tag = origin.get();
+        if (tag != null) {
+            logged.setOrigin(tag.requestKey, tag.requestFingerprint, tag.standingOrder, tag.standingOrderRun);
+        }
+        try {
+            writer.write(gson.toJson(logged));
+            writer.write('\n');
+            writer.flush();
+            offset = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the event log", e);
+        }
+        sequence = next;
+        lastSequence.put(account, next);
+        if (counterparty != null) {
+            lastSequence.put(counterparty, next);
+        }
+        Consumer<LedgerEvent> consumer = tap;
+        if (consumer != null) {
+            consumer.accept(logged);
+        }
+    }
+
+    /**
+     * Run a request, tagging every event it appends with where it came from.
+     *
+     * @param requestKey Idempotency key of the request (may be null)
+     * @param requestFingerprint What the key stands for (may be null)
+     * @param standingOrder Id of the standing order being paid (may be null)
+     * @param standingOrderRun Scheduled run being paid (may be null)
+     * @param request The request
+     * @return What the request returned
+     */
+    <T> T attribute(String requestKey, String requestFingerprint, String standingOrder, String standingOrderRun,
+                    Supplier<T> request) {
+        Origin tag = new Origin(requestKey, requestFingerprint, standingOrder, standingOrderRun);
+        synchronized (this) {
+            inFlight.put(tag, new Point(sequence, offset));
+        }
+        Origin outer = origin.get();
+        origin.set(tag);
+        try {
+            return request.get();
+        } finally {
+            origin.set(outer);
+            synchronized (this) {
+                inFlight.remove(tag);
+            }
+        }
+    }
+
+    /**
+     * Get the point up to which every attributed request has returned, so
+     * state captured from now on reflects all of their events up to there.
+     *
+     * @return Point to replay origins after, when that state is recovered
+     */
+    synchronized Point settledPoint() {
+        Point settled = new Point(sequence, offset);
+        for (Point started : inFlight.values()) {
+            if (started.sequence < settled.sequence) {
+                settled = started;
+            }
+        }
+        return settled;
+    }
+
+    /**
+     * Hand every event appended from now on to a consumer, in sequence order,
+     * right after it is written. The consumer runs under the log's lock.
+     *
+     * @param tap Consumer, or null to stop
+     */
+    void setTap(Consumer<LedgerEvent> tap) {
+        this.tap = tap;
+    }
+
+    /**
+     * Load the snapshot, falling back to the previous generation; with neither,
+     * recovery replays the whole log.
+     *
+     * @param accounts Receives the snapshotted accounts
+     * @param covered Receives the byte offset in the log the snapshot covers every event before
+     *                (0 without a snapshot, or one taken before offsets were recorded)
+     * @return Last event included in each of them
+     */
+    Map<String, Long> readSnapshot(Map<String, Account> accounts, AtomicLong covered) {
+        for (Path candidate : new Path[] {snapshotFile, LedgerFile.previousGeneration(snapshotFile)}) {
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+            Map<String, Account> loaded = new HashMap<>();
+            Map<String, Long> sequences = new HashMap<>();
+            AtomicLong logOffset = new AtomicLong();
+            try {
+                LedgerFile.read(candidate, reader -> readSnapshot(reader, loaded, sequences, logOffset));
+                accounts.putAll(loaded);
+                covered.set(logOffset.get());
+                return sequences;
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                System.err.println("Error loading " + candidate + ": " + e.getMessage());
+            }
+        }
+        return new HashMap<>();
+    }
+
+    private int readSnapshot(Reader in, Map<String, Account> loaded, Map<String, Long> sequences,
+                             AtomicLong logOffset) throws IOException {
+        JsonReader reader = gson.newJsonReader(in);
+        int count = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("accounts".equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Account account = gson.fromJson(reader, Account.class);
+                    loaded.put(account.getAccountNumber(), account);
+                    count++;
+                }
+                reader.endArray();
+            } else if ("sequences".equals(name)) {
+                sequences.putAll(gson.fromJson(reader, SEQUENCE_MAP_TYPE));
+            } else if ("logOffset".equals(name)) {
+                logOffset.set(reader.nextLong());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return count;
+    }
+
+    /**
+     * Check that a byte offset is the start of a line in the log, as an offset
+     * saved with a snapshot or a data file should be.
+     *
+     * @return The offset, or 0 if the log has no line starting there
+     */
+    long lineStart(long position) throws IOException {
+        if (position <= 0 || !Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel log = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            if (position > log.size() || log.read(one, position - 1) != 1 || one.get(0) != '\n') {
+                System.err.println("No event starts at byte " + position + " of " + file + "; reading it all");
+                return 0;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Replay the log in batches: each batch is parsed in parallel, split into
+     * partitions by account number, and the partitions are applied in parallel.
+     *
+     * @param position Byte offset of the line to start at
+     * @param applied Last event already reflected in each account
+     * @param tracking Receives the last event applied to each account (may be null)
+     * @param until Skip events dated after this (null for all)
+     * @return Sequence of the last event in the log
+     */
+    private long replay(long position, Map<String, Account> accounts, Map<String, Long> applied,
+                        Map<String, Long> tracking, LocalDateTime until) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int partitions = Runtime.getRuntime().availableProcessors();
+        long last = 0;
+        try (FileChannel log = FileChannel.open(file, StandardOpenOption.READ).position(position);
+             BufferedReader reader = new BufferedReader(Channels.newReader(log, StandardCharsets.UTF_8))) {
+            List<String> lines = new ArrayList<>(BATCH_SIZE);
+            String line = reader.readLine();
+            while (line != null) {
+                lines.add(line);
+                String next = reader.readLine();
+                if (lines.size() == BATCH_SIZE || next == null) {
+                    List<LedgerEvent> events = parse(lines, next == null);
+                    if (!events.isEmpty()) {
+                        last = events.get(events.size() - 1).getSequence();
+                    }
+                    List<List<LedgerEvent>> parts = partition(events, partitions, until);
+                    IntStream.range(0, partitions).parallel().forEach(p ->
+                        applyPartition(parts.get(p), p, partitions, accounts, applied, tracking));
+                    lines.clear();
+                }
+                line = next;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Parse a batch of lines in parallel. Only the very last line of the log
+     * may be unreadable: it is an append still in progress or torn by a crash.
+     */
+    private List<LedgerEvent> parse(List<String> lines, boolean endOfLog) throws IOException {
+        List<LedgerEvent> events = lines.parallelStream()
+            .map(this::parseLine)
+            .collect(Collectors.toList());
+        for (int i = 0; i < events.size(); i++) {
+            if (events.get(i) == null) {
+                if (endOfLog && i == events.size() - 1) {
+                    events.remove(i);
+                    break;
+                }
+                throw new IOException("Corrupt event log " + file + ": unreadable event");
+            }
+        }
+        return events;
+    }
+
+    private LedgerEvent parseLine(String line) {
+        try {
+            LedgerEvent event = gson.fromJson(line, LedgerEvent.class);
+            return event != null && event.getType() != null ? event : null;
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    private static List<List<LedgerEvent>> partition(List<LedgerEvent> events, int partitions,
+                                                     LocalDateTime until) {
+        List<List<LedgerEvent>> parts = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            parts.add(new ArrayList<>());
+        }
+        for (LedgerEvent event : events) {
+            if (until != null && LocalDateTime.parse(event.getDate()).isAfter(until)) {
+                continue;
+            }
+            int p = partitionOf(event.getAccount(), partitions);
+            parts.get(p).add(event);
+            if (event.getCounterparty() != null) {
+                int q = partitionOf(event.getCounterparty(), partitions);
+                if (q != p) {
+                    parts.get(q).add(event);
+                }
+            }
+        }
+        return parts;
+    }
+
+    private static int partitionOf(String accountNumber, int partitions) {
+        return Math.floorMod(accountNumber.hashCode(), partitions);
+    }
+
+    /**
+     * Apply one partition's events in order. Only this partition's thread
+     * touches its accounts.
+     */
+    private static void applyPartition(List<LedgerEvent> events, int partition, int partitions,
+                                       Map<String, Account> accounts, Map<String, Long> applied,
+                                       Map<String, Long> tracking) {
+        for (LedgerEvent event : events) {
+            applySide(event, event.getAccount(), partition, partitions, accounts, applied, tracking);
+            if (event.getCounterparty() != null) {
+                applySide(event, event.getCounterparty(), partition, partitions, accounts, applied, tracking);
+            }
+        }
+    }
+
+    private static void applySide(LedgerEvent event, String accountNumber, int partition, int partitions,
+                                  Map<String, Account> accounts, Map<String, Long> applied,
+                                  Map<String, Long> tracking) {
+        if (partitionOf(accountNumber, partitions) != partition
+                || event.getSequence() <= applied.getOrDefault(accountNumber, 0L)) {
+            return;
+        }
+        accounts.put(accountNumber, event.applyTo(accounts.get(accountNumber), accountNumber));
+        if (tracking != null) {
+            tracking.put(accountNumber, event.getSequence());
+        }
+    }
+
+    /**
+     * Cut off a final line left incomplete by a crash so the next append starts on a fresh line.
+     */
+    private void truncateTornTail() throws IOException {
+        try (FileChannel log = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = log.size();
+            long end = size;
+            ByteBuffer one = ByteBuffer.allocate(1);
+            while (end > 0) {
+                one.clear();
+                log.read(one, end - 1);
+                if (one.get(0) == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end < size) {
+                log.truncate(end);
+            }
+        }
+    }
+
+    /**
+     * A place in the log: an event's sequence and the byte offset just past it.
+     */
+    static final class Point {
+        final long sequence;
+        final long offset;
+
+        Point(long sequence, long offset) {
+            this.sequence = sequence;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Where the events of an attributed request came from.
+     */
+    private static final class Origin {
+        private final String requestKey;
+        private final String requestFingerprint;
+        private final String standingOrder;
+        private final String standingOrderRun;
+
+        private Origin(String requestKey, String requestFingerprint, String standingOrder, String standingOrderRun) {
+            this.requestKey = requestKey;
+            this.requestFingerprint = requestFingerprint;
+            this.standingOrder = standingOrder;
+            this.standingOrderRun = standingOrderRun;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.banking;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exchange rate table for cross-currency transfers.
+ *
+ * Rates are held as longs scaled by 10^8. Every update builds a new immutable
+ * {@link Snapshot} with all cross rates precomputed and swaps it in
+ * atomically, so readers never block or see a half-updated table, and
+ * converting an amount allocates nothing.
+ */
+public class FxRates {
+    /** Fixed-point scale of stored rates: 1.0 is 100,000,000. */
+    public static final long SCALE = 100_000_000L;
+
+    private final AtomicReference<Snapshot> current;
+
+    /**
+     * Create a table with no rates (only same-currency conversions work).
+     */
+    public FxRates() {
+        this.current = new AtomicReference<>(new Snapshot(new HashMap<>(), new long[0]));
+    }
+
+    /**
+     * Get the current rates. Read it once and use it for a whole batch to
+     * convert every amount at the same rates.
+     *
+     * @return Immutable rate snapshot
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Replace all rates.
+     *
+     * @param base Base currency, e.g. "GBP"
+     * @param unitsPerBase Units of each other currency bought by one unit of the base
+     * @throws IllegalArgumentException if a rate is not positive
+     */
+    public void update(String base, Map<String, Double> unitsPerBase) {
+        Map<String, Integer> index = new HashMap<>();
+        index.put(base, 0);
+        for (String currency : unitsPerBase.keySet()) {
+            index.putIfAbsent(currency, index.size());
+        }
+
+        int n = index.size();
+        double[] perBase = new double[n];
+        perBase[0] = 1.0;
+        for (Map.Entry<String, Double> entry : unitsPerBase.entrySet()) {
+            if (entry.getValue() == null || !(entry.getValue() > 0)) {
+                throw new IllegalArgumentException("Invalid rate for " + entry.getKey());
+            }
+            perBase[index.get(entry.getKey())] = entry.getValue();
+        }
+
+        long[] rates = new long[n * n];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                rates[from * n + to] = from == to ? SCALE : Math.round(perBase[to] / perBase[from] * SCALE);
+            }
+        }
+        current.set(new Snapshot(index, rates));
+    }
+
+    /**
+     * Load rates from a properties file holding {@code base=GBP} and one
+     * {@code CODE=units per base} line per other currency.
+     *
+     * @param file Rate file
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is malformed
+     */
+    public void load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String base = properties.getProperty("base");
+        if (base == null) {
+            throw new IllegalArgumentException("Rate file has no base currency: " + file);
+        }
+        Map<String, Double> rates = new HashMap<>();
+        for (String currency : properties.stringPropertyNames()) {
+            if (!"base".equals(currency)) {
+                rates.put(currency, Double.parseDouble(properties.getProperty(currency)));
+            }
+        }
+        update(base, rates);
+    }
+
+    /**
+     * Immutable set of precomputed cross rates.
+     */
+    public static final class Snapshot {
+        private final Map<String, Integer> index;
+        private final long[] rates;
+        private final int size;
+
+        private Snapshot(Map<String, Integer> index, long[] rates) {
+            this.index = index;
+            this.rates = rates;
+            this.size = index.size();
+        }
+
+        /**
+         * Check whether an amount can be converted between two currencies.
+         *
+         * @param from Source currency
+         * @param to Target currency
+         * @return true if the currencies are equal or both have rates
+         */
+        public boolean supports(String from, String to) {
+            return from.equals(to) || (index.containsKey(from) && index.containsKey(to));
+        }
+
+        /**
+         * Get the rate from one currency to another.
+         *
+         * @param from Source currency
+         * @param to Target currency
+         * @return Units of the target per unit of the source, scaled by {@link #SCALE}
+         * @throws IllegalArgumentException if either currency has no rate
+         */
+        public long rate(String from, String to) {
+            if (from.equals(to)) {
+                return SCALE;
+            }
+            Integer i = index.get(from);
+            Integer j = index.get(to);
+            if (i == null || j == null) {
+                throw new IllegalArgumentException("No exchange rate from " + from + " to " + to);
+            }
+            return rates[i * size + j];
+        }
+
+        /**
+         * Convert an amount in minor units, rounding half up.
+         *
+         * @param cents Non-negative amount in minor units of the source currency
+         * @param from Source currency
+         * @param to Target currency
+         * @return Amount in minor units of the target currency
+         * @throws IllegalArgumentException if either currency has no rate
+         * @throws ArithmeticException if the result overflows
+         */
+        public long convert(long cents, String from, String to) {
+            return convertCents(cents, rate(from, to));
+        }
+    }
+
+    /**
+     * Multiply by a scaled rate without overflowing on the intermediate product.
+     */
+    static long convertCents(long cents, long rate) {
+        long whole = rate / SCALE;
+        long fraction = rate % SCALE;
+        long high = cents / SCALE;
+        long low = cents % SCALE;
+        long result = Math.multiplyExact(cents, whole);
+        result = Math.addExact(result, Math.multiplyExact(high, fraction));
+        return Math.addExact(result, (low * fraction + SCALE / 2) / SCALE);
+    }
+}
@@ -0,0 +1,95 @@
+package com.banking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Credits to a hot account waiting to be folded into its balance.
+ *
+ * Credits are spread over striped cells, each with its own lock, in the way
+ * {@link java.util.concurrent.atomic.LongAdder} spreads its counts: threads
+ * depositing at the same time usually land in different cells and so don't
+ * queue on the account's monitor. The account drains every cell when it next
+ * needs an exact balance.
+ */
+final class HotCredits {
+    private final Cell[] cells;
+    private final int mask;
+    private volatile boolean closed;
+
+    /**
+     * @param stripes Number of cells wanted; rounded up to a power of two
+     */
+    HotCredits(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.cells = new Cell[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = new Cell();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Create cells for the machine's processors.
+     *
+     * @return Cells for up to one concurrent depositor per core
+     */
+    static HotCredits forProcessors() {
+        return new HotCredits(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Park a credit in the calling thread's cell.
+     *
+     * @param transaction Credit, balance after still to be filled in
+     * @return false once closed; the caller must then credit the account directly
+     */
+    boolean add(Account.Transaction transaction) {
+        Cell cell = cells[index()];
+        synchronized (cell) {
+            if (closed) {
+                return false;
+            }
+            cell.pending.add(transaction);
+            return true;
+        }
+    }
+
+    /**
+     * Move every parked credit into a list, emptying the cells.
+     *
+     * @param into List the credits are appended to
+     * @return Number of credits moved
+     */
+    int drain(List<Account.Transaction> into) {
+        int count = 0;
+        for (Cell cell : cells) {
+            synchronized (cell) {
+                count += cell.pending.size();
+                into.addAll(cell.pending);
+                cell.pending.clear();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Refuse further credits. Credits parked before this call stay to be drained.
+     */
+    void close() {
+        closed = true;
+    }
+
+    private int index() {
+        // Fibonacci hashing spreads consecutive thread ids over the cells
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & mask;
+    }
+
+    private static final class Cell {
+        private final List<Account.Transaction> pending = new ArrayList<>();
+        // Pad the cell out so neighbouring cells' locks don't share a cache line
+        @SuppressWarnings("unused")
+        private long p1, p2, p3, p4, p5, p6;
+    }
+}
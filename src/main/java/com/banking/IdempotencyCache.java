@@ -0,0 +1,342 @@
+package com.banking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, time-windowed cache of idempotency keys.
+ *
+ * The first request carrying a key executes the operation; concurrent or later
+ * requests with the same key inside the window receive the original result.
+ * Only successful results are remembered: a failed operation changed nothing,
+ * so a retry with the same key (say after topping up the balance) runs again.
+ * A key may carry a fingerprint of the request it was first used for; reusing
+ * it for a different request is refused rather than answered with the old
+ * result. Keys are evicted once they fall out of the window or the cache
+ * exceeds its capacity, oldest first.
+ */
+public class IdempotencyCache {
+    public static final long DEFAULT_WINDOW_MILLIS = 24L * 60 * 60 * 1000;
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    public static final String KEY_REUSED = "Idempotency key already used for a different request";
+
+    private final long windowMillis;
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry> entries;
+    private final ConcurrentLinkedQueue<Entry> insertionOrder;
+    /** Keys recorded since {@link #drainRecorded()} last ran. */
+    private final ConcurrentLinkedQueue<Entry> recorded;
+
+    /**
+     * Create a cache with the default window and capacity.
+     */
+    public IdempotencyCache() {
+        this(DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param windowMillis How long a key is remembered, in milliseconds
+     * @param maxEntries Maximum number of keys held at once
+     * @throws IllegalArgumentException if either limit is not positive
+     */
+    public IdempotencyCache(long windowMillis, int maxEntries) {
+        if (windowMillis <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("Window and capacity must be positive");
+        }
+        this.windowMillis = windowMillis;
+        this.maxEntries = maxEntries;
+        this.entries = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+        this.insertionOrder = new ConcurrentLinkedQueue<>();
+        this.recorded = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Run an operation at most once per key.
+     *
+     * @param key Idempotency key supplied by the client (null runs the operation unconditionally)
+     * @param operation Operation producing the result to remember
+     * @return The result of the first execution for this key
+     */
+    public Bank.TransferResult execute(String key, Supplier<Bank.TransferResult> operation) {
+        return execute(key, operation, null);
+    }
+
+    /**
+     * Run an operation at most once per key, then notify the caller once the
+     * result has been recorded (so that it is included in {@link #snapshot()}).
+     * Replays of a remembered key do not trigger the callback.
+     *
+     * @param key Idempotency key supplied by the client (null runs the operation unconditionally)
+     * @param operation Operation producing the result to remember
+     * @param onRecorded Callback for a freshly executed result (may be null)
+     * @return The result of the first execution for this key
+     */
+    public Bank.TransferResult execute(String key, Supplier<Bank.TransferResult> operation,
+                                       Consumer<Bank.TransferResult> onRecorded) {
+        return execute(key, null, operation, onRecorded);
+    }
+
+    /**
+     * Run an operation at most once per key, checking that a remembered key
+     * was first used for the same request.
+     *
+     * @param key Idempotency key supplied by the client (null runs the operation unconditionally)
+     * @param fingerprint What the request does, e.g. its accounts and amount (null to skip the check)
+     * @param operation Operation producing the result to remember
+     * @param onRecorded Callback for a freshly executed result (may be null)
+     * @return The result of the first successful execution for this key, or a
+     *         failure if the key was used for a different request
+     */
+    public Bank.TransferResult execute(String key, String fingerprint, Supplier<Bank.TransferResult> operation,
+                                       Consumer<Bank.TransferResult> onRecorded) {
+        if (key == null) {
+            Bank.TransferResult result = operation.get();
+            if (onRecorded != null) {
+                onRecorded.accept(result);
+            }
+            return result;
+        }
+
+        long now = System.currentTimeMillis();
+        Entry fresh = new Entry(key, fingerprint, now);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                break;
+            }
+            if (!existing.isExpired(now, windowMillis)) {
+                if (!existing.matches(fingerprint)) {
+                    return new Bank.TransferResult(false, KEY_REUSED);
+                }
+                Bank.TransferResult remembered = existing.await();
+                if (remembered.isSuccess()) {
+                    return remembered;
+                }
+                // The first attempt failed and has been forgotten; try again
+                continue;
+            }
+            if (entries.replace(key, existing, fresh)) {
+                break;
+            }
+        }
+
+        Bank.TransferResult result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException e) {
+            // Let a retry run the operation again
+            entries.remove(key, fresh);
+            fresh.complete(new Bank.TransferResult(false, "Request failed: " + e.getMessage()));
+            throw e;
+        }
+        if (!result.isSuccess()) {
+            // Nothing changed, so there is nothing to protect against repeating
+            entries.remove(key, fresh);
+            fresh.complete(result);
+            return result;
+        }
+        fresh.complete(result);
+        insertionOrder.add(fresh);
+        recorded.add(fresh);
+        evict(now);
+        if (onRecorded != null) {
+            onRecorded.accept(result);
+        }
+        return result;
+    }
+
+    /**
+     * Look up the remembered result for a key.
+     *
+     * @param key Idempotency key
+     * @return The stored result, or null if unknown, expired or still running
+     */
+    public Bank.TransferResult get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.result == null
+                || entry.isExpired(System.currentTimeMillis(), windowMillis)) {
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * Get the number of remembered keys.
+     *
+     * @return Number of keys
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Export completed, unexpired keys for persistence.
+     *
+     * @return Records in insertion order
+     */
+    public List<Record> snapshot() {
+        long now = System.currentTimeMillis();
+        List<Record> records = new ArrayList<>();
+        for (Entry entry : insertionOrder) {
+            if (entry.result != null && !entry.isExpired(now, windowMillis)
+                    && entries.get(entry.key) == entry) {
+                records.add(entry.toRecord());
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Export the keys recorded since the last call, so they can be appended
+     * to a journal instead of saving the whole window again.
+     *
+     * @return Records in the order they were recorded
+     */
+    public List<Record> drainRecorded() {
+        List<Record> records = new ArrayList<>();
+        Entry entry;
+        while ((entry = recorded.poll()) != null) {
+            records.add(entry.toRecord());
+        }
+        return records;
+    }
+
+    /**
+     * Restore keys previously exported with {@link #snapshot()}. Expired records are dropped.
+     *
+     * @param records Persisted records
+     */
+    public void restore(List<Record> records) {
+        if (records == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Record record : records) {
+            Entry entry = new Entry(record.key, record.fingerprint, record.createdAt);
+            if (record.key == null || !record.success || entry.isExpired(now, windowMillis)) {
+                continue;
+            }
+            entry.complete(new Bank.TransferResult(record.success, record.message));
+            if (entries.putIfAbsent(record.key, entry) == null) {
+                insertionOrder.add(entry);
+            }
+        }
+        evict(now);
+    }
+
+    /**
+     * Drop expired keys and trim the cache back to capacity.
+     */
+    private void evict(long now) {
+        Entry head;
+        while ((head = insertionOrder.peek()) != null) {
+            boolean stale = entries.get(head.key) != head;
+            if (!stale && !head.isExpired(now, windowMillis) && entries.size() <= maxEntries) {
+                break;
+            }
+            if (insertionOrder.remove(head) && !stale) {
+                entries.remove(head.key, head);
+            }
+        }
+    }
+
+    /**
+     * A key and its eventual result.
+     */
+    private static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long createdAt;
+        private volatile Bank.TransferResult result;
+
+        private Entry(String key, String fingerprint, long createdAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+
+        /**
+         * Keys remembered without a fingerprint (saved before fingerprints existed) match any request.
+         */
+        private boolean matches(String requested) {
+            return fingerprint == null || requested == null || fingerprint.equals(requested);
+        }
+
+        private Record toRecord() {
+            return new Record(key, createdAt, result.isSuccess(), result.getMessage(), fingerprint);
+        }
+
+        private boolean isExpired(long now, long windowMillis) {
+            return now - createdAt >= windowMillis;
+        }
+
+        private synchronized void complete(Bank.TransferResult result) {
+            this.result = result;
+            notifyAll();
+        }
+
+        private synchronized Bank.TransferResult await() {
+            boolean interrupted = false;
+            while (result == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Persisted form of a remembered key.
+     */
+    public static class Record {
+        private String key;
+        private long createdAt;
+        private boolean success;
+        private String message;
+        private String fingerprint;
+
+        public Record(String key, long createdAt, boolean success, String message) {
+            this.key = key;
+            this.createdAt = createdAt;
+            this.success = success;
+            this.message = message;
+        }
+
+        public Record(String key, long createdAt, boolean success, String message, String fingerprint) {
+            this(key, createdAt, success, message);
+            this.fingerprint = fingerprint;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+    }
+}
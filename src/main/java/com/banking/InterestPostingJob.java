@@ -0,0 +1,366 @@
+package com.banking;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Period-end batch that credits interest to and takes the account fee from
+ * every account in the bank.
+ *
+ * Accounts are split into partitions by account number, and partitions are
+ * posted in parallel. Each account is posted under its own lock, going
+ * straight to the account rather than through {@link Bank#deposit}, so nothing
+ * is saved per account. Once a partition is done the bank is saved and the
+ * partition recorded in a journal.
+ *
+ * A run is identified by a run id such as "2026-10", which also goes in the
+ * descriptions of the entries it posts ("Interest 2026-10", "Account fee
+ * 2026-10"). Running the same id again after a crash skips the partitions the
+ * journal records as done. In the others, each account is checked for entries
+ * posted since the run started, so an account posted before the crash whose
+ * partition never finished is not posted twice.
+ */
+public class InterestPostingJob {
+    public static final int DEFAULT_PARTITIONS = 16;
+
+    private static final String START = "start";
+    private static final String PARTITION = "partition";
+    private static final String COMPLETE = "complete";
+
+    private final Bank bank;
+    private final Path journal;
+    private int partitions;
+    private int threads;
+
+    /**
+     * @param bank Bank whose accounts are posted
+     * @param journal File recording the progress of runs (created if missing)
+     */
+    public InterestPostingJob(Bank bank, Path journal) {
+        this.bank = bank;
+        this.journal = journal;
+        this.partitions = DEFAULT_PARTITIONS;
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param partitions Number of partitions for new runs (a resumed run keeps its own)
+     * @return This job
+     */
+    public InterestPostingJob setPartitions(int partitions) {
+        this.partitions = Math.max(1, partitions);
+        return this;
+    }
+
+    /**
+     * @param threads Number of partitions posted at a time
+     * @return This job
+     */
+    public InterestPostingJob setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /**
+     * Post a period, or finish posting it if an earlier attempt was interrupted.
+     *
+     * @param runId Identifies the period, e.g. "2026-10" (no whitespace)
+     * @param tariff Interest rate and fee to apply
+     * @return What this call posted
+     * @throws IOException if the journal cannot be read or written, or the bank cannot be saved
+     * @throws IllegalArgumentException if the run id is blank or contains whitespace
+     */
+    public Report run(String runId, Tariff tariff) throws IOException {
+        if (runId == null || runId.isEmpty() || !runId.equals(runId.replaceAll("\\s", ""))) {
+            throw new IllegalArgumentException("Invalid run id: " + runId);
+        }
+        Report report = new Report(runId);
+        Progress progress = readJournal(runId);
+        if (progress.complete) {
+            report.alreadyComplete = true;
+            return report;
+        }
+        if (progress.started == null) {
+            progress.started = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+            progress.partitions = partitions;
+            appendJournal(START + " " + runId + " " + progress.partitions + " " + progress.started);
+        }
+
+        // With an account store this covers the accounts not currently cached too
+        List<List<String>> split = new ArrayList<>();
+        for (int i = 0; i < progress.partitions; i++) {
+            split.add(new ArrayList<>());
+        }
+        for (String accountNumber : bank.everyAccountNumber()) {
+            split.get(partitionOf(accountNumber, progress.partitions)).add(accountNumber);
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "interest-posting");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Report>> pending = new ArrayList<>();
+            for (int i = 0; i < progress.partitions; i++) {
+                if (progress.done.contains(i)) {
+                    report.partitionsSkipped++;
+                    continue;
+                }
+                int partition = i;
+                String since = progress.started;
+                List<String> accountNumbers = split.get(i);
+                pending.add(workers.submit(() -> postPartition(runId, partition, accountNumbers, tariff, since)));
+            }
+            for (Future<Report> future : pending) {
+                report.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Posting run " + runId + " interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Posting run " + runId + " failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        appendJournal(COMPLETE + " " + runId);
+        return report;
+    }
+
+    /**
+     * Post every account of a partition, then save the bank and record the partition.
+     * Accounts are fetched one at a time, so with an account store they pass
+     * through the cache and the entries posted to them are written back.
+     */
+    private Report postPartition(String runId, int partition, List<String> accountNumbers, Tariff tariff,
+            String since) throws IOException {
+        Report report = new Report(runId);
+        String interestLabel = "Interest " + runId;
+        String feeLabel = "Account fee " + runId;
+        for (String accountNumber : accountNumbers) {
+            Account account = bank.getAccount(accountNumber);
+            if (account == null) {
+                continue;
+            }
+            synchronized (account) {
+                account.settle();
+                boolean[] posted = alreadyPosted(account, interestLabel, feeLabel, since);
+                if (!posted[0]) {
+                    long balance = Reconciler.toCents(account.getBalance());
+                    long interest = balance > 0
+                        ? BalanceTools.annualBondInterest(balance, tariff.annualRate) / tariff.periodsPerYear
+                        : 0;
+                    if (interest > 0 && account.deposit(Reconciler.fromCents(interest), interestLabel, null)) {
+                        report.interestCents += interest;
+                        report.interestPosted++;
+                    }
+                }
+                if (!posted[1] && tariff.feeCents > 0) {
+                    if (account.withdraw(Reconciler.fromCents(tariff.feeCents), feeLabel, null)) {
+                        report.feeCents += tariff.feeCents;
+                        report.feesPosted++;
+                    } else {
+                        report.feesWaived++;
+                    }
+                }
+            }
+            report.accounts++;
+        }
+
+        // Entries reach the data file, store or event log before the partition counts as done
+        bank.commit();
+        appendJournal(PARTITION + " " + runId + " " + partition);
+        report.partitionsPosted++;
+        return report;
+    }
+
+    /**
+     * Look back through the entries made since the run started for ones it posted.
+     *
+     * @return Whether the interest and the fee were already posted
+     */
+    private static boolean[] alreadyPosted(Account account, String interestLabel, String feeLabel, String since) {
+        boolean[] posted = new boolean[2];
+        List<Account.Transaction> transactions = account.getTransactions();
+        for (int i = transactions.size() - 1; i >= 0; i--) {
+            Account.Transaction transaction = transactions.get(i);
+            if (transaction.getDate() == null || transaction.getDate().compareTo(since) < 0) {
+                break;
+            }
+            if (interestLabel.equals(transaction.getDescription())) {
+                posted[0] = true;
+            } else if (feeLabel.equals(transaction.getDescription())) {
+                posted[1] = true;
+            }
+        }
+        return posted;
+    }
+
+    static int partitionOf(String accountNumber, int partitions) {
+        return (accountNumber.hashCode() & 0x7fffffff) % partitions;
+    }
+
+    private Progress readJournal(String runId) throws IOException {
+        Progress progress = new Progress();
+        if (!Files.exists(journal)) {
+            return progress;
+        }
+        for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+            String[] fields = line.trim().split(" ");
+            if (fields.length < 2 || !fields[1].equals(runId)) {
+                continue;
+            }
+            switch (fields[0]) {
+                case START -> {
+                    progress.partitions = Integer.parseInt(fields[2]);
+                    progress.started = fields[3];
+                }
+                case PARTITION -> progress.done.add(Integer.parseInt(fields[2]));
+                case COMPLETE -> progress.complete = true;
+                default -> throw new IOException("Corrupt posting journal " + journal + ": " + line);
+            }
+        }
+        return progress;
+    }
+
+    private synchronized void appendJournal(String line) throws IOException {
+        Files.write(journal, (line + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    /**
+     * A run as recorded in the journal.
+     */
+    private static class Progress {
+        private String started;
+        private int partitions;
+        private final Set<Integer> done = new HashSet<>();
+        private boolean complete;
+    }
+
+    /**
+     * Interest and fee applied each period.
+     */
+    public static class Tariff {
+        private final double annualRate;
+        private final int periodsPerYear;
+        private final long feeCents;
+
+        /**
+         * @param annualRate Annual interest rate (e.g., 0.05 for 5%), paid on positive balances
+         * @param periodsPerYear Periods the annual interest is split over, e.g. 12 for monthly
+         * @param fee Fee taken each period; waived when the balance cannot cover it
+         * @throws IllegalArgumentException if a figure is negative or there are no periods
+         */
+        public Tariff(double annualRate, int periodsPerYear, double fee) {
+            if (annualRate < 0 || periodsPerYear <= 0 || fee < 0) {
+                throw new IllegalArgumentException("Invalid tariff");
+            }
+            this.annualRate = annualRate;
+            this.periodsPerYear = periodsPerYear;
+            this.feeCents = Reconciler.toCents(fee);
+        }
+
+        /**
+         * @param annualRate Annual interest rate (e.g., 0.05 for 5%)
+         * @param fee Monthly fee
+         * @return Tariff posted once a month
+         */
+        public static Tariff monthly(double annualRate, double fee) {
+            return new Tariff(annualRate, 12, fee);
+        }
+    }
+
+    /**
+     * Totals of a run.
+     */
+    public static class Report {
+        private final String runId;
+        private boolean alreadyComplete;
+        private int partitionsPosted;
+        private int partitionsSkipped;
+        private long accounts;
+        private long interestPosted;
+        private long interestCents;
+        private long feesPosted;
+        private long feesWaived;
+        private long feeCents;
+
+        Report(String runId) {
+            this.runId = runId;
+        }
+
+        private void add(Report partition) {
+            partitionsPosted += partition.partitionsPosted;
+            accounts += partition.accounts;
+            interestPosted += partition.interestPosted;
+            interestCents += partition.interestCents;
+            feesPosted += partition.feesPosted;
+            feesWaived += partition.feesWaived;
+            feeCents += partition.feeCents;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        /**
+         * @return true if the journal already recorded the run as finished, so nothing was posted
+         */
+        public boolean isAlreadyComplete() {
+            return alreadyComplete;
+        }
+
+        public int getPartitionsPosted() {
+            return partitionsPosted;
+        }
+
+        /**
+         * @return Partitions an earlier, interrupted attempt had finished
+         */
+        public int getPartitionsSkipped() {
+            return partitionsSkipped;
+        }
+
+        public long getAccounts() {
+            return accounts;
+        }
+
+        public long getInterestPosted() {
+            return interestPosted;
+        }
+
+        public double getTotalInterest() {
+            return Reconciler.fromCents(interestCents);
+        }
+
+        public long getFeesPosted() {
+            return feesPosted;
+        }
+
+        public long getFeesWaived() {
+            return feesWaived;
+        }
+
+        public double getTotalFees() {
+            return Reconciler.fromCents(feeCents);
+        }
+    }
+}
@@ -0,0 +1,487 @@
+package com.banking;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Account store backed by an embedded relational database over JDBC.
+ *
+ * Accounts and transactions live in two normalized tables. Saving an account
+ * updates its row and inserts only the transactions added since it was last
+ * stored, so a deposit costs one update and one insert instead of a rewrite of
+ * the whole ledger. Several accounts saved together (both sides of a transfer,
+ * or a cache flush) are written in one batched database transaction.
+ *
+ * Any JDBC URL works; {@link #open(Path)} uses an H2 database file.
+ */
+public class JdbcAccountStore implements AccountStore {
+    public static final int DEFAULT_POOL_SIZE = 4;
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+    /** Account numbers per IN list when reading stored counts for a batch. */
+    private static final int COUNT_CHUNK = 500;
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS accounts ("
+            + "account_number VARCHAR(255) PRIMARY KEY, "
+            + "account_holder VARCHAR(255) NOT NULL, "
+            + "password_hash CHAR(64) NOT NULL, "
+            + "balance_cents BIGINT NOT NULL, "
+            + "created_at VARCHAR(32), "
+            + "transaction_count INT NOT NULL, "
+            + "currency CHAR(3), "
+            + "history_generation INT DEFAULT 0 NOT NULL)",
+        // Databases created before accounts had currencies
+        "ALTER TABLE accounts ADD COLUMN IF NOT EXISTS currency CHAR(3)",
+        // Databases created before compacted histories were told apart by generation
+        "ALTER TABLE accounts ADD COLUMN IF NOT EXISTS history_generation INT DEFAULT 0 NOT NULL",
+        "CREATE TABLE IF NOT EXISTS transactions ("
+            + "account_number VARCHAR(255) NOT NULL REFERENCES accounts(account_number), "
+            + "seq INT NOT NULL, "
+            + "tx_date VARCHAR(32) NOT NULL, "
+            + "description VARCHAR(1024), "
+            + "amount_cents BIGINT NOT NULL, "
+            + "tx_type VARCHAR(16) NOT NULL, "
+            + "balance_after_cents BIGINT NOT NULL, "
+            + "counterparty VARCHAR(255), "
+            + "tx_hash CHAR(64), "
+            + "PRIMARY KEY (account_number, seq))",
+        // Databases created before transactions were chained
+        "ALTER TABLE transactions ADD COLUMN IF NOT EXISTS tx_hash CHAR(64)",
+        "CREATE INDEX IF NOT EXISTS transactions_date ON transactions(account_number, tx_date)"
+    };
+
+    private static final String SELECT_ACCOUNT =
+        "SELECT account_holder, password_hash, balance_cents, created_at, currency, history_generation "
+            + "FROM accounts "
+            + "WHERE account_number = ?";
+    private static final String SELECT_TRANSACTIONS =
+        "SELECT tx_date, description, amount_cents, tx_type, balance_after_cents, counterparty, tx_hash "
+            + "FROM transactions WHERE account_number = ? ORDER BY seq";
+    private static final String SELECT_COUNT =
+        "SELECT transaction_count FROM accounts WHERE account_number = ?";
+    private static final String MERGE_ACCOUNT =
+        "MERGE INTO accounts (account_number, account_holder, password_hash, balance_cents, created_at, "
+            + "transaction_count, currency, history_generation) KEY (account_number) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_TRANSACTION =
+        "INSERT INTO transactions (account_number, seq, tx_date, description, amount_cents, tx_type, "
+            + "balance_after_cents, counterparty, tx_hash) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_TRANSACTIONS = "DELETE FROM transactions WHERE account_number = ?";
+    private static final String APPEND_BALANCE =
+        "UPDATE accounts SET balance_cents = ?, transaction_count = transaction_count + 1 WHERE account_number = ?";
+
+    private final BlockingQueue<Connection> pool;
+    private final List<Connection> connections;
+
+    /**
+     * Connect to a database, creating the schema if needed.
+     *
+     * @param url JDBC URL
+     * @param poolSize Number of pooled connections
+     * @throws IOException if the database cannot be opened
+     */
+    public JdbcAccountStore(String url, int poolSize) throws IOException {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        this.connections = new ArrayList<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                Connection connection = DriverManager.getConnection(url);
+                connection.setAutoCommit(false);
+                connections.add(connection);
+                pool.add(connection);
+            }
+            Connection connection = acquire();
+            try (Statement statement = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+                connection.commit();
+            } finally {
+                pool.add(connection);
+            }
+        } catch (SQLException e) {
+            close();
+            throw new IOException("Could not open account database " + url, e);
+        }
+    }
+
+    /**
+     * Open (or create) an embedded H2 database file.
+     *
+     * @param file Database file path without the ".mv.db" extension
+     * @return Open store
+     * @throws IOException if the database cannot be opened
+     */
+    public static JdbcAccountStore open(Path file) throws IOException {
+        return new JdbcAccountStore("jdbc:h2:" + file.toAbsolutePath(), DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Work done with a pooled connection.
+     */
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Run work on a pooled connection and commit it, rolling back on failure.
+     */
+    private <T> T transaction(SqlWork<T> work) throws IOException {
+        Connection connection;
+        try {
+            connection = acquire();
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        try {
+            T result = work.run(connection);
+            connection.commit();
+            return result;
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw new IOException("Account database error: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        } finally {
+            pool.add(connection);
+        }
+    }
+
+    private Connection acquire() throws SQLException {
+        try {
+            Connection connection = pool.poll(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (connection == null) {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", e);
+        }
+    }
+
+    @Override
+    public Account load(String accountNumber) throws IOException {
+        return transaction(connection -> load(connection, accountNumber));
+    }
+
+    private Account load(Connection connection, String accountNumber) throws SQLException {
+        String holder;
+        String passwordHash;
+        long balance;
+        String createdAt;
+        String currency;
+        int generation;
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_ACCOUNT)) {
+            statement.setString(1, accountNumber);
+            try (ResultSet row = statement.executeQuery()) {
+                if (!row.next()) {
+                    return null;
+                }
+                holder = row.getString(1);
+                passwordHash = row.getString(2);
+                balance = row.getLong(3);
+                createdAt = row.getString(4);
+                currency = row.getString(5);
+                generation = row.getInt(6);
+            }
+        }
+
+        List<Account.Transaction> transactions = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_TRANSACTIONS)) {
+            statement.setString(1, accountNumber);
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    Account.Transaction transaction = new Account.Transaction(row.getString(1), row.getString(2),
+                        Reconciler.fromCents(row.getLong(3)), row.getString(4), Reconciler.fromCents(row.getLong(5)));
+                    transaction.setCounterparty(row.getString(6));
+                    transaction.setHash(row.getString(7));
+                    transactions.add(transaction);
+                }
+            }
+        }
+        Account account = Account.restore(accountNumber, holder, passwordHash, Reconciler.fromCents(balance),
+            transactions, createdAt);
+        if (currency != null) {
+            account.setCurrency(currency);
+        }
+        account.setHistoryGeneration(generation);
+        return account;
+    }
+
+    @Override
+    public boolean contains(String accountNumber) throws IOException {
+        return transaction(connection -> storedCount(connection, accountNumber) >= 0);
+    }
+
+    /**
+     * Get the number of transactions and the history generation stored for
+     * each of a batch of accounts, with one query per chunk rather than one
+     * per account. Accounts not stored yet are absent from the result.
+     */
+    private static Map<String, Stored> storedCounts(Connection connection, Collection<Account> accounts)
+            throws SQLException {
+        List<String> numbers = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            numbers.add(account.getAccountNumber());
+        }
+        Map<String, Stored> counts = new HashMap<>();
+        for (int start = 0; start < numbers.size(); start += COUNT_CHUNK) {
+            List<String> chunk = numbers.subList(start, Math.min(start + COUNT_CHUNK, numbers.size()));
+            StringBuilder sql = new StringBuilder(
+                "SELECT account_number, transaction_count, history_generation FROM accounts WHERE account_number IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql.append(')').toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    statement.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet row = statement.executeQuery()) {
+                    while (row.next()) {
+                        counts.put(row.getString(1), new Stored(row.getInt(2), row.getInt(3)));
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Get the number of transactions stored for an account, or -1 if it is not stored.
+     */
+    private int storedCount(Connection connection, String accountNumber) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_COUNT)) {
+            statement.setString(1, accountNumber);
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? row.getInt(1) : -1;
+            }
+        }
+    }
+
+    @Override
+    public void save(Account account) throws IOException {
+        saveAll(Collections.singletonList(account));
+    }
+
+    /**
+     * Save accounts in a single database transaction, batching the row writes.
+     *
+     * @param accounts Accounts to persist
+     * @throws IOException if the database cannot be written; nothing is stored then
+     */
+    @Override
+    public void saveAll(Collection<Account> accounts) throws IOException {
+        if (accounts.isEmpty()) {
+            return;
+        }
+        transaction(connection -> {
+            Map<String, Stored> stored = storedCounts(connection, accounts);
+            try (PreparedStatement merge = connection.prepareStatement(MERGE_ACCOUNT);
+                 PreparedStatement delete = connection.prepareStatement(DELETE_TRANSACTIONS);
+                 PreparedStatement insert = connection.prepareStatement(INSERT_TRANSACTION)) {
+                for (Account account : accounts) {
+                    synchronized (account) {
+                        addAccount(account, stored.get(account.getAccountNumber()), merge, delete, insert);
+                    }
+                }
+                // Account rows first so the transaction rows' foreign keys resolve
+                merge.executeBatch();
+                delete.executeBatch();
+                insert.executeBatch();
+            }
+            return null;
+        });
+    }
+
+    private void addAccount(Account account, Stored stored, PreparedStatement merge,
+                            PreparedStatement delete, PreparedStatement insert) throws SQLException {
+        String accountNumber = account.getAccountNumber();
+        account.settle();
+        List<Account.Transaction> transactions = account.getTransactions();
+        int from = stored == null ? 0 : stored.count;
+        if (stored != null && (transactions.size() < from || stored.generation != account.getHistoryGeneration())) {
+            // History was compacted since it was stored; replace it
+            delete.setString(1, accountNumber);
+            delete.addBatch();
+            from = 0;
+        }
+
+        merge.setString(1, accountNumber);
+        merge.setString(2, account.getAccountHolder());
+        merge.setString(3, account.getPasswordHash());
+        merge.setLong(4, Reconciler.toCents(account.getBalance()));
+        merge.setString(5, account.getCreatedAt());
+        merge.setInt(6, transactions.size());
+        merge.setString(7, account.getCurrency());
+        merge.setInt(8, account.getHistoryGeneration());
+        merge.addBatch();
+
+        for (int i = from; i < transactions.size(); i++) {
+            bindTransaction(insert, accountNumber, i, transactions.get(i));
+            insert.addBatch();
+        }
+    }
+
+    private static void bindTransaction(PreparedStatement insert, String accountNumber, int seq,
+                                        Account.Transaction transaction) throws SQLException {
+        insert.setString(1, accountNumber);
+        insert.setInt(2, seq);
+        insert.setString(3, transaction.getDate());
+        insert.setString(4, transaction.getDescription());
+        insert.setLong(5, Reconciler.toCents(transaction.getAmount()));
+        insert.setString(6, transaction.getType());
+        insert.setLong(7, Reconciler.toCents(transaction.getBalanceAfter()));
+        insert.setString(8, transaction.getCounterparty());
+        insert.setString(9, transaction.getHash());
+    }
+
+    @Override
+    public void appendTransaction(String accountNumber, Account.Transaction transaction) throws IOException {
+        transaction(connection -> {
+            int seq = storedCount(connection, accountNumber);
+            if (seq < 0) {
+                throw new SQLException("Unknown account: " + accountNumber);
+            }
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_TRANSACTION);
+                 PreparedStatement update = connection.prepareStatement(APPEND_BALANCE)) {
+                bindTransaction(insert, accountNumber, seq, transaction);
+                insert.executeUpdate();
+                update.setLong(1, Reconciler.toCents(transaction.getBalanceAfter()));
+                update.setString(2, accountNumber);
+                update.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void scan(Consumer<Account> consumer) throws IOException {
+        transaction(connection -> {
+            List<String> numbers = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet row = statement.executeQuery("SELECT account_number FROM accounts ORDER BY account_number")) {
+                while (row.next()) {
+                    numbers.add(row.getString(1));
+                }
+            }
+            for (String accountNumber : numbers) {
+                consumer.accept(load(connection, accountNumber));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Check a password against the stored hash without reading the history.
+     */
+    @Override
+    public boolean verifyPassword(String accountNumber, String password) throws IOException {
+        String stored = transaction(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT password_hash FROM accounts WHERE account_number = ?")) {
+                statement.setString(1, accountNumber);
+                try (ResultSet row = statement.executeQuery()) {
+                    return row.next() ? row.getString(1) : null;
+                }
+            }
+        });
+        if (stored == null) {
+            return false;
+        }
+        byte[] candidate = hex(Account.hashPasswordBytes(password)).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(candidate, stored.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Get number, holder and balance of every account without reading histories.
+     */
+    @Override
+    public List<Map<String, Object>> summaries() throws IOException {
+        return transaction(connection -> {
+            List<Map<String, Object>> result = new ArrayList<>();
+            try (Statement statement = connection.createStatement();
+                 ResultSet row = statement.executeQuery(
+                     "SELECT account_number, account_holder, balance_cents FROM accounts ORDER BY account_number")) {
+                while (row.next()) {
+                    Map<String, Object> info = new HashMap<>();
+                    info.put("account_number", row.getString(1));
+                    info.put("account_holder", row.getString(2));
+                    info.put("balance", Reconciler.fromCents(row.getLong(3)));
+                    result.add(info);
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void flush() {
+        // Every write is committed before it returns
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection : connections) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Closing anyway
+            }
+        }
+        connections.clear();
+        pool.clear();
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * What is stored for an account: its transaction count and history generation.
+     */
+    private static final class Stored {
+        private final int count;
+        private final int generation;
+
+        Stored(int count, int generation) {
+            this.count = count;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Account store keeping one JSON file per account in a directory.
+ *
+ * Saving an account rewrites only that account's file (via a temporary file
+ * and an atomic rename), so the cost of a save no longer grows with the bank.
+ */
+public class JsonFileAccountStore implements AccountStore {
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+    private final Gson gson;
+
+    /**
+     * Create a store in a directory.
+     *
+     * @param directory Directory holding the account files (created if missing)
+     * @throws IOException if the directory cannot be created
+     */
+    public JsonFileAccountStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.gson = LedgerJson.create(false);
+    }
+
+    @Override
+    public Account load(String accountNumber) throws IOException {
+        Path file = fileFor(accountNumber);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, Account.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Corrupt account file " + file, e);
+        }
+    }
+
+    @Override
+    public boolean contains(String accountNumber) {
+        return Files.exists(fileFor(accountNumber));
+    }
+
+    @Override
+    public void save(Account account) throws IOException {
+        Path file = fileFor(account.getAccountNumber());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            gson.toJson(account, Account.class, writer);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void appendTransaction(String accountNumber, Account.Transaction transaction) throws IOException {
+        Account account = load(accountNumber);
+        if (account == null) {
+            throw new IOException("Unknown account: " + accountNumber);
+        }
+        account.getTransactions().add(transaction);
+        account.setBalance(transaction.getBalanceAfter());
+        save(account);
+    }
+
+    @Override
+    public void scan(Consumer<Account> consumer) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).sorted().forEach(file -> {
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    consumer.accept(gson.fromJson(reader, Account.class));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Every save is already complete on disk
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Map an account number to a file name that cannot escape the directory or collide.
+     */
+    private Path fileFor(String accountNumber) {
+        StringBuilder name = new StringBuilder(accountNumber.length() + SUFFIX.length());
+        for (int i = 0; i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-') {
+                name.append(c);
+            } else {
+                name.append('_').append(String.format("%04x", (int) c));
+            }
+        }
+        return directory.resolve(name.append(SUFFIX).toString());
+    }
+}
@@ -0,0 +1,458 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tamper-evident hash chain over each account's transactions.
+ *
+ * Every transaction carries the SHA-256 of the previous transaction's hash
+ * and its own fields (the first one chains from the account number instead),
+ * so editing, removing or reordering an entry breaks every hash after it.
+ * The "Opening balance carried forward" entry left by compaction carries the
+ * hash of the last archived entry, and the chain continues from it; it is
+ * checked against the archive rather than trusted.
+ *
+ * A checkpoint records each account's latest hash and a Merkle root over
+ * them all; publishing the root elsewhere makes the checkpoint itself
+ * tamper-evident. Verification starts from an account's checkpointed hash
+ * and rehashes only the entries after it, and accounts are verified in
+ * parallel. A full verification rehashes everything.
+ *
+ * Hashing reuses a digest and buffer per thread, so sealing an entry
+ * allocates only its hex string.
+ */
+public final class LedgerChain {
+    private static final ThreadLocal<Hasher> HASHERS = ThreadLocal.withInitial(Hasher::new);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final byte GENESIS = 0;
+    private static final byte LINK = 1;
+
+    private LedgerChain() {
+    }
+
+    /**
+     * Compute a transaction's chained hash.
+     *
+     * @param accountNumber Account the transaction belongs to
+     * @param previous Hash of the transaction before it (null for the first)
+     * @param transaction Transaction with its balance after already set
+     * @return Hex SHA-256
+     */
+    static String seal(String accountNumber, String previous, Account.Transaction transaction) {
+        Hasher hasher = HASHERS.get();
+        hasher.reset();
+        if (previous == null) {
+            hasher.put(GENESIS);
+            hasher.put(accountNumber);
+        } else {
+            hasher.put(LINK);
+            hasher.put(previous);
+        }
+        hasher.put(transaction.getDate());
+        hasher.put(transaction.getDescription());
+        hasher.put(Reconciler.toCents(transaction.getAmount()));
+        hasher.put(transaction.getType());
+        hasher.put(Reconciler.toCents(transaction.getBalanceAfter()));
+        hasher.put(transaction.getCounterparty());
+        return hasher.hex();
+    }
+
+    /**
+     * Check one account's chain.
+     *
+     * The "Opening balance carried forward" entry of a compacted history is
+     * checked against the archive: when the checkpointed entry was archived,
+     * the entries archived after it must chain into the opening entry's hash;
+     * otherwise that hash must be the last archived entry's.
+     *
+     * @param account Account to check (locked while it is read)
+     * @param checkpoint Hash the account had at the last checkpoint (null to check everything)
+     * @param archive Archive holding the account's compacted entries (null if there is none)
+     * @param hashed Counts the entries rehashed
+     * @return Position of the first bad entry, -1 if the chain holds, -2 if
+     *         the checkpointed entry has disappeared, or -3 if the opening
+     *         entry does not follow on from the archive
+     * @throws UncheckedIOException if the archive cannot be read
+     */
+    static int verify(Account account, String checkpoint, TransactionArchive archive, AtomicLong hashed) {
+        synchronized (account) {
+            account.settle();
+            List<Account.Transaction> transactions = account.getTransactions();
+            int start = 0;
+            String previous = null;
+            boolean anchored = !transactions.isEmpty()
+                && TransactionArchive.OPENING_TYPE.equals(transactions.get(0).getType());
+            if (checkpoint != null) {
+                start = -1;
+                for (int i = transactions.size() - 1; i >= 0; i--) {
+                    if (checkpoint.equals(transactions.get(i).getHash())) {
+                        start = i + 1;
+                        previous = checkpoint;
+                        break;
+                    }
+                }
+                if (start < 0 && !anchored) {
+                    // Only compaction may remove the checkpointed entry
+                    return -2;
+                }
+            }
+            if (start <= 0 && anchored) {
+                previous = transactions.get(0).getHash();
+                if (previous == null) {
+                    return 0;
+                }
+                int anchor = verifyAnchor(account, previous, checkpoint, archive, hashed);
+                if (anchor != -1) {
+                    return anchor;
+                }
+                start = 1;
+            }
+            int count = 0;
+            try {
+                for (int i = start; i < transactions.size(); i++) {
+                    Account.Transaction transaction = transactions.get(i);
+                    String expected = seal(account.getAccountNumber(), previous, transaction);
+                    count++;
+                    if (!expected.equals(transaction.getHash())) {
+                        return i;
+                    }
+                    previous = expected;
+                }
+            } finally {
+                hashed.addAndGet(count);
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Check that an opening entry's hash follows on from the archive.
+     *
+     * @param opening Hash the opening entry carries
+     * @param checkpoint Checkpointed hash no longer in the hot history, or null
+     * @return -1 if it does, -2 if the checkpointed entry is not archived either, or -3
+     */
+    private static int verifyAnchor(Account account, String opening, String checkpoint, TransactionArchive archive,
+                                    AtomicLong hashed) {
+        String accountNumber = account.getAccountNumber();
+        try {
+            if (checkpoint == null) {
+                Account.Transaction last = archive == null ? null : archive.lastArchived(accountNumber);
+                if (last == null) {
+                    return -3;
+                }
+                if (last.getHash() == null) {
+                    // Archived before entries were chained: the opening entry starts the chain
+                    return opening.equals(seal(accountNumber, null, account.getTransactions().get(0))) ? -1 : -3;
+                }
+                return opening.equals(last.getHash()) ? -1 : -3;
+            }
+            List<Account.Transaction> archived = archive == null
+                ? Collections.emptyList() : archive.read(accountNumber);
+            int from = -1;
+            for (int i = archived.size() - 1; i >= 0; i--) {
+                if (checkpoint.equals(archived.get(i).getHash())) {
+                    from = i + 1;
+                    break;
+                }
+            }
+            if (from < 0) {
+                return -2;
+            }
+            String previous = checkpoint;
+            for (int i = from; i < archived.size(); i++) {
+                previous = seal(accountNumber, previous, archived.get(i));
+            }
+            hashed.addAndGet(archived.size() - from);
+            return opening.equals(previous) ? -1 : -3;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Merkle root over account hashes, leaves ordered by account number.
+     *
+     * @param heads Latest hash of each account
+     * @return Hex root (the hash of nothing for no accounts)
+     */
+    static String merkleRoot(Map<String, String> heads) {
+        List<String> level = new ArrayList<>(heads.size());
+        for (Map.Entry<String, String> entry : new TreeMap<>(heads).entrySet()) {
+            Hasher hasher = HASHERS.get();
+            hasher.reset();
+            hasher.put(GENESIS);
+            hasher.put(entry.getKey());
+            hasher.put(entry.getValue());
+            level.add(hasher.hex());
+        }
+        if (level.isEmpty()) {
+            Hasher hasher = HASHERS.get();
+            hasher.reset();
+            return hasher.hex();
+        }
+        while (level.size() > 1) {
+            List<String> parents = new ArrayList<>((level.size() + 1) / 2);
+            for (int i = 0; i < level.size(); i += 2) {
+                Hasher hasher = HASHERS.get();
+                hasher.reset();
+                hasher.put(LINK);
+                hasher.put(level.get(i));
+                // An odd node out is paired with itself
+                hasher.put(level.get(Math.min(i + 1, level.size() - 1)));
+                parents.add(hasher.hex());
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+
+    /**
+     * Accounts' latest hashes at a point in time, with their Merkle root.
+     */
+    public static class Checkpoint {
+        private String root;
+        private Map<String, String> heads;
+
+        private Checkpoint() {
+        }
+
+        /**
+         * Record the latest hash of every account.
+         *
+         * @param accounts All accounts of the bank
+         * @return New checkpoint
+         */
+        static Checkpoint of(Collection<Account> accounts) {
+            Map<String, String> heads = new TreeMap<>();
+            for (Account account : accounts) {
+                synchronized (account) {
+                    account.settle();
+                    List<Account.Transaction> transactions = account.getTransactions();
+                    if (!transactions.isEmpty() && transactions.get(transactions.size() - 1).getHash() != null) {
+                        heads.put(account.getAccountNumber(), transactions.get(transactions.size() - 1).getHash());
+                    }
+                }
+            }
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.heads = heads;
+            checkpoint.root = merkleRoot(heads);
+            return checkpoint;
+        }
+
+        /**
+         * Read a checkpoint written by {@link #write}.
+         *
+         * @param file Checkpoint file
+         * @return The checkpoint, or null if there is none
+         * @throws IOException if it is damaged
+         */
+        static Checkpoint read(Path file) throws IOException {
+            if (!Files.exists(file)) {
+                return null;
+            }
+            Checkpoint[] loaded = new Checkpoint[1];
+            try {
+                LedgerFile.read(file, in -> {
+                    loaded[0] = new Gson().fromJson(in, Checkpoint.class);
+                    return loaded[0] == null || loaded[0].heads == null ? 0 : loaded[0].heads.size();
+                });
+            } catch (JsonParseException e) {
+                throw new IOException("Corrupt checkpoint " + file, e);
+            }
+            if (loaded[0] == null || loaded[0].heads == null) {
+                throw new IOException("Corrupt checkpoint " + file);
+            }
+            return loaded[0];
+        }
+
+        void write(Path file) throws IOException {
+            LedgerFile.write(file, out -> {
+                new Gson().toJson(this, out);
+                return heads.size();
+            });
+        }
+
+        /**
+         * @return Merkle root over the account hashes
+         */
+        public String getRoot() {
+            return root;
+        }
+
+        /**
+         * @return Latest hash of each account, by account number
+         */
+        public Map<String, String> getHeads() {
+            return Collections.unmodifiableMap(heads);
+        }
+
+        /**
+         * @return true if the root matches the account hashes
+         */
+        public boolean isIntact() {
+            return merkleRoot(heads).equals(root);
+        }
+    }
+
+    /**
+     * Outcome of a verification.
+     */
+    public static class Verification {
+        private final Map<String, String> broken = new TreeMap<>();
+        private final AtomicLong hashed = new AtomicLong();
+        private int accounts;
+        private boolean checkpointIntact = true;
+        private String root;
+
+        synchronized void fail(String accountNumber, String reason) {
+            broken.put(accountNumber, reason);
+        }
+
+        AtomicLong hashed() {
+            return hashed;
+        }
+
+        void setAccounts(int accounts) {
+            this.accounts = accounts;
+        }
+
+        void setCheckpointIntact(boolean intact) {
+            this.checkpointIntact = intact;
+        }
+
+        void setRoot(String root) {
+            this.root = root;
+        }
+
+        /**
+         * @return true if every chain holds and the checkpoint matches its root
+         */
+        public synchronized boolean isValid() {
+            return broken.isEmpty() && checkpointIntact;
+        }
+
+        /**
+         * @return What is wrong with each broken account, by account number
+         */
+        public synchronized Map<String, String> getBroken() {
+            return new TreeMap<>(broken);
+        }
+
+        public int getAccounts() {
+            return accounts;
+        }
+
+        /**
+         * @return Entries rehashed; incremental checks rehash only entries added since the checkpoint
+         */
+        public long getHashed() {
+            return hashed.get();
+        }
+
+        /**
+         * @return false if the checkpoint's account hashes no longer match its Merkle root
+         */
+        public boolean isCheckpointIntact() {
+            return checkpointIntact;
+        }
+
+        /**
+         * @return Merkle root of the checkpoint verified against, or null without one
+         */
+        public String getRoot() {
+            return root;
+        }
+    }
+
+    /**
+     * Per-thread digest and encoding buffer.
+     */
+    private static final class Hasher {
+        private final MessageDigest digest;
+        private final byte[] out;
+        private final char[] hex;
+        private ByteBuffer buffer;
+
+        Hasher() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 algorithm not found", e);
+            }
+            this.out = new byte[32];
+            this.hex = new char[64];
+            this.buffer = ByteBuffer.allocate(256);
+        }
+
+        void reset() {
+            buffer.clear();
+        }
+
+        void put(byte value) {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void put(long value) {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        /**
+         * Length-prefixed UTF-16, so no two field sequences encode alike.
+         */
+        void put(String value) {
+            if (value == null) {
+                ensure(Integer.BYTES);
+                buffer.putInt(-1);
+                return;
+            }
+            ensure(Integer.BYTES + value.length() * 2);
+            buffer.putInt(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                buffer.putChar(value.charAt(i));
+            }
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        String hex() {
+            digest.update(buffer.array(), 0, buffer.position());
+            try {
+                digest.digest(out, 0, out.length);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+            for (int i = 0; i < out.length; i++) {
+                hex[i * 2] = HEX[(out[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[out[i] & 0xf];
+            }
+            return new String(hex);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.banking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One immutable entry of the event log: an account opened, a deposit, a
+ * withdrawal or a completed transfer.
+ *
+ * Fields that do not apply to an event's type are null and are left out of
+ * its JSON line.
+ */
+public class LedgerEvent {
+    public static final String ACCOUNT_OPENED = "AccountOpened";
+    public static final String DEPOSITED = "Deposited";
+    public static final String WITHDRAWN = "Withdrawn";
+    public static final String TRANSFER_COMPLETED = "TransferCompleted";
+
+    private long sequence;
+    private String type;
+    private String date;
+    private String account;
+    private String counterparty;
+    private Double amount;
+    private Double credited;
+    private String description;
+    private String creditDescription;
+    private String creditDate;
+    private String holder;
+    private String passwordHash;
+    private String currency;
+    private Double balance;
+    private List<Account.Transaction> transactions;
+    private String requestKey;
+    private String requestFingerprint;
+    private String standingOrder;
+    private String standingOrderRun;
+
+    /**
+     * Private constructor for deserialization.
+     */
+    private LedgerEvent() {
+    }
+
+    private LedgerEvent(long sequence, String type, String date, String account) {
+        this.sequence = sequence;
+        this.type = type;
+        this.date = date;
+        this.account = account;
+    }
+
+    /**
+     * Record an account being opened, with the history it starts with (the
+     * initial deposit, or everything an imported account already had).
+     *
+     * Called under the account's lock.
+     */
+    static LedgerEvent accountOpened(long sequence, Account account) {
+        LedgerEvent event = new LedgerEvent(sequence, ACCOUNT_OPENED, account.getCreatedAt(),
+            account.getAccountNumber());
+        event.holder = account.getAccountHolder();
+        event.passwordHash = account.getPasswordHash();
+        event.currency = account.getCurrency();
+        event.balance = account.getBalance();
+        event.transactions = new ArrayList<>(account.getTransactions());
+        return event;
+    }
+
+    /**
+     * Record a deposit or withdrawal.
+     */
+    static LedgerEvent transaction(long sequence, String accountNumber, Account.Transaction transaction) {
+        boolean credit = "credit".equals(transaction.getType());
+        LedgerEvent event = new LedgerEvent(sequence, credit ? DEPOSITED : WITHDRAWN, transaction.getDate(),
+            accountNumber);
+        event.amount = transaction.getAmount();
+        event.description = transaction.getDescription();
+        return event;
+    }
+
+    /**
+     * Record both legs of a transfer as one event.
+     */
+    static LedgerEvent transfer(long sequence, String fromAccount, Account.Transaction debit, String toAccount,
+                                Account.Transaction credit) {
+        LedgerEvent event = new LedgerEvent(sequence, TRANSFER_COMPLETED, debit.getDate(), fromAccount);
+        event.counterparty = toAccount;
+        event.amount = debit.getAmount();
+        event.credited = credit.getAmount();
+        event.description = debit.getDescription();
+        event.creditDescription = credit.getDescription();
+        if (!debit.getDate().equals(credit.getDate())) {
+            // Replay must reproduce the credit exactly, or its hash would not match
+            event.creditDate = credit.getDate();
+        }
+        return event;
+    }
+
+    /**
+     * Copy of this event without the password hash, to hand to code outside
+     * the bank such as change feed subscribers.
+     */
+    LedgerEvent withoutCredentials() {
+        if (passwordHash == null) {
+            return this;
+        }
+        LedgerEvent copy = new LedgerEvent(sequence, type, date, account);
+        copy.counterparty = counterparty;
+        copy.amount = amount;
+        copy.credited = credited;
+        copy.description = description;
+        copy.creditDescription = creditDescription;
+        copy.creditDate = creditDate;
+        copy.holder = holder;
+        copy.currency = currency;
+        copy.balance = balance;
+        copy.transactions = transactions;
+        copy.requestKey = requestKey;
+        copy.requestFingerprint = requestFingerprint;
+        copy.standingOrder = standingOrder;
+        copy.standingOrderRun = standingOrderRun;
+        return copy;
+    }
+
+    /**
+     * Note which request made this event, so recovery can tell the request
+     * was carried out (see {@link EventLog#attribute}).
+     */
+    void setOrigin(String requestKey, String requestFingerprint, String standingOrder, String standingOrderRun) {
+        this.requestKey = requestKey;
+        this.requestFingerprint = requestFingerprint;
+        this.standingOrder = standingOrder;
+        this.standingOrderRun = standingOrderRun;
+    }
+
+    /**
+     * Apply this event to the account it concerns.
+     *
+     * @param target Account to change, or null when the event opens it
+     * @param accountNumber Which side to apply (a transfer changes both accounts)
+     * @return The changed or newly opened account
+     * @throws IllegalStateException if the event needs an account that does not exist
+     */
+    Account applyTo(Account target, String accountNumber) {
+        if (ACCOUNT_OPENED.equals(type)) {
+            Account opened = Account.restore(account, holder, passwordHash, balance,
+                transactions == null ? new ArrayList<>() : new ArrayList<>(transactions), date);
+            opened.setCurrency(currency);
+            opened.sealHistory();
+            return opened;
+        }
+        if (target == null) {
+            throw new IllegalStateException("Event " + sequence + " refers to unknown account " + accountNumber);
+        }
+        if (DEPOSITED.equals(type)) {
+            target.replay(date, description, amount, "credit", null);
+        } else if (WITHDRAWN.equals(type)) {
+            target.replay(date, description, amount, "debit", null);
+        } else if (TRANSFER_COMPLETED.equals(type)) {
+            if (accountNumber.equals(account)) {
+                target.replay(date, description, amount, "debit", counterparty);
+            } else {
+                target.replay(creditDate != null ? creditDate : date, creditDescription, credited, "credit", account);
+            }
+        } else {
+            throw new IllegalStateException("Unknown event type " + type);
+        }
+        return target;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * @return Account opened, deposited to, withdrawn from, or paying a transfer
+     */
+    public String getAccount() {
+        return account;
+    }
+
+    /**
+     * @return Account receiving a transfer, or null
+     */
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    /**
+     * @return Amount moved, in the currency of {@link #getAccount()} (null when an account is opened)
+     */
+    public Double getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return Amount a transfer credited, in the receiving account's currency
+     */
+    public Double getCredited() {
+        return credited;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return Description of a transfer's credit leg, or null
+     */
+    public String getCreditDescription() {
+        return creditDescription;
+    }
+
+    /**
+     * @return Holder of an account opened, or null
+     */
+    public String getHolder() {
+        return holder;
+    }
+
+    /**
+     * @return Currency of an account opened, or null
+     */
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * @return Opening balance of an account opened, or null
+     */
+    public Double getBalance() {
+        return balance;
+    }
+
+    /**
+     * @return Idempotency key of the request that made this event, or null
+     */
+    public String getRequestKey() {
+        return requestKey;
+    }
+
+    String getRequestFingerprint() {
+        return requestFingerprint;
+    }
+
+    /**
+     * @return Id of the standing order this event paid, or null
+     */
+    public String getStandingOrder() {
+        return standingOrder;
+    }
+
+    /**
+     * @return Scheduled run of the standing order this event paid, or null
+     */
+    public String getStandingOrderRun() {
+        return standingOrderRun;
+    }
+}
@@ -0,0 +1,198 @@
+package com.banking;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Crash-safe container for the bank data file.
+ *
+ * The body is written to a temporary file behind a fixed-width header holding
+ * the record count and a CRC32C of the body, fsynced, and then atomically
+ * renamed over the target. The generation being replaced is kept as
+ * {@code <file>.prev} so that a damaged file can fall back to it. The checksum
+ * is computed while the body streams through, on both write and read.
+ */
+public class LedgerFile {
+    private static final String MAGIC = "BANKDATA";
+    private static final int VERSION = 1;
+    /** "BANKDATA 1 " + 10-digit count + " " + 8 hex digits + newline. */
+    private static final int HEADER_LENGTH = 31;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Streams the body of a ledger file.
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        /**
+         * @param out Destination for the body
+         * @return Number of records written
+         * @throws IOException if writing fails
+         */
+        int write(Writer out) throws IOException;
+    }
+
+    /**
+     * Parses the body of a ledger file.
+     */
+    @FunctionalInterface
+    public interface BodyReader {
+        /**
+         * @param in Source of the body
+         * @return Number of records read
+         * @throws IOException if reading fails
+         */
+        int read(Reader in) throws IOException;
+    }
+
+    private LedgerFile() {
+    }
+
+    /**
+     * Get the path of the generation kept before the last save.
+     *
+     * @param target Data file path
+     * @return Path of the previous generation
+     */
+    public static Path previousGeneration(Path target) {
+        return target.resolveSibling(target.getFileName() + ".prev");
+    }
+
+    /**
+     * Atomically replace a ledger file.
+     *
+     * @param target Data file path
+     * @param body Callback writing the body
+     * @throws IOException if the new generation cannot be written; the old file is left intact
+     */
+    public static void write(Path target, BodyWriter body) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        int records;
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(header(0, 0));
+            Writer out = new OutputStreamWriter(new CheckedOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(channel), BUFFER_SIZE), crc), StandardCharsets.UTF_8);
+            records = body.write(out);
+            out.flush();
+
+            channel.write(header(records, crc.getValue()), 0);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        rotate(target, temp);
+    }
+
+    /**
+     * Read a ledger file, verifying its checksum and record count as it streams.
+     * Files without a header (written before checksums existed) are read unverified.
+     *
+     * @param source Data file path
+     * @param body Callback parsing the body
+     * @throws IOException if the file cannot be read or fails verification
+     */
+    public static void read(Path source, BodyReader body) throws IOException {
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(source), BUFFER_SIZE)) {
+            raw.mark(HEADER_LENGTH);
+            byte[] headerBytes = raw.readNBytes(HEADER_LENGTH);
+            String header = new String(headerBytes, StandardCharsets.US_ASCII);
+            if (!header.startsWith(MAGIC + " ")) {
+                raw.reset();
+                body.read(new InputStreamReader(raw, StandardCharsets.UTF_8));
+                return;
+            }
+
+            String[] fields = header.trim().split(" ");
+            if (fields.length != 4 || !String.valueOf(VERSION).equals(fields[1])) {
+                throw new IOException("Unsupported ledger header: " + header.trim());
+            }
+            int expectedRecords = Integer.parseInt(fields[2]);
+            long expectedCrc = Long.parseLong(fields[3], 16);
+
+            CRC32C crc = new CRC32C();
+            CheckedInputStream checked = new CheckedInputStream(raw, crc);
+            int records = body.read(new InputStreamReader(checked, StandardCharsets.UTF_8));
+            // Consume any trailing bytes the parser did not need so the checksum covers the whole body
+            byte[] rest = new byte[BUFFER_SIZE];
+            while (checked.read(rest) >= 0) {
+                // keep draining
+            }
+
+            if (crc.getValue() != expectedCrc) {
+                throw new IOException(String.format("Checksum mismatch in %s: expected %08x, got %08x",
+                    source, expectedCrc, crc.getValue()));
+            }
+            if (records != expectedRecords) {
+                throw new IOException(String.format("Record count mismatch in %s: expected %d, got %d",
+                    source, expectedRecords, records));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed ledger header in " + source, e);
+        }
+    }
+
+    private static ByteBuffer header(int records, long crc) {
+        String header = String.format("%s %d %010d %08x\n", MAGIC, VERSION, records, crc);
+        return ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Keep the current file as the previous generation and move the new one into place.
+     */
+    static void rotate(Path target, Path temp) throws IOException {
+        Path previous = previousGeneration(target);
+        if (Files.exists(target)) {
+            Files.deleteIfExists(previous);
+            try {
+                // A hard link keeps the target in place, so there is never a moment without a data file
+                Files.createLink(previous, target);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(target, previous, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Make the rename durable. Not every platform can open a directory, so failures are ignored.
+     */
+    private static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort only
+        }
+    }
+}
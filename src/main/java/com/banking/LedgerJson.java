@@ -0,0 +1,257 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON mapping of accounts and transactions.
+ *
+ * Accounts and transactions are read and written by hand-written streaming
+ * adapters instead of Gson's reflection, using the same field names, so files
+ * written either way read back either way. Null fields are left out. While
+ * reading, repeated strings (transaction types, descriptions such as
+ * "Initial Deposit" or "Transfer to ACC001", counterparties) are shared
+ * rather than allocated once per transaction.
+ */
+public final class LedgerJson {
+    /** Distinct strings shared before the table stops growing. */
+    private static final int INTERN_CAPACITY = 16 * 1024;
+
+    private LedgerJson() {
+    }
+
+    /**
+     * Build a Gson with the account and transaction adapters registered.
+     *
+     * @param pretty Indent the output (compact otherwise)
+     * @return Configured Gson, safe to share between threads
+     */
+    public static Gson create(boolean pretty) {
+        Interner interner = new Interner(INTERN_CAPACITY);
+        TransactionAdapter transactions = new TransactionAdapter(interner);
+        GsonBuilder builder = new GsonBuilder()
+            .registerTypeAdapter(Account.Transaction.class, transactions)
+            .registerTypeAdapter(Account.class, new AccountAdapter(transactions, interner));
+        if (pretty) {
+            builder.setPrettyPrinting();
+        }
+        return builder.create();
+    }
+
+    /**
+     * Bounded table of shared strings. Once full, new strings are returned as
+     * they are, so a stream of unique values cannot grow it without limit.
+     */
+    static final class Interner {
+        private final Map<String, String> strings;
+        private final int capacity;
+
+        Interner(int capacity) {
+            this.strings = new ConcurrentHashMap<>();
+            this.capacity = capacity;
+        }
+
+        String intern(String value) {
+            if (value == null) {
+                return null;
+            }
+            String shared = strings.get(value);
+            if (shared != null) {
+                return shared;
+            }
+            if (strings.size() >= capacity) {
+                return value;
+            }
+            shared = strings.putIfAbsent(value, value);
+            return shared != null ? shared : value;
+        }
+    }
+
+    /**
+     * Streams {@link Account.Transaction}.
+     */
+    static final class TransactionAdapter extends TypeAdapter<Account.Transaction> {
+        private static final String CREDIT = "credit";
+        private static final String DEBIT = "debit";
+
+        private final Interner interner;
+
+        TransactionAdapter(Interner interner) {
+            this.interner = interner;
+        }
+
+        @Override
+        public void write(JsonWriter out, Account.Transaction transaction) throws IOException {
+            if (transaction == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "date", transaction.getDate());
+            writeString(out, "description", transaction.getDescription());
+            out.name("amount").value(transaction.getAmount());
+            writeString(out, "type", transaction.getType());
+            out.name("balanceAfter").value(transaction.getBalanceAfter());
+            writeString(out, "counterparty", transaction.getCounterparty());
+            writeString(out, "hash", transaction.getHash());
+            out.endObject();
+        }
+
+        @Override
+        public Account.Transaction read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String date = null;
+            String description = null;
+            double amount = 0;
+            String type = null;
+            double balanceAfter = 0;
+            String counterparty = null;
+            String hash = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "date" -> date = readString(in);
+                    case "description" -> description = interner.intern(readString(in));
+                    case "amount" -> amount = readDouble(in);
+                    case "type" -> type = type(readString(in));
+                    case "balanceAfter" -> balanceAfter = readDouble(in);
+                    case "counterparty" -> counterparty = interner.intern(readString(in));
+                    case "hash" -> hash = readString(in);
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            Account.Transaction transaction = new Account.Transaction(date, description, amount, type, balanceAfter);
+            transaction.setCounterparty(counterparty);
+            transaction.setHash(hash);
+            return transaction;
+        }
+
+        private String type(String type) {
+            if (CREDIT.equals(type)) {
+                return CREDIT;
+            }
+            if (DEBIT.equals(type)) {
+                return DEBIT;
+            }
+            return interner.intern(type);
+        }
+    }
+
+    /**
+     * Streams {@link Account}, delegating its history to the transaction adapter.
+     */
+    static final class AccountAdapter extends TypeAdapter<Account> {
+        private final TransactionAdapter transactions;
+        private final Interner interner;
+
+        AccountAdapter(TransactionAdapter transactions, Interner interner) {
+            this.transactions = transactions;
+            this.interner = interner;
+        }
+
+        @Override
+        public void write(JsonWriter out, Account account) throws IOException {
+            if (account == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeString(out, "accountNumber", account.getAccountNumber());
+            writeString(out, "accountHolder", account.getAccountHolder());
+            writeString(out, "passwordHash", account.getPasswordHash());
+            out.name("balance").value(account.getBalance());
+            List<Account.Transaction> history = account.getTransactions();
+            if (history != null) {
+                out.name("transactions");
+                out.beginArray();
+                for (Account.Transaction transaction : history) {
+                    transactions.write(out, transaction);
+                }
+                out.endArray();
+            }
+            writeString(out, "createdAt", account.getCreatedAt());
+            writeString(out, "currency", account.getCurrency());
+            out.endObject();
+        }
+
+        @Override
+        public Account read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String accountNumber = null;
+            String accountHolder = null;
+            String passwordHash = null;
+            double balance = 0;
+            List<Account.Transaction> history = new ArrayList<>();
+            String createdAt = null;
+            String currency = null;
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "accountNumber" -> accountNumber = interner.intern(readString(in));
+                    case "accountHolder" -> accountHolder = readString(in);
+                    case "passwordHash" -> passwordHash = readString(in);
+                    case "balance" -> balance = readDouble(in);
+                    case "transactions" -> readTransactions(in, history);
+                    case "createdAt" -> createdAt = readString(in);
+                    case "currency" -> currency = interner.intern(readString(in));
+                    default -> in.skipValue();
+                }
+            }
+            in.endObject();
+            Account account = Account.restore(accountNumber, accountHolder, passwordHash, balance, history, createdAt);
+            account.setCurrency(currency);
+            return account;
+        }
+
+        private void readTransactions(JsonReader in, List<Account.Transaction> history) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return;
+            }
+            in.beginArray();
+            while (in.hasNext()) {
+                history.add(transactions.read(in));
+            }
+            in.endArray();
+        }
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+
+    private static String readString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return in.nextString();
+    }
+
+    private static double readDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return 0;
+        }
+        return in.nextDouble();
+    }
+}
@@ -0,0 +1,40 @@
+package com.banking;
+
+/**
+ * Receives ledger changes as they are committed to accounts.
+ *
+ * Callbacks run on the thread making the change while it holds the account's
+ * lock, so implementations must be quick and must not block.
+ */
+public interface LedgerListener {
+
+    /**
+     * Called when a new account is opened.
+     *
+     * @param account The new account
+     */
+    default void onAccountCreated(Account account) {
+    }
+
+    /**
+     * Called after a transaction has been added to an account.
+     *
+     * @param account The account that changed
+     * @param transaction The transaction just recorded
+     */
+    default void onTransaction(Account account, Account.Transaction transaction) {
+    }
+
+    /**
+     * Called after both legs of a transfer have been recorded, while both
+     * accounts are still locked. Each leg has already been passed to
+     * {@link #onTransaction}.
+     *
+     * @param from The paying account
+     * @param debit The transaction recorded on it
+     * @param to The receiving account
+     * @param credit The transaction recorded on it
+     */
+    default void onTransfer(Account from, Account.Transaction debit, Account to, Account.Transaction credit) {
+    }
+}
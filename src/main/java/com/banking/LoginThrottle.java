@@ -0,0 +1,192 @@
+package com.banking;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Throttles password guessing per account and per source (client address,
+ * terminal, ...).
+ *
+ * Each key has a failure counter packed with the time of its last failure
+ * into one AtomicLong and updated by compare-and-set. After a few free
+ * failures every further one doubles the time before the next attempt is
+ * allowed, up to a maximum lockout. Checking is a map lookup and some
+ * arithmetic, so a throttled attempt is rejected before any password is
+ * hashed. Counters expire after a quiet period, and the map is bounded: when
+ * it is full, counters that have expired or are still within the free
+ * failures are dropped. A counter that imposes a delay is never dropped, so
+ * flooding the map cannot lift a lockout; if nothing can be dropped, new keys
+ * are not tracked until room frees up.
+ */
+public class LoginThrottle {
+    public static final int DEFAULT_FREE_FAILURES = 5;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 1_000;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 15 * 60 * 1_000;
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    private static final int COUNT_BITS = 16;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final ConcurrentHashMap<String, AtomicLong> failures;
+    private final int freeFailures;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    /** When a full map was last swept, so it is swept at most once per base delay. */
+    private volatile long sweptAt = Long.MIN_VALUE;
+
+    /**
+     * Create a throttle with the default limits and the system clock.
+     */
+    public LoginThrottle() {
+        this(DEFAULT_FREE_FAILURES, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, DEFAULT_MAX_ENTRIES,
+            System::currentTimeMillis);
+    }
+
+    /**
+     * Create a throttle.
+     *
+     * @param freeFailures Failures allowed before any delay applies
+     * @param baseDelayMillis Delay after the first failure beyond the free ones
+     * @param maxDelayMillis Longest delay (the lockout); counters also expire after this long without failures
+     * @param maxEntries Maximum number of tracked accounts and sources
+     * @param clock Current time in milliseconds
+     */
+    public LoginThrottle(int freeFailures, long baseDelayMillis, long maxDelayMillis, int maxEntries,
+                         LongSupplier clock) {
+        if (freeFailures < 0 || baseDelayMillis <= 0 || maxDelayMillis < baseDelayMillis || maxEntries <= 0) {
+            throw new IllegalArgumentException("Invalid login throttle settings");
+        }
+        this.failures = new ConcurrentHashMap<>();
+        this.freeFailures = freeFailures;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Get how long a login attempt must wait.
+     *
+     * @param accountNumber Account being logged into
+     * @param source Where the attempt comes from (null if unknown)
+     * @return Milliseconds until an attempt is allowed, 0 if allowed now
+     */
+    public long retryAfter(String accountNumber, String source) {
+        long now = clock.getAsLong();
+        long wait = wait(accountKey(accountNumber), now);
+        if (source != null) {
+            wait = Math.max(wait, wait(sourceKey(source), now));
+        }
+        return wait;
+    }
+
+    /**
+     * Record a failed login attempt.
+     *
+     * @param accountNumber Account being logged into (null if it does not exist, so guesses at
+     *                      unknown numbers only count against the source)
+     * @param source Where the attempt came from (null if unknown)
+     */
+    public void recordFailure(String accountNumber, String source) {
+        long now = clock.getAsLong();
+        if (accountNumber != null) {
+            increment(accountKey(accountNumber), now);
+        }
+        if (source != null) {
+            increment(sourceKey(source), now);
+        }
+    }
+
+    /**
+     * Record a successful login, clearing the account's failures. The source
+     * keeps its count, so one valid credential does not reset a source trying many.
+     *
+     * @param accountNumber Account logged into
+     */
+    public void recordSuccess(String accountNumber) {
+        failures.remove(accountKey(accountNumber));
+    }
+
+    /**
+     * @return Number of tracked accounts and sources
+     */
+    public int size() {
+        return failures.size();
+    }
+
+    private long wait(String key, long now) {
+        AtomicLong state = failures.get(key);
+        if (state == null) {
+            return 0;
+        }
+        long packed = state.get();
+        long last = packed >>> COUNT_BITS;
+        if (now - last >= maxDelayMillis) {
+            return 0;
+        }
+        long blockedUntil = last + delay((int) (packed & COUNT_MASK));
+        return Math.max(0, blockedUntil - now);
+    }
+
+    private void increment(String key, long now) {
+        AtomicLong state = failures.get(key);
+        if (state == null) {
+            if (failures.size() >= maxEntries && !trim(now)) {
+                return;
+            }
+            state = failures.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        while (true) {
+            long packed = state.get();
+            long last = packed >>> COUNT_BITS;
+            long count = now - last >= maxDelayMillis ? 0 : packed & COUNT_MASK;
+            long next = (now << COUNT_BITS) | Math.min(count + 1, COUNT_MASK);
+            if (state.compareAndSet(packed, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Delay imposed after a number of consecutive failures.
+     */
+    private long delay(int count) {
+        int excess = count - freeFailures;
+        if (excess <= 0) {
+            return 0;
+        }
+        // Double per failure, saturating before the shift could overflow
+        int doublings = excess - 1;
+        if (doublings >= Long.numberOfLeadingZeros(baseDelayMillis) - 1) {
+            return maxDelayMillis;
+        }
+        return Math.min(baseDelayMillis << doublings, maxDelayMillis);
+    }
+
+    /**
+     * Make room: drop counters that are expired or impose no delay yet.
+     *
+     * @return true if there is room for a new key
+     */
+    private boolean trim(long now) {
+        if (now - sweptAt >= baseDelayMillis) {
+            sweptAt = now;
+            failures.values().removeIf(state -> {
+                long packed = state.get();
+                return now - (packed >>> COUNT_BITS) >= maxDelayMillis || (packed & COUNT_MASK) <= freeFailures;
+            });
+        }
+        return failures.size() < maxEntries;
+    }
+
+    private static String accountKey(String accountNumber) {
+        return "a:" + accountNumber;
+    }
+
+    private static String sourceKey(String source) {
+        return "s:" + source;
+    }
+}
@@ -0,0 +1,594 @@
+package com.banking;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Off-heap account table backed by a memory-mapped file.
+ *
+ * Accounts live in fixed-width records found through an open-addressing hash
+ * index stored in the same file, so the table costs no heap per account and is
+ * ready as soon as the file is mapped. Holder names and creation dates sit in
+ * a string area addressed by offset. Each record points at the newest entry of
+ * the account's history in an append-only side file ({@code <file>.history});
+ * entries link back to their predecessor and carry their chain hash (see
+ * {@link LedgerChain}). Version 1 tables, written before transactions were
+ * chained, keep their entries without one, and their records lack the
+ * history generation that tells a compacted history apart from a longer one.
+ *
+ * File layout:
+ * <pre>
+ * header   64 bytes      magic, version, slot count, record capacity, record count, string bytes used
+ * index    slots * 4     record number + 1 per slot, 0 when empty (linear probing)
+ * records  capacity * 112 (104 in version 1 tables)
+ * strings  capacity * 64 UTF-8 holder names and creation dates
+ * </pre>
+ * A single mapping is used, which limits a table to about 2 GB (roughly ten
+ * million accounts). All methods are synchronized.
+ */
+public class MappedAccountTable implements AccountStore {
+    private static final int MAGIC = 0x42414E4B; // "BANK"
+    private static final int VERSION = 2;
+    /** Version whose history entries have no chain hash. */
+    private static final int UNCHAINED_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int STRING_BYTES_PER_RECORD = 64;
+
+    // Header fields
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_SLOTS = 8;
+    private static final int H_CAPACITY = 12;
+    private static final int H_COUNT = 16;
+    private static final int H_STRINGS_USED = 20;
+
+    // Record fields
+    static final int KEY_LENGTH = 31;
+    private static final int R_KEY = 0;
+    private static final int R_NAME_OFFSET = 32;
+    private static final int R_NAME_LENGTH = 36;
+    private static final int R_CREATED_OFFSET = 40;
+    private static final int R_CREATED_LENGTH = 44;
+    private static final int R_HASH = 48;
+    private static final int R_BALANCE = 80;
+    private static final int R_HISTORY = 88;
+    private static final int R_HISTORY_COUNT = 96;
+    /** Three ASCII letters; all zero in tables written before currencies existed. */
+    private static final int R_CURRENCY = 100;
+    private static final int CURRENCY_LENGTH = 3;
+    /** Account's history generation (see {@link Account#getHistoryGeneration}); version 2 records only. */
+    private static final int R_GENERATION = 104;
+    private static final int RECORD_SIZE = 112;
+    private static final int UNCHAINED_RECORD_SIZE = 104;
+    private static final int HASH_LENGTH = 32;
+
+    private static final long NO_HISTORY = -1;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final FileChannel history;
+    private final int slots;
+    private final int capacity;
+    private final int indexStart;
+    private final int recordStart;
+    private final int stringStart;
+    private final int stringCapacity;
+    private final boolean chained;
+    private final int recordSize;
+
+    private MappedAccountTable(FileChannel channel, MappedByteBuffer map, FileChannel history) {
+        this.channel = channel;
+        this.map = map;
+        this.history = history;
+        this.slots = map.getInt(H_SLOTS);
+        this.capacity = map.getInt(H_CAPACITY);
+        this.indexStart = HEADER_SIZE;
+        this.chained = map.getInt(H_VERSION) != UNCHAINED_VERSION;
+        this.recordSize = chained ? RECORD_SIZE : UNCHAINED_RECORD_SIZE;
+        this.recordStart = indexStart + slots * 4;
+        this.stringStart = recordStart + capacity * recordSize;
+        this.stringCapacity = capacity * STRING_BYTES_PER_RECORD;
+    }
+
+    /**
+     * Open a table, creating it with the given capacity if the file does not exist yet.
+     *
+     * @param path Table file
+     * @param capacity Maximum number of accounts (ignored when opening an existing table)
+     * @return Open table
+     * @throws IOException if the file cannot be mapped or is not a table
+     */
+    public static MappedAccountTable open(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            boolean fresh = channel.size() == 0;
+            int slots;
+            int records;
+            int recordSize = RECORD_SIZE;
+            if (fresh) {
+                if (capacity <= 0) {
+                    throw new IllegalArgumentException("Capacity must be positive");
+                }
+                records = capacity;
+                slots = Integer.highestOneBit(Math.max(2, capacity * 2 - 1)) << 1;
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                channel.read(header, 0);
+                if (header.getInt(H_MAGIC) != MAGIC
+                        || (header.getInt(H_VERSION) != VERSION && header.getInt(H_VERSION) != UNCHAINED_VERSION)) {
+                    throw new IOException("Not an account table: " + path);
+                }
+                slots = header.getInt(H_SLOTS);
+                records = header.getInt(H_CAPACITY);
+                if (header.getInt(H_VERSION) == UNCHAINED_VERSION) {
+                    recordSize = UNCHAINED_RECORD_SIZE;
+                }
+            }
+
+            long size = HEADER_SIZE + (long) slots * 4 + (long) records * (recordSize + STRING_BYTES_PER_RECORD);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Account table too large for a single mapping: " + records);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            if (fresh) {
+                map.putInt(H_MAGIC, MAGIC);
+                map.putInt(H_VERSION, VERSION);
+                map.putInt(H_SLOTS, slots);
+                map.putInt(H_CAPACITY, records);
+                map.putInt(H_COUNT, 0);
+                map.putInt(H_STRINGS_USED, 0);
+            }
+
+            FileChannel history = FileChannel.open(path.resolveSibling(path.getFileName() + ".history"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new MappedAccountTable(channel, map, history);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the number of accounts stored.
+     *
+     * @return Account count
+     */
+    public synchronized int size() {
+        return map.getInt(H_COUNT);
+    }
+
+    /**
+     * Check whether an account is stored.
+     *
+     * @param accountNumber Account identifier
+     * @return true if present
+     */
+    @Override
+    public synchronized boolean contains(String accountNumber) {
+        return findRecord(accountNumber) >= 0;
+    }
+
+    /**
+     * Add a new account with its full history.
+     *
+     * @param account Account to store
+     * @return false if an account with this number already exists
+     * @throws IOException if the history cannot be written
+     * @throws IllegalStateException if the table is full
+     * @throws IllegalArgumentException if the account number does not fit a record
+     */
+    public synchronized boolean insert(Account account) throws IOException {
+        byte[] key = encodeKey(account.getAccountNumber());
+        int slot = probe(key);
+        if (map.getInt(indexStart + slot * 4) != 0) {
+            return false;
+        }
+        int count = map.getInt(H_COUNT);
+        if (count >= capacity) {
+            throw new IllegalStateException("Account table is full (" + capacity + " accounts)");
+        }
+
+        int record = recordStart + count * recordSize;
+        map.put(record + R_KEY, (byte) key.length);
+        map.put(record + R_KEY + 1, key);
+        int[] name = putString(account.getAccountHolder());
+        map.putInt(record + R_NAME_OFFSET, name[0]);
+        map.putInt(record + R_NAME_LENGTH, name[1]);
+        int[] created = putString(account.getCreatedAt());
+        map.putInt(record + R_CREATED_OFFSET, created[0]);
+        map.putInt(record + R_CREATED_LENGTH, created[1]);
+        map.put(record + R_HASH, decodeHex(account.getPasswordHash()));
+        map.put(record + R_CURRENCY, account.getCurrency().getBytes(StandardCharsets.US_ASCII), 0, CURRENCY_LENGTH);
+        map.putLong(record + R_HISTORY, NO_HISTORY);
+        map.putInt(record + R_HISTORY_COUNT, 0);
+        if (chained) {
+            map.putInt(record + R_GENERATION, account.getHistoryGeneration());
+        }
+
+        writeBack(record, account, 0);
+        map.putInt(indexStart + slot * 4, count + 1);
+        map.putInt(H_COUNT, count + 1);
+        return true;
+    }
+
+    /**
+     * Store an account's balance and any transactions added since it was last stored.
+     *
+     * @param account Account previously inserted or loaded
+     * @return Number of transactions now stored for the account
+     * @throws IOException if the history cannot be written
+     * @throws IllegalArgumentException if the account is not in the table
+     */
+    public synchronized int update(Account account) throws IOException {
+        int index = findRecord(account.getAccountNumber());
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown account: " + account.getAccountNumber());
+        }
+        int record = recordStart + index * recordSize;
+        return writeBack(record, account, map.getInt(record + R_HISTORY_COUNT));
+    }
+
+    /**
+     * Insert an account, or update it if it is already stored.
+     *
+     * @param account Account to store
+     * @throws IOException if the history cannot be written
+     */
+    @Override
+    public synchronized void save(Account account) throws IOException {
+        if (!insert(account)) {
+            update(account);
+        }
+    }
+
+    /**
+     * Append a single transaction to an account's history chain.
+     *
+     * @param accountNumber Account identifier
+     * @param transaction Transaction to append
+     * @throws IOException if the history cannot be written
+     * @throws IllegalArgumentException if the account is not in the table
+     */
+    @Override
+    public synchronized void appendTransaction(String accountNumber, Account.Transaction transaction)
+            throws IOException {
+        int index = findRecord(accountNumber);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown account: " + accountNumber);
+        }
+        int record = recordStart + index * recordSize;
+        map.putLong(record + R_HISTORY, appendHistory(map.getLong(record + R_HISTORY), transaction));
+        map.putInt(record + R_HISTORY_COUNT, map.getInt(record + R_HISTORY_COUNT) + 1);
+        map.putLong(record + R_BALANCE, Reconciler.toCents(transaction.getBalanceAfter()));
+    }
+
+    /**
+     * Materialize every account in insertion order.
+     *
+     * @param consumer Callback receiving each account
+     * @throws IOException if a history cannot be read
+     */
+    @Override
+    public synchronized void scan(Consumer<Account> consumer) throws IOException {
+        int count = map.getInt(H_COUNT);
+        for (int i = 0; i < count; i++) {
+            consumer.accept(load(readKey(recordStart + i * recordSize)));
+        }
+    }
+
+    /**
+     * Materialize an account, including its history, onto the heap.
+     *
+     * @param accountNumber Account identifier
+     * @return Account, or null if not present
+     * @throws IOException if the history cannot be read
+     */
+    @Override
+    public synchronized Account load(String accountNumber) throws IOException {
+        int index = findRecord(accountNumber);
+        if (index < 0) {
+            return null;
+        }
+        int record = recordStart + index * recordSize;
+        byte[] hash = new byte[HASH_LENGTH];
+        map.get(record + R_HASH, hash);
+        byte[] currency = new byte[CURRENCY_LENGTH];
+        map.get(record + R_CURRENCY, currency);
+        Account account = Account.restore(accountNumber,
+            getString(map.getInt(record + R_NAME_OFFSET), map.getInt(record + R_NAME_LENGTH)),
+            encodeHex(hash),
+            Reconciler.fromCents(map.getLong(record + R_BALANCE)),
+            readHistory(map.getLong(record + R_HISTORY), map.getInt(record + R_HISTORY_COUNT)),
+            getString(map.getInt(record + R_CREATED_OFFSET), map.getInt(record + R_CREATED_LENGTH)));
+        if (currency[0] != 0) {
+            account.setCurrency(new String(currency, StandardCharsets.US_ASCII));
+        }
+        if (chained) {
+            account.setHistoryGeneration(map.getInt(record + R_GENERATION));
+        }
+        return account;
+    }
+
+    /**
+     * Check a password against the stored hash without materializing the account.
+     *
+     * @param accountNumber Account identifier
+     * @param password Plain text password
+     * @return true if the account exists and the password matches
+     */
+    @Override
+    public boolean verifyPassword(String accountNumber, String password) {
+        byte[] candidate = Account.hashPasswordBytes(password);
+        byte[] stored = new byte[HASH_LENGTH];
+        synchronized (this) {
+            int index = findRecord(accountNumber);
+            if (index < 0) {
+                return false;
+            }
+            map.get(recordStart + index * recordSize + R_HASH, stored);
+        }
+        return MessageDigest.isEqual(candidate, stored);
+    }
+
+    /**
+     * Get number, holder and balance of every account without materializing histories.
+     *
+     * @return Account summaries in insertion order
+     */
+    @Override
+    public synchronized List<Map<String, Object>> summaries() {
+        int count = map.getInt(H_COUNT);
+        List<Map<String, Object>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int record = recordStart + i * recordSize;
+            Map<String, Object> info = new HashMap<>();
+            info.put("account_number", readKey(record));
+            info.put("account_holder", getString(map.getInt(record + R_NAME_OFFSET), map.getInt(record + R_NAME_LENGTH)));
+            info.put("balance", Reconciler.fromCents(map.getLong(record + R_BALANCE)));
+            result.add(info);
+        }
+        return result;
+    }
+
+    /**
+     * Flush the mapping and history file to disk.
+     *
+     * @throws IOException if the history cannot be synced
+     */
+    public synchronized void force() throws IOException {
+        map.force();
+        history.force(true);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        history.close();
+        channel.close();
+    }
+
+    private int writeBack(int record, Account account, int storedCount) throws IOException {
+        account.settle();
+        List<Account.Transaction> transactions = account.getTransactions();
+        long head = map.getLong(record + R_HISTORY);
+        int from = storedCount;
+        if (transactions.size() < storedCount
+                || (chained && map.getInt(record + R_GENERATION) != account.getHistoryGeneration())) {
+            // History was compacted since it was stored; start a fresh chain
+            head = NO_HISTORY;
+            from = 0;
+        }
+        for (int i = from; i < transactions.size(); i++) {
+            head = appendHistory(head, transactions.get(i));
+        }
+        map.putLong(record + R_HISTORY, head);
+        map.putInt(record + R_HISTORY_COUNT, transactions.size());
+        map.putLong(record + R_BALANCE, Reconciler.toCents(account.getBalance()));
+        if (chained) {
+            map.putInt(record + R_GENERATION, account.getHistoryGeneration());
+        }
+        return transactions.size();
+    }
+
+    /**
+     * History entry: previous pointer, amount, balance after (both in cents),
+     * type, then length-prefixed date, description and counterparty, and in
+     * chained tables the length-prefixed chain hash (empty when there is none).
+     */
+    private long appendHistory(long previous, Account.Transaction transaction) throws IOException {
+        byte[] date = utf8(transaction.getDate());
+        byte[] description = utf8(transaction.getDescription());
+        byte[] type = utf8(transaction.getType());
+        byte[] counterparty = utf8(transaction.getCounterparty());
+        byte[] hash = chained && transaction.getHash() != null ? decodeHex(transaction.getHash()) : new byte[0];
+        ByteBuffer entry = ByteBuffer.allocate(8 + 8 + 8 + 4 * 4
+            + date.length + description.length + type.length + counterparty.length + (chained ? 4 + hash.length : 0));
+        entry.putLong(previous);
+        entry.putLong(Reconciler.toCents(transaction.getAmount()));
+        entry.putLong(Reconciler.toCents(transaction.getBalanceAfter()));
+        for (byte[] field : new byte[][] {date, description, type, counterparty}) {
+            entry.putInt(field.length);
+            entry.put(field);
+        }
+        if (chained) {
+            entry.putInt(hash.length);
+            entry.put(hash);
+        }
+        entry.flip();
+
+        long position = history.size();
+        while (entry.hasRemaining()) {
+            history.write(entry, position + entry.position());
+        }
+        return position;
+    }
+
+    private List<Account.Transaction> readHistory(long head, int count) throws IOException {
+        List<Account.Transaction> transactions = new ArrayList<>(count);
+        ByteBuffer fixed = ByteBuffer.allocate(24);
+        long pointer = head;
+        while (pointer != NO_HISTORY && transactions.size() < count) {
+            fixed.clear();
+            readFully(fixed, pointer);
+            long previous = fixed.getLong(0);
+            long amount = fixed.getLong(8);
+            long balanceAfter = fixed.getLong(16);
+
+            long position = pointer + 24;
+            String[] fields = new String[4];
+            for (int f = 0; f < fields.length; f++) {
+                ByteBuffer length = ByteBuffer.allocate(4);
+                readFully(length, position);
+                int size = length.getInt(0);
+                ByteBuffer bytes = ByteBuffer.allocate(size);
+                readFully(bytes, position + 4);
+                fields[f] = size == 0 && f == 3 ? null : new String(bytes.array(), StandardCharsets.UTF_8);
+                position += 4 + size;
+            }
+
+            Account.Transaction transaction = new Account.Transaction(fields[0], fields[1],
+                Reconciler.fromCents(amount), fields[2], Reconciler.fromCents(balanceAfter));
+            transaction.setCounterparty(fields[3]);
+            if (chained) {
+                ByteBuffer length = ByteBuffer.allocate(4);
+                readFully(length, position);
+                if (length.getInt(0) > 0) {
+                    ByteBuffer hash = ByteBuffer.allocate(length.getInt(0));
+                    readFully(hash, position + 4);
+                    transaction.setHash(encodeHex(hash.array()));
+                }
+            }
+            transactions.add(transaction);
+            pointer = previous;
+        }
+        Collections.reverse(transactions);
+        return transactions;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (history.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Truncated account history");
+            }
+        }
+    }
+
+    /**
+     * Find the record number of an account, or -1.
+     */
+    private int findRecord(String accountNumber) {
+        byte[] key = accountNumber.getBytes(StandardCharsets.UTF_8);
+        if (key.length > KEY_LENGTH) {
+            return -1;
+        }
+        int value = map.getInt(indexStart + probe(key) * 4);
+        return value - 1;
+    }
+
+    /**
+     * Find the slot holding a key, or the empty slot where it would go.
+     */
+    private int probe(byte[] key) {
+        int mask = slots - 1;
+        int slot = mix(key) & mask;
+        while (true) {
+            int value = map.getInt(indexStart + slot * 4);
+            if (value == 0 || keyEquals(recordStart + (value - 1) * recordSize, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean keyEquals(int record, byte[] key) {
+        if (map.get(record + R_KEY) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (map.get(record + R_KEY + 1 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String readKey(int record) {
+        byte[] key = new byte[map.get(record + R_KEY)];
+        map.get(record + R_KEY + 1, key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private static int mix(byte[] key) {
+        int h = 0x811C9DC5;
+        for (byte b : key) {
+            h = (h ^ b) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static byte[] encodeKey(String accountNumber) {
+        byte[] key = accountNumber.getBytes(StandardCharsets.UTF_8);
+        if (key.length > KEY_LENGTH) {
+            throw new IllegalArgumentException("Account number longer than " + KEY_LENGTH + " bytes");
+        }
+        return key;
+    }
+
+    private int[] putString(String value) {
+        byte[] bytes = utf8(value);
+        int used = map.getInt(H_STRINGS_USED);
+        if (used + bytes.length > stringCapacity) {
+            throw new IllegalStateException("Account table string area is full");
+        }
+        map.put(stringStart + used, bytes);
+        map.putInt(H_STRINGS_USED, used + bytes.length);
+        return new int[] {used, bytes.length};
+    }
+
+    private String getString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        map.get(stringStart + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] decodeHex(String hex) {
+        byte[] bytes = new byte[HASH_LENGTH];
+        if (hex == null || hex.length() != HASH_LENGTH * 2) {
+            return bytes;
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static String encodeHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
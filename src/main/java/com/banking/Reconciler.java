@@ -0,0 +1,504 @@
+package com.banking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * End-of-day reconciliation engine.
+ *
+ * Replays every account's transaction history in parallel and checks that each
+ * transaction's balanceAfter follows from the previous one and that the final
+ * replayed balance equals the account balance. Amounts are accumulated in
+ * cents so that totals are exact, and are kept per currency: each account is
+ * totalled in its own currency, so the two legs of a cross-currency transfer
+ * land in different totals. For a bank backed by an account store use
+ * {@link Bank#reconcile}, which includes the accounts not held in memory.
+ */
+public class Reconciler {
+    /** Accounts handled by one fork-join leaf task. */
+    private static final int LEAF_SIZE = 512;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a reconciler running on the common fork-join pool.
+     */
+    public Reconciler() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a reconciler running on the given pool.
+     *
+     * @param pool Fork-join pool to run on
+     */
+    public Reconciler(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Reconcile every account from the start of its history.
+     *
+     * @param accounts Accounts to reconcile
+     * @return Reconciliation report
+     */
+    public Report reconcile(Collection<Account> accounts) {
+        return reconcile(accounts, null);
+    }
+
+    /**
+     * Reconcile only the transactions added since a checkpoint. Daily totals of
+     * the checkpoint are carried into the new report. Compacting history
+     * invalidates checkpoints, so run a full reconciliation afterwards.
+     *
+     * @param accounts Accounts to reconcile
+     * @param checkpoint Checkpoint from a previous report (null for a full run)
+     * @return Reconciliation report, including a checkpoint for the next run
+     */
+    public Report reconcile(Collection<Account> accounts, Checkpoint checkpoint) {
+        Account[] snapshot = accounts.toArray(new Account[0]);
+        Checkpoint from = checkpoint != null ? checkpoint : new Checkpoint();
+        Partial partial = pool.invoke(new ReplayTask(snapshot, 0, snapshot.length, from));
+
+        if (checkpoint != null) {
+            // Balances are taken afresh from every account; only the flows are carried over
+            for (Map.Entry<String, Ledger> entry : checkpoint.ledgers.entrySet()) {
+                partial.ledger(entry.getKey()).addFlows(entry.getValue());
+            }
+        }
+        return new Report(partial);
+    }
+
+    /**
+     * Replay one account from its checkpointed position.
+     */
+    private static void replay(Account account, Checkpoint from, Partial out) {
+        String accountNumber = account.getAccountNumber();
+        AccountState state = from.accounts.get(accountNumber);
+        int start = state != null ? state.transactionCount : 0;
+        long running = state != null ? state.balanceCents : 0;
+
+        synchronized (account) {
+            account.settle();
+            Ledger ledger = out.ledger(account.getCurrency());
+            List<Account.Transaction> transactions = account.getTransactions();
+            int lastDay = -1;
+            long[] day = null;
+            for (int i = start; i < transactions.size(); i++) {
+                Account.Transaction transaction = transactions.get(i);
+                long amount = toCents(transaction.getAmount());
+                int dayKey = dayKey(transaction.getDate());
+                if (dayKey != lastDay) {
+                    day = ledger.day(dayKey);
+                    lastDay = dayKey;
+                }
+
+                if (TransactionArchive.OPENING_TYPE.equals(transaction.getType())) {
+                    // Compacted history restarts from the carried-forward balance
+                    running = amount;
+                    day[2] += amount;
+                } else if ("debit".equals(transaction.getType())) {
+                    running -= amount;
+                    day[1] += amount;
+                    ledger.debitCents += amount;
+                } else {
+                    running += amount;
+                    day[0] += amount;
+                    ledger.creditCents += amount;
+                }
+
+                long recorded = toCents(transaction.getBalanceAfter());
+                if (recorded != running) {
+                    // Keep the replayed figure so a single bad row is reported once
+                    out.mismatches.add(new Mismatch(accountNumber, i, fromCents(running), fromCents(recorded)));
+                }
+            }
+
+            long balance = toCents(account.getBalance());
+            if (balance != running) {
+                out.mismatches.add(new Mismatch(accountNumber, -1, fromCents(running), fromCents(balance)));
+            }
+            ledger.balanceCents += balance;
+            out.accounts.put(accountNumber, new AccountState(transactions.size(), balance));
+        }
+        out.accountCount++;
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    /**
+     * Encode the yyyy-MM-dd prefix of an ISO date as yyyymmdd without allocating.
+     */
+    static int dayKey(String isoDate) {
+        if (isoDate == null || isoDate.length() < 10) {
+            return 0;
+        }
+        int key = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = isoDate.charAt(i);
+            if (c != '-') {
+                key = key * 10 + (c - '0');
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Fork-join task over a slice of the account array.
+     */
+    private static final class ReplayTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final Account[] accounts;
+        private final int from;
+        private final int to;
+        private final Checkpoint checkpoint;
+
+        private ReplayTask(Account[] accounts, int from, int to, Checkpoint checkpoint) {
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= LEAF_SIZE) {
+                Partial partial = new Partial();
+                for (int i = from; i < to; i++) {
+                    replay(accounts[i], checkpoint, partial);
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            ReplayTask left = new ReplayTask(accounts, from, mid, checkpoint);
+            left.fork();
+            Partial right = new ReplayTask(accounts, mid, to, checkpoint).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Mutable accumulator for one task.
+     */
+    private static final class Partial {
+        private int accountCount;
+        private final List<Mismatch> mismatches = new ArrayList<>();
+        private final Map<String, Ledger> ledgers = new HashMap<>();
+        private final Map<String, AccountState> accounts = new HashMap<>();
+
+        private Ledger ledger(String currency) {
+            return ledgers.computeIfAbsent(currency, k -> new Ledger());
+        }
+
+        private Partial merge(Partial other) {
+            accountCount += other.accountCount;
+            mismatches.addAll(other.mismatches);
+            accounts.putAll(other.accounts);
+            for (Map.Entry<String, Ledger> entry : other.ledgers.entrySet()) {
+                Ledger ledger = ledger(entry.getKey());
+                ledger.addFlows(entry.getValue());
+                ledger.balanceCents += entry.getValue().balanceCents;
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Totals in cents for the accounts held in one currency.
+     */
+    private static final class Ledger {
+        private long creditCents;
+        private long debitCents;
+        private long balanceCents;
+        /** Credits, debits and opening balances per day. */
+        private final Map<Integer, long[]> dailyCents = new HashMap<>();
+
+        private long[] day(int dayKey) {
+            return dailyCents.computeIfAbsent(dayKey, k -> new long[3]);
+        }
+
+        private void addFlows(Ledger other) {
+            creditCents += other.creditCents;
+            debitCents += other.debitCents;
+            for (Map.Entry<Integer, long[]> entry : other.dailyCents.entrySet()) {
+                long[] totals = day(entry.getKey());
+                totals[0] += entry.getValue()[0];
+                totals[1] += entry.getValue()[1];
+                totals[2] += entry.getValue()[2];
+            }
+        }
+    }
+
+    /**
+     * Replay position of one account.
+     */
+    private static final class AccountState {
+        private final int transactionCount;
+        private final long balanceCents;
+
+        private AccountState(int transactionCount, long balanceCents) {
+            this.transactionCount = transactionCount;
+            this.balanceCents = balanceCents;
+        }
+    }
+
+    /**
+     * Position reached by a reconciliation run, used to resume incrementally.
+     */
+    public static class Checkpoint {
+        private final Map<String, AccountState> accounts;
+        private final Map<String, Ledger> ledgers;
+
+        private Checkpoint() {
+            this(new HashMap<>(), new HashMap<>());
+        }
+
+        private Checkpoint(Map<String, AccountState> accounts, Map<String, Ledger> ledgers) {
+            this.accounts = accounts;
+            this.ledgers = ledgers;
+        }
+
+        /**
+         * Get the number of accounts covered by this checkpoint.
+         *
+         * @return Account count
+         */
+        public int getAccountCount() {
+            return accounts.size();
+        }
+    }
+
+    /**
+     * A history row (or final balance) that does not match its replay.
+     */
+    public static class Mismatch {
+        private final String accountNumber;
+        private final int transactionIndex;
+        private final double expected;
+        private final double actual;
+
+        public Mismatch(String accountNumber, int transactionIndex, double expected, double actual) {
+            this.accountNumber = accountNumber;
+            this.transactionIndex = transactionIndex;
+            this.expected = expected;
+            this.actual = actual;
+        }
+
+        public String getAccountNumber() {
+            return accountNumber;
+        }
+
+        /**
+         * @return Index of the offending transaction, or -1 when the account balance itself is off
+         */
+        public int getTransactionIndex() {
+            return transactionIndex;
+        }
+
+        public double getExpected() {
+            return expected;
+        }
+
+        public double getActual() {
+            return actual;
+        }
+    }
+
+    /**
+     * Credits, debits and closing bank balance for one day.
+     */
+    public static class DailyTotals {
+        private final String date;
+        private final double credits;
+        private final double debits;
+        private final double closingBalance;
+
+        public DailyTotals(String date, double credits, double debits, double closingBalance) {
+            this.date = date;
+            this.credits = credits;
+            this.debits = debits;
+            this.closingBalance = closingBalance;
+        }
+
+        public String getDate() {
+            return date;
+        }
+
+        public double getCredits() {
+            return credits;
+        }
+
+        public double getDebits() {
+            return debits;
+        }
+
+        /**
+         * @return Sum of all replayed balances at the end of the day
+         */
+        public double getClosingBalance() {
+            return closingBalance;
+        }
+    }
+
+    /**
+     * Credits, debits and balances of the accounts held in one currency.
+     */
+    public static class CurrencyTotals {
+        private final double credits;
+        private final double debits;
+        private final double balance;
+        private final List<DailyTotals> dailyTotals;
+
+        private CurrencyTotals(Ledger ledger) {
+            this.credits = fromCents(ledger.creditCents);
+            this.debits = fromCents(ledger.debitCents);
+            this.balance = fromCents(ledger.balanceCents);
+
+            List<DailyTotals> days = new ArrayList<>();
+            long closing = 0;
+            for (Map.Entry<Integer, long[]> entry : new TreeMap<>(ledger.dailyCents).entrySet()) {
+                int key = entry.getKey();
+                long[] totals = entry.getValue();
+                closing += totals[0] - totals[1] + totals[2];
+                String date = String.format("%04d-%02d-%02d", key / 10000, key / 100 % 100, key % 100);
+                days.add(new DailyTotals(date, fromCents(totals[0]), fromCents(totals[1]), fromCents(closing)));
+            }
+            this.dailyTotals = Collections.unmodifiableList(days);
+        }
+
+        /**
+         * @return All credits reconciled so far, including those covered by the checkpoint
+         */
+        public double getCredits() {
+            return credits;
+        }
+
+        /**
+         * @return All debits reconciled so far, including those covered by the checkpoint
+         */
+        public double getDebits() {
+            return debits;
+        }
+
+        /**
+         * @return Sum of the current balances
+         */
+        public double getBalance() {
+            return balance;
+        }
+
+        /**
+         * @return Per-day totals in date order
+         */
+        public List<DailyTotals> getDailyTotals() {
+            return dailyTotals;
+        }
+    }
+
+    /**
+     * Result of a reconciliation run.
+     *
+     * Totals are reported per currency by {@link #getTotals()}. The single
+     * figures ({@link #getTotalBalance()} and so on) are for banks whose
+     * accounts are all in one currency, and refuse to add up several.
+     */
+    public static class Report {
+        private static final CurrencyTotals NONE = new CurrencyTotals(new Ledger());
+
+        private final int accountCount;
+        private final Map<String, CurrencyTotals> totals;
+        private final List<Mismatch> mismatches;
+        private final Checkpoint checkpoint;
+
+        private Report(Partial partial) {
+            this.accountCount = partial.accountCount;
+            Map<String, CurrencyTotals> byCurrency = new TreeMap<>();
+            for (Map.Entry<String, Ledger> entry : partial.ledgers.entrySet()) {
+                byCurrency.put(entry.getKey(), new CurrencyTotals(entry.getValue()));
+            }
+            this.totals = Collections.unmodifiableMap(byCurrency);
+            this.mismatches = Collections.unmodifiableList(partial.mismatches);
+            this.checkpoint = new Checkpoint(partial.accounts, partial.ledgers);
+        }
+
+        public int getAccountCount() {
+            return accountCount;
+        }
+
+        /**
+         * @return Totals for each currency accounts are held in, by currency code
+         */
+        public Map<String, CurrencyTotals> getTotals() {
+            return totals;
+        }
+
+        /**
+         * @return All credits reconciled so far, including those covered by the checkpoint
+         * @throws IllegalStateException if accounts are held in more than one currency
+         */
+        public double getTotalCredits() {
+            return single().getCredits();
+        }
+
+        /**
+         * @return All debits reconciled so far, including those covered by the checkpoint
+         * @throws IllegalStateException if accounts are held in more than one currency
+         */
+        public double getTotalDebits() {
+            return single().getDebits();
+        }
+
+        /**
+         * @return Sum of all current account balances
+         * @throws IllegalStateException if accounts are held in more than one currency
+         */
+        public double getTotalBalance() {
+            return single().getBalance();
+        }
+
+        public List<Mismatch> getMismatches() {
+            return mismatches;
+        }
+
+        public boolean isBalanced() {
+            return mismatches.isEmpty();
+        }
+
+        /**
+         * @return Per-day totals in date order
+         * @throws IllegalStateException if accounts are held in more than one currency
+         */
+        public List<DailyTotals> getDailyTotals() {
+            return single().getDailyTotals();
+        }
+
+        /**
+         * @return Checkpoint to pass to the next incremental run
+         */
+        public Checkpoint getCheckpoint() {
+            return checkpoint;
+        }
+
+        private CurrencyTotals single() {
+            if (totals.size() > 1) {
+                throw new IllegalStateException("Accounts are held in " + totals.keySet()
+                    + "; use getTotals() for per-currency figures");
+            }
+            return totals.isEmpty() ? NONE : totals.values().iterator().next();
+        }
+    }
+}
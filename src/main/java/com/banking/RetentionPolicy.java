@@ -0,0 +1,72 @@
+package com.banking;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Decides how much transaction history stays in hot storage.
+ *
+ * Either the last N transactions are kept, or those from the last X days.
+ * Everything older is rolled into the {@link TransactionArchive}.
+ */
+public class RetentionPolicy {
+    private final int keepLast;
+    private final int keepDays;
+
+    private RetentionPolicy(int keepLast, int keepDays) {
+        this.keepLast = keepLast;
+        this.keepDays = keepDays;
+    }
+
+    /**
+     * Keep the most recent transactions by count.
+     *
+     * @param count Number of transactions to keep hot
+     * @return Retention policy
+     * @throws IllegalArgumentException if count is not positive
+     */
+    public static RetentionPolicy keepLast(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Must keep at least one transaction");
+        }
+        return new RetentionPolicy(count, 0);
+    }
+
+    /**
+     * Keep the transactions from a recent number of days.
+     *
+     * @param days Number of days to keep hot
+     * @return Retention policy
+     * @throws IllegalArgumentException if days is not positive
+     */
+    public static RetentionPolicy keepDays(int days) {
+        if (days <= 0) {
+            throw new IllegalArgumentException("Must keep at least one day");
+        }
+        return new RetentionPolicy(0, days);
+    }
+
+    /**
+     * Find where the hot part of a history starts.
+     *
+     * @param transactions Full hot history, oldest first
+     * @param now Current time
+     * @return Index of the first transaction to keep; everything before it may be archived
+     */
+    public int cutoff(List<Account.Transaction> transactions, LocalDateTime now) {
+        if (keepLast > 0) {
+            return Math.max(0, transactions.size() - keepLast);
+        }
+        // ISO-8601 local date-times sort lexically, so compare the strings directly
+        String threshold = now.minusDays(keepDays).toString();
+        int cutoff = 0;
+        while (cutoff < transactions.size()) {
+            String date = transactions.get(cutoff).getDate();
+            if (date != null && date.compareTo(threshold) >= 0) {
+                break;
+            }
+            cutoff++;
+        }
+        return cutoff;
+    }
+}
@@ -0,0 +1,309 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warm standby of an event-sourced bank, fed by tailing the primary's event
+ * log in a shared directory.
+ *
+ * The standby starts from the log's snapshot, reading the log from the
+ * offset the snapshot covers, and then applies each event the primary
+ * appends, so its accounts trail the primary's by at most one poll.
+ * It serves read-only queries meanwhile, and {@link #promote()} turns it into
+ * a writable {@link Bank} without replaying anything: the log is reopened for
+ * appending where the standby stopped reading.
+ *
+ * Only complete lines are applied; a line still being written is picked up
+ * on a later poll. Promote only once the primary has stopped, as nothing
+ * prevents two processes appending to the same log.
+ */
+public class StandbyReplica implements Closeable {
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final String dataFile;
+    private final Path logFile;
+    private final Gson gson;
+    private final Map<String, Account> accounts;
+    private final Map<String, Long> applied;
+    private ScheduledExecutorService poller;
+    private long position;
+    private long sequence;
+    private boolean promoted;
+
+    /**
+     * Load the primary's latest snapshot and catch up with its log.
+     *
+     * @param dataFile The primary's data file (read when promoted)
+     * @param logFile The primary's event log
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    public StandbyReplica(String dataFile, Path logFile) throws IOException {
+        this.dataFile = dataFile;
+        this.logFile = logFile;
+        this.gson = LedgerJson.create(false);
+        this.accounts = new ConcurrentHashMap<>();
+        EventLog log = new EventLog(logFile);
+        AtomicLong covered = new AtomicLong();
+        this.applied = new HashMap<>(log.readSnapshot(accounts, covered));
+        for (Map.Entry<String, Long> entry : applied.entrySet()) {
+            sequence = Math.max(sequence, entry.getValue());
+        }
+        // Start reading where the snapshot leaves off, not at the start of the log
+        this.position = log.lineStart(covered.get());
+        poll();
+    }
+
+    /**
+     * Poll the log in the background.
+     *
+     * @param intervalMillis Time between polls
+     */
+    public synchronized void start(long intervalMillis) {
+        if (poller != null || promoted) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "standby-replica");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error following " + logFile + ": " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Apply every complete event appended since the last poll.
+     *
+     * @return Number of events applied
+     * @throws IOException if the log cannot be read or is corrupt
+     */
+    public synchronized int poll() throws IOException {
+        if (promoted || !Files.exists(logFile)) {
+            return 0;
+        }
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+            byte[] pending = new byte[0];
+            long readAt = position;
+            while (channel.read(buffer, readAt) > 0) {
+                buffer.flip();
+                readAt += buffer.remaining();
+                byte[] chunk = new byte[pending.length + buffer.remaining()];
+                System.arraycopy(pending, 0, chunk, 0, pending.length);
+                buffer.get(chunk, pending.length, buffer.remaining());
+                buffer.clear();
+
+                int start = 0;
+                for (int i = 0; i < chunk.length; i++) {
+                    if (chunk[i] == '\n') {
+                        apply(new String(chunk, start, i - start, StandardCharsets.UTF_8));
+                        position += i + 1 - start;
+                        start = i + 1;
+                        count++;
+                    }
+                }
+                pending = new byte[chunk.length - start];
+                System.arraycopy(chunk, start, pending, 0, pending.length);
+            }
+        }
+        return count;
+    }
+
+    private void apply(String line) throws IOException {
+        LedgerEvent event;
+        try {
+            event = gson.fromJson(line, LedgerEvent.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Corrupt event log " + logFile + " at byte " + position, e);
+        }
+        if (event == null || event.getType() == null) {
+            throw new IOException("Corrupt event log " + logFile + " at byte " + position);
+        }
+        applySide(event, event.getAccount());
+        if (event.getCounterparty() != null) {
+            applySide(event, event.getCounterparty());
+        }
+        sequence = Math.max(sequence, event.getSequence());
+    }
+
+    private void applySide(LedgerEvent event, String accountNumber) {
+        if (event.getSequence() <= applied.getOrDefault(accountNumber, 0L)) {
+            return;
+        }
+        Account current = accounts.get(accountNumber);
+        Account updated = event.applyTo(current, accountNumber);
+        if (updated != current) {
+            accounts.put(accountNumber, updated);
+        }
+        applied.put(accountNumber, event.getSequence());
+    }
+
+    /**
+     * Get a copy of an account as the standby last saw it. Changes made to the
+     * copy are not kept.
+     *
+     * @param accountNumber Account identifier
+     * @return Copy of the account, or null if it does not exist
+     */
+    public Account getAccount(String accountNumber) {
+        Account account = replicated().get(accountNumber);
+        return account == null ? null : account.copy();
+    }
+
+    /**
+     * Get an account's transaction history.
+     *
+     * @param accountNumber Account identifier
+     * @param limit Maximum number of transactions to return (null for all)
+     * @return Most recent transactions, or an empty list if the account does not exist
+     */
+    public List<Account.Transaction> getTransactionHistory(String accountNumber, Integer limit) {
+        Account account = replicated().get(accountNumber);
+        return account == null ? new ArrayList<>() : account.getTransactionHistory(limit);
+    }
+
+    /**
+     * Get list of all accounts (basic info only), as {@link Bank#listAccounts()} does.
+     *
+     * @return List of account information maps
+     */
+    public List<Map<String, Object>> listAccounts() {
+        List<Map<String, Object>> accountList = new ArrayList<>();
+        for (Account account : replicated().values()) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("account_number", account.getAccountNumber());
+            info.put("account_holder", account.getAccountHolder());
+            info.put("balance", account.getBalance());
+            accountList.add(info);
+        }
+        return accountList;
+    }
+
+    /**
+     * @return Sequence of the last event applied
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Take over from a stopped primary: apply the rest of the log and open it
+     * for appending. The standby serves no more queries afterwards.
+     *
+     * @return Writable bank holding the standby's accounts
+     * @throws IOException if the log cannot be read or opened
+     */
+    public synchronized Bank promote() throws IOException {
+        if (promoted) {
+            throw new IllegalStateException("Standby already promoted");
+        }
+        stopPolling();
+        poll();
+        EventLog log = new EventLog(logFile);
+        log.resume(sequence, applied);
+        promoted = true;
+        return new Bank(dataFile, log, accounts);
+    }
+
+    @Override
+    public synchronized void close() {
+        stopPolling();
+    }
+
+    private void stopPolling() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+
+    private Map<String, Account> replicated() {
+        synchronized (this) {
+            if (promoted) {
+                throw new IllegalStateException("Standby was promoted; query the bank instead");
+            }
+        }
+        return accounts;
+    }
+
+    /**
+     * Run a standby in its own process. Reads commands from standard input:
+     * {@code list}, {@code show <account>}, {@code promote} (continue as the
+     * interactive CLI) and {@code exit}.
+     *
+     * @param args Event log file, optionally followed by the data file
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: StandbyReplica <event log> [data file]");
+            System.exit(2);
+        }
+        String dataFile = args.length > 1 ? args[1] : "bank_data.json";
+        try (StandbyReplica replica = new StandbyReplica(dataFile, Paths.get(args[0]))) {
+            replica.start(200);
+            System.out.println("Following " + args[0] + " from event " + replica.getSequence());
+            BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] command = line.trim().split("\\s+");
+                switch (command[0]) {
+                    case "list" -> {
+                        for (Map<String, Object> info : replica.listAccounts()) {
+                            System.out.printf("%s  %s  %.2f%n", info.get("account_number"),
+                                info.get("account_holder"), (Double) info.get("balance"));
+                        }
+                    }
+                    case "show" -> {
+                        Account account = command.length > 1 ? replica.getAccount(command[1]) : null;
+                        if (account == null) {
+                            System.out.println("Account not found");
+                        } else {
+                            System.out.printf("%s  %.2f %s  %d transactions%n", account.getAccountNumber(),
+                                account.getBalance(), account.getCurrency(), account.getTransactions().size());
+                        }
+                    }
+                    case "promote" -> {
+                        new BankingCLI(replica.promote()).run();
+                        return;
+                    }
+                    case "exit" -> {
+                        return;
+                    }
+                    case "" -> { }
+                    default -> System.out.println("Commands: list, show <account>, promote, exit");
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
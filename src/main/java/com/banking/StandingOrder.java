@@ -0,0 +1,161 @@
+package com.banking;
+
+/**
+ * A future-dated or recurring transfer between two accounts.
+ *
+ * Times are ISO-8601 local date-times like transaction dates, and the
+ * interval is an ISO-8601 period such as "P1M" (null for a one-off order).
+ */
+public class StandingOrder {
+    public static final String ACTIVE = "active";
+    public static final String COMPLETED = "completed";
+    public static final String CANCELLED = "cancelled";
+    public static final String FAILED = "failed";
+
+    private String id;
+    private String fromAccount;
+    private String toAccount;
+    private double amount;
+    private String interval;
+    private String nextRun;
+    private String retryAt;
+    private int maxRetries;
+    private long retryDelayMinutes;
+    private int attempts;
+    private int runs;
+    private String status;
+    private String lastResult;
+    private String endedAt;
+
+    /**
+     * Private constructor for deserialization.
+     */
+    private StandingOrder() {
+    }
+
+    StandingOrder(String id, String fromAccount, String toAccount, double amount, String interval,
+                  String nextRun, int maxRetries, long retryDelayMinutes) {
+        this.id = id;
+        this.fromAccount = fromAccount;
+        this.toAccount = toAccount;
+        this.amount = amount;
+        this.interval = interval;
+        this.nextRun = nextRun;
+        this.maxRetries = maxRetries;
+        this.retryDelayMinutes = retryDelayMinutes;
+        this.status = ACTIVE;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getFromAccount() {
+        return fromAccount;
+    }
+
+    public String getToAccount() {
+        return toAccount;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * @return ISO-8601 period between runs, or null for a one-off order
+     */
+    public String getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return When the order is next due
+     */
+    public String getNextRun() {
+        return nextRun;
+    }
+
+    /**
+     * @return When a run that failed for lack of funds is retried, or null
+     */
+    public String getRetryAt() {
+        return retryAt;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public long getRetryDelayMinutes() {
+        return retryDelayMinutes;
+    }
+
+    /**
+     * @return Failed attempts of the current run
+     */
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return Number of successful runs
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getLastResult() {
+        return lastResult;
+    }
+
+    public boolean isActive() {
+        return ACTIVE.equals(status);
+    }
+
+    /**
+     * @return When the order completed, failed or was cancelled, or null while it is active
+     */
+    public String getEndedAt() {
+        return endedAt;
+    }
+
+    void setNextRun(String nextRun) {
+        this.nextRun = nextRun;
+    }
+
+    void setRetryAt(String retryAt) {
+        this.retryAt = retryAt;
+    }
+
+    void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    void setRuns(int runs) {
+        this.runs = runs;
+    }
+
+    void setStatus(String status) {
+        this.status = status;
+    }
+
+    void setLastResult(String lastResult) {
+        this.lastResult = lastResult;
+    }
+
+    void setEndedAt(String endedAt) {
+        this.endedAt = endedAt;
+    }
+
+    /**
+     * @return When the order should next be attempted
+     */
+    String getDueAt() {
+        return retryAt != null ? retryAt : nextRun;
+    }
+}
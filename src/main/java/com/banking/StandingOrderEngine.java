@@ -0,0 +1,387 @@
+package com.banking;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a bank's standing orders and runs them when they fall due.
+ *
+ * Active orders sit in a {@link TimingWheel} keyed by their due time, so
+ * scheduling and firing are O(1) however many orders exist. Cancelled orders
+ * are left in the wheel and skipped when they fire. Due orders are executed
+ * as one batch through the bank's transfer path (without a password) and the
+ * bank is saved once per batch.
+ *
+ * A run that fails for lack of funds is retried after the order's retry delay
+ * up to its retry limit. When a recurring order misses a run, or a run happens
+ * late (for example because the bank was not running), the next run is the
+ * first period boundary after now; missed periods are not paid twice.
+ *
+ * {@link #start()} runs due orders in the background every second, so they are
+ * paid on time whether or not anything else is using the bank. Orders that
+ * completed, failed or were cancelled are kept for {@link #ENDED_RETENTION}
+ * so their outcome can be seen, then dropped.
+ */
+public class StandingOrderEngine {
+    /** How long an order that has ended is kept before it is dropped. */
+    public static final Duration ENDED_RETENTION = Duration.ofDays(30);
+
+    private static final long TICK_MILLIS = 1_000;
+    private static final String INSUFFICIENT_BALANCE = "Insufficient balance";
+
+    private final Bank bank;
+    private final Map<String, StandingOrder> orders;
+    /** Orders that have ended, oldest end first. */
+    private final ArrayDeque<StandingOrder> ended;
+    private TimingWheel<StandingOrder> wheel;
+    private long nextId;
+    /** Bumped by every change to the orders, so the bank saves them only when they changed. */
+    private long version;
+    private ScheduledExecutorService dispatcher;
+    private Thread shutdownHook;
+
+    StandingOrderEngine(Bank bank) {
+        this.bank = bank;
+        this.orders = new LinkedHashMap<>();
+        this.ended = new ArrayDeque<>();
+        this.wheel = new TimingWheel<>(TICK_MILLIS, toMillis(LocalDateTime.now()));
+        this.nextId = 1;
+    }
+
+    /**
+     * Create a standing order and save the bank.
+     *
+     * @param fromAccount Account paying
+     * @param toAccount Account receiving
+     * @param amount Amount per run
+     * @param firstRun When the first run is due
+     * @param interval Period between runs (null for a one-off future-dated transfer)
+     * @param maxRetries Retries of a run that fails for lack of funds
+     * @param retryDelay Wait between those retries
+     * @return The new order
+     * @throws IllegalArgumentException if an account does not exist or the amounts or timings are invalid
+     */
+    public StandingOrder create(String fromAccount, String toAccount, double amount, LocalDateTime firstRun,
+                                Period interval, int maxRetries, Duration retryDelay) {
+        if (fromAccount.equals(toAccount)) {
+            throw new IllegalArgumentException("Cannot transfer to the same account");
+        }
+        if (bank.getAccount(fromAccount) == null || bank.getAccount(toAccount) == null) {
+            throw new IllegalArgumentException("Account not found");
+        }
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Invalid amount");
+        }
+        if (interval != null && (interval.isZero() || interval.isNegative())) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (maxRetries < 0 || retryDelay.isNegative()) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+
+        StandingOrder order;
+        synchronized (this) {
+            order = new StandingOrder("SO" + nextId++, fromAccount, toAccount, amount,
+                interval == null ? null : interval.toString(), format(firstRun), maxRetries, retryDelay.toMinutes());
+            orders.put(order.getId(), order);
+            wheel.schedule(order, toMillis(firstRun));
+            version++;
+        }
+        bank.saveData();
+        return order;
+    }
+
+    /**
+     * Cancel an active order and save the bank.
+     *
+     * @param id Order identifier
+     * @return false if there is no such active order
+     */
+    public boolean cancel(String id) {
+        synchronized (this) {
+            StandingOrder order = orders.get(id);
+            if (order == null || !order.isActive()) {
+                return false;
+            }
+            end(order, StandingOrder.CANCELLED, LocalDateTime.now());
+            version++;
+        }
+        bank.saveData();
+        return true;
+    }
+
+    /**
+     * Get an order by id.
+     *
+     * @param id Order identifier
+     * @return The order, or null
+     */
+    public synchronized StandingOrder get(String id) {
+        return orders.get(id);
+    }
+
+    /**
+     * List orders paid from or to an account.
+     *
+     * @param accountNumber Account identifier (null for every order)
+     * @return Matching orders, oldest first
+     */
+    public synchronized List<StandingOrder> list(String accountNumber) {
+        List<StandingOrder> result = new ArrayList<>();
+        for (StandingOrder order : orders.values()) {
+            if (accountNumber == null || accountNumber.equals(order.getFromAccount())
+                    || accountNumber.equals(order.getToAccount())) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Run due orders in the background every second until {@link #stop()}.
+     * A shutdown hook stops the dispatcher when the JVM exits.
+     */
+    public void start() {
+        synchronized (this) {
+            if (dispatcher != null) {
+                return;
+            }
+            dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "standing-orders");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dispatcher.scheduleWithFixedDelay(() -> {
+                try {
+                    runDue(LocalDateTime.now());
+                } catch (RuntimeException e) {
+                    System.err.println("Error running standing orders: " + e.getMessage());
+                }
+            }, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+            shutdownHook = new Thread(this::stop, "standing-orders-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+    }
+
+    /**
+     * Stop the background dispatcher, letting a batch in progress finish and save.
+     */
+    public void stop() {
+        ScheduledExecutorService stopping;
+        Thread hook;
+        synchronized (this) {
+            stopping = dispatcher;
+            hook = shutdownHook;
+            dispatcher = null;
+            shutdownHook = null;
+        }
+        if (stopping == null) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(hook);
+        } catch (IllegalStateException e) {
+            // Already shutting down; this may be the hook itself
+        }
+        // Wait outside the engine lock: the batch in progress needs it
+        stopping.shutdown();
+        try {
+            stopping.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Execute every order due at or before a time, drop orders that ended more
+     * than {@link #ENDED_RETENTION} before it, then save the bank once.
+     *
+     * @param now Current time
+     * @return Number of successful transfers made
+     */
+    public int runDue(LocalDateTime now) {
+        int executed = 0;
+        boolean changed = false;
+        synchronized (this) {
+            List<StandingOrder> due = new ArrayList<>();
+            wheel.advanceTo(toMillis(now), due::add);
+            for (StandingOrder order : due) {
+                // Skip cancelled orders, and entries left behind when an order was moved to a later run
+                if (!order.isActive() || LocalDateTime.parse(order.getDueAt()).isAfter(now)) {
+                    continue;
+                }
+                changed = true;
+                version++;
+                if (execute(order, now)) {
+                    executed++;
+                }
+            }
+            changed |= prune(now);
+        }
+        // Save outside the engine lock: saving reads the orders while holding the bank's lock
+        if (changed) {
+            bank.saveData();
+        }
+        return executed;
+    }
+
+    private boolean execute(StandingOrder order, LocalDateTime now) {
+        Bank.TransferResult result = bank.executeStandingOrder(order);
+        order.setLastResult(result.getMessage());
+        LocalDateTime scheduled = LocalDateTime.parse(order.getNextRun());
+
+        if (result.isSuccess()) {
+            order.setRuns(order.getRuns() + 1);
+        } else if (INSUFFICIENT_BALANCE.equals(result.getMessage()) && order.getAttempts() < order.getMaxRetries()) {
+            order.setAttempts(order.getAttempts() + 1);
+            LocalDateTime retryAt = now.plusMinutes(order.getRetryDelayMinutes());
+            order.setRetryAt(format(retryAt));
+            wheel.schedule(order, toMillis(retryAt));
+            return false;
+        }
+
+        finishRun(order, scheduled, result.isSuccess(), now);
+        return result.isSuccess();
+    }
+
+    /**
+     * Close the current run, paid or not, and schedule the next one.
+     */
+    private void finishRun(StandingOrder order, LocalDateTime scheduled, boolean paid, LocalDateTime now) {
+        order.setAttempts(0);
+        order.setRetryAt(null);
+        if (order.getInterval() == null) {
+            end(order, paid ? StandingOrder.COMPLETED : StandingOrder.FAILED, now);
+            return;
+        }
+        Period interval = Period.parse(order.getInterval());
+        LocalDateTime next = scheduled.plus(interval);
+        while (!next.isAfter(now)) {
+            next = next.plus(interval);
+        }
+        order.setNextRun(format(next));
+        wheel.schedule(order, toMillis(next));
+    }
+
+    private void end(StandingOrder order, String status, LocalDateTime at) {
+        order.setStatus(status);
+        order.setEndedAt(format(at));
+        ended.add(order);
+    }
+
+    /**
+     * Drop orders that ended more than {@link #ENDED_RETENTION} ago.
+     *
+     * @return true if any were dropped
+     */
+    private boolean prune(LocalDateTime now) {
+        LocalDateTime cutoff = now.minus(ENDED_RETENTION);
+        boolean pruned = false;
+        while (!ended.isEmpty() && !LocalDateTime.parse(ended.peek().getEndedAt()).isAfter(cutoff)) {
+            orders.remove(ended.poll().getId());
+            version++;
+            pruned = true;
+        }
+        return pruned;
+    }
+
+    /**
+     * Catch up with a payment found in the event log that the restored orders
+     * do not reflect yet, because the bank stopped before saving them. A run
+     * the order has already moved past is ignored.
+     *
+     * @param id Order identifier
+     * @param run Scheduled run that was paid
+     * @param paidAt When it was paid
+     */
+    synchronized void recordPayment(String id, String run, LocalDateTime paidAt) {
+        StandingOrder order = orders.get(id);
+        if (order == null || !order.isActive() || !order.getNextRun().equals(run)) {
+            return;
+        }
+        order.setLastResult("Transfer successful");
+        order.setRuns(order.getRuns() + 1);
+        finishRun(order, LocalDateTime.parse(run), true, paidAt);
+        version++;
+    }
+
+    /**
+     * @return Count of changes made to the orders so far
+     */
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Number the next order's id is made from, saved so ids of dropped orders are not reused
+     */
+    synchronized long getNextId() {
+        return nextId;
+    }
+
+    /**
+     * @return Copy of every order for persistence
+     */
+    synchronized List<StandingOrder> snapshot() {
+        return new ArrayList<>(orders.values());
+    }
+
+    /**
+     * Replace all orders with persisted ones and schedule the active ones.
+     *
+     * @param restored Orders read from the data file
+     * @param savedNextId Saved {@link #getNextId()} (0 if the file predates it)
+     */
+    synchronized void restore(List<StandingOrder> restored, long savedNextId) {
+        LocalDateTime now = LocalDateTime.now();
+        orders.clear();
+        ended.clear();
+        wheel = new TimingWheel<>(TICK_MILLIS, toMillis(now));
+        nextId = Math.max(1, savedNextId);
+        version++;
+        List<StandingOrder> finished = new ArrayList<>();
+        for (StandingOrder order : restored) {
+            orders.put(order.getId(), order);
+            if (order.isActive()) {
+                wheel.schedule(order, toMillis(LocalDateTime.parse(order.getDueAt())));
+            } else {
+                if (order.getEndedAt() == null) {
+                    // Saved before end times were kept; the retention starts now
+                    order.setEndedAt(format(now));
+                }
+                finished.add(order);
+            }
+            try {
+                nextId = Math.max(nextId, Long.parseLong(order.getId().substring(2)) + 1);
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                // Foreign id; it cannot collide with generated ones
+            }
+        }
+        finished.sort(Comparator.comparing(order -> LocalDateTime.parse(order.getEndedAt())));
+        ended.addAll(finished);
+    }
+
+    private static String format(LocalDateTime time) {
+        return time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    /**
+     * Local date-times are mapped through UTC so that the mapping is the same
+     * for every order and never jumps at daylight saving changes.
+     */
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
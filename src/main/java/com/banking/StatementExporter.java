@@ -0,0 +1,381 @@
+package com.banking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams account statements to CSV or JSON Lines files.
+ *
+ * Rows are encoded straight into a reusable direct buffer and written through a
+ * FileChannel, without building a String per row or copying the history.
+ */
+public class StatementExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Output format of a statement.
+     */
+    public enum Format {
+        CSV(".csv"),
+        JSON_LINES(".jsonl");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final Format format;
+
+    /**
+     * Create an exporter.
+     *
+     * @param format Output format
+     */
+    public StatementExporter(Format format) {
+        this.format = format;
+    }
+
+    /**
+     * Write one account's full history.
+     *
+     * @param account Account to export
+     * @param output File to write (replaced if it exists)
+     * @return Number of transactions written
+     * @throws IOException if the file cannot be written
+     */
+    public long export(Account account, Path output) throws IOException {
+        return export(account, null, output);
+    }
+
+    /**
+     * Write the transactions of one account that match a query, e.g. one month.
+     *
+     * @param account Account to export
+     * @param query Search criteria (null for the full history)
+     * @param output File to write (replaced if it exists)
+     * @return Number of transactions written
+     * @throws IOException if the file cannot be written
+     */
+    public long export(Account account, TransactionQuery query, Path output) throws IOException {
+        try (ChannelWriter writer = new ChannelWriter(BUFFER_SIZE)) {
+            writer.open(output);
+            return writeStatement(account, query, writer);
+        }
+    }
+
+    /**
+     * Write one statement file per account into a directory, several accounts at a time.
+     *
+     * Each worker owns one buffer and pulls the next account from a shared cursor,
+     * so memory stays bounded by the thread count regardless of bank size.
+     *
+     * @param accounts Accounts to export
+     * @param query Search criteria applied to every account (null for full histories)
+     * @param directory Output directory (created if missing)
+     * @param threads Number of parallel writers
+     * @return Total number of transactions written
+     * @throws IOException if any statement cannot be written
+     */
+    public long exportAll(Collection<Account> accounts, TransactionQuery query, Path directory, int threads)
+            throws IOException {
+        Files.createDirectories(directory);
+        Account[] snapshot = accounts.toArray(new Account[0]);
+        AtomicInteger cursor = new AtomicInteger();
+        AtomicLong rows = new AtomicLong();
+        int workers = Math.max(1, Math.min(threads, snapshot.length));
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            Future<?>[] futures = new Future<?>[workers];
+            for (int w = 0; w < workers; w++) {
+                futures[w] = pool.submit(() -> {
+                    try (ChannelWriter writer = new ChannelWriter(BUFFER_SIZE)) {
+                        int next;
+                        while ((next = cursor.getAndIncrement()) < snapshot.length) {
+                            Account account = snapshot[next];
+                            writer.open(statementFile(directory, account.getAccountNumber()));
+                            rows.addAndGet(writeStatement(account, query, writer));
+                            writer.finish();
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Statement export failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Statement export interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return rows.get();
+    }
+
+    /**
+     * Name a statement after its account number, escaping anything that could
+     * leave the directory or make two accounts share a file.
+     */
+    private Path statementFile(Path directory, String accountNumber) {
+        StringBuilder name = new StringBuilder(accountNumber.length() + format.getExtension().length());
+        for (int i = 0; i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-') {
+                name.append(c);
+            } else {
+                name.append('_').append(String.format("%04x", (int) c));
+            }
+        }
+        return directory.resolve(name.append(format.getExtension()).toString());
+    }
+
+    private long writeStatement(Account account, TransactionQuery query, ChannelWriter writer) throws IOException {
+        if (format == Format.CSV) {
+            writer.append("date,description,type,amount,balance_after,counterparty\n");
+        }
+        String accountNumber = account.getAccountNumber();
+        long count = 0;
+        // Hold the account lock so the history cannot change under the writer
+        synchronized (account) {
+            account.settle();
+            List<Account.Transaction> transactions = query == null
+                ? account.getTransactions()
+                : account.queryTransactions(query);
+            for (int i = 0; i < transactions.size(); i++) {
+                Account.Transaction transaction = transactions.get(i);
+                if (format == Format.CSV) {
+                    writeCsvRow(transaction, writer);
+                } else {
+                    writeJsonRow(accountNumber, transaction, writer);
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void writeCsvRow(Account.Transaction transaction, ChannelWriter writer) throws IOException {
+        writer.append(transaction.getDate()).append(',');
+        writeCsvField(transaction.getDescription(), writer);
+        writer.append(',').append(transaction.getType()).append(',');
+        writer.appendCents(Reconciler.toCents(transaction.getAmount())).append(',');
+        writer.appendCents(Reconciler.toCents(transaction.getBalanceAfter())).append(',');
+        if (transaction.getCounterparty() != null) {
+            writer.append(transaction.getCounterparty());
+        }
+        writer.append('\n');
+    }
+
+    private static void writeCsvField(String value, ChannelWriter writer) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.append(value);
+            return;
+        }
+        writer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.append('"');
+            }
+            writer.append(c);
+        }
+        writer.append('"');
+    }
+
+    private static void writeJsonRow(String accountNumber, Account.Transaction transaction, ChannelWriter writer)
+            throws IOException {
+        writer.append("{\"account\":");
+        writeJsonString(accountNumber, writer);
+        writer.append(",\"date\":");
+        writeJsonString(transaction.getDate(), writer);
+        writer.append(",\"description\":");
+        writeJsonString(transaction.getDescription(), writer);
+        writer.append(",\"type\":");
+        writeJsonString(transaction.getType(), writer);
+        writer.append(",\"amount\":").appendCents(Reconciler.toCents(transaction.getAmount()));
+        writer.append(",\"balanceAfter\":").appendCents(Reconciler.toCents(transaction.getBalanceAfter()));
+        if (transaction.getCounterparty() != null) {
+            writer.append(",\"counterparty\":");
+            writeJsonString(transaction.getCounterparty(), writer);
+        }
+        writer.append("}\n");
+    }
+
+    private static void writeJsonString(String value, ChannelWriter writer) throws IOException {
+        if (value == null) {
+            writer.append("null");
+            return;
+        }
+        writer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.append("\\\"");
+                case '\\' -> writer.append("\\\\");
+                case '\n' -> writer.append("\\n");
+                case '\r' -> writer.append("\\r");
+                case '\t' -> writer.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.append("\\u00");
+                        writer.append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                    } else {
+                        writer.append(c);
+                    }
+                }
+            }
+        }
+        writer.append('"');
+    }
+
+    /**
+     * Buffered UTF-8 writer over a FileChannel. The buffer is reused across files.
+     */
+    private static final class ChannelWriter implements Closeable {
+        private final ByteBuffer buffer;
+        private FileChannel channel;
+
+        private ChannelWriter(int bufferSize) {
+            this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        private void open(Path path) throws IOException {
+            finish();
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private ChannelWriter append(CharSequence text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    appendCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+                } else {
+                    append(c);
+                }
+            }
+            return this;
+        }
+
+        private ChannelWriter append(char c) throws IOException {
+            if (c < 0x80) {
+                ensure(1);
+                buffer.put((byte) c);
+            } else {
+                appendCodePoint(Character.isSurrogate(c) ? '?' : c);
+            }
+            return this;
+        }
+
+        private void appendCodePoint(int codePoint) throws IOException {
+            ensure(4);
+            if (codePoint < 0x80) {
+                buffer.put((byte) codePoint);
+            } else if (codePoint < 0x800) {
+                buffer.put((byte) (0xC0 | (codePoint >> 6)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (codePoint < 0x10000) {
+                buffer.put((byte) (0xE0 | (codePoint >> 12)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+        }
+
+        /**
+         * Append an amount in cents as a decimal with two places, e.g. -1234 as -12.34.
+         */
+        private ChannelWriter appendCents(long cents) throws IOException {
+            ensure(24);
+            if (cents < 0) {
+                buffer.put((byte) '-');
+                cents = -cents;
+            }
+            appendDigits(cents / 100);
+            long fraction = cents % 100;
+            buffer.put((byte) '.');
+            buffer.put((byte) ('0' + fraction / 10));
+            buffer.put((byte) ('0' + fraction % 10));
+            return this;
+        }
+
+        private void appendDigits(long value) {
+            if (value >= 10) {
+                appendDigits(value / 10);
+            }
+            buffer.put((byte) ('0' + value % 10));
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Flush and close the current file, keeping the buffer for the next one.
+         */
+        private void finish() throws IOException {
+            if (channel != null) {
+                try {
+                    drain();
+                } finally {
+                    channel.close();
+                    channel = null;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+    }
+}
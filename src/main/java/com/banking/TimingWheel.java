@@ -0,0 +1,173 @@
+package com.banking;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for scheduling items at future times.
+ *
+ * Level 0 has 64 slots of one tick each, level 1 has 64 slots of 64 ticks,
+ * and so on. An item goes into the coarsest level whose slot span still
+ * separates it from now, so scheduling is O(1). As time reaches a higher-level
+ * slot its items cascade down to finer levels, and level-0 slots fire. Runs of
+ * empty levels are skipped, so advancing over a long quiet period is cheap.
+ *
+ * Not thread-safe; callers synchronize.
+ *
+ * @param <T> Scheduled item type
+ */
+public class TimingWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 8;
+
+    private final long tickMillis;
+    private final ArrayDeque<Entry<T>>[][] wheels;
+    private final int[] counts;
+    private final List<Entry<T>> overdue;
+    private long currentTick;
+    private int size;
+
+    private static final class Entry<T> {
+        final T item;
+        final long deadlineTick;
+
+        Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    /**
+     * Create an empty wheel.
+     *
+     * @param tickMillis Resolution in milliseconds
+     * @param nowMillis Current time in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.wheels = (ArrayDeque<Entry<T>>[][]) new ArrayDeque<?>[LEVELS][SLOTS];
+        this.counts = new int[LEVELS];
+        this.overdue = new ArrayList<>();
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedule an item. Items due at or before the current time fire on the next advance.
+     *
+     * @param item Item to schedule
+     * @param deadlineMillis When the item is due, in milliseconds
+     */
+    public void schedule(T item, long deadlineMillis) {
+        // Round up so an item never fires before its deadline
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        place(new Entry<>(item, deadlineTick));
+        size++;
+    }
+
+    /**
+     * Move time forward, handing every item that has become due to the consumer.
+     * Items fire tick by tick; items due in the same tick fire in no particular order.
+     *
+     * @param nowMillis Current time in milliseconds
+     * @param due Receives due items
+     */
+    public void advanceTo(long nowMillis, Consumer<T> due) {
+        long targetTick = nowMillis / tickMillis;
+        fire(overdue, due);
+
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            // Jump straight to the next boundary where a non-empty level has work
+            long next = currentTick + 1;
+            for (int level = 0; level < LEVELS - 1 && counts[level] == 0; level++) {
+                long span = 1L << (SLOT_BITS * (level + 1));
+                next = (currentTick / span + 1) * span;
+            }
+            currentTick = Math.min(next, targetTick);
+
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                long span = 1L << (SLOT_BITS * level);
+                if (currentTick % span == 0) {
+                    cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+                }
+            }
+            ArrayDeque<Entry<T>> bucket = wheels[0][(int) (currentTick & (SLOTS - 1))];
+            if (bucket != null && !bucket.isEmpty()) {
+                List<Entry<T>> ready = new ArrayList<>(bucket);
+                bucket.clear();
+                counts[0] -= ready.size();
+                for (Entry<T> entry : ready) {
+                    if (entry.deadlineTick <= currentTick) {
+                        overdue.add(entry);
+                    } else {
+                        place(entry);
+                    }
+                }
+            }
+            // Cascaded items due exactly now land in overdue too
+            fire(overdue, due);
+        }
+    }
+
+    /**
+     * @return Number of scheduled items not yet fired
+     */
+    public int size() {
+        return size;
+    }
+
+    private void fire(List<Entry<T>> ready, Consumer<T> due) {
+        if (ready.isEmpty()) {
+            return;
+        }
+        List<Entry<T>> batch = new ArrayList<>(ready);
+        ready.clear();
+        size -= batch.size();
+        for (Entry<T> entry : batch) {
+            due.accept(entry.item);
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        ArrayDeque<Entry<T>> bucket = wheels[level][slot];
+        if (bucket == null || bucket.isEmpty()) {
+            return;
+        }
+        List<Entry<T>> moving = new ArrayList<>(bucket);
+        bucket.clear();
+        counts[level] -= moving.size();
+        for (Entry<T> entry : moving) {
+            place(entry);
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta <= 0) {
+            overdue.add(entry);
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((entry.deadlineTick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        ArrayDeque<Entry<T>> bucket = wheels[level][slot];
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            wheels[level][slot] = bucket;
+        }
+        bucket.add(entry);
+        counts[level]++;
+    }
+}
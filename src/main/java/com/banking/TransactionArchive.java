@@ -0,0 +1,238 @@
+package com.banking;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for transactions rolled out of an account's hot history.
+ *
+ * Each account has a directory of gzip-compressed JSON Lines segments, one per
+ * compaction, named so that they sort oldest first. Archived history can still
+ * be read or queried on demand.
+ */
+public class TransactionArchive {
+    /** Type of the synthetic entry that carries the archived balance forward. */
+    public static final String OPENING_TYPE = "opening";
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".jsonl.gz";
+
+    private final Path root;
+    private final Gson gson;
+
+    /**
+     * Create an archive rooted at a directory.
+     *
+     * @param root Archive directory (created on first write)
+     */
+    public TransactionArchive(Path root) {
+        this.root = root;
+        this.gson = LedgerJson.create(false);
+    }
+
+    /**
+     * Move an account's old transactions into the archive according to a policy.
+     *
+     * The archived entries are replaced by a single opening-balance entry so that
+     * the hot history still replays to the account balance.
+     *
+     * @param account Account to compact
+     * @param policy Retention policy
+     * @param now Current time
+     * @return Number of transactions archived
+     * @throws IOException if the segment cannot be written
+     */
+    public int compact(Account account, RetentionPolicy policy, LocalDateTime now) throws IOException {
+        synchronized (account) {
+            account.settle();
+            List<Account.Transaction> transactions = account.getTransactions();
+            int cutoff = policy.cutoff(transactions, now);
+            if (cutoff == 0 || (cutoff == 1 && isOpening(transactions.get(0)))) {
+                return 0;
+            }
+
+            // Skip entries already archived by a compaction whose save never happened:
+            // everything up to the last archived entry, found by position
+            Account.Transaction lastArchived = lastArchived(account.getAccountNumber());
+            int first = 0;
+            if (lastArchived != null) {
+                for (int i = cutoff - 1; i >= 0; i--) {
+                    if (sameEntry(transactions.get(i), lastArchived)) {
+                        first = i + 1;
+                        break;
+                    }
+                }
+            }
+            List<Account.Transaction> archived = new ArrayList<>(cutoff - first);
+            for (Account.Transaction transaction : transactions.subList(first, cutoff)) {
+                if (!isOpening(transaction)) {
+                    archived.add(transaction);
+                }
+            }
+            if (!archived.isEmpty()) {
+                writeSegment(account.getAccountNumber(), archived);
+            }
+
+            Account.Transaction last = transactions.get(cutoff - 1);
+            Account.Transaction opening = new Account.Transaction(last.getDate(),
+                "Opening balance carried forward", last.getBalanceAfter(), OPENING_TYPE, last.getBalanceAfter());
+            // The kept entries chain on from the last archived one
+            opening.setHash(last.getHash());
+            List<Account.Transaction> hot = new ArrayList<>(transactions.size() - cutoff + 1);
+            hot.add(opening);
+            hot.addAll(transactions.subList(cutoff, transactions.size()));
+            account.setTransactions(hot);
+            return archived.size();
+        }
+    }
+
+    /**
+     * Read an account's full archived history.
+     *
+     * @param accountNumber Account identifier
+     * @return Archived transactions, oldest first
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Account.Transaction> read(String accountNumber) throws IOException {
+        return query(accountNumber, null);
+    }
+
+    /**
+     * Search an account's archived history. This scans the segments, so it is
+     * meant for occasional lookups rather than the hot path.
+     *
+     * @param accountNumber Account identifier
+     * @param query Search criteria (null for everything)
+     * @return Matching archived transactions, oldest first
+     * @throws IOException if a segment cannot be read
+     */
+    public List<Account.Transaction> query(String accountNumber, TransactionQuery query) throws IOException {
+        List<Account.Transaction> results = new ArrayList<>();
+        String from = query == null || query.getFrom() == null ? null : query.getFrom().toString();
+        String to = query == null || query.getTo() == null ? null : query.getTo().toString();
+        int limit = query == null || query.getLimit() <= 0 ? Integer.MAX_VALUE : query.getLimit();
+
+        for (Path segment : segments(accountNumber)) {
+            try (BufferedReader reader = openSegment(segment)) {
+                String line;
+                while ((line = reader.readLine()) != null && results.size() < limit) {
+                    Account.Transaction transaction = gson.fromJson(line, Account.Transaction.class);
+                    if (query == null || matches(transaction, query, from, to)) {
+                        results.add(transaction);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static boolean matches(Account.Transaction transaction, TransactionQuery query, String from, String to) {
+        String date = transaction.getDate();
+        if (from != null && date.compareTo(from) < 0) {
+            return false;
+        }
+        if (to != null && date.compareTo(to) >= 0) {
+            return false;
+        }
+        if (query.getCounterparty() != null && !query.getCounterparty().equals(transaction.resolveCounterparty())) {
+            return false;
+        }
+        return query.matchesValue(transaction);
+    }
+
+    private static boolean isOpening(Account.Transaction transaction) {
+        return OPENING_TYPE.equals(transaction.getType());
+    }
+
+    private void writeSegment(String accountNumber, List<Account.Transaction> transactions) throws IOException {
+        Path directory = accountDirectory(accountNumber);
+        Files.createDirectories(directory);
+        List<Path> existing = segments(accountNumber);
+        Path segment = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, existing.size() + 1, SEGMENT_SUFFIX));
+        Path temp = directory.resolve(segment.getFileName() + ".tmp");
+
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+            for (Account.Transaction transaction : transactions) {
+                writer.write(gson.toJson(transaction));
+                writer.newLine();
+            }
+        }
+        Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Whether a hot entry is the given archived one: by chain hash when both
+     * have one, otherwise field by field (entries can share a timestamp).
+     */
+    private static boolean sameEntry(Account.Transaction transaction, Account.Transaction archived) {
+        if (transaction.getHash() != null && archived.getHash() != null) {
+            return transaction.getHash().equals(archived.getHash());
+        }
+        return Objects.equals(transaction.getDate(), archived.getDate())
+            && Objects.equals(transaction.getType(), archived.getType())
+            && Objects.equals(transaction.getDescription(), archived.getDescription())
+            && Reconciler.toCents(transaction.getAmount()) == Reconciler.toCents(archived.getAmount())
+            && Reconciler.toCents(transaction.getBalanceAfter()) == Reconciler.toCents(archived.getBalanceAfter());
+    }
+
+    /**
+     * Read the last entry archived for an account.
+     *
+     * @param accountNumber Account identifier
+     * @return The entry, or null if nothing is archived
+     * @throws IOException if the last segment cannot be read
+     */
+    Account.Transaction lastArchived(String accountNumber) throws IOException {
+        List<Path> existing = segments(accountNumber);
+        if (existing.isEmpty()) {
+            return null;
+        }
+        String lastLine = null;
+        try (BufferedReader reader = openSegment(existing.get(existing.size() - 1))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lastLine = line;
+            }
+        }
+        return lastLine == null ? null : gson.fromJson(lastLine, Account.Transaction.class);
+    }
+
+    private List<Path> segments(String accountNumber) throws IOException {
+        Path directory = accountDirectory(accountNumber);
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static BufferedReader openSegment(Path segment) throws IOException {
+        return new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8));
+    }
+
+    private Path accountDirectory(String accountNumber) {
+        // Keep account numbers from escaping the archive directory
+        return root.resolve(accountNumber.replaceAll("[^A-Za-z0-9_-]", "_"));
+    }
+}
@@ -0,0 +1,205 @@
+package com.banking;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory index over one account's transaction list.
+ *
+ * Keeps transaction timestamps as primitive epoch milliseconds, ordered for
+ * binary search, plus positions of transfers per counterparty. The index only
+ * grows: {@link #sync(List)} indexes transactions appended since the last call.
+ * Not thread-safe; callers hold the owning account's lock.
+ */
+final class TransactionIndex {
+    private static final long UNPARSEABLE = Long.MIN_VALUE;
+
+    /** Timestamp of each transaction, by list position. */
+    private long[] timeByPosition = new long[16];
+    /** Timestamps in ascending order. */
+    private long[] sortedTimes = new long[16];
+    /** List position of each entry in sortedTimes. */
+    private int[] sortedPositions = new int[16];
+    private int size;
+    private boolean chronological = true;
+    private final Map<String, IntList> byCounterparty = new HashMap<>();
+
+    /**
+     * Index any transactions appended since the last call.
+     *
+     * @param transactions The account's full transaction list
+     */
+    void sync(List<Account.Transaction> transactions) {
+        int total = transactions.size();
+        if (total > timeByPosition.length) {
+            int capacity = Math.max(total, timeByPosition.length * 2);
+            timeByPosition = Arrays.copyOf(timeByPosition, capacity);
+            sortedTimes = Arrays.copyOf(sortedTimes, capacity);
+            sortedPositions = Arrays.copyOf(sortedPositions, capacity);
+        }
+        for (int position = size; position < total; position++) {
+            Account.Transaction transaction = transactions.get(position);
+            long time = toMillis(transaction.getDate());
+            timeByPosition[position] = time;
+            insertSorted(time, position);
+
+            String counterparty = transaction.resolveCounterparty();
+            if (counterparty != null) {
+                byCounterparty.computeIfAbsent(counterparty, k -> new IntList()).add(position);
+            }
+            size = position + 1;
+        }
+    }
+
+    /**
+     * Find the transactions matching a query.
+     *
+     * @param transactions The account's full transaction list (already synced)
+     * @param query Search criteria
+     * @return Matching transactions in chronological order
+     */
+    List<Account.Transaction> query(List<Account.Transaction> transactions, TransactionQuery query) {
+        long from = query.getFrom() == null ? Long.MIN_VALUE : toMillis(query.getFrom());
+        long to = query.getTo() == null ? Long.MAX_VALUE : toMillis(query.getTo());
+        int limit = query.getLimit() > 0 ? query.getLimit() : Integer.MAX_VALUE;
+        List<Account.Transaction> results = new ArrayList<>();
+
+        if (query.getCounterparty() != null) {
+            IntList positions = byCounterparty.get(query.getCounterparty());
+            if (positions == null) {
+                return results;
+            }
+            if (!chronological) {
+                return queryOutOfOrder(transactions, positions, from, to, limit, query);
+            }
+            // Positions are in list order, which is also time order, so the range can be bisected
+            int lo = lowerBound(positions, from);
+            int hi = lowerBound(positions, to);
+            for (int i = lo; i < hi && results.size() < limit; i++) {
+                Account.Transaction transaction = transactions.get(positions.values[i]);
+                if (query.matchesValue(transaction)) {
+                    results.add(transaction);
+                }
+            }
+            return results;
+        }
+
+        int lo = lowerBound(sortedTimes, size, from);
+        int hi = lowerBound(sortedTimes, size, to);
+        for (int i = lo; i < hi && results.size() < limit; i++) {
+            Account.Transaction transaction = transactions.get(sortedPositions[i]);
+            if (query.matchesValue(transaction)) {
+                results.add(transaction);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Counterparty query once list order and time order have diverged: sort the
+     * matches by time (ties in list order, as in sortedTimes) before the limit.
+     */
+    private List<Account.Transaction> queryOutOfOrder(List<Account.Transaction> transactions, IntList positions,
+            long from, long to, int limit, TransactionQuery query) {
+        List<Integer> matches = new ArrayList<>();
+        for (int i = 0; i < positions.size; i++) {
+            int position = positions.values[i];
+            long time = timeByPosition[position];
+            if (time >= from && time < to && query.matchesValue(transactions.get(position))) {
+                matches.add(position);
+            }
+        }
+        matches.sort((a, b) -> timeByPosition[a] != timeByPosition[b]
+            ? Long.compare(timeByPosition[a], timeByPosition[b]) : Integer.compare(a, b));
+        List<Account.Transaction> results = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && results.size() < limit; i++) {
+            results.add(transactions.get(matches.get(i)));
+        }
+        return results;
+    }
+
+    private void insertSorted(long time, int position) {
+        if (size == 0 || sortedTimes[size - 1] <= time) {
+            sortedTimes[size] = time;
+            sortedPositions[size] = position;
+            return;
+        }
+        // Out-of-order timestamp (e.g. clock change): shift the tail to keep the order
+        chronological = false;
+        int at = lowerBound(sortedTimes, size, time + 1);
+        System.arraycopy(sortedTimes, at, sortedTimes, at + 1, size - at);
+        System.arraycopy(sortedPositions, at, sortedPositions, at + 1, size - at);
+        sortedTimes[at] = time;
+        sortedPositions[at] = position;
+    }
+
+    /**
+     * First index in values[0, length) whose value is at least key.
+     */
+    private static int lowerBound(long[] values, int length, long key) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * First index in a position list whose transaction time is at least key.
+     */
+    private int lowerBound(IntList positions, long key) {
+        int lo = 0;
+        int hi = positions.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timeByPosition[positions.values[mid]] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static long toMillis(String isoDate) {
+        if (isoDate == null) {
+            return UNPARSEABLE;
+        }
+        try {
+            return toMillis(LocalDateTime.parse(isoDate));
+        } catch (DateTimeParseException e) {
+            return UNPARSEABLE;
+        }
+    }
+
+    private static long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * Growable list of primitive ints.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
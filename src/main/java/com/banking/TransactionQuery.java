@@ -0,0 +1,150 @@
+package com.banking;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Criteria for searching an account's transaction history.
+ *
+ * Every criterion is optional; unset criteria match everything. Build one with
+ * the fluent setters, for example:
+ * <pre>
+ * new TransactionQuery().between(LocalDate.of(2026, 3, 1), LocalDate.of(2026, 4, 1)).counterparty("ACC002")
+ * </pre>
+ */
+public class TransactionQuery {
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private String type;
+    private Double minAmount;
+    private Double maxAmount;
+    private String counterparty;
+    private int limit;
+
+    /**
+     * Only match transactions at or after this time.
+     *
+     * @param from Inclusive lower bound
+     * @return This query
+     */
+    public TransactionQuery from(LocalDateTime from) {
+        this.from = from;
+        return this;
+    }
+
+    /**
+     * Only match transactions before this time.
+     *
+     * @param to Exclusive upper bound
+     * @return This query
+     */
+    public TransactionQuery to(LocalDateTime to) {
+        this.to = to;
+        return this;
+    }
+
+    /**
+     * Only match transactions on days in [fromDay, toDay).
+     *
+     * @param fromDay First day included
+     * @param toDay First day excluded
+     * @return This query
+     */
+    public TransactionQuery between(LocalDate fromDay, LocalDate toDay) {
+        this.from = fromDay.atStartOfDay();
+        this.to = toDay.atStartOfDay();
+        return this;
+    }
+
+    /**
+     * Only match transactions of this type.
+     *
+     * @param type "credit" or "debit"
+     * @return This query
+     */
+    public TransactionQuery type(String type) {
+        this.type = type;
+        return this;
+    }
+
+    /**
+     * Only match transactions of at least this amount.
+     *
+     * @param minAmount Inclusive minimum amount
+     * @return This query
+     */
+    public TransactionQuery minAmount(double minAmount) {
+        this.minAmount = minAmount;
+        return this;
+    }
+
+    /**
+     * Only match transactions of at most this amount.
+     *
+     * @param maxAmount Inclusive maximum amount
+     * @return This query
+     */
+    public TransactionQuery maxAmount(double maxAmount) {
+        this.maxAmount = maxAmount;
+        return this;
+    }
+
+    /**
+     * Only match transfers to or from this account.
+     *
+     * @param counterparty Other account number
+     * @return This query
+     */
+    public TransactionQuery counterparty(String counterparty) {
+        this.counterparty = counterparty;
+        return this;
+    }
+
+    /**
+     * Return at most this many transactions (the oldest matches first).
+     *
+     * @param limit Maximum results (0 for no limit)
+     * @return This query
+     */
+    public TransactionQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    // Getters
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getCounterparty() {
+        return counterparty;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Check the non-indexed criteria (type and amount) against a transaction.
+     *
+     * @param transaction Transaction to test
+     * @return true if it matches
+     */
+    boolean matchesValue(Account.Transaction transaction) {
+        if (type != null && !type.equals(transaction.getType())) {
+            return false;
+        }
+        if (minAmount != null && transaction.getAmount() < minAmount) {
+            return false;
+        }
+        return maxAmount == null || transaction.getAmount() <= maxAmount;
+    }
+}
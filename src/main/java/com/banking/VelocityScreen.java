@@ -0,0 +1,297 @@
+package com.banking;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Fraud and velocity screening for outgoing transfers.
+ *
+ * Each rule keeps, per source account, a sliding window made of a small ring
+ * of time buckets in an AtomicLongArray. Recording a transfer is a handful of
+ * atomic adds with no locks, and checking a rule sums the live buckets, so the
+ * screen can run inline on every transfer.
+ *
+ * Windows slide one bucket at a time (a sixteenth of the window). Updates
+ * racing with a bucket rolling over may be lost. The screen itself does not
+ * serialize a check with the record that follows it; Bank does both while
+ * holding the source account's lock, so transfers from one account cannot
+ * each pass the check before either is recorded.
+ *
+ * Each rule tracks a bounded number of accounts. When it is full, windows
+ * with nothing left in them are dropped; a live window is never dropped, as
+ * that would reset its account's limit. If the rule is still full, it fails
+ * closed: transfers from accounts it has no window for are blocked until
+ * windows expire. Size the screen to the accounts that transfer within a window.
+ */
+public class VelocityScreen {
+    public static final int DEFAULT_MAX_ACCOUNTS = 100_000;
+
+    private static final int BUCKETS = 16;
+
+    private final List<Rule> rules;
+    private final int maxAccounts;
+    private final LongSupplier clock;
+
+    /**
+     * Create a screen with no rules, timed by the system clock.
+     */
+    public VelocityScreen() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * Create a screen with no rules.
+     *
+     * @param clock Current time in milliseconds
+     */
+    public VelocityScreen(LongSupplier clock) {
+        this(DEFAULT_MAX_ACCOUNTS, clock);
+    }
+
+    /**
+     * Create a screen with no rules.
+     *
+     * @param maxAccounts Maximum number of accounts each rule tracks
+     * @param clock Current time in milliseconds
+     */
+    public VelocityScreen(int maxAccounts, LongSupplier clock) {
+        if (maxAccounts <= 0) {
+            throw new IllegalArgumentException("Invalid velocity screen size");
+        }
+        this.rules = new CopyOnWriteArrayList<>();
+        this.maxAccounts = maxAccounts;
+        this.clock = clock;
+    }
+
+    /**
+     * Add a rule.
+     *
+     * @param rule Rule to enforce
+     * @return This screen for chaining
+     */
+    public VelocityScreen addRule(Rule rule) {
+        rules.add(rule);
+        return this;
+    }
+
+    /**
+     * Check whether a transfer may go ahead.
+     *
+     * @param accountNumber Source account
+     * @param amount Transfer amount
+     * @return null if allowed, otherwise the reason for blocking it
+     */
+    public String check(String accountNumber, double amount) {
+        long now = clock.getAsLong();
+        long cents = Reconciler.toCents(amount);
+        for (Rule rule : rules) {
+            String reason = rule.check(accountNumber, cents, now, maxAccounts);
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Record a completed transfer.
+     *
+     * @param accountNumber Source account
+     * @param amount Transfer amount
+     */
+    public void recordTransfer(String accountNumber, double amount) {
+        long now = clock.getAsLong();
+        long cents = Reconciler.toCents(amount);
+        for (Rule rule : rules) {
+            if (rule.kind != Kind.FAILED_AUTHENTICATIONS) {
+                SlidingWindow window = rule.window(accountNumber, now, maxAccounts);
+                if (window != null) {
+                    window.add(now, cents);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a failed password check.
+     *
+     * @param accountNumber Account whose password was wrong
+     */
+    public void recordFailedAuthentication(String accountNumber) {
+        long now = clock.getAsLong();
+        for (Rule rule : rules) {
+            if (rule.kind == Kind.FAILED_AUTHENTICATIONS) {
+                SlidingWindow window = rule.window(accountNumber, now, maxAccounts);
+                if (window != null) {
+                    window.add(now, 0);
+                }
+            }
+        }
+    }
+
+    private enum Kind {
+        TRANSFER_COUNT, TRANSFER_TOTAL, FAILED_AUTHENTICATIONS
+    }
+
+    /**
+     * A velocity limit over a sliding window, tracked per account.
+     */
+    public static class Rule {
+        private final Kind kind;
+        private final long limit;
+        private final long bucketMillis;
+        private final String description;
+        private final ConcurrentHashMap<String, SlidingWindow> windows;
+        /** Bucket epoch of the last sweep for empty windows, so a full rule sweeps once per bucket. */
+        private volatile long sweptEpoch = -1;
+
+        private Rule(Kind kind, long limit, Duration window, String description) {
+            if (limit < 0 || window.toMillis() < BUCKETS) {
+                throw new IllegalArgumentException("Invalid velocity rule: " + description);
+            }
+            this.kind = kind;
+            this.limit = limit;
+            this.bucketMillis = window.toMillis() / BUCKETS;
+            this.description = description;
+            this.windows = new ConcurrentHashMap<>();
+        }
+
+        /**
+         * Allow at most a number of transfers from an account per window.
+         *
+         * @param transfers Maximum transfers
+         * @param window Window length
+         * @return Rule
+         */
+        public static Rule maxTransfers(int transfers, Duration window) {
+            return new Rule(Kind.TRANSFER_COUNT, transfers, window,
+                "more than " + transfers + " transfers in " + window);
+        }
+
+        /**
+         * Allow at most a total amount to leave an account per window.
+         *
+         * @param total Maximum total amount
+         * @param window Window length
+         * @return Rule
+         */
+        public static Rule maxTotal(double total, Duration window) {
+            return new Rule(Kind.TRANSFER_TOTAL, Reconciler.toCents(total), window,
+                String.format("more than %.2f transferred in %s", total, window));
+        }
+
+        /**
+         * Block transfers from an account after repeated failed authentications.
+         *
+         * @param failures Number of failures that blocks transfers
+         * @param window Window length
+         * @return Rule
+         */
+        public static Rule maxFailedAuthentications(int failures, Duration window) {
+            return new Rule(Kind.FAILED_AUTHENTICATIONS, failures - 1L, window,
+                failures + " failed authentications in " + window);
+        }
+
+        private String check(String accountNumber, long cents, long now, int maxAccounts) {
+            SlidingWindow window = windows.get(accountNumber);
+            if (window == null && !admits(now, maxAccounts)) {
+                return "Velocity screen full: " + description;
+            }
+            long used = window == null ? 0 : window.sum(now, kind == Kind.TRANSFER_TOTAL ? 2 : 1);
+            long requested = switch (kind) {
+                case TRANSFER_COUNT -> 1;
+                case TRANSFER_TOTAL -> cents;
+                case FAILED_AUTHENTICATIONS -> 0;
+            };
+            return used + requested > limit ? "Velocity limit: " + description : null;
+        }
+
+        private SlidingWindow window(String accountNumber, long now, int maxAccounts) {
+            SlidingWindow window = windows.get(accountNumber);
+            if (window != null) {
+                return window;
+            }
+            if (!admits(now, maxAccounts)) {
+                return null;
+            }
+            return windows.computeIfAbsent(accountNumber, k -> new SlidingWindow(bucketMillis));
+        }
+
+        /**
+         * Check for room for a new window, dropping windows that have slid past all their events if full.
+         */
+        private boolean admits(long now, int maxAccounts) {
+            if (windows.size() < maxAccounts) {
+                return true;
+            }
+            long epoch = now / bucketMillis;
+            if (epoch != sweptEpoch) {
+                sweptEpoch = epoch;
+                windows.values().removeIf(window -> window.isEmpty(now));
+            }
+            return windows.size() < maxAccounts;
+        }
+
+        int size() {
+            return windows.size();
+        }
+    }
+
+    /**
+     * Ring of time buckets; each bucket holds its epoch, an event count and an amount in cents.
+     */
+    static final class SlidingWindow {
+        private final long bucketMillis;
+        private final AtomicLongArray cells = new AtomicLongArray(BUCKETS * 3);
+
+        SlidingWindow(long bucketMillis) {
+            this.bucketMillis = bucketMillis;
+        }
+
+        void add(long now, long cents) {
+            long epoch = now / bucketMillis;
+            int cell = (int) (epoch % BUCKETS) * 3;
+            long seen = cells.get(cell);
+            if (seen < epoch && cells.compareAndSet(cell, seen, epoch)) {
+                // This thread claimed the stale bucket for the current epoch
+                cells.set(cell + 1, 0);
+                cells.set(cell + 2, 0);
+            }
+            cells.incrementAndGet(cell + 1);
+            if (cents != 0) {
+                cells.addAndGet(cell + 2, cents);
+            }
+        }
+
+        /**
+         * @return true if no bucket is still inside the window
+         */
+        boolean isEmpty(long now) {
+            long oldest = now / bucketMillis - BUCKETS + 1;
+            for (int cell = 0; cell < BUCKETS * 3; cell += 3) {
+                if (cells.get(cell) >= oldest) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Sum one field (1 = count, 2 = cents) over the buckets still inside the window.
+         */
+        long sum(long now, int field) {
+            long oldest = now / bucketMillis - BUCKETS + 1;
+            long total = 0;
+            for (int cell = 0; cell < BUCKETS * 3; cell += 3) {
+                if (cells.get(cell) >= oldest) {
+                    total += cells.get(cell + field);
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,563 @@
+package com.banking;
+
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic load for soak-testing a {@link Bank}.
+ *
+ * Creates a bank of N accounts, then drives a weighted mix of operations
+ * from many threads for a fixed time. Accounts are picked from a Zipfian
+ * distribution, so a few hot accounts take most of the traffic as in
+ * production. While it runs it prints throughput, heap, GC and the size of
+ * the persisted files at a fixed interval; at the end it prints per-operation
+ * counts and latency percentiles.
+ *
+ * Runs fully offline. From Maven: {@code mvn -Psoak verify -DskipTests}
+ * (pass options with {@code -Dsoak.args="--accounts=10000 --duration=300"}).
+ */
+public class WorkloadGenerator {
+    /**
+     * Operations in the mix.
+     */
+    public enum Operation {
+        AUTHENTICATE, DEPOSIT, WITHDRAW, TRANSFER, HISTORY
+    }
+
+    /**
+     * Workload settings, parsed from {@code --name=value} arguments.
+     */
+    public static class Config {
+        /** Number of accounts created. */
+        public int accounts = 1_000;
+        /** Worker threads. */
+        public int threads = Runtime.getRuntime().availableProcessors();
+        /** How long the load runs. */
+        public Duration duration = Duration.ofSeconds(60);
+        /** Zipf exponent: 0 is uniform, around 1 is heavily skewed. */
+        public double skew = 0.99;
+        /** Relative weight of each operation, in {@link Operation} order. */
+        public int[] mix = {20, 25, 20, 25, 10};
+        /** Persistence: "json", "events" (event log) or "h2" (JDBC store). */
+        public String store = "json";
+        /** Directory for the bank's files (a fresh temporary one if null). */
+        public Path directory;
+        /** Time between progress lines. */
+        public Duration reportInterval = Duration.ofSeconds(5);
+        /** Seed of the per-thread random streams. */
+        public long seed = 42;
+
+        /**
+         * Parse options such as {@code --accounts=5000 --mix=10,40,20,20,10}.
+         *
+         * @param args Command-line arguments
+         * @return Settings, defaults for anything not given
+         * @throws IllegalArgumentException on an unknown or malformed option
+         */
+        public static Config parse(String[] args) {
+            Config config = new Config();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value: " + arg);
+                }
+                String value = arg.substring(eq + 1);
+                switch (arg.substring(2, eq)) {
+                    case "accounts" -> config.accounts = Integer.parseInt(value);
+                    case "threads" -> config.threads = Integer.parseInt(value);
+                    case "duration" -> config.duration = Duration.ofSeconds(Long.parseLong(value));
+                    case "skew" -> config.skew = Double.parseDouble(value);
+                    case "mix" -> config.mix = parseMix(value);
+                    case "store" -> config.store = value;
+                    case "dir" -> config.directory = Paths.get(value);
+                    case "report" -> config.reportInterval = Duration.ofSeconds(Long.parseLong(value));
+                    case "seed" -> config.seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (config.accounts < 2 || config.threads < 1) {
+                throw new IllegalArgumentException("Need at least 2 accounts and 1 thread");
+            }
+            return config;
+        }
+
+        private static int[] parseMix(String value) {
+            String[] parts = value.split(",");
+            if (parts.length != Operation.values().length) {
+                throw new IllegalArgumentException("Mix needs one weight per operation: " + value);
+            }
+            int[] mix = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                mix[i] = Integer.parseInt(parts[i].trim());
+            }
+            return mix;
+        }
+    }
+
+    /**
+     * Outcome of a run.
+     */
+    public static class Report {
+        private final Map<Operation, LatencyHistogram> latencies;
+        private final Map<Operation, Long> rejected;
+        private final long elapsedNanos;
+        private final long fileBytes;
+
+        Report(Map<Operation, LatencyHistogram> latencies, Map<Operation, Long> rejected, long elapsedNanos,
+               long fileBytes) {
+            this.latencies = latencies;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+            this.fileBytes = fileBytes;
+        }
+
+        /**
+         * @return Operations completed, successful or not
+         */
+        public long getTotal() {
+            long total = 0;
+            for (LatencyHistogram histogram : latencies.values()) {
+                total += histogram.count();
+            }
+            return total;
+        }
+
+        /**
+         * @param operation Operation type
+         * @return Completed operations of that type
+         */
+        public long getCount(Operation operation) {
+            return latencies.get(operation).count();
+        }
+
+        /**
+         * @param operation Operation type
+         * @return Operations the bank refused, e.g. for lack of funds
+         */
+        public long getRejected(Operation operation) {
+            return rejected.get(operation);
+        }
+
+        /**
+         * @return Operations per second over the whole run
+         */
+        public double getThroughput() {
+            return getTotal() / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * @return Size of the bank's files at the end
+         */
+        public long getFileBytes() {
+            return fileBytes;
+        }
+
+        /**
+         * @param operation Operation type
+         * @param percentile Percentile between 0 and 100
+         * @return Latency in nanoseconds (upper bound of its histogram bucket)
+         */
+        public long getLatency(Operation operation, double percentile) {
+            return latencies.get(operation).percentile(percentile);
+        }
+
+        /**
+         * Print the summary table.
+         *
+         * @param out Destination
+         */
+        public void print(PrintStream out) {
+            out.printf("%nTotal %d operations in %.1f s: %.0f ops/s, files %.1f MB%n", getTotal(),
+                elapsedNanos / 1e9, getThroughput(), fileBytes / 1e6);
+            out.printf("%-13s %10s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "rejected",
+                "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+            for (Operation operation : Operation.values()) {
+                LatencyHistogram histogram = latencies.get(operation);
+                out.printf("%-13s %10d %9d %9.1f %9.1f %9.1f %9.1f %9.1f%n", operation, histogram.count(),
+                    rejected.get(operation), histogram.percentile(50) / 1e3, histogram.percentile(90) / 1e3,
+                    histogram.percentile(99) / 1e3, histogram.percentile(99.9) / 1e3, histogram.max() / 1e3);
+            }
+        }
+    }
+
+    /**
+     * Samples ranks 0..n-1 with probability proportional to 1/(rank+1)^skew.
+     */
+    static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double skew) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += 1.0 / Math.pow(i + 1, skew);
+                cumulative[i] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next(SplittableRandom random) {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Log-linear latency histogram: 16 buckets per power of two, so any
+     * recorded value is reported within about 6%. Not thread-safe; each
+     * worker keeps its own and they are merged at the end.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        private long count;
+        private long max;
+
+        void record(long nanos) {
+            counts[bucket(Math.max(nanos, 0))]++;
+            count++;
+            max = Math.max(max, nanos);
+        }
+
+        void add(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+
+        long count() {
+            return count;
+        }
+
+        long max() {
+            return max;
+        }
+
+        long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && counts[i] > 0) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (magnitude - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (magnitude - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int magnitude = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            long sub = bucket % SUB_BUCKETS;
+            long width = 1L << (magnitude - SUB_BITS);
+            return (1L << magnitude) + (sub + 1) * width - 1;
+        }
+    }
+
+    private final Config config;
+    private final PrintStream out;
+
+    /**
+     * Create a generator.
+     *
+     * @param config Workload settings
+     * @param out Receives progress lines and the summary
+     */
+    public WorkloadGenerator(Config config, PrintStream out) {
+        this.config = config;
+        this.out = out;
+    }
+
+    /**
+     * Build the bank, run the load and report.
+     *
+     * @return Results of the run
+     * @throws IOException if the bank's files cannot be created
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public Report run() throws IOException, InterruptedException {
+        Path directory = config.directory != null
+            ? Files.createDirectories(config.directory)
+            : Files.createTempDirectory("workload");
+        String dataFile = directory.resolve("bank_data.json").toString();
+        out.printf("Creating %d accounts (%s store) in %s%n", config.accounts, config.store, directory);
+        writeAccounts(Paths.get(dataFile));
+
+        EventLog events = null;
+        JdbcAccountStore store = null;
+        Bank bank;
+        switch (config.store) {
+            case "json" -> bank = new Bank(dataFile);
+            case "events" -> {
+                events = new EventLog(directory.resolve("bank_events.jsonl"));
+                bank = new Bank(dataFile, events);
+            }
+            case "h2" -> {
+                store = JdbcAccountStore.open(directory.resolve("accounts"));
+                bank = new Bank(dataFile, store);
+            }
+            default -> throw new IllegalArgumentException("Unknown store: " + config.store);
+        }
+
+        try {
+            return drive(bank, directory);
+        } finally {
+            if (events != null) {
+                events.close();
+            }
+            if (store != null) {
+                store.close();
+            }
+        }
+    }
+
+    /**
+     * Write the starting accounts straight into a data file, as creating them
+     * one by one through the bank would save the whole file each time.
+     */
+    private void writeAccounts(Path dataFile) throws IOException {
+        Gson gson = LedgerJson.create(false);
+        LedgerFile.write(dataFile, writer -> {
+            writer.write('[');
+            for (int i = 0; i < config.accounts; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                gson.toJson(new Account(accountNumber(i), "Holder " + i, password(i), 1000.0), Account.class,
+                    writer);
+            }
+            writer.write(']');
+            return config.accounts;
+        });
+    }
+
+    private Report drive(Bank bank, Path directory) throws InterruptedException {
+        Zipf zipf = new Zipf(config.accounts, config.skew);
+        int totalWeight = 0;
+        for (int weight : config.mix) {
+            totalWeight += weight;
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Mix weights must add up to more than zero");
+        }
+        int weights = totalWeight;
+
+        LongAdder completed = new LongAdder();
+        List<Map<Operation, LatencyHistogram>> perThread = new ArrayList<>();
+        List<Map<Operation, long[]>> rejectedPerThread = new ArrayList<>();
+        Thread[] workers = new Thread[config.threads];
+        long start = System.nanoTime();
+        long deadline = start + config.duration.toNanos();
+        for (int t = 0; t < config.threads; t++) {
+            Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+            Map<Operation, long[]> rejected = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new LatencyHistogram());
+                rejected.put(operation, new long[1]);
+            }
+            perThread.add(latencies);
+            rejectedPerThread.add(rejected);
+            SplittableRandom random = new SplittableRandom(config.seed + t);
+            workers[t] = new Thread(() -> {
+                while (System.nanoTime() < deadline) {
+                    Operation operation = pick(random.nextInt(weights));
+                    int account = zipf.next(random);
+                    long began = System.nanoTime();
+                    boolean ok = execute(bank, operation, account, zipf, random);
+                    latencies.get(operation).record(System.nanoTime() - began);
+                    if (!ok) {
+                        rejected.get(operation)[0]++;
+                    }
+                    completed.increment();
+                }
+            }, "workload-" + t);
+            workers[t].start();
+        }
+
+        monitor(workers, completed, directory, start);
+
+        Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+        Map<Operation, Long> rejected = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram merged = new LatencyHistogram();
+            long refused = 0;
+            for (int t = 0; t < config.threads; t++) {
+                merged.add(perThread.get(t).get(operation));
+                refused += rejectedPerThread.get(t).get(operation)[0];
+            }
+            latencies.put(operation, merged);
+            rejected.put(operation, refused);
+        }
+        Report report = new Report(latencies, rejected, System.nanoTime() - start, directorySize(directory));
+        report.print(out);
+        return report;
+    }
+
+    /**
+     * Print a progress line every report interval until the workers finish.
+     */
+    private void monitor(Thread[] workers, LongAdder completed, Path directory, long start)
+            throws InterruptedException {
+        long interval = Math.max(1, config.reportInterval.toMillis());
+        long lastCount = 0;
+        long lastTime = start;
+        out.printf("%8s %12s %10s %10s %8s %10s %10s%n", "time s", "operations", "ops/s", "heap MB", "gc",
+            "gc ms", "files MB");
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                worker.join(interval);
+                long now = System.nanoTime();
+                if (now - lastTime >= interval * 1_000_000 || !worker.isAlive()) {
+                    long count = completed.sum();
+                    long gcCount = 0;
+                    long gcMillis = 0;
+                    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                        gcCount += Math.max(0, gc.getCollectionCount());
+                        gcMillis += Math.max(0, gc.getCollectionTime());
+                    }
+                    long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+                    out.printf("%8.1f %12d %10.0f %10.1f %8d %10d %10.1f%n", (now - start) / 1e9, count,
+                        (count - lastCount) / ((now - lastTime) / 1e9), heap / 1e6, gcCount, gcMillis,
+                        directorySize(directory) / 1e6);
+                    lastCount = count;
+                    lastTime = now;
+                }
+            }
+        }
+    }
+
+    private Operation pick(int ticket) {
+        Operation[] operations = Operation.values();
+        for (int i = 0; i < operations.length; i++) {
+            ticket -= config.mix[i];
+            if (ticket < 0) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    /**
+     * @return false if the bank refused the operation
+     */
+    private static boolean execute(Bank bank, Operation operation, int account, Zipf zipf,
+                                   SplittableRandom random) {
+        String number = accountNumber(account);
+        switch (operation) {
+            case AUTHENTICATE:
+                return bank.authenticate(number, password(account)) != null;
+            case DEPOSIT:
+                return bank.deposit(number, amount(random, 500), "Workload deposit", null).isSuccess();
+            case WITHDRAW:
+                return bank.withdraw(number, amount(random, 100), "Workload withdrawal", password(account), null)
+                    .isSuccess();
+            case TRANSFER:
+                int other = zipf.next(random);
+                if (other == account) {
+                    other = (account + 1) % zipf.cumulative.length;
+                }
+                return bank.transfer(number, accountNumber(other), amount(random, 200), password(account))
+                    .isSuccess();
+            case HISTORY:
+                Account found = bank.getAccount(number);
+                return found != null && !found.getTransactionHistory(20).isEmpty();
+            default:
+                throw new IllegalStateException("Unknown operation " + operation);
+        }
+    }
+
+    /**
+     * @return Whole-cent amount between 1 and max
+     */
+    private static double amount(SplittableRandom random, int max) {
+        return (100 + random.nextInt((max - 1) * 100 + 1)) / 100.0;
+    }
+
+    private static String accountNumber(int index) {
+        return String.format("ACC%07d", index);
+    }
+
+    private static String password(int index) {
+        return "password" + index;
+    }
+
+    private static long directorySize(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> {
+                try {
+                    return Files.size(file);
+                } catch (IOException e) {
+                    // Deleted while walking, e.g. a temporary file renamed into place
+                    return 0;
+                }
+            }).sum();
+        } catch (IOException | UncheckedIOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Run a soak test.
+     *
+     * @param args Options: --accounts, --threads, --duration (seconds), --skew,
+     *             --mix (weights of authenticate,deposit,withdraw,transfer,history),
+     *             --store (json, events or h2), --dir, --report (seconds), --seed
+     */
+    public static void main(String[] args) {
+        try {
+            new WorkloadGenerator(Config.parse(args), System.out).run();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("Workload failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
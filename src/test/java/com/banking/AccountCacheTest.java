@@ -0,0 +1,163 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the AccountCache class, the account stores and Bank's store mode.
+ */
+public class AccountCacheTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEvictionWritesBackDirtyAccounts() throws Exception {
+        AccountStore store = new JsonFileAccountStore(tempDir.resolve("accounts"));
+        AccountCache cache = new AccountCache(store, 2, null);
+        for (int i = 1; i <= 3; i++) {
+            Account account = new Account("ACC00" + i, "Holder " + i, "password123", 100.0 * i);
+            assertNull(cache.putIfAbsent(account.getAccountNumber(), account));
+        }
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.isResident("ACC001"));
+        assertTrue(store.contains("ACC001"));
+        assertTrue(cache.containsKey("ACC001"));
+
+        long misses = cache.getMisses();
+        Account reloaded = cache.get("ACC001");
+        assertEquals(100.0, reloaded.getBalance(), 0.01);
+        assertEquals(misses + 1, cache.getMisses());
+        assertFalse(cache.isResident("ACC002"));
+    }
+
+    @Test
+    public void testChangeAfterEvictionReadmits() throws Exception {
+        AccountStore store = new JsonFileAccountStore(tempDir.resolve("accounts"));
+        AccountCache cache = new AccountCache(store, 1, null);
+        Account first = new Account("ACC001", "John Doe", "password123", 100.0);
+        cache.putIfAbsent("ACC001", first);
+        cache.putIfAbsent("ACC002", new Account("ACC002", "Jane Smith", "password456", 50.0));
+        assertFalse(cache.isResident("ACC001"));
+
+        first.deposit(25.0, "Deposit");
+        cache.markDirty(first);
+        assertSame(first, cache.get("ACC001"));
+
+        cache.flush();
+        assertEquals(0, cache.dirtyCount());
+        assertEquals(125.0, store.load("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testEvictedAccountStillHeldIsNotLoadedTwice() throws Exception {
+        AccountStore store = new JsonFileAccountStore(tempDir.resolve("accounts"));
+        AccountCache cache = new AccountCache(store, 1, null);
+        cache.putIfAbsent("ACC001", new Account("ACC001", "John Doe", "password123", 100.0));
+        cache.putIfAbsent("ACC002", new Account("ACC002", "Jane Smith", "password456", 50.0));
+        cache.flush();
+
+        // A clean account is dropped at eviction while an operation still holds it
+        Account held = cache.get("ACC001");
+        cache.get("ACC002");
+        assertFalse(cache.isResident("ACC001"));
+        assertSame(held, cache.get("ACC001"));
+
+        // The same goes for a dirty one once it has been written back
+        held.deposit(25.0, "Deposit");
+        cache.markDirty(held);
+        cache.get("ACC002");
+        assertFalse(cache.isResident("ACC001"));
+        assertSame(held, cache.get("ACC001"));
+        assertEquals(125.0, store.load("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testStoreModeTransfersSeeOneInstance() throws Exception {
+        AccountStore store = new JsonFileAccountStore(tempDir.resolve("accounts"));
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString(), store, 1);
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+        bank.createAccount("ACC003", "Anna Weber", "password789", 0.0);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            String destination = t % 2 == 0 ? "ACC002" : "ACC003";
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    assertTrue(bank.transfer("ACC001", destination, 1.0, "password123").isSuccess());
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        bank.saveData();
+
+        assertEquals(800.0, bank.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(800.0, store.load("ACC001").getBalance(), 0.01);
+        assertEquals(100.0, store.load("ACC002").getBalance(), 0.01);
+        assertEquals(100.0, store.load("ACC003").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testJsonFileStoreEscapesAccountNumbers() throws Exception {
+        AccountStore store = new JsonFileAccountStore(tempDir.resolve("accounts"));
+        Account account = new Account("../ACC 1", "John Doe", "password123", 10.0);
+        store.save(account);
+        account.deposit(5.0, "Deposit");
+        store.appendTransaction("../ACC 1", account.getTransactions().get(1));
+
+        Account loaded = store.load("../ACC 1");
+        assertEquals(15.0, loaded.getBalance(), 0.01);
+        assertEquals(2, loaded.getTransactions().size());
+        assertNull(store.load("ACC 1"));
+
+        List<Account> scanned = new ArrayList<>();
+        store.scan(scanned::add);
+        assertEquals(1, scanned.size());
+    }
+
+    @Test
+    public void testBankOverStoreKeepsOnlyHotAccounts() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        AccountStore store = new JsonFileAccountStore(tempDir.resolve("accounts"));
+        Bank bank = new Bank(dataFile, store, 2);
+        List<String> seen = new ArrayList<>();
+        bank.addLedgerListener(new LedgerListener() {
+            @Override
+            public void onTransaction(Account account, Account.Transaction transaction) {
+                seen.add(account.getAccountNumber() + ":" + transaction.getType());
+            }
+        });
+
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(bank.createAccount("ACC00" + i, "Holder " + i, "password123", 100.0));
+        }
+        assertEquals(2, bank.getAllAccounts().size());
+        assertFalse(bank.createAccount("ACC001", "Someone Else", "password123", 0.0));
+
+        assertTrue(bank.transfer("ACC001", "ACC005", 40.0, "password123").isSuccess());
+        assertEquals(List.of("ACC001:debit", "ACC005:credit"), seen);
+        assertNull(bank.authenticate("ACC003", "wrong"));
+        assertEquals(5, bank.listAccounts().size());
+
+        Bank reopened = new Bank(dataFile, new JsonFileAccountStore(tempDir.resolve("accounts")), 2);
+        assertEquals(60.0, reopened.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(140.0, reopened.getAccount("ACC005").getBalance(), 0.01);
+        double total = 0;
+        for (Map<String, Object> info : reopened.listAccounts()) {
+            total += (Double) info.get("balance");
+        }
+        assertEquals(500.0, total, 0.01);
+    }
+}
@@ -0,0 +1,109 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests for the AccountIndex class.
+ */
+public class AccountIndexTest {
+    @TempDir
+    Path tempDir;
+
+    private static Account account(String number) {
+        return new Account(number, "Holder", "password123", 0.0);
+    }
+
+    @Test
+    public void testEncodingKeepsLeadingZerosDistinct() {
+        AccountIndex index = new AccountIndex("ACC");
+        assertNotEquals(0, index.encode("ACC001"));
+        assertNotEquals(index.encode("ACC1"), index.encode("ACC001"));
+        assertEquals(0, index.encode("ACC"));
+        assertEquals(0, index.encode("ACCX01"));
+        assertEquals(0, index.encode("SAV001"));
+        assertEquals(0, index.encode("ACC123456789012345678"));
+    }
+
+    @Test
+    public void testPutGetRemoveWithGrowth() {
+        AccountIndex index = new AccountIndex("ACC");
+        for (int i = 0; i < 10_000; i++) {
+            assertNull(index.put(String.format("ACC%06d", i), account(String.format("ACC%06d", i))));
+        }
+        assertEquals(10_000, index.size());
+        assertEquals(10_000, index.primitiveSize());
+        assertEquals("ACC004321", index.get("ACC004321").getAccountNumber());
+
+        for (int i = 0; i < 10_000; i += 2) {
+            assertNotNull(index.remove(String.format("ACC%06d", i)));
+        }
+        assertEquals(5_000, index.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i % 2 == 1, index.containsKey(String.format("ACC%06d", i)));
+        }
+    }
+
+    @Test
+    public void testReadsDuringGrowth() throws Exception {
+        AccountIndex index = new AccountIndex("ACC");
+        index.put("ACC000000", account("ACC000000"));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    assertNotNull(index.get("ACC000000"));
+                    index.get("ACC999999");
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        for (int i = 1; i < 200_000; i++) {
+            index.put(String.format("ACC%06d", i), account(String.format("ACC%06d", i)));
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testFallbackForNonConformingNumbers() {
+        AccountIndex index = new AccountIndex("ACC");
+        index.put("ACC1", account("ACC1"));
+        index.put("SAV-77", account("SAV-77"));
+
+        assertEquals(2, index.size());
+        assertEquals(1, index.primitiveSize());
+        assertEquals("SAV-77", index.get("SAV-77").getAccountNumber());
+        assertNotNull(index.putIfAbsent("SAV-77", account("SAV-77")));
+
+        Set<String> seen = new HashSet<>();
+        for (Account value : index.values()) {
+            seen.add(value.getAccountNumber());
+        }
+        assertEquals(Set.of("ACC1", "SAV-77"), seen);
+    }
+
+    @Test
+    public void testBankWithIndex() {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile, "ACC");
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Doe", "password456", 500.0);
+        assertTrue(bank.transfer("ACC001", "ACC002", 100.0, "password123").isSuccess());
+
+        Bank reloaded = new Bank(dataFile, "ACC");
+        assertEquals(900.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(2, reloaded.listAccounts().size());
+    }
+}
@@ -4,6 +4,8 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -108,4 +110,52 @@ public class AccountTest {
         assertEquals(2, history.size());
         assertEquals("Deposit 3", history.get(1).getDescription());
     }
+
+    @Test
+    public void testQueryByDateRangeTypeAndAmount() {
+        List<Account.Transaction> history = new ArrayList<>();
+        history.add(new Account.Transaction("2026-02-27T09:00:00", "Salary", 2000.0, "credit", 2000.0));
+        history.add(new Account.Transaction("2026-03-01T00:00:00", "Rent", 800.0, "debit", 1200.0));
+        history.add(new Account.Transaction("2026-03-15T12:30:00", "Groceries", 60.0, "debit", 1140.0));
+        history.add(new Account.Transaction("2026-03-31T23:59:59", "Refund", 20.0, "credit", 1160.0));
+        history.add(new Account.Transaction("2026-04-01T00:00:00", "Rent", 800.0, "debit", 360.0));
+        account.setTransactions(history);
+
+        TransactionQuery march = new TransactionQuery().between(LocalDate.of(2026, 3, 1), LocalDate.of(2026, 4, 1));
+        List<Account.Transaction> result = account.queryTransactions(march);
+        assertEquals(3, result.size());
+        assertEquals("Rent", result.get(0).getDescription());
+        assertEquals("Refund", result.get(2).getDescription());
+
+        assertEquals(2, account.queryTransactions(march.type("debit")).size());
+        assertEquals(1, account.queryTransactions(march.minAmount(100.0)).size());
+        assertEquals(1, account.queryTransactions(new TransactionQuery().limit(1)).size());
+    }
+
+    @Test
+    public void testQueryIndexesNewTransactions() {
+        TransactionQuery credits = new TransactionQuery().type("credit");
+        assertEquals(1, account.queryTransactions(credits).size());
+
+        account.deposit(50.0, "Deposit 1");
+        account.deposit(60.0, "Deposit 2");
+        assertEquals(3, account.queryTransactions(credits).size());
+    }
+
+    @Test
+    public void testQueryByCounterparty() {
+        account.withdraw(100.0, "Transfer to ACC002", "ACC002");
+        account.deposit(40.0, "Transfer from ACC003", "ACC003");
+        account.withdraw(10.0, "Transfer to ACC002", "ACC002");
+        account.getTransactions().add(new Account.Transaction("2026-01-01T00:00:00", "Transfer from ACC002", 5.0, "credit", 935.0));
+
+        List<Account.Transaction> result = account.queryTransactions(new TransactionQuery().counterparty("ACC002"));
+        assertEquals(3, result.size());
+        // The back-dated entry sorts first even though it was appended last
+        assertEquals("Transfer from ACC002", result.get(0).getDescription());
+        assertEquals(100.0, result.get(1).getAmount(), 0.01);
+        List<Account.Transaction> first = account.queryTransactions(new TransactionQuery().counterparty("ACC002").limit(1));
+        assertEquals("Transfer from ACC002", first.get(0).getDescription());
+        assertEquals(0, account.queryTransactions(new TransactionQuery().counterparty("ACC999")).size());
+    }
 }
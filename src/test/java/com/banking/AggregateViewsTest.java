@@ -0,0 +1,130 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the AggregateViews class.
+ */
+public class AggregateViewsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testBankKeepsViewsUpToDate() {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 500.0);
+        AggregateViews views = bank.getAggregateViews();
+        assertSame(views, bank.getAggregateViews());
+        assertEquals(1500.0, views.getTotal("GBP"), 0.001);
+
+        bank.createAccount("ACC003", "John Doe", "password789", 250.0);
+        bank.createAccount("ACC004", "Anna Weber", "password000", 80.0, "EUR");
+        bank.deposit("ACC002", 600.0, "Salary", null);
+        bank.withdraw("ACC001", 100.0, "Cash", "password123", null);
+        bank.transfer("ACC003", "ACC001", 50.0, "password789");
+
+        assertEquals(4, views.getAccountCount());
+        assertEquals(2250.0, views.getTotal("GBP"), 0.001);
+        assertEquals(80.0, views.getTotal("EUR"), 0.001);
+        assertEquals(2, views.getTotals().size());
+        assertEquals(1150.0, views.getHolderBalance("John Doe"), 0.001);
+        assertEquals(1100.0, views.getHolderBalance("Jane Smith"), 0.001);
+        assertEquals(0.0, views.getHolderBalance("Nobody"), 0.001);
+
+        List<AggregateViews.Ranked> top = views.getTopAccounts(2);
+        assertEquals("ACC002", top.get(0).getAccountNumber());
+        assertEquals(1100.0, top.get(0).getBalance(), 0.001);
+        assertEquals("ACC001", top.get(1).getAccountNumber());
+        assertThrows(IllegalArgumentException.class, () -> views.getTopAccounts(AggregateViews.DEFAULT_TOP_SIZE + 1));
+    }
+
+    @Test
+    public void testTopAccountsMatchFullSort() {
+        AggregateViews views = new AggregateViews(3);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Account account = new Account(String.format("ACC%03d", i), "Holder " + i, "password", 100.0 + i);
+            account.setLedgerListener(views);
+            accounts.add(account);
+        }
+        views.load(accounts);
+
+        // Drain the richest accounts so the ranking runs short and has to be rebuilt
+        Random random = new Random(42);
+        for (int round = 0; round < 2_000; round++) {
+            Account account = accounts.get(random.nextInt(accounts.size()));
+            if (random.nextBoolean()) {
+                account.deposit(random.nextInt(200) + 1, "In");
+            } else {
+                account.withdraw(Math.min(account.getBalance(), random.nextInt(400) + 1), "Out");
+            }
+            if (round % 50 == 0) {
+                assertEquals(expectedTop(accounts, 3), actualTop(views.getTopAccounts(3)));
+            }
+        }
+        assertEquals(expectedTop(accounts, 3), actualTop(views.getTopAccounts(3)));
+
+        double total = 0;
+        for (Account account : accounts) {
+            total += account.getBalance();
+        }
+        assertEquals(total, views.getTotal("GBP"), 0.001);
+    }
+
+    @Test
+    public void testConcurrentDepositsAddUp() throws Exception {
+        AggregateViews views = new AggregateViews(10);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Account account = new Account("ACC" + i, i % 2 == 0 ? "Even" : "Odd", "password", 0.0);
+            account.setLedgerListener(views);
+            accounts.add(account);
+        }
+        views.load(accounts);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    accounts.get((i + offset) % accounts.size()).deposit(1.0, "Deposit");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000.0, views.getTotal("GBP"), 0.001);
+        assertEquals(20_000.0, views.getHolderBalance("Even"), 0.001);
+    }
+
+    private static List<String> expectedTop(List<Account> accounts, int limit) {
+        List<Account> sorted = new ArrayList<>(accounts);
+        sorted.sort((a, b) -> {
+            int byBalance = Long.compare(Reconciler.toCents(b.getBalance()), Reconciler.toCents(a.getBalance()));
+            return byBalance != 0 ? byBalance : a.getAccountNumber().compareTo(b.getAccountNumber());
+        });
+        List<String> top = new ArrayList<>();
+        for (int i = 0; i < limit; i++) {
+            top.add(sorted.get(i).getAccountNumber());
+        }
+        return top;
+    }
+
+    private static List<String> actualTop(List<AggregateViews.Ranked> ranked) {
+        List<String> top = new ArrayList<>();
+        for (AggregateViews.Ranked entry : ranked) {
+            top.add(entry.getAccountNumber());
+        }
+        return top;
+    }
+}
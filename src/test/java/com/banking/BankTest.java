@@ -183,4 +183,69 @@ public class BankTest {
         assertTrue(foundAcc1);
         assertTrue(foundAcc2);
     }
+
+    @Test
+    public void testTransferIdempotencyKeyAppliesOnce() {
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Doe", "password456", 500.0);
+
+        Bank.TransferResult first = bank.transfer("ACC001", "ACC002", 300.0, "password123", "req-1");
+        Bank.TransferResult retry = bank.transfer("ACC001", "ACC002", 300.0, "password123", "req-1");
+        assertTrue(first.isSuccess());
+        assertSame(first, retry);
+        assertEquals(700.0, bank.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(800.0, bank.getAccount("ACC002").getBalance(), 0.01);
+
+        bank.transfer("ACC001", "ACC002", 300.0, "password123", "req-2");
+        assertEquals(400.0, bank.getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testDepositAndWithdrawIdempotencyKeys() {
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+
+        assertTrue(bank.deposit("ACC001", 50.0, "Deposit", "dep-1").isSuccess());
+        assertTrue(bank.deposit("ACC001", 50.0, "Deposit", "dep-1").isSuccess());
+        assertEquals(1050.0, bank.getAccount("ACC001").getBalance(), 0.01);
+
+        assertTrue(bank.withdraw("ACC001", 100.0, "Withdrawal", "password123", "wd-1").isSuccess());
+        assertTrue(bank.withdraw("ACC001", 100.0, "Withdrawal", "password123", "wd-1").isSuccess());
+        assertEquals(950.0, bank.getAccount("ACC001").getBalance(), 0.01);
+
+        assertFalse(bank.withdraw("ACC001", 100.0, "Withdrawal", "wrongpassword", "wd-2").isSuccess());
+        assertFalse(bank.deposit("ACC999", 10.0, "Deposit", "dep-2").isSuccess());
+
+        // A failed request is not remembered, so the retry goes through
+        assertFalse(bank.withdraw("ACC001", 5000.0, "Withdrawal", "password123", "wd-3").isSuccess());
+        bank.deposit("ACC001", 5000.0, "Top up", null);
+        assertTrue(bank.withdraw("ACC001", 5000.0, "Withdrawal", "password123", "wd-3").isSuccess());
+
+        // A key reused for a different request is refused
+        Bank.TransferResult reused = bank.deposit("ACC001", 75.0, "Deposit", "dep-1");
+        assertFalse(reused.isSuccess());
+        assertEquals(IdempotencyCache.KEY_REUSED, reused.getMessage());
+        assertEquals(950.0, bank.getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testIdempotencyKeysSurviveRestart() {
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Doe", "password456", 500.0);
+        bank.transfer("ACC001", "ACC002", 300.0, "password123", "req-1");
+
+        Bank bank2 = new Bank(testFile);
+        Bank.TransferResult retry = bank2.transfer("ACC001", "ACC002", 300.0, "password123", "req-1");
+        assertTrue(retry.isSuccess());
+        assertEquals(700.0, bank2.getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testLoadsLegacyArrayFormat() throws Exception {
+        java.nio.file.Files.writeString(java.nio.file.Path.of(testFile),
+            "[{\"accountNumber\":\"ACC001\",\"accountHolder\":\"John Doe\","
+            + "\"passwordHash\":\"x\",\"balance\":42.0,\"transactions\":[]}]");
+
+        Bank legacy = new Bank(testFile);
+        assertEquals(42.0, legacy.getAccount("ACC001").getBalance(), 0.01);
+    }
 }
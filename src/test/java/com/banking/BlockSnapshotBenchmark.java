@@ -0,0 +1,60 @@
+package com.banking;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compares saving and loading the bank data file as JSON and as a block-compressed snapshot.
+ *
+ * Not a unit test; run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.banking.BlockSnapshotBenchmark
+ * </pre>
+ */
+public class BlockSnapshotBenchmark {
+    private static final int ACCOUNTS = 100_000;
+    private static final int TRANSACTIONS = 10;
+
+    public static void main(String[] args) throws Exception {
+        List<Account> accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = new Account(String.format("ACC%07d", i), "Holder " + i, "password", 100.0);
+            for (int j = 0; j < TRANSACTIONS; j++) {
+                account.deposit(1.0 + j, "Deposit " + j);
+            }
+            accounts.add(account);
+        }
+        Path directory = Files.createTempDirectory("snapshot-benchmark");
+        Path json = directory.resolve("bank.json");
+        Path snapshot = directory.resolve("bank.snap");
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.printf("%,d accounts, %d cores%n", ACCOUNTS, Runtime.getRuntime().availableProcessors());
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            LedgerFile.write(json, out -> {
+                LedgerJson.create(false).toJson(accounts, out);
+                return accounts.size();
+            });
+            long jsonWrite = System.nanoTime() - start;
+            start = System.nanoTime();
+            LedgerFile.read(json, in -> LedgerJson.create(false).fromJson(in, Account[].class).length);
+            long jsonRead = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BlockSnapshot.write(snapshot, accounts, out -> 0, pool);
+            long snapshotWrite = System.nanoTime() - start;
+            start = System.nanoTime();
+            int[] count = new int[1];
+            BlockSnapshot.read(snapshot, account -> count[0]++, in -> 0, pool);
+            long snapshotRead = System.nanoTime() - start;
+
+            System.out.printf("round %d: JSON %,d KB, write %d ms, read %d ms; snapshot %,d KB, write %d ms, "
+                    + "read %d ms%n", round, Files.size(json) / 1024, jsonWrite / 1_000_000, jsonRead / 1_000_000,
+                Files.size(snapshot) / 1024, snapshotWrite / 1_000_000, snapshotRead / 1_000_000);
+        }
+    }
+}
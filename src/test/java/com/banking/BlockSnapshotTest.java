@@ -0,0 +1,144 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests for the BlockSnapshot class.
+ */
+public class BlockSnapshotTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testBankRoundTripsThroughCompressedFile() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile);
+        bank.setCompressed(true);
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 500.0);
+        bank.createAccount("ACC003", "Anna Weber", "password789", 80.0, "EUR");
+        bank.deposit("ACC001", 250.0, "Salary", "key-1");
+        bank.transfer("ACC001", "ACC002", 100.0, "password123");
+        bank.saveData();
+        assertTrue(BlockSnapshot.isSnapshot(Path.of(dataFile)));
+
+        Bank reloaded = new Bank(dataFile);
+        Account account = reloaded.getAccount("ACC001");
+        assertEquals(1150.0, account.getBalance(), 0.01);
+        assertEquals(3, account.getTransactions().size());
+        assertEquals(bank.getAccount("ACC001").getTransactions().get(2).getHash(),
+            account.getTransactions().get(2).getHash());
+        assertEquals(600.0, reloaded.getAccount("ACC002").getBalance(), 0.01);
+        assertEquals("EUR", reloaded.getAccount("ACC003").getCurrency());
+        assertTrue(reloaded.verifyChain(true).isValid());
+        // The idempotency key window came back with the state block
+        assertTrue(reloaded.deposit("ACC001", 250.0, "Salary", "key-1").isSuccess());
+        assertEquals(1150.0, account.getBalance(), 0.01);
+
+        // A bank loaded from a compressed file keeps it compressed
+        reloaded.saveData();
+        assertTrue(BlockSnapshot.isSnapshot(Path.of(dataFile)));
+        reloaded.setCompressed(false);
+        reloaded.saveData();
+        assertFalse(BlockSnapshot.isSnapshot(Path.of(dataFile)));
+        assertEquals(1150.0, new Bank(dataFile).getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testReadsSingleAccountFromItsBlock() throws Exception {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Account account = new Account(String.format("ACC%04d", i), "Holder " + i, "password", 100.0);
+            for (int j = 0; j < 40; j++) {
+                account.deposit(1.0, "Deposit " + j);
+            }
+            accounts.add(account);
+        }
+        Path file = tempDir.resolve("snapshot.bin");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            BlockSnapshot.write(file, accounts, out -> 0, pool);
+
+            try (BlockSnapshot snapshot = BlockSnapshot.open(file)) {
+                assertTrue(snapshot.getBlockCount() > 1);
+                assertEquals(300, snapshot.getAccountCount());
+                for (String accountNumber : new String[] {"ACC0000", "ACC0137", "ACC0299"}) {
+                    Account read = snapshot.readAccount(accountNumber);
+                    assertEquals(accountNumber, read.getAccountNumber());
+                    assertEquals(140.0, read.getBalance(), 0.01);
+                    assertEquals(41, read.getTransactions().size());
+                }
+                assertNull(snapshot.readAccount("ACC0300"));
+                assertNull(snapshot.readAccount("AAA"));
+            }
+
+            Map<String, Account> read = new LinkedHashMap<>();
+            assertEquals(300, BlockSnapshot.read(file, account -> read.put(account.getAccountNumber(), account),
+                in -> 0, pool));
+            assertEquals("ACC0000", read.keySet().iterator().next());
+            assertEquals(300, read.size());
+        } finally {
+            pool.shutdown();
+        }
+
+        // Compressed blocks are far smaller than the same accounts as JSON
+        Path json = tempDir.resolve("bank.json");
+        LedgerFile.write(json, out -> {
+            LedgerJson.create(false).toJson(accounts, out);
+            return accounts.size();
+        });
+        assertTrue(Files.size(file) * 3 < Files.size(json), Files.size(file) + " vs " + Files.size(json));
+    }
+
+    @Test
+    public void testDamagedBlockFallsBackToPreviousGeneration() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile);
+        bank.setCompressed(true);
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.saveData();
+        // Saves the new generation
+        bank.deposit("ACC001", 5.0, "Deposit", null);
+
+        // Flip a byte inside the first block
+        try (FileChannel channel = FileChannel.open(Path.of(dataFile), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, 40);
+            one.put(0, (byte) (one.get(0) ^ 0xff));
+            channel.write(one.flip(), 40);
+        }
+        assertThrows(IOException.class, () -> BlockSnapshot.read(Path.of(dataFile), account -> { },
+            in -> 0, ForkJoinPool.commonPool()));
+
+        Bank reloaded = new Bank(dataFile);
+        assertEquals(1000.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testEmptyBank() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile);
+        bank.setCompressed(true);
+        bank.saveData();
+        try (BlockSnapshot snapshot = BlockSnapshot.open(Path.of(dataFile))) {
+            assertEquals(0, snapshot.getBlockCount());
+            assertNull(snapshot.readAccount("ACC001"));
+        }
+        assertTrue(new Bank(dataFile).getAllAccounts().isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the BulkAccountImporter class.
+ */
+public class BulkAccountImporterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testImportsCsvAndReportsBadRows() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile);
+        bank.createAccount("ACC001", "John Doe", "password123", 10.0);
+        Path csv = tempDir.resolve("accounts.csv");
+        Files.write(csv, List.of(
+            "account_number,account_holder,password,initial_balance,currency",
+            "ACC100,\"Smith, Jane\",secret1,250.50,",
+            "ACC101,Bob,abc,10,GBP",
+            "ACC102,Carol,secret2,lots,GBP",
+            "",
+            "ACC001,Mallory,secret3,5,GBP",
+            "ACC103,Dave,secret4,0,eur",
+            "ACC104,Erin,secret5,75,EUR",
+            "ACC100,Frank,secret6,1,GBP"), StandardCharsets.UTF_8);
+        Path errors = tempDir.resolve("errors.csv");
+
+        List<Long> progress = new ArrayList<>();
+        BulkAccountImporter.Report report = new BulkAccountImporter(bank)
+            .setThreads(2)
+            .setBatchSize(2)
+            .setProgress(3, running -> progress.add(running.getRows()))
+            .importFile(csv, errors);
+
+        assertEquals(7, report.getRows());
+        assertEquals(2, report.getImported());
+        assertEquals(5, report.getRejected());
+        assertEquals(List.of(3L, 6L, 7L), progress);
+
+        List<String> lines = Files.readAllLines(errors, StandardCharsets.UTF_8);
+        assertEquals("line,account_number,error", lines.get(0));
+        assertEquals("3,\"ACC101\",\"Password must be at least 4 characters long\"", lines.get(1));
+        assertEquals("4,\"ACC102\",\"Invalid initial balance\"", lines.get(2));
+        assertEquals("6,\"ACC001\",\"Account number already exists\"", lines.get(3));
+        assertEquals("7,\"ACC103\",\"Invalid currency code: eur\"", lines.get(4));
+        assertEquals("9,\"ACC100\",\"Account number already exists\"", lines.get(5));
+
+        Bank reloaded = new Bank(dataFile);
+        assertEquals("Smith, Jane", reloaded.getAccount("ACC100").getAccountHolder());
+        assertEquals(250.5, reloaded.getAccount("ACC100").getBalance(), 0.01);
+        assertNotNull(reloaded.authenticate("ACC104", "secret5"));
+        assertEquals("EUR", reloaded.getAccount("ACC104").getCurrency());
+        assertEquals("John Doe", reloaded.getAccount("ACC001").getAccountHolder());
+    }
+
+    @Test
+    public void testImportsJsonLinesIntoEventLog() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Path log = tempDir.resolve("events.jsonl");
+        Bank bank = new Bank(dataFile, new EventLog(log));
+        Path jsonl = tempDir.resolve("accounts.jsonl");
+        StringBuilder rows = new StringBuilder();
+        for (int i = 0; i < 250; i++) {
+            rows.append("{\"accountNumber\":\"ACC").append(1000 + i)
+                .append("\",\"accountHolder\":\"Holder ").append(i)
+                .append("\",\"password\":\"secret").append(i)
+                .append("\",\"initialBalance\":").append(i).append("}\n");
+        }
+        rows.append("{not json\n");
+        rows.append("{\"accountNumber\":\"ACC9999\",\"password\":\"secret\",\"initialBalance\":1}\n");
+        Files.write(jsonl, rows.toString().getBytes(StandardCharsets.UTF_8));
+
+        BulkAccountImporter.Report report = new BulkAccountImporter(bank).setBatchSize(16).importFile(jsonl, null);
+        assertEquals(250, report.getImported());
+        assertEquals(2, report.getRejected());
+
+        Bank reloaded = new Bank(dataFile, new EventLog(log));
+        assertEquals(250, reloaded.listAccounts().size());
+        assertEquals(249.0, reloaded.getAccount("ACC1249").getBalance(), 0.01);
+        assertNotNull(reloaded.authenticate("ACC1007", "secret7"));
+    }
+
+    @Test
+    public void testCsvNeedsItsColumns() throws Exception {
+        Path csv = tempDir.resolve("accounts.csv");
+        Files.write(csv, List.of("account_number,password", "ACC100,secret1"), StandardCharsets.UTF_8);
+        BulkAccountImporter importer = new BulkAccountImporter(new Bank(tempDir.resolve("bank.json").toString()));
+        assertThrows(java.io.IOException.class, () -> importer.importFile(csv, null));
+    }
+
+    @Test
+    public void testFailedSaveIsReported() throws Exception {
+        Path csv = tempDir.resolve("accounts.csv");
+        Files.write(csv, List.of("account_number,account_holder,password,initial_balance", "ACC100,Holder,secret1,10"),
+            StandardCharsets.UTF_8);
+        // The data file's directory is a plain file, so the save cannot be written
+        Path blocker = tempDir.resolve("blocker");
+        Files.createFile(blocker);
+        Bank bank = new Bank(blocker.resolve("bank.json").toString());
+        BulkAccountImporter importer = new BulkAccountImporter(bank);
+        assertThrows(java.io.IOException.class, () -> importer.importFile(csv, null));
+    }
+
+    @Test
+    public void testSplitsQuotedFields() {
+        assertEquals(List.of("a", "b \"c\", d", ""), BulkAccountImporter.splitCsv("a,\"b \"\"c\"\", d\","));
+    }
+}
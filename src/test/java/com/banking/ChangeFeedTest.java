@@ -0,0 +1,262 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the ChangeFeed class.
+ */
+public class ChangeFeedTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testPublishesEveryChange() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        Recorder recorder = new Recorder(Long.MAX_VALUE);
+        bank.getChangeFeed().subscribe(recorder);
+
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+        bank.deposit("ACC001", 50.0, "Salary", null);
+        bank.withdraw("ACC001", 20.0, "Cash", "password123", null);
+        bank.transfer("ACC001", "ACC002", 30.0, "password123");
+        recorder.await(5);
+
+        assertEquals(List.of(LedgerEvent.ACCOUNT_OPENED, LedgerEvent.ACCOUNT_OPENED, LedgerEvent.DEPOSITED,
+            LedgerEvent.WITHDRAWN, LedgerEvent.TRANSFER_COMPLETED), recorder.types());
+        LedgerEvent transfer = recorder.events.get(4);
+        assertEquals(5, transfer.getSequence());
+        assertEquals("ACC002", transfer.getCounterparty());
+        assertEquals("John Doe", recorder.events.get(0).getHolder());
+        assertEquals(5, bank.getChangeFeed().getOffset());
+    }
+
+    @Test
+    public void testDeliversOnlyWhatWasRequested() {
+        ChangeFeed feed = new ChangeFeed(null, 16, Runnable::run);
+        Account account = new Account("ACC001", "John Doe", "password123", 0.0);
+        account.setLedgerListener(feed);
+        Recorder recorder = new Recorder(1);
+        feed.subscribe(recorder);
+
+        for (int i = 1; i <= 5; i++) {
+            account.deposit(i, "Deposit " + i);
+        }
+        assertEquals(1, recorder.events.size());
+        recorder.subscription.request(3);
+        assertEquals(4, recorder.events.size());
+        recorder.subscription.request(10);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), recorder.sequences());
+
+        // Resuming from an offset skips what was already processed
+        Recorder resumed = new Recorder(Long.MAX_VALUE);
+        feed.subscribe(resumed, 3);
+        assertEquals(List.of(4L, 5L), resumed.sequences());
+
+        feed.close();
+        assertTrue(recorder.completed);
+        assertThrows(IllegalArgumentException.class, () -> feed.subscribe(new Recorder(1), 6));
+    }
+
+    @Test
+    public void testSubscriberFallingOutOfTheRingIsFailed() {
+        ChangeFeed feed = new ChangeFeed(null, 4, Runnable::run);
+        Account account = new Account("ACC001", "John Doe", "password123", 0.0);
+        account.setLedgerListener(feed);
+        Recorder recorder = new Recorder(0);
+        feed.subscribe(recorder);
+        for (int i = 1; i <= 10; i++) {
+            account.deposit(i, "Deposit");
+        }
+        recorder.subscription.request(1);
+        assertTrue(recorder.error instanceof IllegalStateException);
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    public void testSlowSubscriberDoesNotStallTransfers() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+        CountDownLatch release = new CountDownLatch(1);
+        Recorder stuck = new Recorder(Long.MAX_VALUE) {
+            @Override
+            public void onNext(LedgerEvent event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onNext(event);
+            }
+        };
+        bank.getChangeFeed().subscribe(stuck);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(bank.transfer("ACC001", "ACC002", 1.0, "password123").isSuccess());
+        }
+        release.countDown();
+        stuck.await(20);
+        assertEquals(20, stuck.events.size());
+    }
+
+    @Test
+    public void testFileSinkResumesFromTheEventLog() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        EventLog log = new EventLog(tempDir.resolve("events.jsonl"));
+        Bank bank = new Bank(dataFile, log);
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        ChangeFeed feed = new ChangeFeed(log, 2, Runnable::run);
+        Path feedFile = tempDir.resolve("feed.jsonl");
+
+        ChangeFeed.FileSink sink = new ChangeFeed.FileSink(feedFile);
+        assertEquals(0, sink.getOffset());
+        feed.subscribe(sink, sink.getOffset());
+        bank.deposit("ACC001", 10.0, "One", null);
+        sink.close();
+        assertEquals(2, sink.getOffset());
+
+        for (int i = 0; i < 5; i++) {
+            bank.deposit("ACC001", 1.0, "While the sink was down", null);
+        }
+        // A torn line left by a crash is dropped
+        Files.write(feedFile, "{\"sequence\":3,\"ty".getBytes(StandardCharsets.UTF_8),
+            java.nio.file.StandardOpenOption.APPEND);
+
+        ChangeFeed.FileSink resumed = new ChangeFeed.FileSink(feedFile);
+        assertEquals(2, resumed.getOffset());
+        feed.subscribe(resumed, resumed.getOffset());
+        assertEquals(7, resumed.getOffset());
+        resumed.close();
+
+        List<String> lines = Files.readAllLines(feedFile, StandardCharsets.UTF_8);
+        assertEquals(7, lines.size());
+        assertFalse(lines.get(0).contains("passwordHash"));
+        for (int i = 0; i < lines.size(); i++) {
+            assertTrue(lines.get(i).startsWith("{\"sequence\":" + (i + 1) + ","), lines.get(i));
+        }
+    }
+
+    @Test
+    public void testCatchesUpFromTheLogInBatches() throws Exception {
+        EventLog log = new EventLog(tempDir.resolve("events.jsonl"));
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString(), log);
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        for (int i = 0; i < 30; i++) {
+            bank.deposit("ACC001", 1.0, "Deposit " + i, null);
+        }
+        log.sync();
+        ChangeFeed feed = new ChangeFeed(log, 4, Runnable::run);
+
+        Recorder recorder = new Recorder(0);
+        feed.subscribe(recorder, 0);
+        recorder.subscription.request(3);
+        assertEquals(List.of(1L, 2L, 3L), recorder.sequences());
+        recorder.subscription.request(3);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L), recorder.sequences());
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(31, recorder.events.size());
+        for (int i = 0; i < 31; i++) {
+            assertEquals(i + 1, recorder.events.get(i).getSequence());
+        }
+        assertNull(recorder.error);
+    }
+
+    @Test
+    public void testFileSinkOnlyResumesFromAFeedOverALog() throws Exception {
+        Path feedFile = tempDir.resolve("feed.jsonl");
+        ChangeFeed feed = new ChangeFeed(null, 16, Runnable::run);
+        Account account = new Account("ACC001", "John Doe", "password123", 0.0);
+        account.setLedgerListener(feed);
+        ChangeFeed.FileSink sink = new ChangeFeed.FileSink(feedFile);
+        feed.subscribe(sink, sink.getOffset());
+        account.deposit(1.0, "Deposit");
+        sink.close();
+        assertEquals(1, sink.getOffset());
+
+        // A new feed numbers its events from 1 again, so offset 1 is not the event the file ends with
+        ChangeFeed restarted = new ChangeFeed(null, 16, Runnable::run);
+        account.setLedgerListener(restarted);
+        account.deposit(2.0, "Deposit");
+        ChangeFeed.FileSink resumed = new ChangeFeed.FileSink(feedFile);
+        assertThrows(IllegalStateException.class, () -> restarted.subscribe(resumed, resumed.getOffset()));
+        resumed.close();
+    }
+
+    /**
+     * Records what it receives, requesting a fixed number of events up front.
+     */
+    private static class Recorder implements Flow.Subscriber<LedgerEvent> {
+        private final long initialRequest;
+        private final List<LedgerEvent> events = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private volatile Throwable error;
+        private volatile boolean completed;
+
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(LedgerEvent event) {
+            synchronized (events) {
+                events.add(event);
+                events.notifyAll();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        void await(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            synchronized (events) {
+                while (events.size() < count && System.nanoTime() < deadline) {
+                    events.wait(100);
+                }
+            }
+        }
+
+        List<String> types() {
+            List<String> types = new ArrayList<>();
+            for (LedgerEvent event : events) {
+                types.add(event.getType());
+            }
+            return types;
+        }
+
+        List<Long> sequences() {
+            List<Long> sequences = new ArrayList<>();
+            for (LedgerEvent event : events) {
+                sequences.add(event.getSequence());
+            }
+            return sequences;
+        }
+    }
+}
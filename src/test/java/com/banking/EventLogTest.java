@@ -0,0 +1,188 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the EventLog class and event-sourced banks.
+ */
+public class EventLogTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testBankIsRebuiltFromEvents() throws Exception {
+        Bank bank = newBank(new EventLog(log()));
+        bank.deposit("ACC001", 50.0, "Salary", null);
+        bank.withdraw("ACC002", 20.0, "Cash", "password456", null);
+        assertTrue(bank.transfer("ACC001", "ACC002", 150.0, "password123").isSuccess());
+        bank.getAccount("ACC001").deposit(5.0, "Direct");
+
+        Bank reloaded = new Bank(dataFile(), new EventLog(log()));
+        Account first = reloaded.getAccount("ACC001");
+        Account second = reloaded.getAccount("ACC002");
+        assertEquals(905.0, first.getBalance(), 0.01);
+        assertEquals(630.0, second.getBalance(), 0.01);
+        assertEquals(4, first.getTransactions().size());
+        assertEquals("ACC002", first.getTransactions().get(2).getCounterparty());
+        assertEquals("Transfer from ACC001", second.getTransactions().get(2).getDescription());
+        assertTrue(reloaded.authenticate("ACC002", "password456") != null);
+
+        List<String> types = new ArrayList<>();
+        new EventLog(log()).read(0, event -> types.add(event.getType()));
+        assertEquals(List.of(LedgerEvent.ACCOUNT_OPENED, LedgerEvent.ACCOUNT_OPENED, LedgerEvent.DEPOSITED,
+            LedgerEvent.WITHDRAWN, LedgerEvent.TRANSFER_COMPLETED, LedgerEvent.DEPOSITED), types);
+    }
+
+    @Test
+    public void testRecoveryStartsFromSnapshot() throws Exception {
+        Bank bank = newBank(new EventLog(log(), 3));
+        bank.deposit("ACC001", 10.0, "One", null);
+        assertTrue(Files.exists(tempDir.resolve("events.jsonl.snapshot")));
+        bank.deposit("ACC001", 20.0, "Two", null);
+        bank.transfer("ACC002", "ACC001", 100.0, "password456");
+
+        Bank reloaded = new Bank(dataFile(), new EventLog(log(), 3));
+        assertEquals(1130.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(400.0, reloaded.getAccount("ACC002").getBalance(), 0.01);
+        assertEquals(4, reloaded.getAccount("ACC001").getTransactions().size());
+    }
+
+    @Test
+    public void testRecoverySeeksPastTheSnapshot() throws Exception {
+        Bank bank = newBank(new EventLog(log(), 3));
+        assertTrue(bank.deposit("ACC001", 10.0, "One", "key-1").isSuccess());
+        assertTrue(bank.deposit("ACC001", 20.0, "Two", "key-2").isSuccess());
+
+        // Spoil the first event without moving the others; neither pass at startup may read it
+        byte[] bytes = Files.readAllBytes(log());
+        bytes[0] = 'X';
+        Files.write(log(), bytes);
+
+        Bank reloaded = new Bank(dataFile(), new EventLog(log(), 3));
+        assertEquals(1030.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(500.0, reloaded.getAccount("ACC002").getBalance(), 0.01);
+        assertTrue(reloaded.deposit("ACC001", 20.0, "Two", "key-2").isSuccess());
+        assertEquals(1030.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testReplayUntilPointInTime() throws Exception {
+        EventLog events = new EventLog(log());
+        Bank bank = newBank(events);
+        LocalDateTime before = LocalDateTime.now();
+        Thread.sleep(5);
+        bank.deposit("ACC001", 50.0, "Later", null);
+
+        Map<String, Account> then = events.replayUntil(before);
+        assertEquals(1000.0, then.get("ACC001").getBalance(), 0.01);
+        assertEquals(1050.0, events.replayUntil(LocalDateTime.now()).get("ACC001").getBalance(), 0.01);
+        assertTrue(events.replayUntil(before.minusYears(1)).isEmpty());
+    }
+
+    @Test
+    public void testParallelReplayMatchesLiveState() throws Exception {
+        Bank bank = new Bank(dataFile(), new EventLog(log()));
+        for (int i = 0; i < 50; i++) {
+            bank.createAccount(String.format("ACC%03d", i), "Holder " + i, "password" + i, 100.0);
+        }
+        for (int i = 0; i < 500; i++) {
+            int from = (i * 7) % 50;
+            int to = (i * 13 + 1) % 50;
+            if (from != to) {
+                bank.transfer(String.format("ACC%03d", from), String.format("ACC%03d", to), 1.25 + i % 5,
+                    "password" + from);
+            }
+        }
+
+        Bank reloaded = new Bank(dataFile(), new EventLog(log()));
+        for (Account account : bank.getAllAccounts()) {
+            Account replayed = reloaded.getAccount(account.getAccountNumber());
+            assertEquals(account.getBalance(), replayed.getBalance(), 0.001);
+            assertEquals(account.getTransactions().size(), replayed.getTransactions().size());
+        }
+    }
+
+    @Test
+    public void testTornLastEventIsDropped() throws Exception {
+        Bank bank = newBank(new EventLog(log()));
+        bank.deposit("ACC001", 50.0, "Kept", null);
+        Files.write(log(), "{\"sequence\":4,\"type\":\"Depo".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+
+        EventLog events = new EventLog(log());
+        Bank reloaded = new Bank(dataFile(), events);
+        assertEquals(1050.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(3, events.getSequence());
+        reloaded.deposit("ACC001", 1.0, "After crash", null);
+        assertEquals(1051.0, new Bank(dataFile(), new EventLog(log())).getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testLegacyAccountsAreImported() throws Exception {
+        Bank legacy = new Bank(dataFile());
+        legacy.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        legacy.deposit("ACC001", 25.0, "Old deposit", null);
+
+        Bank bank = new Bank(dataFile(), new EventLog(log()));
+        assertEquals(1025.0, bank.getAccount("ACC001").getBalance(), 0.01);
+
+        Bank reloaded = new Bank(dataFile(), new EventLog(log()));
+        assertEquals(1025.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(2, reloaded.getAccount("ACC001").getTransactions().size());
+        assertNull(new Bank(dataFile()).getAccount("ACC001"));
+    }
+
+    @Test
+    public void testRequestsLoggedButNotSavedAreNotRepeated() throws Exception {
+        Bank bank = newBank(new EventLog(log()));
+        StandingOrder order = bank.getStandingOrders().create("ACC001", "ACC002", 100.0,
+            LocalDateTime.now().minusMinutes(1).withNano(0), Period.ofMonths(1), 0, Duration.ZERO);
+        byte[] saved = Files.readAllBytes(Path.of(dataFile()));
+
+        // Both requests reach the log, but the bank stops before their data file save lands
+        assertTrue(bank.deposit("ACC001", 50.0, "Salary", "key-1").isSuccess());
+        assertEquals(1, bank.getStandingOrders().runDue(LocalDateTime.now()));
+        Files.write(Path.of(dataFile()), saved);
+
+        Bank recovered = new Bank(dataFile(), new EventLog(log()));
+        assertEquals(950.0, recovered.getAccount("ACC001").getBalance(), 0.01);
+        assertTrue(recovered.deposit("ACC001", 50.0, "Salary", "key-1").isSuccess());
+        assertEquals(0, recovered.getStandingOrders().runDue(LocalDateTime.now()));
+        assertEquals(950.0, recovered.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(600.0, recovered.getAccount("ACC002").getBalance(), 0.01);
+
+        StandingOrder caughtUp = recovered.getStandingOrders().get(order.getId());
+        assertEquals(1, caughtUp.getRuns());
+        assertEquals(order.getNextRun(), caughtUp.getNextRun());
+        // The key still only stands for the request it was first used for
+        assertFalse(recovered.deposit("ACC001", 60.0, "Salary", "key-1").isSuccess());
+    }
+
+    private Bank newBank(EventLog events) {
+        Bank bank = new Bank(dataFile(), events);
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 500.0);
+        return bank;
+    }
+
+    private String dataFile() {
+        return tempDir.resolve("bank.json").toString();
+    }
+
+    private Path log() {
+        return tempDir.resolve("events.jsonl");
+    }
+}
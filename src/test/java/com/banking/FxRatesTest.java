@@ -0,0 +1,95 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Tests for the FxRates class and cross-currency transfers.
+ */
+public class FxRatesTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testConversionRoundsHalfUp() {
+        FxRates rates = new FxRates();
+        rates.update("GBP", Map.of("EUR", 1.17, "JPY", 190.0));
+        FxRates.Snapshot snapshot = rates.snapshot();
+
+        assertEquals(117_000_000L, snapshot.rate("GBP", "EUR"));
+        assertEquals(117L, snapshot.convert(100, "GBP", "EUR"));
+        assertEquals(85L, snapshot.convert(100, "EUR", "GBP"));
+        assertEquals(62L, snapshot.convert(10_000, "JPY", "EUR"));
+        assertEquals(1L, FxRates.convertCents(1, FxRates.SCALE / 2));
+        assertEquals(0L, FxRates.convertCents(1, FxRates.SCALE / 2 - 1));
+        assertEquals(Long.MAX_VALUE / 2, FxRates.convertCents(Long.MAX_VALUE / 2, FxRates.SCALE));
+        assertThrows(ArithmeticException.class, () -> FxRates.convertCents(Long.MAX_VALUE / 2, 3 * FxRates.SCALE));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.rate("GBP", "USD"));
+    }
+
+    @Test
+    public void testUpdateSwapsSnapshot() {
+        FxRates rates = new FxRates();
+        rates.update("GBP", Map.of("EUR", 1.10));
+        FxRates.Snapshot before = rates.snapshot();
+        rates.update("GBP", Map.of("EUR", 1.20, "USD", 1.25));
+
+        assertEquals(110L, before.convert(100, "GBP", "EUR"));
+        assertFalse(before.supports("GBP", "USD"));
+        assertEquals(120L, rates.snapshot().convert(100, "GBP", "EUR"));
+        assertTrue(rates.snapshot().supports("EUR", "USD"));
+        assertThrows(IllegalArgumentException.class, () -> rates.update("GBP", Map.of("EUR", 0.0)));
+        assertEquals(120L, rates.snapshot().convert(100, "GBP", "EUR"));
+    }
+
+    @Test
+    public void testLoadRateFile() throws Exception {
+        Path file = tempDir.resolve("fx_rates.properties");
+        Files.writeString(file, "base=GBP\nEUR=1.17\nUSD=1.27\n");
+        FxRates rates = new FxRates();
+        rates.load(file);
+
+        assertEquals(127L, rates.snapshot().convert(100, "GBP", "USD"));
+        Files.writeString(file, "EUR=1.17\n");
+        assertThrows(IllegalArgumentException.class, () -> rates.load(file));
+    }
+
+    @Test
+    public void testCrossCurrencyTransfer() {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0, "EUR");
+        assertFalse(bank.createAccount("ACC003", "Bad Currency", "password789", 0.0, "euro"));
+
+        Bank.TransferResult result = bank.transfer("ACC001", "ACC002", 100.0, "password123", null);
+        assertFalse(result.isSuccess());
+        assertEquals("Exchange rate not available", result.getMessage());
+
+        bank.getFxRates().update("GBP", Map.of("EUR", 1.17));
+        assertTrue(bank.transfer("ACC001", "ACC002", 100.0, "password123", null).isSuccess());
+        assertEquals(900.0, bank.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(117.0, bank.getAccount("ACC002").getBalance(), 0.01);
+
+        Bank reloaded = new Bank(tempDir.resolve("bank.json").toString());
+        assertEquals("EUR", reloaded.getAccount("ACC002").getCurrency());
+        assertEquals(Account.DEFAULT_CURRENCY, reloaded.getAccount("ACC001").getCurrency());
+    }
+
+    @Test
+    public void testCurrencyPersistsInStores() throws Exception {
+        try (MappedAccountTable table = MappedAccountTable.open(tempDir.resolve("accounts.dat"), 16);
+             JdbcAccountStore jdbc = JdbcAccountStore.open(tempDir.resolve("accounts"))) {
+            for (AccountStore store : new AccountStore[] {table, jdbc}) {
+                store.save(new Account("ACC001", "John Doe", "password123", 10.0, "USD"));
+                store.save(new Account("ACC002", "Jane Smith", "password456", 10.0));
+                assertEquals("USD", store.load("ACC001").getCurrency());
+                assertEquals("GBP", store.load("ACC002").getCurrency());
+            }
+        }
+    }
+}
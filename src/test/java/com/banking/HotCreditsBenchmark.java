@@ -0,0 +1,56 @@
+package com.banking;
+
+/**
+ * Measures deposit throughput into a single account, locked against hot mode.
+ *
+ * Not a unit test; run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.banking.HotCreditsBenchmark
+ * </pre>
+ */
+public class HotCreditsBenchmark {
+    private static final int DEPOSITS = 2_000_000;
+
+    public static void main(String[] args) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int round = 0; round < 3; round++) {
+            for (int threads = 1; threads <= cores; threads *= 2) {
+                double locked = run(false, threads);
+                double hot = run(true, threads);
+                System.out.printf("round %d, %2d threads: %,.0f deposits/s locked, %,.0f deposits/s hot%n",
+                    round, threads, locked, hot);
+            }
+        }
+    }
+
+    /**
+     * @return Deposits per second across all threads, balance read included
+     */
+    private static double run(boolean hot, int threads) {
+        Account account = new Account("ACC001", "Payroll", "password123", 0.0);
+        account.setHot(hot);
+        int perThread = DEPOSITS / threads;
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    account.deposit(1.0, "Salary");
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Double.NaN;
+            }
+        }
+        if (account.getBalance() != perThread * (double) threads) {
+            throw new IllegalStateException("Lost deposits");
+        }
+        return perThread * (double) threads / ((System.nanoTime() - start) / 1e9);
+    }
+}
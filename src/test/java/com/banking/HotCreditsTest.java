@@ -0,0 +1,117 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests for the HotCredits class and hot-account mode.
+ */
+public class HotCreditsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testConcurrentDepositsAllLand() throws Exception {
+        Account account = new Account("ACC001", "Payroll", "password123", 100.0);
+        account.setHot(true);
+        int threads = 8;
+        int perThread = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    assertTrue(account.deposit(1.0, "Salary"));
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(100.0 + threads * perThread, account.getBalance(), 0.01);
+        List<Account.Transaction> history = account.getTransactionHistory(null);
+        assertEquals(1 + threads * perThread, history.size());
+        double running = 0;
+        for (Account.Transaction transaction : history) {
+            running += transaction.getAmount();
+            assertEquals(running, transaction.getBalanceAfter(), 0.01);
+        }
+    }
+
+    @Test
+    public void testWithdrawalSeesParkedCredits() {
+        Account account = new Account("ACC001", "Merchant", "password123", 10.0);
+        account.setHot(true);
+        assertTrue(account.deposit(40.0, "Sale"));
+        assertFalse(account.deposit(-5.0, "Refund"));
+        assertEquals(1, account.getTransactions().size());
+
+        assertTrue(account.withdraw(50.0, "Payout"));
+        assertFalse(account.withdraw(0.01, "Payout"));
+        assertEquals(0.0, account.getBalance(), 0.01);
+        assertEquals(3, account.getTransactions().size());
+    }
+
+    @Test
+    public void testSwitchingOffFoldsCreditsIn() {
+        Account account = new Account("ACC001", "Merchant", "password123", 0.0);
+        account.setHot(true);
+        account.deposit(25.0, "Sale");
+        account.setHot(false);
+        assertFalse(account.isHot());
+        assertEquals(1, account.getTransactions().size());
+        assertEquals(25.0, account.getTransactions().get(0).getBalanceAfter(), 0.01);
+    }
+
+    @Test
+    public void testCellsRoundToPowerOfTwo() {
+        HotCredits credits = new HotCredits(3);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(credits.add(new Account.Transaction("2030-01-01T00:00:00", "Sale", 1.0, "credit", 0)));
+        }
+        List<Account.Transaction> drained = new ArrayList<>();
+        assertEquals(5, credits.drain(drained));
+        assertEquals(0, credits.drain(drained));
+        credits.close();
+        assertFalse(credits.add(new Account.Transaction("2030-01-01T00:00:00", "Sale", 1.0, "credit", 0)));
+    }
+
+    @Test
+    public void testHotCreditsReachTheEventLog() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Path log = tempDir.resolve("events.jsonl");
+        Bank bank = new Bank(dataFile, new EventLog(log));
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+        assertTrue(bank.setHotAccount("ACC001", true));
+        assertFalse(bank.setHotAccount("ACC999", true));
+
+        Account hot = bank.getAccount("ACC001");
+        hot.deposit(10.0, "Card sale");
+        hot.deposit(15.0, "Card sale");
+        assertTrue(bank.transfer("ACC001", "ACC002", 120.0, "password123").isSuccess());
+        assertFalse(bank.transfer("ACC001", "ACC002", 10.0, "password123").isSuccess());
+        hot.deposit(7.0, "Card sale");
+        bank.saveData();
+
+        Bank reloaded = new Bank(dataFile, new EventLog(log));
+        assertEquals(12.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(120.0, reloaded.getAccount("ACC002").getBalance(), 0.01);
+        assertEquals(5, reloaded.getAccount("ACC001").getTransactions().size());
+    }
+}
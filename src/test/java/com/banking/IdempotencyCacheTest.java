@@ -0,0 +1,126 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the IdempotencyCache class.
+ */
+public class IdempotencyCacheTest {
+
+    @Test
+    public void testRepeatedKeyReturnsOriginalResult() {
+        IdempotencyCache cache = new IdempotencyCache();
+        AtomicInteger calls = new AtomicInteger();
+
+        Bank.TransferResult first = cache.execute("k", () -> new Bank.TransferResult(true, "call " + calls.incrementAndGet()));
+        Bank.TransferResult second = cache.execute("k", () -> new Bank.TransferResult(true, "call " + calls.incrementAndGet()));
+
+        assertEquals(1, calls.get());
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testNullKeyAlwaysExecutes() {
+        IdempotencyCache cache = new IdempotencyCache();
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.execute(null, () -> new Bank.TransferResult(true, "ok " + calls.incrementAndGet()));
+        cache.execute(null, () -> new Bank.TransferResult(true, "ok " + calls.incrementAndGet()));
+
+        assertEquals(2, calls.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testCapacityIsBounded() {
+        IdempotencyCache cache = new IdempotencyCache(60_000, 10);
+        for (int i = 0; i < 100; i++) {
+            cache.execute("key-" + i, () -> new Bank.TransferResult(true, "ok"));
+        }
+
+        assertEquals(10, cache.size());
+        assertNull(cache.get("key-0"));
+        assertNotNull(cache.get("key-99"));
+    }
+
+    @Test
+    public void testExpiredKeyRunsAgain() throws InterruptedException {
+        IdempotencyCache cache = new IdempotencyCache(20, 10);
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.execute("k", () -> new Bank.TransferResult(true, "ok " + calls.incrementAndGet()));
+        Thread.sleep(40);
+        cache.execute("k", () -> new Bank.TransferResult(true, "ok " + calls.incrementAndGet()));
+
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testConcurrentRetriesExecuteOnce() throws InterruptedException {
+        IdempotencyCache cache = new IdempotencyCache();
+        AtomicInteger calls = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+
+        for (int i = 0; i < 1000; i++) {
+            String key = "key-" + (i % 50);
+            pool.submit(() -> cache.execute(key, () -> {
+                calls.incrementAndGet();
+                return new Bank.TransferResult(true, "ok");
+            }));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(50, calls.get());
+    }
+
+    @Test
+    public void testSnapshotAndRestore() {
+        IdempotencyCache cache = new IdempotencyCache();
+        cache.execute("a", () -> new Bank.TransferResult(true, "Transfer successful"));
+        cache.execute("b", () -> new Bank.TransferResult(false, "Insufficient balance"));
+
+        List<IdempotencyCache.Record> records = cache.snapshot();
+        IdempotencyCache restored = new IdempotencyCache();
+        restored.restore(records);
+
+        assertTrue(restored.get("a").isSuccess());
+        // Failures change nothing, so they are not remembered
+        assertNull(restored.get("b"));
+    }
+
+    @Test
+    public void testFailedRequestCanBeRetried() {
+        IdempotencyCache cache = new IdempotencyCache();
+        AtomicInteger calls = new AtomicInteger();
+        assertFalse(cache.execute("k", () -> new Bank.TransferResult(calls.incrementAndGet() > 1, "call")).isSuccess());
+        assertTrue(cache.execute("k", () -> new Bank.TransferResult(calls.incrementAndGet() > 1, "call")).isSuccess());
+        assertTrue(cache.execute("k", () -> new Bank.TransferResult(false, "not run")).isSuccess());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testKeyReusedForDifferentRequestIsRefused() {
+        IdempotencyCache cache = new IdempotencyCache();
+        cache.execute("k", "transfer A B 100", () -> new Bank.TransferResult(true, "ok"), null);
+        Bank.TransferResult reused = cache.execute("k", "transfer A B 200",
+            () -> new Bank.TransferResult(true, "should not run"), null);
+        assertFalse(reused.isSuccess());
+        assertEquals(IdempotencyCache.KEY_REUSED, reused.getMessage());
+
+        // The fingerprint survives a restart
+        IdempotencyCache restored = new IdempotencyCache();
+        restored.restore(cache.snapshot());
+        assertFalse(restored.execute("k", "transfer A C 100", () -> new Bank.TransferResult(true, "x"), null)
+            .isSuccess());
+        assertEquals("ok", restored.execute("k", "transfer A B 100", () -> new Bank.TransferResult(true, "x"), null)
+            .getMessage());
+    }
+}
@@ -0,0 +1,111 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests for the InterestPostingJob class.
+ */
+public class InterestPostingJobTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testPostsInterestAndFees() throws Exception {
+        Bank bank = newBank();
+        InterestPostingJob.Report report = new InterestPostingJob(bank, journal())
+            .setPartitions(4)
+            .setThreads(2)
+            .run("2026-10", InterestPostingJob.Tariff.monthly(0.12, 2.0));
+
+        assertEquals(4, report.getPartitionsPosted());
+        assertEquals(3, report.getAccounts());
+        assertEquals(3, report.getInterestPosted());
+        assertEquals(2, report.getFeesPosted());
+        assertEquals(1, report.getFeesWaived());
+        // 1% a month on 1200.00, 500.00 and 1.00; the last can't cover its fee
+        assertEquals(17.01, report.getTotalInterest(), 0.001);
+        assertEquals(4.0, report.getTotalFees(), 0.001);
+
+        Bank reloaded = new Bank(dataFile());
+        assertEquals(1210.0, reloaded.getAccount("ACC001").getBalance(), 0.001);
+        assertEquals(503.0, reloaded.getAccount("ACC002").getBalance(), 0.001);
+        assertEquals(1.01, reloaded.getAccount("ACC003").getBalance(), 0.001);
+        List<Account.Transaction> history = reloaded.getAccount("ACC001").getTransactions();
+        assertEquals("Interest 2026-10", history.get(1).getDescription());
+        assertEquals("Account fee 2026-10", history.get(2).getDescription());
+    }
+
+    @Test
+    public void testCompletedRunIsNotPostedAgain() throws Exception {
+        Bank bank = newBank();
+        InterestPostingJob job = new InterestPostingJob(bank, journal());
+        InterestPostingJob.Tariff tariff = InterestPostingJob.Tariff.monthly(0.12, 2.0);
+        job.run("2026-10", tariff);
+
+        InterestPostingJob.Report again = job.run("2026-10", tariff);
+        assertTrue(again.isAlreadyComplete());
+        assertEquals(0, again.getAccounts());
+        assertEquals(1210.0, bank.getAccount("ACC001").getBalance(), 0.001);
+
+        job.run("2026-11", tariff);
+        assertEquals(1220.1, bank.getAccount("ACC001").getBalance(), 0.001);
+    }
+
+    @Test
+    public void testResumesAfterCrash() throws Exception {
+        Bank bank = newBank();
+        int partitions = 4;
+        int donePartition = InterestPostingJob.partitionOf("ACC002", partitions);
+        assertNotEquals(donePartition, InterestPostingJob.partitionOf("ACC001", partitions));
+        // A run that finished ACC002's partition and posted ACC001's interest before dying
+        Files.write(journal(), List.of(
+            "start 2026-10 " + partitions + " 2000-01-01T00:00:00",
+            "partition 2026-10 " + donePartition), StandardCharsets.UTF_8);
+        bank.getAccount("ACC001").deposit(12.0, "Interest 2026-10");
+
+        InterestPostingJob.Report report = new InterestPostingJob(bank, journal())
+            .setPartitions(16)
+            .run("2026-10", InterestPostingJob.Tariff.monthly(0.12, 2.0));
+        assertEquals(1, report.getPartitionsSkipped());
+        assertEquals(partitions - 1, report.getPartitionsPosted());
+        assertEquals(1, bank.getAccount("ACC001").getTransactions().stream()
+            .filter(transaction -> "Interest 2026-10".equals(transaction.getDescription())).count());
+        assertEquals(1210.0, bank.getAccount("ACC001").getBalance(), 0.001);
+        assertEquals(500.0, bank.getAccount("ACC002").getBalance(), 0.001);
+
+        List<String> lines = Files.readAllLines(journal(), StandardCharsets.UTF_8);
+        assertEquals("complete 2026-10", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    public void testRejectsBadInput() {
+        InterestPostingJob job = new InterestPostingJob(newBank(), journal());
+        assertThrows(IllegalArgumentException.class,
+            () -> job.run("2026 10", InterestPostingJob.Tariff.monthly(0.01, 0)));
+        assertThrows(IllegalArgumentException.class, () -> new InterestPostingJob.Tariff(0.01, 0, 1.0));
+        assertThrows(IllegalArgumentException.class, () -> InterestPostingJob.Tariff.monthly(-0.01, 1.0));
+    }
+
+    private Bank newBank() {
+        Bank bank = new Bank(dataFile());
+        bank.createAccount("ACC001", "John Doe", "password123", 1200.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 500.0);
+        bank.createAccount("ACC003", "Bob Brown", "password789", 1.0);
+        return bank;
+    }
+
+    private String dataFile() {
+        return tempDir.resolve("bank.json").toString();
+    }
+
+    private Path journal() {
+        return tempDir.resolve("postings.journal");
+    }
+}
@@ -0,0 +1,246 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the JdbcAccountStore class.
+ */
+public class JdbcAccountStoreTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSaveStoresOnlyNewTransactions() throws Exception {
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Account account = new Account("ACC001", "John Doe", "password123", 100.0);
+            store.save(account);
+            account.deposit(50.0, "Deposit");
+            account.withdraw(20.0, "Transfer to ACC002", "ACC002");
+            store.save(account);
+
+            Account loaded = store.load("ACC001");
+            assertEquals(130.0, loaded.getBalance(), 0.01);
+            assertEquals(3, loaded.getTransactions().size());
+            assertEquals("ACC002", loaded.getTransactions().get(2).getCounterparty());
+            assertEquals(account.getTransactions().get(2).getHash(), loaded.getTransactions().get(2).getHash());
+            assertEquals(account.getCreatedAt(), loaded.getCreatedAt());
+            assertTrue(store.verifyPassword("ACC001", "password123"));
+            assertFalse(store.verifyPassword("ACC001", "wrong"));
+            assertFalse(store.verifyPassword("ACC999", "password123"));
+            assertNull(store.load("ACC999"));
+        }
+    }
+
+    @Test
+    public void testAppendTransactionAndCompactedHistory() throws Exception {
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Account account = new Account("ACC001", "John Doe", "password123", 100.0);
+            account.deposit(10.0, "Deposit");
+            store.save(account);
+
+            account.deposit(5.0, "Deposit");
+            store.appendTransaction("ACC001", account.getTransactions().get(2));
+            assertEquals(115.0, store.load("ACC001").getBalance(), 0.01);
+
+            // Shrinking the history replaces the stored rows
+            account.setTransactions(new ArrayList<>(account.getTransactions().subList(2, 3)));
+            store.save(account);
+            assertEquals(1, store.load("ACC001").getTransactions().size());
+        }
+    }
+
+    @Test
+    public void testSaveAllAcrossCountChunks() throws Exception {
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            List<Account> accounts = new ArrayList<>();
+            for (int i = 0; i < 1200; i++) {
+                accounts.add(new Account(String.format("ACC%04d", i), "Holder " + i, "password", 100.0));
+            }
+            store.saveAll(accounts.subList(0, 700));
+
+            // A mix of stored and new accounts, spanning several count queries
+            for (Account account : accounts) {
+                account.deposit(1.0, "Deposit");
+            }
+            store.saveAll(accounts);
+
+            for (String accountNumber : new String[] {"ACC0000", "ACC0699", "ACC0700", "ACC1199"}) {
+                Account loaded = store.load(accountNumber);
+                assertEquals(101.0, loaded.getBalance(), 0.01);
+                assertEquals(2, loaded.getTransactions().size());
+            }
+        }
+    }
+
+    @Test
+    public void testBankMigratesJsonOnFirstStart() throws Exception {
+        String dataFile = tempDir.resolve("bank_data.json").toString();
+        Bank legacy = new Bank(dataFile);
+        legacy.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        legacy.createAccount("ACC002", "Jane Smith", "password456", 500.0);
+
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(dataFile, store);
+            assertTrue(bank.getAllAccounts().isEmpty());
+            assertTrue(bank.transfer("ACC001", "ACC002", 200.0, "password123").isSuccess());
+        }
+
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(dataFile, store);
+            assertEquals(800.0, bank.getAccount("ACC001").getBalance(), 0.01);
+            assertEquals(700.0, bank.getAccount("ACC002").getBalance(), 0.01);
+            assertEquals(2, bank.getAccount("ACC002").getTransactions().size());
+
+            List<Account> scanned = new ArrayList<>();
+            store.scan(scanned::add);
+            assertEquals(2, scanned.size());
+        }
+    }
+
+    @Test
+    public void testReconcileCoversAccountsNotInMemory() throws Exception {
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(tempDir.resolve("bank_data.json").toString(), store, 2);
+            for (int i = 1; i <= 5; i++) {
+                bank.createAccount("ACC00" + i, "Holder " + i, "password", 100.0);
+            }
+            bank.saveData();
+            assertTrue(bank.getAllAccounts().size() <= 2);
+
+            Reconciler.Report report = bank.reconcile(new Reconciler(), null);
+            assertEquals(5, report.getAccountCount());
+            assertEquals(500.0, report.getTotalBalance(), 0.01);
+            assertTrue(report.isBalanced());
+        }
+    }
+
+    @Test
+    public void testCompactionCoversAccountsNotInMemory() throws Exception {
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(tempDir.resolve("bank_data.json").toString(), store, 2);
+            for (int i = 1; i <= 5; i++) {
+                bank.createAccount("ACC00" + i, "Holder " + i, "password", 100.0);
+                bank.deposit("ACC00" + i, 10.0, "Deposit", null);
+                bank.deposit("ACC00" + i, 10.0, "Deposit", null);
+            }
+            bank.saveData();
+
+            assertEquals(10, bank.compactHistory(RetentionPolicy.keepLast(1)));
+            for (int i = 1; i <= 5; i++) {
+                assertEquals(2, store.load("ACC00" + i).getTransactions().size());
+                assertEquals(120.0, store.load("ACC00" + i).getBalance(), 0.01);
+            }
+        }
+    }
+
+    @Test
+    public void testInterestPostingCoversAccountsNotInMemory() throws Exception {
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(tempDir.resolve("bank_data.json").toString(), store, 2);
+            for (int i = 1; i <= 5; i++) {
+                bank.createAccount("ACC00" + i, "Holder " + i, "password", 100.0);
+            }
+            bank.saveData();
+
+            InterestPostingJob.Report report = new InterestPostingJob(bank, tempDir.resolve("postings.journal"))
+                .setPartitions(2)
+                .run("2026-10", InterestPostingJob.Tariff.monthly(0.12, 0));
+            assertEquals(5, report.getAccounts());
+            assertEquals(5, report.getInterestPosted());
+            for (int i = 1; i <= 5; i++) {
+                assertEquals(101.0, store.load("ACC00" + i).getBalance(), 0.01);
+            }
+        }
+    }
+
+    @Test
+    public void testChainHashesAreStored() throws Exception {
+        String dataFile = tempDir.resolve("bank_data.json").toString();
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(dataFile, store, 2);
+            for (int i = 1; i <= 3; i++) {
+                bank.createAccount("ACC00" + i, "Holder " + i, "password", 100.0);
+                bank.deposit("ACC00" + i, 10.0, "Deposit", null);
+            }
+            bank.checkpointChain();
+            bank.saveData();
+        }
+
+        // With a checkpoint, histories are no longer sealed on load, so the hashes must come from the store
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(dataFile, store, 2);
+            LedgerChain.Verification verification = bank.verifyChain(false);
+            assertTrue(verification.isValid(), verification.getBroken().toString());
+            assertEquals(3, verification.getAccounts());
+            assertEquals(0, verification.getHashed());
+        }
+    }
+
+    @Test
+    public void testCompactedHistoryThatGrewBackIsReplaced() throws Exception {
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Account account = new Account("ACC001", "John Doe", "password123", 100.0);
+            account.deposit(10.0, "Deposit");
+            account.deposit(10.0, "Deposit");
+            store.save(account);
+
+            // Compacted, then more deposits than the compaction removed before the next save
+            TransactionArchive archive = new TransactionArchive(tempDir.resolve("archive"));
+            archive.compact(account, RetentionPolicy.keepLast(1), java.time.LocalDateTime.now());
+            for (int i = 0; i < 3; i++) {
+                account.deposit(1.0, "Later " + i);
+            }
+            store.save(account);
+
+            Account loaded = store.load("ACC001");
+            assertEquals(5, loaded.getTransactions().size());
+            assertEquals(TransactionArchive.OPENING_TYPE, loaded.getTransactions().get(0).getType());
+            for (int i = 0; i < 5; i++) {
+                assertEquals(account.getTransactions().get(i).getHash(), loaded.getTransactions().get(i).getHash());
+            }
+            assertEquals(123.0, loaded.getBalance(), 0.01);
+        }
+    }
+
+    @Test
+    public void testKeyedRequestsAreJournaledNotRewritten() throws Exception {
+        Path dataFile = tempDir.resolve("bank_data.json");
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(dataFile.toString(), store);
+            bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+            bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+            bank.saveData();
+            byte[] saved = Files.readAllBytes(dataFile);
+
+            for (int i = 0; i < 5; i++) {
+                assertTrue(bank.deposit("ACC001", 10.0, "Deposit", "dep-" + i).isSuccess());
+            }
+            assertArrayEquals(saved, Files.readAllBytes(dataFile));
+            assertEquals(5, Files.readAllLines(tempDir.resolve("bank_data.json.keys")).size());
+
+            // A change to the standing orders folds the journal back into the data file
+            bank.getStandingOrders().create("ACC001", "ACC002", 1.0, LocalDateTime.now().plusDays(1),
+                null, 0, Duration.ZERO);
+            assertFalse(Files.exists(tempDir.resolve("bank_data.json.keys")));
+            assertTrue(bank.deposit("ACC001", 10.0, "Deposit", "dep-5").isSuccess());
+        }
+
+        try (JdbcAccountStore store = JdbcAccountStore.open(tempDir.resolve("bank"))) {
+            Bank bank = new Bank(dataFile.toString(), store);
+            for (int i = 0; i <= 5; i++) {
+                assertTrue(bank.deposit("ACC001", 10.0, "Deposit", "dep-" + i).isSuccess());
+            }
+            assertEquals(160.0, bank.getAccount("ACC001").getBalance(), 0.01);
+            assertEquals(1, bank.getStandingOrders().list("ACC001").size());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the LedgerChain class.
+ */
+public class LedgerChainTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testEveryTransactionIsChained() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+        bank.deposit("ACC001", 50.0, "Salary", null);
+        bank.transfer("ACC001", "ACC002", 30.0, "password123");
+
+        List<Account.Transaction> history = bank.getAccount("ACC001").getTransactions();
+        assertEquals(3, history.size());
+        for (Account.Transaction transaction : history) {
+            assertEquals(64, transaction.getHash().length());
+        }
+        assertNotEquals(history.get(0).getHash(), history.get(1).getHash());
+
+        LedgerChain.Verification verification = bank.verifyChain(true);
+        assertTrue(verification.isValid());
+        assertEquals(2, verification.getAccounts());
+        assertEquals(4, verification.getHashed());
+        assertNull(verification.getRoot());
+
+        // Hashes are saved with the ledger
+        bank.saveData();
+        Bank reloaded = new Bank(tempDir.resolve("bank.json").toString());
+        assertEquals(history.get(2).getHash(),
+            reloaded.getAccount("ACC001").getTransactions().get(2).getHash());
+        assertTrue(reloaded.verifyChain(true).isValid());
+    }
+
+    @Test
+    public void testTamperingIsDetected() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+        for (int i = 0; i < 5; i++) {
+            bank.deposit("ACC001", 10.0, "Deposit " + i, null);
+        }
+        bank.checkpointChain();
+        bank.deposit("ACC001", 10.0, "After the checkpoint", null);
+
+        List<Account.Transaction> history = bank.getAccount("ACC001").getTransactions();
+        history.get(6).setAmount(1000.0);
+        LedgerChain.Verification verification = bank.verifyChain(false);
+        assertFalse(verification.isValid());
+        assertEquals(Map.of("ACC001", "transaction 6 does not match its hash"), verification.getBroken());
+        history.get(6).setAmount(10.0);
+
+        // Entries before the checkpoint are only rehashed by a full check
+        history.get(2).setDescription("Edited");
+        assertTrue(bank.verifyChain(false).isValid());
+        assertEquals(Map.of("ACC001", "transaction 2 does not match its hash"), bank.verifyChain(true).getBroken());
+
+        // Dropping the checkpointed entry is caught without rehashing
+        history.remove(2);
+        history.remove(4);
+        assertEquals(Map.of("ACC001", "checkpointed transaction missing"), bank.verifyChain(false).getBroken());
+    }
+
+    @Test
+    public void testIncrementalCheckRehashesOnlyNewEntries() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        for (int i = 1; i <= 20; i++) {
+            bank.createAccount(String.format("ACC%03d", i), "Holder " + i, "password", 100.0);
+            for (int j = 0; j < 10; j++) {
+                bank.deposit(String.format("ACC%03d", i), 1.0, "Deposit", null);
+            }
+        }
+        LedgerChain.Checkpoint checkpoint = bank.checkpointChain();
+        assertEquals(20, checkpoint.getHeads().size());
+        assertTrue(checkpoint.isIntact());
+
+        bank.deposit("ACC003", 1.0, "New", null);
+        bank.deposit("ACC017", 1.0, "New", null);
+        bank.createAccount("ACC021", "Holder 21", "password", 5.0);
+
+        LedgerChain.Verification incremental = bank.verifyChain(false);
+        assertTrue(incremental.isValid());
+        assertEquals(21, incremental.getAccounts());
+        assertEquals(3, incremental.getHashed());
+        assertEquals(checkpoint.getRoot(), incremental.getRoot());
+        assertEquals(20 * 11 + 3, bank.verifyChain(true).getHashed());
+
+        // The root commits to every account's hash
+        assertNotEquals(checkpoint.getRoot(), bank.checkpointChain().getRoot());
+    }
+
+    @Test
+    public void testMissingAccountIsReported() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 5.0);
+        bank.checkpointChain();
+
+        // A ledger that lost an account still has the checkpoint listing it
+        Bank truncated = new Bank(tempDir.resolve("truncated.json").toString());
+        Files.copy(tempDir.resolve("bank.json.chain"), tempDir.resolve("truncated.json.chain"));
+        Account kept = bank.getAccount("ACC001");
+        truncated.addAccounts(List.of(kept.copy()));
+        LedgerChain.Verification verification = truncated.verifyChain(false);
+        assertEquals(Map.of("ACC002", "account missing"), verification.getBroken());
+        assertEquals(0, verification.getHashed());
+    }
+
+    @Test
+    public void testCompactionAnchorsTheChain() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        for (int i = 0; i < 6; i++) {
+            bank.deposit("ACC001", 1.0, "Deposit " + i, null);
+        }
+        bank.checkpointChain();
+        assertTrue(bank.compactHistory(RetentionPolicy.keepLast(2)) > 0);
+        bank.deposit("ACC001", 1.0, "After compaction", null);
+
+        List<Account.Transaction> history = bank.getAccount("ACC001").getTransactions();
+        assertEquals(TransactionArchive.OPENING_TYPE, history.get(0).getType());
+        LedgerChain.Verification verification = bank.verifyChain(false);
+        assertTrue(verification.isValid(), verification.getBroken().toString());
+        assertEquals(1, verification.getHashed());
+        assertTrue(bank.verifyChain(true).isValid());
+
+        history.get(1).setAmount(50.0);
+        assertFalse(bank.verifyChain(true).isValid());
+    }
+
+    @Test
+    public void testOpeningEntryIsCheckedAgainstTheArchive() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        for (int i = 0; i < 6; i++) {
+            bank.deposit("ACC001", 1.0, "Deposit " + i, null);
+        }
+        bank.checkpointChain();
+        bank.deposit("ACC001", 1.0, "After the checkpoint", null);
+        bank.deposit("ACC001", 1.0, "Kept", null);
+        // The checkpointed entry goes into the archive along with the one after it
+        assertEquals(8, bank.compactHistory(RetentionPolicy.keepLast(1)));
+        LedgerChain.Verification verification = bank.verifyChain(false);
+        assertTrue(verification.isValid(), verification.getBroken().toString());
+        assertEquals(2, verification.getHashed());
+        assertTrue(bank.verifyChain(true).isValid());
+
+        // A history rewritten from a made-up opening entry chains fine on its own
+        List<Account.Transaction> history = bank.getAccount("ACC001").getTransactions();
+        history.get(0).setAmount(500.0);
+        history.get(0).setHash(LedgerChain.seal("ACC001", null, history.get(0)));
+        history.get(1).setHash(LedgerChain.seal("ACC001", history.get(0).getHash(), history.get(1)));
+        assertEquals(Map.of("ACC001", "opening balance does not follow the archive"),
+            bank.verifyChain(false).getBroken());
+        assertEquals(Map.of("ACC001", "opening balance does not follow the archive"),
+            bank.verifyChain(true).getBroken());
+    }
+
+    @Test
+    public void testOpeningEntryDoesNotExcuseMissingCheckpoint() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.deposit("ACC001", 10.0, "Deposit", null);
+        bank.checkpointChain();
+
+        // Replacing the history with an opening entry, without compacting anything
+        Account account = bank.getAccount("ACC001");
+        Account.Transaction opening = new Account.Transaction(account.getTransactions().get(1).getDate(),
+            "Opening balance carried forward", 110.0, TransactionArchive.OPENING_TYPE, 110.0);
+        opening.setHash(account.getTransactions().get(0).getHash());
+        account.setTransactions(new java.util.ArrayList<>(List.of(opening)));
+        assertEquals(Map.of("ACC001", "checkpointed transaction missing"), bank.verifyChain(false).getBroken());
+        assertEquals(Map.of("ACC001", "opening balance does not follow the archive"),
+            bank.verifyChain(true).getBroken());
+    }
+
+    @Test
+    public void testHistoryWithoutHashesIsReportedOnceCheckpointed() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.checkpointChain();
+
+        Account stripped = new Account("ACC002", "Jane Smith", "password456", 5.0);
+        stripped.deposit(1.0, "Deposit");
+        for (Account.Transaction transaction : stripped.getTransactions()) {
+            transaction.setHash(null);
+        }
+        bank.addAccounts(List.of(stripped));
+        assertNull(stripped.getTransactions().get(1).getHash());
+        assertEquals(Map.of("ACC002", "transaction 0 does not match its hash"), bank.verifyChain(false).getBroken());
+
+        // The same history is still sealed in a bank that never had a checkpoint
+        Bank fresh = new Bank(tempDir.resolve("fresh.json").toString());
+        fresh.addAccounts(List.of(stripped));
+        assertNotNull(stripped.getTransactions().get(1).getHash());
+        assertTrue(fresh.verifyChain(true).isValid());
+    }
+
+    @Test
+    public void testEventLogReplayReproducesHashes() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile, new EventLog(tempDir.resolve("events.jsonl")));
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+        bank.deposit("ACC001", 50.0, "Salary", null);
+        bank.transfer("ACC001", "ACC002", 30.0, "password123");
+        bank.saveData();
+        String head = bank.checkpointChain().getRoot();
+
+        Bank recovered = new Bank(dataFile, new EventLog(tempDir.resolve("events.jsonl")));
+        LedgerChain.Verification verification = recovered.verifyChain(false);
+        assertTrue(verification.isValid(), verification.getBroken().toString());
+        assertEquals(0, verification.getHashed());
+        assertEquals(head, recovered.checkpointChain().getRoot());
+    }
+
+    @Test
+    public void testLegacyHistoryIsSealed() {
+        Account account = new Account("ACC001", "John Doe", "password123", 100.0);
+        account.deposit(10.0, "Deposit");
+        String head = account.getTransactions().get(1).getHash();
+        for (Account.Transaction transaction : account.getTransactions()) {
+            transaction.setHash(null);
+        }
+        account.sealHistory();
+        assertEquals(head, account.getTransactions().get(1).getHash());
+
+        // A partly hashed history is left for verification to flag
+        account.getTransactions().get(0).setHash(null);
+        account.sealHistory();
+        assertNull(account.getTransactions().get(0).getHash());
+        assertEquals(0, LedgerChain.verify(account, null, null, new java.util.concurrent.atomic.AtomicLong()));
+    }
+}
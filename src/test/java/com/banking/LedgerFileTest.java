@@ -0,0 +1,123 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests for the LedgerFile class and Bank's crash-safe persistence.
+ */
+public class LedgerFileTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRoundTripVerifiesChecksum() throws Exception {
+        Path file = tempDir.resolve("ledger.dat");
+        LedgerFile.write(file, out -> {
+            out.write("hello ledger");
+            return 2;
+        });
+
+        assertTrue(Files.readString(file).startsWith("BANKDATA 1 0000000002 "));
+        StringBuilder body = new StringBuilder();
+        LedgerFile.read(file, in -> {
+            int c;
+            while ((c = in.read()) >= 0) {
+                body.append((char) c);
+            }
+            return 2;
+        });
+        assertEquals("hello ledger", body.toString());
+        assertFalse(Files.exists(tempDir.resolve("ledger.dat.tmp")));
+    }
+
+    @Test
+    public void testCorruptBodyIsRejected() throws Exception {
+        Path file = tempDir.resolve("ledger.dat");
+        LedgerFile.write(file, out -> {
+            out.write("hello ledger");
+            return 1;
+        });
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> LedgerFile.read(file, in -> {
+            in.read(new char[64]);
+            return 1;
+        }));
+    }
+
+    @Test
+    public void testFailedWriteKeepsOldFile() throws Exception {
+        Path file = tempDir.resolve("ledger.dat");
+        LedgerFile.write(file, out -> {
+            out.write("old");
+            return 1;
+        });
+
+        assertThrows(IOException.class, () -> LedgerFile.write(file, out -> {
+            out.write("half written");
+            throw new IOException("disk full");
+        }));
+        assertTrue(Files.readString(file).endsWith("old"));
+        assertFalse(Files.exists(tempDir.resolve("ledger.dat.tmp")));
+    }
+
+    @Test
+    public void testBankFallsBackToPreviousGeneration() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile);
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Doe", "password456", 500.0);
+
+        // Damage the newest generation
+        Path path = Path.of(dataFile);
+        String content = Files.readString(path, StandardCharsets.UTF_8);
+        Files.writeString(path, content.replace("Jane Doe", "Jane Dox"), StandardCharsets.UTF_8);
+
+        Bank recovered = new Bank(dataFile);
+        assertNotNull(recovered.getAccount("ACC001"));
+        assertNull(recovered.getAccount("ACC002"));
+    }
+
+    @Test
+    public void testBankRefusesToStartWhenNoGenerationIsReadable() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile);
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Doe", "password456", 500.0);
+
+        Path path = Path.of(dataFile);
+        Path previous = LedgerFile.previousGeneration(path);
+        for (Path generation : new Path[] {path, previous}) {
+            String content = Files.readString(generation, StandardCharsets.UTF_8);
+            Files.writeString(generation, content.replace("John Doe", "John Dox"), StandardCharsets.UTF_8);
+        }
+        byte[] damaged = Files.readAllBytes(path);
+        byte[] damagedPrevious = Files.readAllBytes(previous);
+
+        assertThrows(java.io.UncheckedIOException.class, () -> new Bank(dataFile));
+        // Both generations are left as they were for an operator to look at
+        assertArrayEquals(damaged, Files.readAllBytes(path));
+        assertArrayEquals(damagedPrevious, Files.readAllBytes(previous));
+    }
+
+    @Test
+    public void testBankLoadsPreviousGenerationWhenFileMissing() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(dataFile);
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Doe", "password456", 500.0);
+        Files.delete(Path.of(dataFile));
+
+        Bank recovered = new Bank(dataFile);
+        assertNotNull(recovered.getAccount("ACC001"));
+    }
+}
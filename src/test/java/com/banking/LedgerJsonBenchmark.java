@@ -0,0 +1,69 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares saving and loading accounts with the streaming adapters against
+ * Gson's reflective mapping with pretty printing, as the bank used to do.
+ *
+ * Not a unit test; run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.banking.LedgerJsonBenchmark
+ * </pre>
+ */
+public class LedgerJsonBenchmark {
+    private static final int ACCOUNTS = 5_000;
+    private static final int TRANSACTIONS_PER_ACCOUNT = 50;
+    private static final int ROUNDS = 8;
+
+    public static void main(String[] args) {
+        List<Account> accounts = new ArrayList<>(ACCOUNTS);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = Account.restore("ACC" + i, "Holder " + i, "0".repeat(64), 0, new ArrayList<>(),
+                "2024-01-01T09:00:00");
+            for (int t = 0; t < TRANSACTIONS_PER_ACCOUNT; t++) {
+                if (t % 2 == 0) {
+                    account.deposit(100.0 + t, "Transfer from ACC" + (i + t) % 100, "ACC" + (i + t) % 100);
+                } else {
+                    account.withdraw(50.0, "Card payment");
+                }
+            }
+            accounts.add(account);
+        }
+
+        Gson reflective = new GsonBuilder().setPrettyPrinting().create();
+        Gson adapters = LedgerJson.create(false);
+        for (int round = 0; round < ROUNDS; round++) {
+            report("reflective", reflective, accounts);
+            report("adapters  ", adapters, accounts);
+        }
+    }
+
+    private static void report(String name, Gson gson, List<Account> accounts) {
+        long start = System.nanoTime();
+        StringWriter out = new StringWriter();
+        for (Account account : accounts) {
+            gson.toJson(account, Account.class, out);
+        }
+        String json = out.toString();
+        long saved = System.nanoTime();
+
+        int loaded = 0;
+        String[] parts = json.split("(?<=})(?=\\{)");
+        long split = System.nanoTime();
+        for (String part : parts) {
+            if (gson.fromJson(new StringReader(part), Account.class) != null) {
+                loaded++;
+            }
+        }
+        long end = System.nanoTime();
+        System.out.printf("%s: save %4d ms, load %4d ms, %5.1f MB, %d accounts%n", name,
+            (saved - start) / 1_000_000, (end - split) / 1_000_000, json.length() / 1e6, loaded);
+    }
+}
@@ -0,0 +1,95 @@
+package com.banking;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests for the LedgerJson class.
+ */
+public class LedgerJsonTest {
+    @TempDir
+    Path tempDir;
+
+    /** Gson as the bank used to build it, mapping accounts by reflection. */
+    private final Gson reflective = new GsonBuilder().setPrettyPrinting().create();
+
+    @Test
+    public void testReadsReflectiveOutput() {
+        Account original = sampleAccount();
+        original.setCurrency(null);
+        Account read = LedgerJson.create(false).fromJson(reflective.toJson(original), Account.class);
+        assertSameAccount(original, read);
+        assertEquals(Account.DEFAULT_CURRENCY, read.getCurrency());
+    }
+
+    @Test
+    public void testReflectiveReadsAdapterOutput() {
+        Account original = sampleAccount();
+        String json = LedgerJson.create(false).toJson(original);
+        assertFalse(json.contains("\n"));
+        assertFalse(json.contains("counterparty\":null"));
+        assertSameAccount(original, reflective.fromJson(json, Account.class));
+        assertTrue(LedgerJson.create(true).toJson(original).contains("\n  \"accountHolder\""));
+    }
+
+    @Test
+    public void testRepeatedStringsAreShared() {
+        Gson gson = LedgerJson.create(false);
+        Account read = gson.fromJson(gson.toJson(sampleAccount()), Account.class);
+        List<Account.Transaction> transactions = read.getTransactions();
+        assertSame(transactions.get(1).getDescription(), transactions.get(3).getDescription());
+        assertSame(transactions.get(1).getCounterparty(), transactions.get(3).getCounterparty());
+        assertSame(transactions.get(0).getType(), transactions.get(2).getType());
+    }
+
+    @Test
+    public void testBankLoadsFileWrittenByReflection() throws Exception {
+        Path dataFile = tempDir.resolve("bank.json");
+        Account original = sampleAccount();
+        LedgerFile.write(dataFile, out -> {
+            reflective.toJson(List.of(original), out);
+            return 1;
+        });
+
+        Bank bank = new Bank(dataFile.toString());
+        assertSameAccount(original, bank.getAccount("ACC001"));
+        bank.deposit("ACC001", 10.0, "After upgrade", null);
+        Bank reloaded = new Bank(dataFile.toString());
+        assertEquals(original.getBalance() + 10.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(5, reloaded.getAccount("ACC001").getTransactions().size());
+    }
+
+    private static Account sampleAccount() {
+        Account account = new Account("ACC001", "John \"Johnny\" Doe", "password123", 1000.0, "EUR");
+        account.withdraw(25.5, "Transfer to ACC002", "ACC002");
+        account.deposit(10.0, "Refund");
+        account.withdraw(4.5, "Transfer to ACC002", "ACC002");
+        return account;
+    }
+
+    private static void assertSameAccount(Account expected, Account actual) {
+        assertEquals(expected.getAccountNumber(), actual.getAccountNumber());
+        assertEquals(expected.getAccountHolder(), actual.getAccountHolder());
+        assertEquals(expected.getPasswordHash(), actual.getPasswordHash());
+        assertEquals(expected.getBalance(), actual.getBalance(), 0.001);
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getCurrency(), actual.getCurrency());
+        assertEquals(expected.getTransactions().size(), actual.getTransactions().size());
+        for (int i = 0; i < expected.getTransactions().size(); i++) {
+            Account.Transaction e = expected.getTransactions().get(i);
+            Account.Transaction a = actual.getTransactions().get(i);
+            assertEquals(e.getDate(), a.getDate());
+            assertEquals(e.getDescription(), a.getDescription());
+            assertEquals(e.getAmount(), a.getAmount(), 0.001);
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getBalanceAfter(), a.getBalanceAfter(), 0.001);
+            assertEquals(e.getCounterparty(), a.getCounterparty());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the LoginThrottle class and throttled authentication.
+ */
+public class LoginThrottleTest {
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    public void testBackoffDoublesAndExpires() {
+        LoginThrottle throttle = new LoginThrottle(2, 1_000, 60_000, 100, now::get);
+        throttle.recordFailure("ACC001", null);
+        throttle.recordFailure("ACC001", null);
+        assertEquals(0, throttle.retryAfter("ACC001", null));
+
+        throttle.recordFailure("ACC001", null);
+        assertEquals(1_000, throttle.retryAfter("ACC001", null));
+        throttle.recordFailure("ACC001", null);
+        assertEquals(2_000, throttle.retryAfter("ACC001", null));
+        for (int i = 0; i < 20; i++) {
+            throttle.recordFailure("ACC001", null);
+        }
+        assertEquals(60_000, throttle.retryAfter("ACC001", null));
+
+        now.addAndGet(60_000);
+        assertEquals(0, throttle.retryAfter("ACC001", null));
+    }
+
+    @Test
+    public void testSourceIsThrottledAcrossAccounts() {
+        LoginThrottle throttle = new LoginThrottle(2, 1_000, 60_000, 100, now::get);
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure("ACC00" + i, "10.0.0.1");
+        }
+        assertTrue(throttle.retryAfter("ACC009", "10.0.0.1") > 0);
+        assertEquals(0, throttle.retryAfter("ACC009", "10.0.0.2"));
+
+        throttle.recordSuccess("ACC000");
+        assertTrue(throttle.retryAfter("ACC000", "10.0.0.1") > 0);
+    }
+
+    @Test
+    public void testBoundedSize() {
+        LoginThrottle throttle = new LoginThrottle(2, 1_000, 60_000, 10, now::get);
+        for (int i = 0; i < 100; i++) {
+            throttle.recordFailure("ACC" + i, null);
+        }
+        assertTrue(throttle.size() <= 10);
+    }
+
+    @Test
+    public void testBankRefusesCorrectPasswordWhileLockedOut() {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        bank.setLoginThrottle(new LoginThrottle(3, 1_000, 60_000, 100, now::get));
+
+        for (int i = 0; i < 4; i++) {
+            assertNull(bank.authenticate("ACC001", "wrong", "10.0.0.1"));
+        }
+        assertNull(bank.authenticate("ACC001", "password123"));
+        assertEquals(1_000, bank.getLoginRetryDelay("ACC001", null));
+
+        now.addAndGet(1_000);
+        assertNotNull(bank.authenticate("ACC001", "password123"));
+        assertEquals(0, bank.getLoginRetryDelay("ACC001", null));
+    }
+
+    @Test
+    public void testFloodDoesNotLiftLockout() {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        LoginThrottle throttle = new LoginThrottle(3, 10_000, 60_000, 10, now::get);
+        bank.setLoginThrottle(throttle);
+        for (int i = 0; i < 4; i++) {
+            assertNull(bank.authenticate("ACC001", "wrong"));
+        }
+        assertEquals(10_000, bank.getLoginRetryDelay("ACC001", null));
+
+        // Guesses at unknown accounts count only against their sources
+        assertNull(bank.authenticate("NOPE", "wrong"));
+        assertEquals(1, throttle.size());
+
+        for (int i = 0; i < 1_000; i++) {
+            now.addAndGet(1);
+            assertNull(bank.authenticate("NOPE" + i, "wrong", "10.0." + (i / 250) + "." + (i % 250)));
+        }
+        assertTrue(throttle.size() <= 10);
+        assertEquals(9_000, bank.getLoginRetryDelay("ACC001", null));
+        assertNull(bank.authenticate("ACC001", "password123"));
+    }
+}
@@ -0,0 +1,149 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the MappedAccountTable class and Bank's off-heap mode.
+ */
+public class MappedAccountTableTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testInsertLoadAndVerify() throws Exception {
+        Path file = tempDir.resolve("accounts.tbl");
+        try (MappedAccountTable table = MappedAccountTable.open(file, 100)) {
+            Account account = new Account("ACC001", "Jöhn Doe", "password123", 1000.0);
+            account.withdraw(250.5, "Transfer to ACC002", "ACC002");
+            assertTrue(table.insert(account));
+            assertFalse(table.insert(account));
+
+            assertTrue(table.verifyPassword("ACC001", "password123"));
+            assertFalse(table.verifyPassword("ACC001", "wrong"));
+            assertFalse(table.verifyPassword("ACC999", "password123"));
+
+            Account loaded = table.load("ACC001");
+            assertEquals("Jöhn Doe", loaded.getAccountHolder());
+            assertEquals(749.5, loaded.getBalance(), 0.001);
+            assertEquals(account.getCreatedAt(), loaded.getCreatedAt());
+            assertTrue(loaded.verifyPassword("password123"));
+            List<Account.Transaction> history = loaded.getTransactions();
+            assertEquals(2, history.size());
+            assertEquals("Initial Deposit", history.get(0).getDescription());
+            assertEquals("ACC002", history.get(1).getCounterparty());
+            assertNull(history.get(0).getCounterparty());
+        }
+    }
+
+    @Test
+    public void testUpdateSurvivesReopen() throws Exception {
+        Path file = tempDir.resolve("accounts.tbl");
+        String head;
+        try (MappedAccountTable table = MappedAccountTable.open(file, 10)) {
+            Account account = new Account("ACC001", "John Doe", "password123", 100.0);
+            table.insert(account);
+            account.deposit(50.0, "Deposit");
+            assertEquals(2, table.update(account));
+            head = account.getTransactions().get(1).getHash();
+        }
+
+        try (MappedAccountTable table = MappedAccountTable.open(file, 0)) {
+            assertEquals(1, table.size());
+            Account loaded = table.load("ACC001");
+            assertEquals(150.0, loaded.getBalance(), 0.001);
+            assertEquals(2, loaded.getTransactions().size());
+            // Chain hashes are stored, not recomputed on load
+            assertEquals(head, loaded.getTransactions().get(1).getHash());
+        }
+    }
+
+    @Test
+    public void testManyAccountsAndFullTable() throws Exception {
+        try (MappedAccountTable table = MappedAccountTable.open(tempDir.resolve("accounts.tbl"), 500)) {
+            for (int i = 0; i < 500; i++) {
+                assertTrue(table.insert(new Account("ACC" + i, "Holder " + i, "password123", i)));
+            }
+            for (int i = 0; i < 500; i++) {
+                assertTrue(table.contains("ACC" + i));
+            }
+            assertFalse(table.contains("ACC500"));
+            assertThrows(IllegalStateException.class,
+                () -> table.insert(new Account("ACC500", "Holder", "password123", 0)));
+        }
+    }
+
+    @Test
+    public void testBankOffHeapMode() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Path tableFile = tempDir.resolve("accounts.tbl");
+
+        try (MappedAccountTable table = MappedAccountTable.open(tableFile, 100)) {
+            Bank bank = new Bank(dataFile, table);
+            assertTrue(bank.createAccount("ACC001", "John Doe", "password123", 1000.0));
+            assertTrue(bank.createAccount("ACC002", "Jane Doe", "password456", 500.0));
+            assertFalse(bank.createAccount("ACC001", "John Again", "password123", 1.0));
+            assertTrue(bank.transfer("ACC001", "ACC002", 300.0, "password123").isSuccess());
+        }
+
+        try (MappedAccountTable table = MappedAccountTable.open(tableFile, 100)) {
+            Bank bank = new Bank(dataFile, table);
+            assertNull(bank.authenticate("ACC001", "wrongpassword"));
+            assertTrue(bank.getAllAccounts().isEmpty());
+
+            List<Map<String, Object>> summaries = bank.listAccounts();
+            assertEquals(2, summaries.size());
+
+            Account account = bank.authenticate("ACC001", "password123");
+            assertNotNull(account);
+            assertEquals(700.0, account.getBalance(), 0.01);
+            assertEquals(800.0, bank.getAccount("ACC002").getBalance(), 0.01);
+            assertEquals(2, account.getTransactions().size());
+        }
+    }
+
+    @Test
+    public void testBankMigratesJsonAccountsIntoTable() throws Exception {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank heap = new Bank(dataFile);
+        heap.createAccount("ACC001", "John Doe", "password123", 1000.0);
+
+        try (MappedAccountTable table = MappedAccountTable.open(tempDir.resolve("accounts.tbl"), 100)) {
+            new Bank(dataFile, table);
+            assertTrue(table.contains("ACC001"));
+        }
+    }
+
+    @Test
+    public void testCompactedHistoryThatGrewBackIsReplaced() throws Exception {
+        Path file = tempDir.resolve("accounts.tbl");
+        Account account = new Account("ACC001", "John Doe", "password123", 100.0);
+        account.deposit(10.0, "Deposit");
+        account.deposit(10.0, "Deposit");
+        try (MappedAccountTable table = MappedAccountTable.open(file, 10)) {
+            table.insert(account);
+            TransactionArchive archive = new TransactionArchive(tempDir.resolve("archive"));
+            archive.compact(account, RetentionPolicy.keepLast(1), java.time.LocalDateTime.now());
+            for (int i = 0; i < 3; i++) {
+                account.deposit(1.0, "Later " + i);
+            }
+            assertEquals(5, table.update(account));
+        }
+
+        try (MappedAccountTable table = MappedAccountTable.open(file, 0)) {
+            Account loaded = table.load("ACC001");
+            assertEquals(5, loaded.getTransactions().size());
+            assertEquals(TransactionArchive.OPENING_TYPE, loaded.getTransactions().get(0).getType());
+            assertEquals(account.getTransactions().get(4).getHash(), loaded.getTransactions().get(4).getHash());
+            // The loaded copy knows its generation, so saving it again appends nothing twice
+            loaded.deposit(1.0, "After reload");
+            assertEquals(6, table.update(loaded));
+            assertEquals(6, table.load("ACC001").getTransactions().size());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the Reconciler class.
+ */
+public class ReconcilerTest {
+    private Reconciler reconciler;
+    private List<Account> accounts;
+
+    @BeforeEach
+    public void setUp() {
+        reconciler = new Reconciler();
+        accounts = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Account account = new Account(String.format("ACC%04d", i), "Holder " + i, "password123", 100.0);
+            account.deposit(50.0, "Deposit");
+            account.withdraw(30.0, "Withdrawal");
+            accounts.add(account);
+        }
+    }
+
+    @Test
+    public void testCleanLedgerBalances() {
+        Reconciler.Report report = reconciler.reconcile(accounts);
+
+        assertTrue(report.isBalanced());
+        assertEquals(2000, report.getAccountCount());
+        assertEquals(2000 * 150.0, report.getTotalCredits(), 0.001);
+        assertEquals(2000 * 30.0, report.getTotalDebits(), 0.001);
+        assertEquals(2000 * 120.0, report.getTotalBalance(), 0.001);
+
+        List<Reconciler.DailyTotals> days = report.getDailyTotals();
+        assertFalse(days.isEmpty());
+        assertEquals(2000 * 120.0, days.get(days.size() - 1).getClosingBalance(), 0.001);
+    }
+
+    @Test
+    public void testDetectsTamperedBalance() {
+        accounts.get(7).setBalance(999.0);
+        accounts.get(8).getTransactions().get(1).setBalanceAfter(1.0);
+
+        Reconciler.Report report = reconciler.reconcile(accounts);
+
+        assertEquals(2, report.getMismatches().size());
+        boolean foundBalance = false;
+        boolean foundRow = false;
+        for (Reconciler.Mismatch mismatch : report.getMismatches()) {
+            if (mismatch.getAccountNumber().equals("ACC0007")) {
+                assertEquals(-1, mismatch.getTransactionIndex());
+                assertEquals(120.0, mismatch.getExpected(), 0.001);
+                foundBalance = true;
+            }
+            if (mismatch.getAccountNumber().equals("ACC0008")) {
+                assertEquals(1, mismatch.getTransactionIndex());
+                foundRow = true;
+            }
+        }
+        assertTrue(foundBalance);
+        assertTrue(foundRow);
+    }
+
+    @Test
+    public void testIncrementalRunFromCheckpoint() {
+        Reconciler.Report first = reconciler.reconcile(accounts);
+        accounts.get(0).deposit(25.0, "Late deposit");
+
+        Reconciler.Report second = reconciler.reconcile(accounts, first.getCheckpoint());
+
+        assertTrue(second.isBalanced());
+        assertEquals(first.getTotalCredits() + 25.0, second.getTotalCredits(), 0.001);
+        assertEquals(first.getTotalBalance() + 25.0, second.getTotalBalance(), 0.001);
+    }
+
+    @Test
+    public void testTotalsAreKeptPerCurrency() {
+        Account pounds = new Account("GBP001", "John Doe", "password123", 1000.0);
+        Account euros = new Account("EUR001", "Jane Smith", "password456", 0.0, "EUR");
+        // The two legs of a transfer converted at 1.17
+        pounds.withdraw(100.0, "Transfer to EUR001", "EUR001");
+        euros.deposit(117.0, "Transfer from GBP001", "GBP001");
+
+        Reconciler.Report first = reconciler.reconcile(List.of(pounds, euros));
+        assertTrue(first.isBalanced());
+        assertEquals(List.of("EUR", "GBP"), new ArrayList<>(first.getTotals().keySet()));
+        Reconciler.CurrencyTotals gbp = first.getTotals().get("GBP");
+        assertEquals(1000.0, gbp.getCredits(), 0.001);
+        assertEquals(100.0, gbp.getDebits(), 0.001);
+        assertEquals(900.0, gbp.getBalance(), 0.001);
+        assertEquals(900.0, gbp.getDailyTotals().get(gbp.getDailyTotals().size() - 1).getClosingBalance(), 0.001);
+        Reconciler.CurrencyTotals eur = first.getTotals().get("EUR");
+        assertEquals(117.0, eur.getCredits(), 0.001);
+        assertEquals(0.0, eur.getDebits(), 0.001);
+        assertEquals(117.0, eur.getBalance(), 0.001);
+        assertThrows(IllegalStateException.class, first::getTotalBalance);
+
+        euros.deposit(10.0, "Deposit");
+        Reconciler.Report second = reconciler.reconcile(List.of(pounds, euros), first.getCheckpoint());
+        assertEquals(127.0, second.getTotals().get("EUR").getCredits(), 0.001);
+        assertEquals(127.0, second.getTotals().get("EUR").getBalance(), 0.001);
+        assertEquals(1000.0, second.getTotals().get("GBP").getCredits(), 0.001);
+    }
+
+    @Test
+    public void testDayKey() {
+        assertEquals(20260315, Reconciler.dayKey("2026-03-15T10:11:12"));
+        assertEquals(0, Reconciler.dayKey(null));
+    }
+}
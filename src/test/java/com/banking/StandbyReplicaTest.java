@@ -0,0 +1,138 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the StandbyReplica class.
+ */
+public class StandbyReplicaTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testFollowsPrimary() throws Exception {
+        Bank primary = newPrimary(new EventLog(log()));
+        StandbyReplica standby = new StandbyReplica(dataFile(), log());
+        assertEquals(2, standby.listAccounts().size());
+
+        primary.deposit("ACC001", 50.0, "Salary", null);
+        primary.transfer("ACC001", "ACC002", 100.0, "password123");
+        assertEquals(500.0, standby.getAccount("ACC002").getBalance(), 0.01);
+        assertEquals(2, standby.poll());
+        assertEquals(950.0, standby.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(600.0, standby.getAccount("ACC002").getBalance(), 0.01);
+        assertEquals("ACC001", standby.getTransactionHistory("ACC002", 1).get(0).getCounterparty());
+        assertEquals(4, standby.getSequence());
+
+        // Reads are copies; changing one does not change the standby
+        standby.getAccount("ACC001").deposit(1000.0, "Local only");
+        assertEquals(950.0, standby.getAccount("ACC001").getBalance(), 0.01);
+        assertNull(standby.getAccount("ACC999"));
+    }
+
+    @Test
+    public void testWaitsForCompleteLines() throws Exception {
+        newPrimary(new EventLog(log()));
+        StandbyReplica standby = new StandbyReplica(dataFile(), log());
+        String line = "{\"sequence\":3,\"type\":\"Deposited\",\"date\":\"2030-01-01T00:00:00\","
+            + "\"account\":\"ACC001\",\"amount\":5.0,\"description\":\"Split\"}\n";
+        int half = line.length() / 2;
+        Files.write(log(), line.substring(0, half).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertEquals(0, standby.poll());
+        Files.write(log(), line.substring(half).getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertEquals(1, standby.poll());
+        assertEquals(1005.0, standby.getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testStartsFromSnapshotAndPromotes() throws Exception {
+        Bank primary = newPrimary(new EventLog(log(), 2));
+        primary.deposit("ACC001", 10.0, "Before snapshot", null);
+        assertTrue(Files.exists(tempDir.resolve("events.jsonl.snapshot")));
+        primary.deposit("ACC002", 20.0, "After snapshot", null);
+
+        StandbyReplica standby = new StandbyReplica(dataFile(), log());
+        assertEquals(1010.0, standby.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(520.0, standby.getAccount("ACC002").getBalance(), 0.01);
+
+        primary.deposit("ACC001", 5.0, "Last primary write", null);
+        Bank promoted = standby.promote();
+        assertThrows(IllegalStateException.class, () -> standby.getAccount("ACC001"));
+        assertEquals(1015.0, promoted.getAccount("ACC001").getBalance(), 0.01);
+        assertTrue(promoted.transfer("ACC002", "ACC001", 20.0, "password456").isSuccess());
+
+        Bank reloaded = new Bank(dataFile(), new EventLog(log()));
+        assertEquals(1035.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(500.0, reloaded.getAccount("ACC002").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testReadsTheLogFromTheSnapshotOffset() throws Exception {
+        Bank primary = newPrimary(new EventLog(log(), 2));
+        primary.deposit("ACC001", 10.0, "Before snapshot", null);
+        primary.deposit("ACC002", 20.0, "After snapshot", null);
+
+        // Spoil the first event without moving the others; the standby must not read it
+        byte[] bytes = Files.readAllBytes(log());
+        bytes[0] = 'X';
+        Files.write(log(), bytes);
+
+        StandbyReplica standby = new StandbyReplica(dataFile(), log());
+        assertEquals(1010.0, standby.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(520.0, standby.getAccount("ACC002").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testFollowsPrimaryInAnotherProcess() throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            "com.banking.BankingCLI", "--events", "events.jsonl")
+            .directory(tempDir.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        try (OutputStream stdin = process.getOutputStream()) {
+            String script = String.join("\n",
+                "1", "ACC001", "John Doe", "password123", "password123", "100", "", "",
+                "2", "ACC001", "password123", "",
+                "2", "25", "Pay day", "",
+                "8", "");
+            stdin.write(script.getBytes(StandardCharsets.UTF_8));
+        }
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+
+        StandbyReplica standby = new StandbyReplica(tempDir.resolve("bank_data.json").toString(), log());
+        assertEquals(125.0, standby.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals("Pay day", standby.getTransactionHistory("ACC001", 1).get(0).getDescription());
+
+        Bank promoted = standby.promote();
+        assertNotNull(promoted.authenticate("ACC001", "password123"));
+        assertTrue(promoted.withdraw("ACC001", 25.0, "Cash", "password123", null).isSuccess());
+        assertEquals(100.0, new StandbyReplica(dataFile(), log()).getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    private Bank newPrimary(EventLog events) {
+        Bank bank = new Bank(dataFile(), events);
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 500.0);
+        return bank;
+    }
+
+    private String dataFile() {
+        return tempDir.resolve("bank.json").toString();
+    }
+
+    private Path log() {
+        return tempDir.resolve("events.jsonl");
+    }
+}
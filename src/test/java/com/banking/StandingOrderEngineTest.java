@@ -0,0 +1,169 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the StandingOrderEngine and TimingWheel classes.
+ */
+public class StandingOrderEngineTest {
+    @TempDir
+    Path tempDir;
+
+    private static final LocalDateTime START = LocalDateTime.now().plusYears(1).withNano(0);
+
+    @Test
+    public void testTimingWheelFiresAcrossLevels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(1_000, 0);
+        long[] deadlines = {0, 1_000, 63_000, 64_000, 5_000_000, 86_400_000, 31_536_000_000L};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        wheel.advanceTo(63_999, fired::add);
+        assertEquals(List.of(0L, 1_000L, 63_000L), fired);
+
+        wheel.advanceTo(86_400_000, fired::add);
+        assertEquals(List.of(0L, 1_000L, 63_000L, 64_000L, 5_000_000L, 86_400_000L), fired);
+        assertEquals(1, wheel.size());
+
+        wheel.advanceTo(31_535_999_999L, fired::add);
+        assertEquals(1, wheel.size());
+        wheel.advanceTo(31_536_000_000L, fired::add);
+        assertEquals(0, wheel.size());
+        assertEquals(31_536_000_000L, fired.get(fired.size() - 1));
+    }
+
+    @Test
+    public void testRecurringOrderRunsEachPeriod() {
+        Bank bank = newBank();
+        StandingOrder order = bank.getStandingOrders().create("ACC001", "ACC002", 100.0, START,
+            Period.ofMonths(1), 0, Duration.ZERO);
+
+        assertEquals(0, bank.getStandingOrders().runDue(START.minusSeconds(1)));
+        assertEquals(1, bank.getStandingOrders().runDue(START));
+        assertEquals(1, bank.getStandingOrders().runDue(START.plusMonths(1)));
+        assertEquals(800.0, bank.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(700.0, bank.getAccount("ACC002").getBalance(), 0.01);
+        assertEquals(2, order.getRuns());
+        assertEquals(START.plusMonths(2), LocalDateTime.parse(order.getNextRun()));
+        assertEquals("ACC002", bank.getAccount("ACC001").getTransactions().get(1).getCounterparty());
+    }
+
+    @Test
+    public void testRetriesOnInsufficientFunds() {
+        Bank bank = newBank();
+        StandingOrder order = bank.getStandingOrders().create("ACC002", "ACC001", 600.0, START,
+            null, 2, Duration.ofHours(1));
+
+        assertEquals(0, bank.getStandingOrders().runDue(START));
+        assertEquals(1, order.getAttempts());
+        assertTrue(order.isActive());
+
+        bank.deposit("ACC002", 100.0, "Top up", null);
+        assertEquals(1, bank.getStandingOrders().runDue(START.plusHours(1)));
+        assertEquals(StandingOrder.COMPLETED, order.getStatus());
+        assertEquals(0.0, bank.getAccount("ACC002").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testOneOffFailsAfterRetriesAndCancelledOrdersDoNotRun() {
+        Bank bank = newBank();
+        StandingOrder failing = bank.getStandingOrders().create("ACC002", "ACC001", 600.0, START,
+            null, 1, Duration.ofMinutes(30));
+        StandingOrder cancelled = bank.getStandingOrders().create("ACC001", "ACC002", 10.0, START,
+            null, 0, Duration.ZERO);
+        assertTrue(bank.getStandingOrders().cancel(cancelled.getId()));
+        assertFalse(bank.getStandingOrders().cancel(cancelled.getId()));
+
+        bank.getStandingOrders().runDue(START);
+        bank.getStandingOrders().runDue(START.plusMinutes(30));
+        assertEquals(StandingOrder.FAILED, failing.getStatus());
+        assertEquals("Insufficient balance", failing.getLastResult());
+        assertEquals(1000.0, bank.getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testOrdersSurviveRestart() {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = newBank();
+        bank.getStandingOrders().create("ACC001", "ACC002", 25.0, START, Period.ofWeeks(1), 0, Duration.ZERO);
+        assertThrows(IllegalArgumentException.class, () -> bank.getStandingOrders().create("ACC001", "ACC999",
+            25.0, START, null, 0, Duration.ZERO));
+
+        Bank reloaded = new Bank(dataFile);
+        List<StandingOrder> orders = reloaded.getStandingOrders().list("ACC002");
+        assertEquals(1, orders.size());
+        assertEquals("P7D", orders.get(0).getInterval());
+        assertEquals(1, reloaded.getStandingOrders().runDue(START));
+        assertEquals(975.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+
+        StandingOrder next = reloaded.getStandingOrders().create("ACC002", "ACC001", 5.0, START, null, 0,
+            Duration.ZERO);
+        assertEquals("SO2", next.getId());
+    }
+
+    @Test
+    public void testDispatcherPaysDueOrdersInTheBackground() throws Exception {
+        Bank bank = newBank();
+        StandingOrder order = bank.getStandingOrders().create("ACC001", "ACC002", 50.0,
+            LocalDateTime.now().withNano(0), null, 0, Duration.ZERO);
+        bank.getStandingOrders().start();
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (order.isActive() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+        } finally {
+            bank.getStandingOrders().stop();
+        }
+        assertEquals(StandingOrder.COMPLETED, order.getStatus());
+        assertEquals(950.0, bank.getAccount("ACC001").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testEndedOrdersArePrunedAndIdsNotReused() {
+        String dataFile = tempDir.resolve("bank.json").toString();
+        Bank bank = newBank();
+        StandingOrder oneOff = bank.getStandingOrders().create("ACC001", "ACC002", 10.0, START, null, 0,
+            Duration.ZERO);
+        StandingOrder recurring = bank.getStandingOrders().create("ACC001", "ACC002", 10.0, START,
+            Period.ofDays(1), 0, Duration.ZERO);
+        assertEquals(2, bank.getStandingOrders().runDue(START));
+        assertEquals(StandingOrder.COMPLETED, oneOff.getStatus());
+        assertEquals(START, LocalDateTime.parse(oneOff.getEndedAt()));
+
+        // Ended orders are kept, across a restart, until the retention runs out
+        Bank reloaded = new Bank(dataFile);
+        reloaded.getStandingOrders().runDue(START.plus(StandingOrderEngine.ENDED_RETENTION).minusSeconds(1));
+        assertNotNull(reloaded.getStandingOrders().get(oneOff.getId()));
+        reloaded.getStandingOrders().runDue(START.plus(StandingOrderEngine.ENDED_RETENTION));
+        assertNull(reloaded.getStandingOrders().get(oneOff.getId()));
+        assertNotNull(reloaded.getStandingOrders().get(recurring.getId()));
+
+        assertTrue(reloaded.getStandingOrders().cancel(recurring.getId()));
+        reloaded.getStandingOrders().runDue(LocalDateTime.now().plus(StandingOrderEngine.ENDED_RETENTION)
+            .plusYears(2));
+        assertTrue(reloaded.getStandingOrders().list(null).isEmpty());
+
+        StandingOrder next = new Bank(dataFile).getStandingOrders().create("ACC002", "ACC001", 5.0, START, null,
+            0, Duration.ZERO);
+        assertEquals("SO3", next.getId());
+    }
+
+    private Bank newBank() {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 500.0);
+        return bank;
+    }
+}
@@ -0,0 +1,93 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the StatementExporter class.
+ */
+public class StatementExporterTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testCsvExport() throws Exception {
+        Account account = new Account("ACC001", "John Doe", "password123", 1000.0);
+        account.deposit(12.5, "Lunch, with \"friends\"");
+        account.withdraw(0.07, "Fee");
+
+        Path output = tempDir.resolve("statement.csv");
+        long rows = new StatementExporter(StatementExporter.Format.CSV).export(account, output);
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(3, rows);
+        assertEquals(4, lines.size());
+        assertEquals("date,description,type,amount,balance_after,counterparty", lines.get(0));
+        assertTrue(lines.get(1).endsWith(",Initial Deposit,credit,1000.00,1000.00,"));
+        assertTrue(lines.get(2).contains(",\"Lunch, with \"\"friends\"\"\",credit,12.50,1012.50,"));
+        assertTrue(lines.get(3).endsWith(",Fee,debit,0.07,1012.43,"));
+    }
+
+    @Test
+    public void testJsonLinesExport() throws Exception {
+        Account account = new Account("ACC001", "John Doe", "password123", 1000.0);
+        account.withdraw(250.0, "Transfer to ACC002 é", "ACC002");
+
+        Path output = tempDir.resolve("statement.jsonl");
+        new StatementExporter(StatementExporter.Format.JSON_LINES).export(account, output);
+
+        List<String> lines = Files.readAllLines(output);
+        assertEquals(2, lines.size());
+        JsonObject row = JsonParser.parseString(lines.get(1)).getAsJsonObject();
+        assertEquals("ACC001", row.get("account").getAsString());
+        assertEquals("Transfer to ACC002 é", row.get("description").getAsString());
+        assertEquals(250.0, row.get("amount").getAsDouble(), 0.001);
+        assertEquals(750.0, row.get("balanceAfter").getAsDouble(), 0.001);
+        assertEquals("ACC002", row.get("counterparty").getAsString());
+    }
+
+    @Test
+    public void testExportAllInParallel() throws Exception {
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Account account = new Account("ACC" + i, "Holder " + i, "password123", 100.0);
+            account.deposit(1.0, "Deposit");
+            accounts.add(account);
+        }
+
+        Path directory = tempDir.resolve("statements");
+        long rows = new StatementExporter(StatementExporter.Format.CSV).exportAll(accounts, null, directory, 4);
+
+        assertEquals(100, rows);
+        try (var files = Files.list(directory)) {
+            assertEquals(50, files.count());
+        }
+        assertEquals(3, Files.readAllLines(directory.resolve("ACC7.csv")).size());
+    }
+
+    @Test
+    public void testExportAllKeepsFilesInsideDirectory() throws Exception {
+        List<Account> accounts = List.of(
+            new Account("../escape", "Holder", "password123", 100.0),
+            new Account("a/b", "Holder", "password123", 100.0),
+            new Account("a_002fb", "Holder", "password123", 100.0));
+
+        Path directory = tempDir.resolve("statements");
+        new StatementExporter(StatementExporter.Format.CSV).exportAll(accounts, null, directory, 2);
+
+        assertFalse(Files.exists(tempDir.resolve("escape.csv")));
+        try (var files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+        assertTrue(Files.exists(directory.resolve("_002e_002e_002fescape.csv")));
+    }
+}
@@ -0,0 +1,124 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the TransactionArchive and RetentionPolicy classes.
+ */
+public class TransactionArchiveTest {
+    @TempDir
+    Path tempDir;
+
+    private TransactionArchive archive;
+    private Account account;
+
+    @BeforeEach
+    public void setUp() {
+        archive = new TransactionArchive(tempDir.resolve("archive"));
+        account = new Account("ACC001", "John Doe", "password123", 0.0);
+        List<Account.Transaction> history = new ArrayList<>();
+        double balance = 0;
+        for (int day = 1; day <= 10; day++) {
+            balance += 100;
+            history.add(new Account.Transaction(String.format("2026-03-%02dT09:00:00", day),
+                "Deposit " + day, 100.0, "credit", balance));
+        }
+        account.setTransactions(history);
+        account.setBalance(balance);
+    }
+
+    @Test
+    public void testKeepLastCompaction() throws Exception {
+        int archived = archive.compact(account, RetentionPolicy.keepLast(3), LocalDateTime.now());
+
+        assertEquals(7, archived);
+        List<Account.Transaction> hot = account.getTransactions();
+        assertEquals(4, hot.size());
+        assertEquals(TransactionArchive.OPENING_TYPE, hot.get(0).getType());
+        assertEquals(700.0, hot.get(0).getBalanceAfter(), 0.01);
+        assertEquals("Deposit 8", hot.get(1).getDescription());
+        assertTrue(new Reconciler().reconcile(List.of(account)).isBalanced());
+
+        List<Account.Transaction> cold = archive.read("ACC001");
+        assertEquals(7, cold.size());
+        assertEquals("Deposit 1", cold.get(0).getDescription());
+    }
+
+    @Test
+    public void testKeepDaysCompaction() throws Exception {
+        archive.compact(account, RetentionPolicy.keepDays(2), LocalDateTime.of(2026, 3, 10, 12, 0));
+
+        List<Account.Transaction> hot = account.getTransactions();
+        assertEquals(3, hot.size());
+        assertEquals("Deposit 9", hot.get(1).getDescription());
+    }
+
+    @Test
+    public void testRepeatedCompactionAppendsSegments() throws Exception {
+        archive.compact(account, RetentionPolicy.keepLast(5), LocalDateTime.now());
+        account.getTransactions().add(new Account.Transaction("2026-03-11T09:00:00", "Deposit 11", 100.0,
+            "credit", 1100.0));
+        account.setBalance(1100.0);
+        archive.compact(account, RetentionPolicy.keepLast(2), LocalDateTime.now());
+
+        assertEquals(9, archive.read("ACC001").size());
+        assertEquals(3, account.getTransactions().size());
+        assertEquals(0, archive.compact(account, RetentionPolicy.keepLast(2), LocalDateTime.now()));
+    }
+
+    @Test
+    public void testUnsavedCompactionKeepsEntriesSharingTheLastTimestamp() throws Exception {
+        List<Account.Transaction> history = new ArrayList<>(account.getTransactions());
+        history.add(new Account.Transaction("2026-03-10T09:00:00", "Fee", 1.0, "debit", 999.0));
+        history.add(new Account.Transaction("2026-03-11T09:00:00", "Deposit 11", 100.0, "credit", 1099.0));
+        account.setTransactions(history);
+        account.setBalance(1099.0);
+        List<Account.Transaction> before = new ArrayList<>(account.getTransactions());
+
+        // Archive up to "Deposit 10" but lose the save, then compact further
+        archive.compact(account, RetentionPolicy.keepLast(2), LocalDateTime.now());
+        account.setTransactions(before);
+        assertEquals(1, archive.compact(account, RetentionPolicy.keepLast(1), LocalDateTime.now()));
+
+        List<Account.Transaction> cold = archive.read("ACC001");
+        assertEquals(11, cold.size());
+        assertEquals("Fee", cold.get(10).getDescription());
+    }
+
+    @Test
+    public void testQueryArchivedHistory() throws Exception {
+        archive.compact(account, RetentionPolicy.keepLast(1), LocalDateTime.now());
+
+        TransactionQuery query = new TransactionQuery().between(LocalDate.of(2026, 3, 3), LocalDate.of(2026, 3, 6));
+        List<Account.Transaction> result = archive.query("ACC001", query);
+        assertEquals(3, result.size());
+        assertEquals("Deposit 3", result.get(0).getDescription());
+    }
+
+    @Test
+    public void testBankCompactionPersists() throws Exception {
+        String file = tempDir.resolve("bank.json").toString();
+        Bank bank = new Bank(file);
+        bank.createAccount("ACC001", "John Doe", "password123", 100.0);
+        for (int i = 0; i < 5; i++) {
+            bank.getAccount("ACC001").deposit(10.0, "Deposit");
+        }
+        bank.saveData();
+
+        assertEquals(4, bank.compactHistory(RetentionPolicy.keepLast(2)));
+
+        Bank reloaded = new Bank(file);
+        assertEquals(3, reloaded.getAccount("ACC001").getTransactions().size());
+        assertEquals(4, reloaded.getArchivedTransactions("ACC001", null).size());
+        assertEquals(150.0, reloaded.getAccount("ACC001").getBalance(), 0.01);
+    }
+}
@@ -0,0 +1,67 @@
+package com.banking;
+
+import java.time.Duration;
+
+/**
+ * Measures the cost the velocity screen adds to a transfer.
+ *
+ * Not a unit test; run with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.banking.VelocityScreenBenchmark
+ * </pre>
+ */
+public class VelocityScreenBenchmark {
+    private static final int ACCOUNTS = 10_000;
+    private static final int ITERATIONS = 5_000_000;
+
+    public static void main(String[] args) {
+        VelocityScreen screen = new VelocityScreen()
+            .addRule(VelocityScreen.Rule.maxTransfers(1_000_000, Duration.ofMinutes(1)))
+            .addRule(VelocityScreen.Rule.maxTotal(1e12, Duration.ofHours(24)))
+            .addRule(VelocityScreen.Rule.maxFailedAuthentications(5, Duration.ofMinutes(15)));
+        String[] accounts = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = "ACC" + i;
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int round = 0; round < 3; round++) {
+            double single = run(screen, accounts, 1);
+            double contended = run(screen, accounts, threads);
+            System.out.printf("round %d: %.0f ns/transfer on 1 thread, %.0f ns/transfer on %d threads%n",
+                round, single, contended, threads);
+        }
+    }
+
+    /**
+     * @return Wall time per transfer per thread, i.e. the latency each transfer pays
+     */
+    private static double run(VelocityScreen screen, String[] accounts, int threads) {
+        long[] blocked = new long[threads];
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    String account = accounts[(i * 31 + id) % accounts.length];
+                    if (screen.check(account, 25.0) != null) {
+                        blocked[id]++;
+                    } else {
+                        screen.recordTransfer(account, 25.0);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Double.NaN;
+            }
+        }
+        return (System.nanoTime() - start) / (double) ITERATIONS;
+    }
+}
@@ -0,0 +1,134 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests for the VelocityScreen class and its use on the transfer path.
+ */
+public class VelocityScreenTest {
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    public void testTransferCountSlidesWithWindow() {
+        VelocityScreen screen = new VelocityScreen(now::get)
+            .addRule(VelocityScreen.Rule.maxTransfers(2, Duration.ofMinutes(1)));
+
+        assertNull(screen.check("ACC001", 10.0));
+        screen.recordTransfer("ACC001", 10.0);
+        screen.recordTransfer("ACC001", 10.0);
+        assertNotNull(screen.check("ACC001", 10.0));
+        assertNull(screen.check("ACC002", 10.0));
+
+        now.addAndGet(Duration.ofSeconds(61).toMillis());
+        assertNull(screen.check("ACC001", 10.0));
+    }
+
+    @Test
+    public void testTransferTotal() {
+        VelocityScreen screen = new VelocityScreen(now::get)
+            .addRule(VelocityScreen.Rule.maxTotal(100.0, Duration.ofHours(1)));
+
+        screen.recordTransfer("ACC001", 60.0);
+        assertNull(screen.check("ACC001", 40.0));
+        assertNotNull(screen.check("ACC001", 40.01));
+    }
+
+    @Test
+    public void testTrackedAccountsAreBounded() {
+        VelocityScreen.Rule rule = VelocityScreen.Rule.maxTransfers(5, Duration.ofMinutes(1));
+        VelocityScreen screen = new VelocityScreen(10, now::get).addRule(rule);
+        for (int i = 0; i < 10; i++) {
+            screen.recordTransfer("ACC" + i, 1.0);
+        }
+        now.addAndGet(Duration.ofSeconds(61).toMillis());
+        screen.recordTransfer("ACC001", 1.0);
+
+        // Windows that slid past their last transfer went first
+        assertEquals(1, rule.size());
+        for (int i = 0; i < 100; i++) {
+            screen.recordTransfer("NEW" + i, 1.0);
+        }
+        assertTrue(rule.size() <= 10);
+    }
+
+    @Test
+    public void testFullScreenKeepsLiveWindowsAndFailsClosed() {
+        VelocityScreen.Rule rule = VelocityScreen.Rule.maxTransfers(1, Duration.ofMinutes(1));
+        VelocityScreen screen = new VelocityScreen(10, now::get).addRule(rule);
+        screen.recordTransfer("ACC001", 1.0);
+        assertNotNull(screen.check("ACC001", 1.0));
+
+        // Flooding the screen with other accounts must not reset ACC001's limit
+        for (int i = 0; i < 100; i++) {
+            screen.recordTransfer("NEW" + i, 1.0);
+        }
+        assertEquals(10, rule.size());
+        assertNotNull(screen.check("ACC001", 1.0));
+        assertTrue(screen.check("OTHER", 1.0).startsWith("Velocity screen full"));
+
+        // Once the windows expire there is room again
+        now.addAndGet(Duration.ofSeconds(61).toMillis());
+        assertNull(screen.check("OTHER", 1.0));
+        assertNull(screen.check("ACC001", 1.0));
+    }
+
+    @Test
+    public void testConcurrentTransfersRespectCount() throws Exception {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 0.0);
+        bank.setVelocityScreen(new VelocityScreen(now::get)
+            .addRule(VelocityScreen.Rule.maxTransfers(5, Duration.ofMinutes(1))));
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5; i++) {
+                    bank.transfer("ACC001", "ACC002", 1.0, "password123");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(5.0, bank.getAccount("ACC002").getBalance(), 0.01);
+    }
+
+    @Test
+    public void testBankBlocksAfterFailedAuthentications() {
+        Bank bank = new Bank(tempDir.resolve("bank.json").toString());
+        bank.createAccount("ACC001", "John Doe", "password123", 1000.0);
+        bank.createAccount("ACC002", "Jane Smith", "password456", 500.0);
+        bank.setVelocityScreen(new VelocityScreen(now::get)
+            .addRule(VelocityScreen.Rule.maxFailedAuthentications(3, Duration.ofMinutes(15)))
+            .addRule(VelocityScreen.Rule.maxTransfers(1, Duration.ofMinutes(1))));
+
+        assertTrue(bank.transfer("ACC001", "ACC002", 10.0, "password123").isSuccess());
+        Bank.TransferResult limited = bank.transfer("ACC001", "ACC002", 10.0, "password123");
+        assertFalse(limited.isSuccess());
+        assertTrue(limited.getMessage().startsWith("Velocity limit"));
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(bank.authenticate("ACC002", "wrong"));
+        }
+        assertFalse(bank.transfer("ACC002", "ACC001", 10.0, "password456").isSuccess());
+        assertEquals(510.0, bank.getAccount("ACC002").getBalance(), 0.01);
+
+        // Failures on numbers that are not accounts are not tracked
+        for (int i = 0; i < 3; i++) {
+            assertNull(bank.authenticate("ACC999", "wrong"));
+        }
+        bank.createAccount("ACC999", "Late Comer", "password999", 100.0);
+        assertTrue(bank.transfer("ACC999", "ACC001", 10.0, "password999").isSuccess());
+    }
+}
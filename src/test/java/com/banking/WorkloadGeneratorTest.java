@@ -0,0 +1,74 @@
+package com.banking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Tests for the WorkloadGenerator class.
+ */
+public class WorkloadGeneratorTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testShortRunReportsEveryOperation() throws Exception {
+        WorkloadGenerator.Config config = WorkloadGenerator.Config.parse(new String[] {
+            "--accounts=50", "--threads=4", "--duration=1", "--report=1", "--store=events", "--dir=" + tempDir});
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WorkloadGenerator.Report report = new WorkloadGenerator(config,
+            new PrintStream(output, true, StandardCharsets.UTF_8)).run();
+
+        assertTrue(report.getTotal() > 0);
+        for (WorkloadGenerator.Operation operation : WorkloadGenerator.Operation.values()) {
+            assertTrue(report.getCount(operation) > 0, operation.name());
+            assertTrue(report.getLatency(operation, 50) <= report.getLatency(operation, 99));
+        }
+        assertEquals(0, report.getRejected(WorkloadGenerator.Operation.AUTHENTICATE));
+        assertTrue(report.getFileBytes() > 0);
+        assertTrue(output.toString(StandardCharsets.UTF_8).contains("TRANSFER"));
+
+        Bank reloaded = new Bank(tempDir.resolve("bank_data.json").toString(),
+            new EventLog(tempDir.resolve("bank_events.jsonl")));
+        assertEquals(50, reloaded.listAccounts().size());
+    }
+
+    @Test
+    public void testZipfFavoursLowRanks() {
+        WorkloadGenerator.Zipf zipf = new WorkloadGenerator.Zipf(1_000, 1.0);
+        SplittableRandom random = new SplittableRandom(1);
+        int hot = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (zipf.next(random) < 10) {
+                hot++;
+            }
+        }
+        // The top 1% of accounts takes about 39% of the traffic at skew 1
+        assertTrue(hot > 35_000 && hot < 43_000, "hot=" + hot);
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        WorkloadGenerator.LatencyHistogram histogram = new WorkloadGenerator.LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+        assertEquals(50_000, histogram.percentile(50), 50_000 * 0.07);
+        assertEquals(99_000, histogram.percentile(99), 99_000 * 0.07);
+        assertEquals(100_000, histogram.percentile(100));
+        assertEquals(100_000, histogram.max());
+    }
+
+    @Test
+    public void testRejectsBadOptions() {
+        assertThrows(IllegalArgumentException.class, () -> WorkloadGenerator.Config.parse(new String[] {"--bogus=1"}));
+        assertThrows(IllegalArgumentException.class, () -> WorkloadGenerator.Config.parse(new String[] {"--mix=1,2"}));
+        assertThrows(IllegalArgumentException.class, () -> WorkloadGenerator.Config.parse(new String[] {"accounts"}));
+    }
+}